@@ -0,0 +1,132 @@
+package org.csits.kel.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试数据生成。
+ *
+ * 熵（entropy）：
+ * - low：重复度高的文本行，近似枚举值多、字段相近的表导出，压缩率高
+ * - medium：分隔符文本行，数值与字符串字段随机，近似一般业务表导出
+ * - high：随机字节，近似已压缩或已加密的数据，几乎不可压缩
+ *
+ * 数据集（dataset）：
+ * - few-large：少量大文件
+ * - many-small：大量小文件，总量与 few-large 相同
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 20260101L;
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 按熵生成指定大小的文件
+     */
+    public static void writeFile(Path file, long size, String entropy) throws IOException {
+        writeFile(file, size, entropy, 0);
+    }
+
+    /**
+     * 按熵生成指定大小的文件，不同 seed 生成的内容不同（避免数据集中各文件内容相同而被压缩算法跨文件去重）
+     */
+    public static void writeFile(Path file, long size, String entropy, int seed) throws IOException {
+        Random random = new Random(SEED + seed);
+        byte[] block = new byte[BLOCK_SIZE];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BLOCK_SIZE)) {
+            long written = 0;
+            while (written < size) {
+                int length = (int) Math.min(block.length, size - written);
+                fillBlock(block, length, entropy, random);
+                out.write(block, 0, length);
+                written += length;
+            }
+        }
+    }
+
+    /**
+     * 生成数据集目录：fileCount 个 fileSize 大小的文件，命名与卸载数据文件一致（data/t_xxxx.txt）
+     */
+    public static void writeDataset(Path dir, int fileCount, long fileSize, String entropy) throws IOException {
+        Path dataDir = Files.createDirectories(dir.resolve("data"));
+        for (int i = 0; i < fileCount; i++) {
+            writeFile(dataDir.resolve(String.format("t_%04d.txt", i)), fileSize, entropy, i);
+        }
+    }
+
+    /**
+     * 数据集的文件数：few-large 为 4 个，many-small 为每个 64KB
+     */
+    public static int fileCount(String dataset, long totalSize) {
+        if ("few-large".equals(dataset)) {
+            return 4;
+        }
+        if ("many-small".equals(dataset)) {
+            return (int) Math.max(1, totalSize / (64 * 1024));
+        }
+        throw new IllegalArgumentException("未知数据集: " + dataset);
+    }
+
+    /**
+     * 递归删除目录
+     */
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || Files.notExists(dir)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(dir)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static void fillBlock(byte[] block, int length, String entropy, Random random) {
+        switch (entropy) {
+            case "high":
+                random.nextBytes(block);
+                return;
+            case "medium":
+                fillRows(block, length, random, true);
+                return;
+            case "low":
+                fillRows(block, length, random, false);
+                return;
+            default:
+                throw new IllegalArgumentException("未知熵级别: " + entropy);
+        }
+    }
+
+    /**
+     * 以分隔符文本行填充；randomFields 为 false 时只有序号变化
+     */
+    private static void fillRows(byte[] block, int length, Random random, boolean randomFields) {
+        int pos = 0;
+        long row = random.nextInt(1_000_000);
+        StringBuilder line = new StringBuilder(128);
+        while (pos < length) {
+            line.setLength(0);
+            line.append(row++).append('|');
+            if (randomFields) {
+                line.append(random.nextInt(100_000)).append('|')
+                    .append(Long.toHexString(random.nextLong())).append('|')
+                    .append(random.nextInt(10_000)).append('.').append(random.nextInt(100)).append('|');
+            } else {
+                line.append("1001|NORMAL|2026-01-01 00:00:00|0.00|");
+            }
+            line.append("CN\n");
+            byte[] bytes = line.toString().getBytes(StandardCharsets.US_ASCII);
+            int n = Math.min(bytes.length, length - pos);
+            System.arraycopy(bytes, 0, block, pos, n);
+            pos += n;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.csits.kel.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口：接受 JMH 命令行参数，未指定结果格式时以 JSON 写入 jmh-result.json，便于前后版本对比。
+ *
+ * <pre>
+ * mvn -pl kel-benchmarks -am package -DskipTests
+ * java -jar kel-benchmarks/target/benchmarks.jar                                  # 全部基准
+ * java -jar kel-benchmarks/target/benchmarks.jar CompressionBenchmark -p codec=zstd  # 指定基准与参数
+ * java -jar kel-benchmarks/target/benchmarks.jar -rff before.json                 # 指定结果文件
+ * </pre>
+ * 结果文件可用 JMH Visualizer 等工具对比。
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            // 未指定 -rff 时 JMH 按格式命名为 jmh-result.json
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        new Runner(options.build()).run();
+    }
+}
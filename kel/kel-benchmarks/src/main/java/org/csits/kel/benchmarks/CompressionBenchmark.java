@@ -0,0 +1,145 @@
+package org.csits.kel.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.csits.kel.manager.compression.CompressionCodec;
+import org.csits.kel.manager.compression.CompressionOptions;
+import org.csits.kel.manager.compression.LocalCompressionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 压缩、分片与合并解压基准：LocalCompressionManager 的
+ * compressToTarGz、decompressTarGz、split、mergeAndDecompress。
+ *
+ * 每次调用处理整个数据集，结果为单次平均耗时；吞吐量（MB/s）= totalMb / 耗时。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompressionBenchmark {
+
+    /** 数据集总大小（MB） */
+    @Param({"64"})
+    private int totalMb;
+
+    /** 数据集：few-large（4 个大文件）、many-small（每个 64KB） */
+    @Param({"few-large", "many-small"})
+    private String dataset;
+
+    /** 数据熵：low、medium、high */
+    @Param({"low", "medium", "high"})
+    private String entropy;
+
+    /** 压缩编码：gzip、zstd、lz4、none */
+    @Param({"gzip", "zstd", "lz4"})
+    private String codec;
+
+    /** 压缩线程数 */
+    @Param({"1", "4"})
+    private int threads;
+
+    /** 分片大小（MB） */
+    @Param({"16"})
+    private int splitMb;
+
+    private final LocalCompressionManager compressionManager = new LocalCompressionManager();
+
+    private Path baseDir;
+    private Path sourceDir;
+    private Path archive;
+    private Path splitDir;
+    private Path splitArchive;
+    private Path outputArchive;
+    private Path outputDir;
+    private CompressionOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("kel-bench-compress");
+        sourceDir = baseDir.resolve("source");
+        long totalSize = totalMb * 1024L * 1024L;
+        int fileCount = BenchmarkData.fileCount(dataset, totalSize);
+        BenchmarkData.writeDataset(sourceDir, fileCount, totalSize / fileCount, entropy);
+
+        options = CompressionOptions.defaults();
+        options.setCodec(CompressionCodec.fromName(codec));
+        options.setThreads(threads);
+
+        // 解压与合并解压的输入：预先压缩好的整包，以及按 splitMb 切好的分片目录
+        String extension = options.getCodec().getArchiveExtension();
+        archive = compressionManager.compressToTarGz(sourceDir, baseDir.resolve("archive" + extension), options);
+        splitDir = Files.createDirectories(baseDir.resolve("split"));
+        Path splitSource = splitDir.resolve("job_20260101_001" + extension);
+        Files.copy(archive, splitSource);
+        compressionManager.split(splitSource, splitMb * 1024L * 1024L);
+        if (Files.exists(splitSource.resolveSibling(splitSource.getFileName() + ".001"))) {
+            Files.delete(splitSource);
+        }
+        splitArchive = Files.createDirectories(baseDir.resolve("split-work")).resolve("archive" + extension);
+        Files.copy(archive, splitArchive);
+        outputArchive = baseDir.resolve("output" + extension);
+        outputDir = baseDir.resolve("output");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(baseDir);
+    }
+
+    /**
+     * 每次调用后清理输出，避免磁盘占用累积
+     */
+    @TearDown(Level.Invocation)
+    public void cleanOutput() throws IOException {
+        Files.deleteIfExists(outputArchive);
+        BenchmarkData.deleteRecursively(outputDir);
+        // split 的输出分片与输入整包在同一目录，只保留输入
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(splitArchive.getParent())) {
+            for (Path part : parts) {
+                if (!part.equals(splitArchive)) {
+                    Files.delete(part);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Path compress() throws IOException {
+        return compressionManager.compressToTarGz(sourceDir, outputArchive, options);
+    }
+
+    @Benchmark
+    public Path decompress() throws IOException {
+        compressionManager.decompressTarGz(archive, outputDir);
+        return outputDir;
+    }
+
+    @Benchmark
+    public List<Path> split() throws IOException {
+        return compressionManager.split(splitArchive, splitMb * 1024L * 1024L);
+    }
+
+    @Benchmark
+    public Path mergeAndDecompress() throws IOException {
+        return compressionManager.mergeAndDecompress(splitDir, outputDir);
+    }
+}
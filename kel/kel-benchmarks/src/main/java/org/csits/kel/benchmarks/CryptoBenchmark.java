@@ -0,0 +1,98 @@
+package org.csits.kel.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.csits.kel.manager.security.BouncyCastleSmCryptoManager;
+import org.csits.kel.manager.security.Sm4Mode;
+import org.csits.kel.manager.security.Sm4Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 国密基准：BouncyCastleSmCryptoManager 的 encryptSm4、decryptSm4（按模式与线程数）与 calculateSm3。
+ *
+ * calculateSm3 与 SM4 参数无关，只在 mode=cbc、threads=1 的组合下有意义，其余组合结果相同。
+ * 熵对 SM3/SM4 的计算量没有影响，保留该参数用于确认这一点并与压缩基准对齐。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CryptoBenchmark {
+
+    private static final String KEY = "kel-benchmark-key";
+
+    /** 文件大小（MB） */
+    @Param({"1", "64", "256"})
+    private int fileMb;
+
+    /** 数据熵：low、high */
+    @Param({"low", "high"})
+    private String entropy;
+
+    /** SM4 模式：cbc、ctr、gcm */
+    @Param({"cbc", "ctr", "gcm"})
+    private String mode;
+
+    /** 分段格式加解密线程数（cbc 忽略） */
+    @Param({"1", "4"})
+    private int threads;
+
+    private final BouncyCastleSmCryptoManager cryptoManager = new BouncyCastleSmCryptoManager();
+
+    private Path baseDir;
+    private Path plainFile;
+    private Path cipherFile;
+    private Path outputFile;
+    private Sm4Options options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        baseDir = Files.createTempDirectory("kel-bench-crypto");
+        plainFile = baseDir.resolve("plain.txt");
+        BenchmarkData.writeFile(plainFile, fileMb * 1024L * 1024L, entropy);
+        options = Sm4Options.defaults();
+        options.setMode(Sm4Mode.fromName(mode));
+        options.setThreads(threads);
+        cipherFile = baseDir.resolve("cipher.enc");
+        cryptoManager.encryptSm4(plainFile, cipherFile, KEY, options);
+        outputFile = baseDir.resolve("output");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(baseDir);
+    }
+
+    @Benchmark
+    public Path encryptSm4() throws IOException {
+        cryptoManager.encryptSm4(plainFile, outputFile, KEY, options);
+        return outputFile;
+    }
+
+    @Benchmark
+    public Path decryptSm4() throws IOException {
+        cryptoManager.decryptSm4(cipherFile, outputFile, KEY, options);
+        return outputFile;
+    }
+
+    @Benchmark
+    public String calculateSm3() throws IOException {
+        return cryptoManager.calculateSm3(plainFile);
+    }
+}
@@ -0,0 +1,73 @@
+package org.csits.kel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.csits.kel.server.dto.FileNamingConfig;
+import org.csits.kel.server.service.FileNamingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 文件命名基准：FileNamingService 生成标准文件名、简单文件名与分段文件名。
+ * 卸载时每个表（分段导出时每个分段）各调用一次，表数量多时累计开销可见。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileNamingBenchmark {
+
+    /** 接口编码映射中的表数量 */
+    @Param({"10", "10000"})
+    private int tableCount;
+
+    private final FileNamingService fileNamingService = new FileNamingService();
+
+    private FileNamingConfig standardConfig;
+    private String[] tableNames;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        standardConfig = new FileNamingConfig();
+        standardConfig.setEnableStandardNaming(true);
+        standardConfig.setSystemCode("KEL");
+        standardConfig.setVersion("V01");
+        tableNames = new String[tableCount];
+        for (int i = 0; i < tableCount; i++) {
+            tableNames[i] = "public.t_table_" + i;
+            standardConfig.getTableInterfaceMapping().put(tableNames[i], String.format("J%04d", i % 10000));
+        }
+    }
+
+    private String nextTable() {
+        next = (next + 1) % tableNames.length;
+        return tableNames[next];
+    }
+
+    @Benchmark
+    public String standardFileName() {
+        return fileNamingService.generateStandardFileName(standardConfig, nextTable(), next, false);
+    }
+
+    @Benchmark
+    public String simpleFileName() {
+        return fileNamingService.generateSimpleFileName(nextTable());
+    }
+
+    @Benchmark
+    public String partFileName() {
+        return FileNamingService.generatePartFileName("KEL_J0001_V01_20260101_001_Z.TXT", next++ % 999 + 1);
+    }
+}
@@ -0,0 +1,67 @@
+package org.csits.kel.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.csits.kel.manager.filesystem.LocalFileSystemManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 文件扫描基准：LocalFileSystemManager.scanFiles 在不同文件数与匹配模式下的耗时。
+ * 目录按每 100 个文件一个子目录组织，文件为空文件，只衡量遍历与模式匹配。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileScanBenchmark {
+
+    /** 文件数 */
+    @Param({"100", "10000"})
+    private int fileCount;
+
+    /** 匹配模式 */
+    @Param({"*.txt", "*_Z.TXT", "t_00*.txt"})
+    private String pattern;
+
+    private final LocalFileSystemManager fileSystemManager = new LocalFileSystemManager();
+
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("kel-bench-scan");
+        for (int i = 0; i < fileCount; i++) {
+            Path dir = Files.createDirectories(root.resolve(String.format("d%03d", i / 100)));
+            String name = i % 2 == 0 ? String.format("t_%05d.txt", i)
+                : String.format("KEL_J%04d_V01_20260101_001_Z.TXT", i % 10000);
+            Files.createFile(dir.resolve(name));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public List<Path> scanFiles() throws IOException {
+        return fileSystemManager.scanFiles(root, pattern);
+    }
+}
@@ -0,0 +1,106 @@
+package org.csits.kel.benchmarks.pipeline;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.csits.kel.dao.TaskExecutionDailyEntity;
+import org.csits.kel.dao.TaskExecutionDailyRepository;
+import org.csits.kel.dao.TaskExecutionEntity;
+import org.csits.kel.server.service.TaskExecutionRollupService;
+
+/**
+ * 内存任务执行按日汇总仓储，供流水线基准在无数据库时运行。重建时从内存任务执行仓储按
+ * （日期、作业、状态）重新分组，口径与数据库实现一致。
+ */
+class InMemoryTaskExecutionDailyRepository implements TaskExecutionDailyRepository {
+
+    private final InMemoryTaskExecutionRepository taskExecutionRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<List<Object>, TaskExecutionDailyEntity> rows = new HashMap<>();
+
+    InMemoryTaskExecutionDailyRepository(InMemoryTaskExecutionRepository taskExecutionRepository,
+                                         ObjectMapper objectMapper) {
+        this.taskExecutionRepository = taskExecutionRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void add(TaskExecutionDailyEntity delta) {
+        TaskExecutionDailyEntity row = rows.computeIfAbsent(
+            Arrays.asList(delta.getStatDate(), delta.getJobName(), delta.getStatus()), key -> {
+                TaskExecutionDailyEntity created = new TaskExecutionDailyEntity();
+                created.setStatDate(delta.getStatDate());
+                created.setJobName(delta.getJobName());
+                created.setStatus(delta.getStatus());
+                return created;
+            });
+        row.setTaskCount(row.getTaskCount() + delta.getTaskCount());
+        row.setTotalRows(row.getTotalRows() + delta.getTotalRows());
+        row.setTotalBytes(row.getTotalBytes() + delta.getTotalBytes());
+        row.setTotalDurationMs(row.getTotalDurationMs() + delta.getTotalDurationMs());
+    }
+
+    @Override
+    public synchronized Map<String, Long> sumTaskCountByStatus(LocalDate afterDate, LocalDate beforeDate,
+                                                               String jobName) {
+        Map<String, Long> counts = new HashMap<>();
+        for (TaskExecutionDailyEntity row : rows.values()) {
+            if (row.getStatDate().isBefore(beforeDate)
+                && (afterDate == null || row.getStatDate().isAfter(afterDate))
+                && (jobName == null || jobName.equals(row.getJobName()))) {
+                counts.merge(row.getStatus(), row.getTaskCount(), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 删除区间内的汇总行，再将统计时间（start_time，为空时取 created_at）落在区间内的终态任务重新分组写入
+     */
+    @Override
+    public synchronized int rebuild(LocalDate fromInclusive, LocalDate toExclusive) {
+        rows.keySet().removeIf(key -> {
+            LocalDate statDate = (LocalDate) key.get(0);
+            return !statDate.isBefore(fromInclusive) && statDate.isBefore(toExclusive);
+        });
+        LocalDateTime from = fromInclusive.atStartOfDay();
+        LocalDateTime to = toExclusive.atStartOfDay();
+        int before = rows.size();
+        for (TaskExecutionEntity entity : taskExecutionRepository.findAll()) {
+            LocalDateTime statTime = entity.getStartTime() != null ? entity.getStartTime() : entity.getCreatedAt();
+            if (TaskExecutionRollupService.isTerminal(entity.getStatus()) && !statTime.isBefore(from) && statTime.isBefore(to)) {
+                add(toDaily(entity, statTime));
+            }
+        }
+        return rows.size() - before;
+    }
+
+    private TaskExecutionDailyEntity toDaily(TaskExecutionEntity entity, LocalDateTime statTime) {
+        TaskExecutionDailyEntity daily = new TaskExecutionDailyEntity();
+        daily.setStatDate(statTime.toLocalDate());
+        daily.setJobName(entity.getJobName());
+        daily.setStatus(entity.getStatus());
+        daily.setTaskCount(1L);
+        if (entity.getEndTime() != null) {
+            daily.setTotalDurationMs(Duration.between(statTime, entity.getEndTime()).toMillis());
+        }
+        if (entity.getStatistics() != null && !entity.getStatistics().isEmpty()) {
+            try {
+                JsonNode statistics = objectMapper.readTree(entity.getStatistics());
+                daily.setTotalRows(statistics.path("totalRows").asLong());
+                daily.setTotalBytes(statistics.path("originalSize").asLong());
+            } catch (IOException e) {
+                throw new IllegalStateException("解析任务统计失败: taskId=" + entity.getId(), e);
+            }
+        }
+        return daily;
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.csits.kel.benchmarks.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.csits.kel.dao.TaskExecutionLogEntity;
+import org.csits.kel.dao.TaskExecutionLogRepository;
+
+/**
+ * 内存任务执行日志仓储，供流水线基准在无数据库时运行。
+ */
+class InMemoryTaskExecutionLogRepository implements TaskExecutionLogRepository {
+
+    private final List<TaskExecutionLogEntity> entries = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public synchronized void appendAll(List<TaskExecutionLogEntity> batch) {
+        for (TaskExecutionLogEntity entry : batch) {
+            entry.setId(sequence.incrementAndGet());
+            entries.add(entry);
+        }
+    }
+
+    @Override
+    public synchronized List<TaskExecutionLogEntity> findByTaskId(Long taskId, long afterId, int limit) {
+        return entries.stream()
+            .filter(e -> taskId.equals(e.getTaskId()) && e.getId() > afterId)
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized long countByTaskId(Long taskId) {
+        return entries.stream().filter(e -> taskId.equals(e.getTaskId())).count();
+    }
+}
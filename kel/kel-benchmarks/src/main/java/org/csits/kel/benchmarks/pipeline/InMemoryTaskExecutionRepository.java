@@ -0,0 +1,172 @@
+package org.csits.kel.benchmarks.pipeline;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.csits.kel.dao.TaskExecutionEntity;
+import org.csits.kel.dao.TaskExecutionQuery;
+import org.csits.kel.dao.TaskExecutionRepository;
+import org.csits.kel.dao.TaskExecutionSummary;
+
+/**
+ * 内存任务执行仓储，供流水线基准在无数据库时运行。
+ *
+ * 实体按引用保存，save 只分配 ID 与维护时间戳；进度、日志等写入路径上的序列化开销与数据库实现一致，
+ * 数据库往返本身不计入。精简投影直接返回完整实体。
+ */
+class InMemoryTaskExecutionRepository implements TaskExecutionRepository {
+
+    private final Map<Long, TaskExecutionEntity> entities = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public TaskExecutionEntity save(TaskExecutionEntity entity) {
+        LocalDateTime now = LocalDateTime.now();
+        if (entity.getId() == null) {
+            entity.setId(sequence.incrementAndGet());
+            entity.setCreatedAt(now);
+        }
+        entity.setUpdatedAt(now);
+        entity.clearDirtyFields();
+        entities.put(entity.getId(), entity);
+        return entity;
+    }
+
+    @Override
+    public List<TaskExecutionEntity> saveAll(List<TaskExecutionEntity> batch) {
+        batch.forEach(this::save);
+        return batch;
+    }
+
+    @Override
+    public boolean updateState(TaskExecutionEntity entity) {
+        TaskExecutionEntity stored = entities.get(entity.getId());
+        if (stored == null) {
+            return false;
+        }
+        stored.setStatus(entity.getStatus());
+        stored.setProgress(entity.getProgress());
+        stored.setCurrentStage(entity.getCurrentStage());
+        stored.setErrorMessage(entity.getErrorMessage());
+        stored.setStartTime(entity.getStartTime());
+        stored.setEndTime(entity.getEndTime());
+        stored.setUpdatedAt(LocalDateTime.now());
+        stored.clearDirtyFields();
+        return true;
+    }
+
+    @Override
+    public void updateStateAll(List<TaskExecutionEntity> batch) {
+        batch.forEach(this::updateState);
+    }
+
+    @Override
+    public Optional<TaskExecutionEntity> findById(Long id) {
+        return Optional.ofNullable(entities.get(id));
+    }
+
+    @Override
+    public Optional<TaskExecutionEntity> findStateById(Long id) {
+        return findById(id);
+    }
+
+    @Override
+    public List<TaskExecutionEntity> findSummariesByJobName(String jobName) {
+        return findByJobName(jobName);
+    }
+
+    @Override
+    public List<TaskExecutionEntity> findByJobName(String jobName) {
+        return entities.values().stream()
+            .filter(e -> jobName.equals(e.getJobName()))
+            .sorted(Comparator.comparing(TaskExecutionEntity::getCreatedAt).reversed())
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<TaskExecutionEntity> findByBatchNumber(String batchNumber) {
+        return entities.values().stream()
+            .filter(e -> batchNumber.equals(e.getBatchNumber()))
+            .max(Comparator.comparing(TaskExecutionEntity::getCreatedAt));
+    }
+
+    @Override
+    public List<TaskExecutionEntity> findAll() {
+        return entities.values().stream()
+            .sorted(Comparator.comparing(TaskExecutionEntity::getCreatedAt).reversed())
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<TaskExecutionSummary> findSummaries(TaskExecutionQuery query, int limit) {
+        Comparator<TaskExecutionEntity> order = Comparator.comparing(TaskExecutionEntity::getCreatedAt)
+            .thenComparing(TaskExecutionEntity::getId);
+        return entities.values().stream()
+            .filter(e -> query.getJobName() == null || query.getJobName().equals(e.getJobName()))
+            .filter(e -> query.getStatus() == null || query.getStatus().equals(e.getStatus()))
+            .filter(e -> query.getStartTimeFrom() == null
+                || (e.getStartTime() != null && !e.getStartTime().isBefore(query.getStartTimeFrom())))
+            .filter(e -> query.getAfterCreatedAt() == null || query.getAfterId() == null
+                || e.getCreatedAt().isBefore(query.getAfterCreatedAt())
+                || (e.getCreatedAt().equals(query.getAfterCreatedAt()) && e.getId() < query.getAfterId()))
+            .sorted(order.reversed())
+            .limit(limit)
+            .map(InMemoryTaskExecutionRepository::toSummary)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<String, Long> countUnrolledByStatus(LocalDateTime since, LocalDateTime rolledUpBefore, String jobName) {
+        LocalDateTime sinceDayEnd = since != null ? since.toLocalDate().plusDays(1).atStartOfDay() : null;
+        return entities.values().stream()
+            .filter(e -> jobName == null || jobName.equals(e.getJobName()))
+            .filter(e -> {
+                LocalDateTime statTime = e.getStartTime() != null ? e.getStartTime() : e.getCreatedAt();
+                boolean afterSince = since == null || !statTime.isBefore(since);
+                boolean finished = "SUCCESS".equals(e.getStatus()) || "FAILED".equals(e.getStatus())
+                    || "CANCELLED".equals(e.getStatus());
+                return !statTime.isBefore(rolledUpBefore)
+                    || (since != null && afterSince && statTime.isBefore(sinceDayEnd))
+                    || (!finished && afterSince);
+            })
+            .collect(Collectors.groupingBy(TaskExecutionEntity::getStatus, Collectors.counting()));
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        entities.remove(id);
+    }
+
+    @Override
+    public long count() {
+        return entities.size();
+    }
+
+    private static TaskExecutionSummary toSummary(TaskExecutionEntity entity) {
+        TaskExecutionSummary summary = new TaskExecutionSummary();
+        summary.setId(entity.getId());
+        summary.setJobName(entity.getJobName());
+        summary.setBatchNumber(entity.getBatchNumber());
+        summary.setNodeName(entity.getNodeName());
+        summary.setStatus(entity.getStatus());
+        summary.setProgress(entity.getProgress());
+        summary.setCurrentStage(entity.getCurrentStage());
+        summary.setErrorMessage(entity.getErrorMessage());
+        summary.setStartTime(entity.getStartTime());
+        summary.setEndTime(entity.getEndTime());
+        summary.setCreatedAt(entity.getCreatedAt());
+        return summary;
+    }
+
+    @Override
+    public long countByCreatedAtBetween(LocalDateTime startInclusive, LocalDateTime endExclusive) {
+        return entities.values().stream()
+            .filter(e -> !e.getCreatedAt().isBefore(startInclusive) && e.getCreatedAt().isBefore(endExclusive))
+            .count();
+    }
+}
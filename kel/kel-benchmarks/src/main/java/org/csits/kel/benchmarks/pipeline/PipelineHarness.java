@@ -0,0 +1,299 @@
+package org.csits.kel.benchmarks.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.csits.kel.benchmarks.BenchmarkData;
+import org.csits.kel.manager.compression.LocalCompressionManager;
+import org.csits.kel.manager.filesystem.LocalFileSystemManager;
+import org.csits.kel.manager.plugin.ExtractPlugin;
+import org.csits.kel.manager.plugin.LoadPlugin;
+import org.csits.kel.manager.security.BouncyCastleSmCryptoManager;
+import org.csits.kel.server.constants.JobType;
+import org.csits.kel.server.dto.GlobalConfig;
+import org.csits.kel.server.dto.JobConfig;
+import org.csits.kel.server.dto.TaskExecutionContext;
+import org.csits.kel.server.dto.TaskStatistics;
+import org.csits.kel.server.plugin.synthetic.SyntheticExtractPlugin;
+import org.csits.kel.server.plugin.synthetic.SyntheticLoadPlugin;
+import org.csits.kel.server.service.DiskSpaceChecker;
+import org.csits.kel.server.service.ManifestService;
+import org.csits.kel.server.service.ProgressTracker;
+import org.csits.kel.server.service.RetryService;
+import org.csits.kel.server.service.TaskExecutionRollupService;
+import org.csits.kel.server.service.TaskExecutionService;
+import org.csits.kel.server.service.TaskLogWriter;
+import org.csits.kel.server.service.TaskLogger;
+import org.csits.kel.server.service.TaskStateMachine;
+import org.csits.kel.server.service.TaskStateRegistry;
+import org.csits.kel.server.worker.core.ExtractPluginRegistry;
+import org.csits.kel.server.worker.core.LoadPluginRegistry;
+
+/**
+ * 全流程基准：以合成数据插件（SYNTHETIC_EXTRACT / SYNTHETIC_LOAD）代替 Kingbase，
+ * 在进程内依次执行 executeExtract 与 executeLoad，按阶段报告耗时、MB/s、行/s、分配量与磁盘占用峰值。
+ *
+ * 服务按生产代码手工装配，任务记录保存在内存仓储中，不需要数据库与 Spring 容器，可在任意 Linux 主机与 CI 上运行：
+ * <pre>
+ * mvn -pl kel-benchmarks -am package -DskipTests
+ * java -cp kel-benchmarks/target/benchmarks.jar org.csits.kel.benchmarks.pipeline.PipelineHarness \
+ *     --rows=5000000 --tables=16 --skew=1 --codec=zstd --split-mb=256 --encrypt=true --threads=4
+ * </pre>
+ * 参数（--名称=值）：
+ * <ul>
+ *   <li>rows、tables、columns（逗号分隔）、text-length、skew、seed：合成数据，见 config-spec 2.6</li>
+ *   <li>codec（gzip / zstd / lz4 / none）、compress-threads、split-mb：压缩与分片</li>
+ *   <li>encrypt、sm4-mode、sm3-chunk-mb：加密与分块校验</li>
+ *   <li>threads（表级并发）、hash-threads、streaming（流式卸载）、overlap（落盘卸载时导出与压缩重叠，默认 true）</li>
+ *   <li>warmup：正式测量前完整执行的轮数，默认 1；sample-ms：资源采样间隔，默认 100</li>
+ *   <li>dir：工作根目录，默认临时目录；keep：保留生成的文件；out：结果 JSON，默认 pipeline-result.json</li>
+ * </ul>
+ * MB/s 与行/s 均以合成数据的原始大小与总行数除以阶段耗时，便于对比同一数据集上各阶段的快慢。
+ */
+public final class PipelineHarness {
+
+    private static final String EXTRACT_JOB = "synthetic";
+    private static final String LOAD_JOB = "synthetic_load";
+    private static final double MB = 1024D * 1024D;
+
+    private final Map<String, String> options;
+
+    private PipelineHarness(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --名称=值: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        new PipelineHarness(options).run();
+    }
+
+    private void run() throws Exception {
+        Path baseDir = options.containsKey("dir")
+            ? Files.createDirectories(Paths.get(options.get("dir")))
+            : Files.createTempDirectory("kel-pipeline");
+        int warmup = intOption("warmup", 1);
+        try {
+            for (int i = 0; i < warmup; i++) {
+                runOnce(baseDir.resolve("warmup-" + i), false);
+            }
+            Map<String, Object> result = runOnce(baseDir.resolve("run"), true);
+            result.put("options", options);
+            Path out = Paths.get(options.getOrDefault("out", "pipeline-result.json"));
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(out.toFile(), result);
+            System.out.println("结果已写入 " + out.toAbsolutePath());
+        } finally {
+            if (!Boolean.parseBoolean(options.getOrDefault("keep", "false"))) {
+                BenchmarkData.deleteRecursively(baseDir);
+            }
+        }
+    }
+
+    /**
+     * 完整执行一次卸载与加载
+     *
+     * @param report 是否打印报告
+     * @return 结果（阶段明细与汇总）
+     */
+    private Map<String, Object> runOnce(Path runDir, boolean report) throws Exception {
+        Path workDir = runDir.resolve("work");
+        Path exchangeDir = runDir.resolve("exchange");
+        Path loadWorkDir = runDir.resolve("load-work");
+        Files.createDirectories(workDir);
+        Files.createDirectories(exchangeDir);
+        Files.createDirectories(loadWorkDir);
+
+        InMemoryTaskExecutionRepository repository = new InMemoryTaskExecutionRepository();
+        ObjectMapper objectMapper = new ObjectMapper();
+        BouncyCastleSmCryptoManager smCryptoManager = new BouncyCastleSmCryptoManager();
+        ManifestService manifestService = new ManifestService(smCryptoManager, objectMapper);
+        ResourceSampler sampler = new ResourceSampler(Arrays.asList(workDir, exchangeDir, loadWorkDir),
+            intOption("sample-ms", 100));
+        StageProbe probe = new StageProbe(repository, sampler);
+        List<ExtractPlugin> extractPlugins = new ArrayList<>();
+        extractPlugins.add(new SyntheticExtractPlugin(probe, smCryptoManager));
+        List<LoadPlugin> loadPlugins = new ArrayList<>();
+        loadPlugins.add(new SyntheticLoadPlugin());
+        TaskLogWriter taskLogWriter = new TaskLogWriter(new InMemoryTaskExecutionLogRepository());
+        TaskExecutionRollupService rollupService = new TaskExecutionRollupService(repository,
+            new InMemoryTaskExecutionDailyRepository(repository, objectMapper), objectMapper);
+        TaskStateRegistry taskStateRegistry = new TaskStateRegistry(repository, rollupService);
+        TaskExecutionService service = new TaskExecutionService(repository, new LocalFileSystemManager(),
+            new LocalCompressionManager(), smCryptoManager,
+            new TaskLogger(repository, taskLogWriter, taskStateRegistry, rollupService),
+            new ExtractPluginRegistry(extractPlugins), new LoadPluginRegistry(loadPlugins), manifestService,
+            new RetryService(), probe, new DiskSpaceChecker(),
+            new TaskStateMachine(repository, taskStateRegistry, rollupService),
+            new ProgressTracker(repository, taskStateRegistry));
+
+        GlobalConfig globalConfig = globalConfig();
+        JobConfig.SyntheticConfig synthetic = syntheticConfig();
+        sampler.start();
+        long extractNanos;
+        long loadNanos;
+        TaskExecutionContext extract;
+        try {
+            long start = System.nanoTime();
+            extract = service.createContext(EXTRACT_JOB, globalConfig, extractJob(workDir, exchangeDir, synthetic));
+            probe.registerTask(extract.getTaskId(), "extract");
+            service.executeExtract(extract);
+            extractNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            TaskExecutionContext load = service.createContext(LOAD_JOB, globalConfig,
+                loadJob(loadWorkDir, exchangeDir.resolve(EXTRACT_JOB), synthetic), extract.getBatchNumber());
+            probe.registerTask(load.getTaskId(), "load");
+            service.executeLoad(load);
+            loadNanos = System.nanoTime() - start;
+        } finally {
+            taskLogWriter.close();
+            taskStateRegistry.close();
+            sampler.close();
+        }
+
+        TaskStatistics extractStats = probe.getTaskStatistics(extract.getTaskId());
+        long dataBytes = extractStats.getOriginalSize();
+        long rows = synthetic.getRows();
+        List<Map<String, Object>> stages = new ArrayList<>();
+        for (StageProbe.StageSample sample : probe.getSamples()) {
+            stages.add(stageResult(sample.getSide(), sample.getStage(), sample.getDurationNanos(),
+                sample.getAllocatedBytes(), sample.getPeakDiskBytes(), dataBytes, rows));
+        }
+        long allocated = sampler.allocatedBytes();
+        stages.add(stageResult("extract", "TOTAL", extractNanos, -1L, 0L, dataBytes, rows));
+        stages.add(stageResult("load", "TOTAL", loadNanos, -1L, 0L, dataBytes, rows));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("data_bytes", dataBytes);
+        result.put("compressed_bytes", extractStats.getCompressedSize());
+        result.put("rows", rows);
+        result.put("peak_disk_bytes", sampler.peakDiskUsage(0L, Long.MAX_VALUE));
+        result.put("allocated_bytes", allocated);
+        result.put("stages", stages);
+        if (report) {
+            printReport(result, stages, sampler.isAllocationSupported());
+        }
+        return result;
+    }
+
+    private static Map<String, Object> stageResult(String side, String stage, long nanos, long allocatedBytes,
+                                                   long peakDiskBytes, long dataBytes, long rows) {
+        double seconds = nanos / 1e9;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("side", side);
+        result.put("stage", stage);
+        result.put("seconds", seconds);
+        result.put("mb_per_sec", seconds > 0 ? dataBytes / MB / seconds : null);
+        result.put("rows_per_sec", seconds > 0 ? rows / seconds : null);
+        result.put("allocated_mb", allocatedBytes >= 0 ? allocatedBytes / MB : null);
+        result.put("alloc_mb_per_sec", allocatedBytes >= 0 && seconds > 0 ? allocatedBytes / MB / seconds : null);
+        result.put("peak_disk_mb", peakDiskBytes > 0 ? peakDiskBytes / MB : null);
+        return result;
+    }
+
+    private static void printReport(Map<String, Object> result, List<Map<String, Object>> stages,
+                                     boolean allocationSupported) {
+        System.out.printf("数据 %.1f MB，%d 行，压缩后 %.1f MB，磁盘峰值 %.1f MB%s%n",
+            (Long) result.get("data_bytes") / MB, (Long) result.get("rows"),
+            (Long) result.get("compressed_bytes") / MB, (Long) result.get("peak_disk_bytes") / MB,
+            allocationSupported ? String.format("，累计分配 %.1f MB", (Long) result.get("allocated_bytes") / MB)
+                : "（当前 JVM 不支持分配量统计）");
+        System.out.printf("%-8s %-10s %10s %10s %14s %12s %14s %12s%n",
+            "side", "stage", "seconds", "MB/s", "rows/s", "alloc MB", "alloc MB/s", "peak disk MB");
+        for (Map<String, Object> stage : stages) {
+            System.out.printf("%-8s %-10s %10.3f %10s %14s %12s %14s %12s%n",
+                stage.get("side"), stage.get("stage"), stage.get("seconds"),
+                format(stage.get("mb_per_sec"), "%.1f"), format(stage.get("rows_per_sec"), "%.0f"),
+                format(stage.get("allocated_mb"), "%.1f"), format(stage.get("alloc_mb_per_sec"), "%.1f"),
+                format(stage.get("peak_disk_mb"), "%.1f"));
+        }
+    }
+
+    private static String format(Object value, String pattern) {
+        return value == null ? "-" : String.format(pattern, value);
+    }
+
+    private GlobalConfig globalConfig() {
+        GlobalConfig globalConfig = new GlobalConfig();
+        GlobalConfig.ConcurrencyConfig concurrency = new GlobalConfig.ConcurrencyConfig();
+        concurrency.setHashThreads(intOption("hash-threads", 4));
+        globalConfig.setConcurrency(concurrency);
+
+        GlobalConfig.CompressionConfig compression = new GlobalConfig.CompressionConfig();
+        compression.setAlgorithm(options.getOrDefault("codec", "gzip"));
+        compression.setThreads(intOption("compress-threads", 1));
+        int splitMb = intOption("split-mb", 0);
+        if (splitMb > 0) {
+            compression.setSplitThresholdGb(splitMb / 1024D);
+        }
+        globalConfig.setCompression(compression);
+
+        GlobalConfig.SecurityConfig security = new GlobalConfig.SecurityConfig();
+        security.setEnableEncryption(Boolean.parseBoolean(options.getOrDefault("encrypt", "false")));
+        security.setSm4Key("kel-benchmark-key");
+        security.setSm4Mode(options.get("sm4-mode"));
+        security.setSm3ChunkMb(intOption("sm3-chunk-mb", 0));
+        globalConfig.setSecurity(security);
+        return globalConfig;
+    }
+
+    private JobConfig.SyntheticConfig syntheticConfig() {
+        JobConfig.SyntheticConfig synthetic = new JobConfig.SyntheticConfig();
+        synthetic.setRows(Long.parseLong(options.getOrDefault("rows", "1000000")));
+        synthetic.setTables(intOption("tables", 8));
+        if (options.containsKey("columns")) {
+            synthetic.setColumns(Arrays.asList(options.get("columns").split(",")));
+        }
+        synthetic.setTextLength(intOption("text-length", 32));
+        synthetic.setSkew(Double.parseDouble(options.getOrDefault("skew", "0")));
+        synthetic.setSeed(Long.parseLong(options.getOrDefault("seed", "42")));
+        return synthetic;
+    }
+
+    private JobConfig extractJob(Path workDir, Path exchangeDir, JobConfig.SyntheticConfig synthetic) {
+        JobConfig jobConfig = newJob(EXTRACT_JOB, JobType.SYNTHETIC_EXTRACT, workDir, synthetic);
+        jobConfig.setExchangeDir(exchangeDir.toString());
+        jobConfig.getRuntime().setStreamingPipeline(Boolean.parseBoolean(options.getOrDefault("streaming", "false")));
+        jobConfig.getRuntime().setStageOverlap(Boolean.parseBoolean(options.getOrDefault("overlap", "true")));
+        return jobConfig;
+    }
+
+    private JobConfig loadJob(Path workDir, Path inputDir, JobConfig.SyntheticConfig synthetic) {
+        JobConfig jobConfig = newJob(LOAD_JOB, JobType.SYNTHETIC_LOAD, workDir, synthetic);
+        jobConfig.setInputDirectory(inputDir.toString());
+        return jobConfig;
+    }
+
+    private JobConfig newJob(String name, JobType type, Path workDir, JobConfig.SyntheticConfig synthetic) {
+        JobConfig jobConfig = new JobConfig();
+        JobConfig.JobBasic job = new JobConfig.JobBasic();
+        job.setName(name);
+        job.setType(type);
+        jobConfig.setJob(job);
+        jobConfig.setWorkDir(workDir.toString());
+        JobConfig.RuntimeConfig runtime = new JobConfig.RuntimeConfig();
+        runtime.setTableConcurrency(intOption("threads", 1));
+        jobConfig.setRuntime(runtime);
+        jobConfig.setSynthetic(synthetic);
+        return jobConfig;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+}
@@ -0,0 +1,152 @@
+package org.csits.kel.benchmarks.pipeline;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 后台定时采样：基准目录的磁盘占用与 JVM 累计分配字节数。
+ *
+ * 分配量取自 HotSpot 的线程级计数（com.sun.management.ThreadMXBean），按线程记住最近一次读数后求和；
+ * 线程在两次采样之间结束时，其最后一段分配会漏计，结果为近似下限。
+ * 磁盘占用为各根目录下常规文件大小之和，峰值取采样窗口内的最大值。
+ */
+class ResourceSampler implements AutoCloseable {
+
+    private final List<Path> roots;
+    private final long intervalMs;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final Map<Long, Long> lastAllocated = new HashMap<>();
+    private final List<long[]> diskSamples = new ArrayList<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    ResourceSampler(List<Path> roots, long intervalMs) {
+        this.roots = roots;
+        this.intervalMs = intervalMs;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.threadBean = (com.sun.management.ThreadMXBean) bean;
+            this.threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            this.threadBean = null;
+        }
+        this.thread = new Thread(this::run, "kel-resource-sampler");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        sample();
+        thread.start();
+    }
+
+    /**
+     * 是否支持统计分配量，不支持时 {@link #allocatedBytes()} 恒为 -1
+     */
+    boolean isAllocationSupported() {
+        return threadBean != null;
+    }
+
+    /**
+     * 立即采样并返回累计分配字节数
+     */
+    synchronized long allocatedBytes() {
+        if (threadBean == null) {
+            return -1L;
+        }
+        long[] ids = threadBean.getAllThreadIds();
+        long[] allocated = threadBean.getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (allocated[i] >= 0) {
+                lastAllocated.put(ids[i], allocated[i]);
+            }
+        }
+        long total = 0;
+        for (long bytes : lastAllocated.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * 立即采样并返回当前磁盘占用（字节）
+     */
+    long diskUsage() {
+        long bytes = 0;
+        for (Path root : roots) {
+            bytes += directorySize(root);
+        }
+        synchronized (this) {
+            diskSamples.add(new long[] {System.nanoTime(), bytes});
+        }
+        return bytes;
+    }
+
+    /**
+     * [fromNanos, toNanos] 内采样到的磁盘占用峰值（字节）
+     */
+    synchronized long peakDiskUsage(long fromNanos, long toNanos) {
+        long peak = 0;
+        for (long[] sample : diskSamples) {
+            if (sample[0] >= fromNanos && sample[0] <= toNanos) {
+                peak = Math.max(peak, sample[1]);
+            }
+        }
+        return peak;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join();
+        sample();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sample();
+        }
+    }
+
+    private void sample() {
+        allocatedBytes();
+        diskUsage();
+    }
+
+    private static long directorySize(Path root) {
+        if (!Files.isDirectory(root)) {
+            return 0L;
+        }
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.mapToLong(ResourceSampler::sizeOf).sum();
+        } catch (IOException | UncheckedIOException e) {
+            // 采样期间流水线在删除、改名文件，本次采样放弃
+            return 0L;
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.isRegularFile(path) ? Files.size(path) : 0L;
+        } catch (NoSuchFileException e) {
+            return 0L;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.csits.kel.benchmarks.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Data;
+import org.csits.kel.dao.TaskExecutionRepository;
+import org.csits.kel.server.service.MetricsCollector;
+
+/**
+ * 在任务流程记录阶段起止的位置测量各阶段：纳秒级耗时、阶段内分配字节数与磁盘占用峰值。
+ *
+ * 继承 MetricsCollector 以接入 TaskExecutionService 现有的阶段埋点，原有统计行为不变。
+ */
+class StageProbe extends MetricsCollector {
+
+    private final ResourceSampler sampler;
+    private final Map<Long, String> sides = new ConcurrentHashMap<>();
+    private final Map<String, long[]> open = new ConcurrentHashMap<>();
+    private final List<StageSample> samples = new ArrayList<>();
+
+    StageProbe(TaskExecutionRepository taskExecutionRepository, ResourceSampler sampler) {
+        super(taskExecutionRepository);
+        this.sampler = sampler;
+    }
+
+    /**
+     * 阶段测量结果
+     */
+    @Data
+    static class StageSample {
+        /** extract 或 load */
+        private final String side;
+        private final String stage;
+        private final long durationNanos;
+        /** 阶段内分配字节数，不支持统计时为 -1 */
+        private final long allocatedBytes;
+        private final long peakDiskBytes;
+    }
+
+    /**
+     * 登记任务所属的一侧（extract / load），用于区分两侧同名阶段
+     */
+    void registerTask(Long taskId, String side) {
+        sides.put(taskId, side);
+    }
+
+    synchronized List<StageSample> getSamples() {
+        return new ArrayList<>(samples);
+    }
+
+    @Override
+    public void recordStageStart(Long taskId, String stageName) {
+        sampler.diskUsage();
+        open.put(key(taskId, stageName), new long[] {System.nanoTime(), sampler.allocatedBytes()});
+        super.recordStageStart(taskId, stageName);
+    }
+
+    @Override
+    public void recordStageEnd(Long taskId, String stageName, String status, String message) {
+        super.recordStageEnd(taskId, stageName, status, message);
+        long[] start = open.remove(key(taskId, stageName));
+        if (start == null) {
+            return;
+        }
+        long end = System.nanoTime();
+        long allocated = sampler.allocatedBytes();
+        sampler.diskUsage();
+        long allocatedInStage = allocated >= 0 && start[1] >= 0 ? allocated - start[1] : -1L;
+        StageSample sample = new StageSample(sides.getOrDefault(taskId, "task-" + taskId), stageName,
+            end - start[0], allocatedInStage, sampler.peakDiskUsage(start[0], System.nanoTime()));
+        synchronized (this) {
+            samples.add(sample);
+        }
+    }
+
+    private static String key(Long taskId, String stageName) {
+        return taskId + ":" + stageName;
+    }
+}
@@ -0,0 +1,103 @@
+package org.csits.kel.dao;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 基于数据库的任务执行按日汇总仓储实现。
+ *
+ * 重建与任务结束时的累加可能交错：重建期间结束的任务可能被重复计入，宜在空闲时回填。
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class DatabaseTaskExecutionDailyRepository implements TaskExecutionDailyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO task_execution_daily (stat_date, job_name, status, task_count, total_rows, total_bytes, " +
+        "total_duration_ms, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (stat_date, job_name, status) DO UPDATE SET " +
+        "task_count = task_execution_daily.task_count + EXCLUDED.task_count, " +
+        "total_rows = task_execution_daily.total_rows + EXCLUDED.total_rows, " +
+        "total_bytes = task_execution_daily.total_bytes + EXCLUDED.total_bytes, " +
+        "total_duration_ms = task_execution_daily.total_duration_ms + EXCLUDED.total_duration_ms, " +
+        "updated_at = CURRENT_TIMESTAMP";
+
+    private static final String DELETE_RANGE_SQL =
+        "DELETE FROM task_execution_daily WHERE stat_date >= ? AND stat_date < ?";
+
+    private static final String STAT_TIME = DatabaseTaskExecutionRepository.STAT_TIME;
+
+    private static final String REBUILD_SQL =
+        "INSERT INTO task_execution_daily (stat_date, job_name, status, task_count, total_rows, total_bytes, " +
+        "total_duration_ms, updated_at) " +
+        "SELECT CAST(" + STAT_TIME + " AS DATE), job_name, status, COUNT(*), " +
+        "COALESCE(SUM(CAST(CAST(NULLIF(statistics, '') AS JSONB) ->> 'totalRows' AS BIGINT)), 0), " +
+        "COALESCE(SUM(CAST(CAST(NULLIF(statistics, '') AS JSONB) ->> 'originalSize' AS BIGINT)), 0), " +
+        "COALESCE(SUM(CAST(EXTRACT(EPOCH FROM (end_time - " + STAT_TIME + ")) * 1000 AS BIGINT)), 0), " +
+        "CURRENT_TIMESTAMP " +
+        "FROM task_execution " +
+        "WHERE status IN ('SUCCESS', 'FAILED', 'CANCELLED') AND " + STAT_TIME + " >= ? AND " + STAT_TIME + " < ? " +
+        "GROUP BY CAST(" + STAT_TIME + " AS DATE), job_name, status";
+
+    @Override
+    public void add(TaskExecutionDailyEntity delta) {
+        jdbcTemplate.update(UPSERT_SQL,
+            Date.valueOf(delta.getStatDate()),
+            delta.getJobName(),
+            delta.getStatus(),
+            delta.getTaskCount(),
+            delta.getTotalRows(),
+            delta.getTotalBytes(),
+            delta.getTotalDurationMs()
+        );
+        log.debug("累加任务日汇总: date={}, jobName={}, status={}, taskCount={}",
+            delta.getStatDate(), delta.getJobName(), delta.getStatus(), delta.getTaskCount());
+    }
+
+    @Override
+    public Map<String, Long> sumTaskCountByStatus(LocalDate afterDate, LocalDate beforeDate, String jobName) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT status, SUM(task_count) AS cnt FROM task_execution_daily WHERE stat_date < ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Date.valueOf(beforeDate));
+        if (afterDate != null) {
+            sql.append(" AND stat_date > ?");
+            args.add(Date.valueOf(afterDate));
+        }
+        if (jobName != null) {
+            sql.append(" AND job_name = ?");
+            args.add(jobName);
+        }
+        sql.append(" GROUP BY status");
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        RowCallbackHandler handler = rs -> counts.put(rs.getString("status"), rs.getLong("cnt"));
+        jdbcTemplate.query(sql.toString(), handler, args.toArray());
+        return counts;
+    }
+
+    @Override
+    @Transactional
+    public int rebuild(LocalDate fromInclusive, LocalDate toExclusive) {
+        int deleted = jdbcTemplate.update(DELETE_RANGE_SQL, Date.valueOf(fromInclusive), Date.valueOf(toExclusive));
+        int inserted = jdbcTemplate.update(REBUILD_SQL,
+            Timestamp.valueOf(fromInclusive.atStartOfDay()),
+            Timestamp.valueOf(toExclusive.atStartOfDay()));
+        log.info("重建任务日汇总: [{}, {}), 删除 {} 行, 写入 {} 行", fromInclusive, toExclusive, deleted, inserted);
+        return inserted;
+    }
+}
@@ -0,0 +1,77 @@
+package org.csits.kel.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 基于数据库的任务执行日志仓储实现，读写 kel.task_execution_log。
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class DatabaseTaskExecutionLogRepository implements TaskExecutionLogRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO task_execution_log (task_id, log_level, stage, message, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_BY_TASK_SQL =
+        "SELECT * FROM task_execution_log WHERE task_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String COUNT_BY_TASK_SQL =
+        "SELECT COUNT(*) FROM task_execution_log WHERE task_id = ?";
+
+    @Override
+    public void appendAll(List<TaskExecutionLogEntity> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getTaskId());
+            ps.setString(2, entry.getLogLevel());
+            ps.setString(3, entry.getStage());
+            ps.setString(4, entry.getMessage());
+            ps.setTimestamp(5, Timestamp.valueOf(
+                entry.getCreatedAt() != null ? entry.getCreatedAt() : LocalDateTime.now()));
+        });
+        log.debug("追加任务执行日志 {} 条", entries.size());
+    }
+
+    @Override
+    public List<TaskExecutionLogEntity> findByTaskId(Long taskId, long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_BY_TASK_SQL, new TaskExecutionLogRowMapper(), taskId, afterId, limit);
+    }
+
+    @Override
+    public long countByTaskId(Long taskId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_BY_TASK_SQL, Long.class, taskId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * RowMapper实现
+     */
+    private static class TaskExecutionLogRowMapper implements RowMapper<TaskExecutionLogEntity> {
+        @Override
+        public TaskExecutionLogEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+            TaskExecutionLogEntity entity = new TaskExecutionLogEntity();
+            entity.setId(rs.getLong("id"));
+            entity.setTaskId(rs.getLong("task_id"));
+            entity.setLogLevel(rs.getString("log_level"));
+            entity.setStage(rs.getString("stage"));
+            entity.setMessage(rs.getString("message"));
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            entity.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+            return entity;
+        }
+    }
+}
@@ -4,18 +4,27 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 /**
- * 基于数据库的任务执行仓储实现
+ * 基于数据库的任务执行仓储实现。execution_log 只读（旧版本写入的日志），新日志见 {@link TaskExecutionLogRepository}。
+ *
+ * - 更新只写实体记录的修改列，无修改时不写库
+ * - 列表与状态查询只取精简投影的列，不读配置快照、统计信息与旧日志；列表的过滤、键集分页与按状态统计在 SQL 中完成
  */
 @Slf4j
 @Repository
@@ -26,26 +35,63 @@ public class DatabaseTaskExecutionRepository implements TaskExecutionRepository
 
     private static final String INSERT_SQL =
         "INSERT INTO task_execution (job_name, batch_number, status, node_name, config_snapshot, " +
-        "progress, current_stage, error_message, start_time, end_time, statistics, execution_log) " +
-        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb)";
+        "progress, current_stage, error_message, start_time, end_time, statistics) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-    private static final String UPDATE_SQL =
-        "UPDATE task_execution SET status = ?, node_name = ?, config_snapshot = ?, " +
-        "progress = ?, current_stage = ?, error_message = ?, start_time = ?, end_time = ?, statistics = ?, execution_log = ?::jsonb " +
-        "WHERE id = ?";
+    /**
+     * 可更新列：属性名 -> 列名与取值，顺序即 SET 子句顺序
+     */
+    private static final Map<String, UpdatableColumn> UPDATABLE_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        UPDATABLE_COLUMNS.put("status", new UpdatableColumn("status", TaskExecutionEntity::getStatus));
+        UPDATABLE_COLUMNS.put("nodeName", new UpdatableColumn("node_name", TaskExecutionEntity::getNodeName));
+        UPDATABLE_COLUMNS.put("configSnapshot",
+            new UpdatableColumn("config_snapshot", TaskExecutionEntity::getConfigSnapshot));
+        UPDATABLE_COLUMNS.put("progress", new UpdatableColumn("progress", TaskExecutionEntity::getProgress));
+        UPDATABLE_COLUMNS.put("currentStage",
+            new UpdatableColumn("current_stage", TaskExecutionEntity::getCurrentStage));
+        UPDATABLE_COLUMNS.put("errorMessage",
+            new UpdatableColumn("error_message", TaskExecutionEntity::getErrorMessage));
+        UPDATABLE_COLUMNS.put("startTime", new UpdatableColumn("start_time", e -> toTimestamp(e.getStartTime())));
+        UPDATABLE_COLUMNS.put("endTime", new UpdatableColumn("end_time", e -> toTimestamp(e.getEndTime())));
+        UPDATABLE_COLUMNS.put("statistics", new UpdatableColumn("statistics", TaskExecutionEntity::getStatistics));
+    }
+
+    /**
+     * 精简投影的列，不含 config_snapshot、statistics、execution_log
+     */
+    private static final String SUMMARY_COLUMNS =
+        "id, job_name, batch_number, status, node_name, progress, current_stage, error_message, " +
+        "start_time, end_time, created_at, updated_at";
+
+    private static final String UPDATE_STATE_SQL =
+        "UPDATE task_execution SET status = ?, progress = ?, current_stage = ?, error_message = ?, " +
+        "start_time = ?, end_time = ? WHERE id = ?";
 
     private static final String SELECT_BY_ID_SQL =
         "SELECT * FROM task_execution WHERE id = ?";
 
+    private static final String SELECT_STATE_BY_ID_SQL =
+        "SELECT " + SUMMARY_COLUMNS + " FROM task_execution WHERE id = ?";
+
     private static final String SELECT_BY_JOB_CODE_SQL =
         "SELECT * FROM task_execution WHERE job_name = ? ORDER BY created_at DESC";
 
+    private static final String SELECT_SUMMARIES_BY_JOB_CODE_SQL =
+        "SELECT " + SUMMARY_COLUMNS + " FROM task_execution WHERE job_name = ? ORDER BY created_at DESC";
+
     private static final String SELECT_BY_BATCH_NUMBER_SQL =
         "SELECT * FROM task_execution WHERE batch_number = ? ORDER BY created_at DESC LIMIT 1";
 
     private static final String SELECT_ALL_SQL =
         "SELECT * FROM task_execution ORDER BY created_at DESC";
 
+    /**
+     * 统计时间：start_time 为空（创建时即为 RUNNING 的任务）时取 created_at，与按日汇总的日期一致
+     */
+    static final String STAT_TIME = "COALESCE(start_time, created_at)";
+
     private static final String DELETE_SQL =
         "DELETE FROM task_execution WHERE id = ?";
 
@@ -80,39 +126,100 @@ public class DatabaseTaskExecutionRepository implements TaskExecutionRepository
             ps.setTimestamp(9, toTimestamp(entity.getStartTime()));
             ps.setTimestamp(10, toTimestamp(entity.getEndTime()));
             ps.setString(11, entity.getStatistics());
-            ps.setString(12, entity.getExecutionLog() != null ? entity.getExecutionLog() : "[]");
             return ps;
         }, keyHolder);
 
         Long id = keyHolder.getKey().longValue();
         entity.setId(id);
+        entity.clearDirtyFields();
         log.debug("插入任务执行记录: id={}, jobName={}, batchNumber={}",
             id, entity.getJobName(), entity.getBatchNumber());
         return entity;
     }
 
     private TaskExecutionEntity update(TaskExecutionEntity entity) {
-        int rows = jdbcTemplate.update(UPDATE_SQL,
+        List<String> columns = dirtyColumns(entity);
+        if (columns.isEmpty()) {
+            log.debug("任务执行记录无修改，跳过更新: id={}", entity.getId());
+            return entity;
+        }
+        int rows = jdbcTemplate.update(updateSql(columns), updateArgs(entity, columns));
+        entity.clearDirtyFields();
+
+        if (rows == 0) {
+            log.warn("更新任务执行记录失败，记录不存在: id={}", entity.getId());
+        } else {
+            log.debug("更新任务执行记录: id={}, columns={}", entity.getId(), columns);
+        }
+        return entity;
+    }
+
+    @Override
+    public List<TaskExecutionEntity> saveAll(List<TaskExecutionEntity> entities) {
+        // 新记录逐条插入以取回ID；更新按修改列分组，每组一次批量执行
+        Map<List<String>, List<TaskExecutionEntity>> updates = new LinkedHashMap<>();
+        for (TaskExecutionEntity entity : entities) {
+            if (entity.getId() == null) {
+                insert(entity);
+                continue;
+            }
+            List<String> columns = dirtyColumns(entity);
+            if (!columns.isEmpty()) {
+                updates.computeIfAbsent(columns, k -> new ArrayList<>()).add(entity);
+            }
+        }
+        for (Map.Entry<List<String>, List<TaskExecutionEntity>> group : updates.entrySet()) {
+            List<String> columns = group.getKey();
+            List<Object[]> batchArgs = new ArrayList<>(group.getValue().size());
+            for (TaskExecutionEntity entity : group.getValue()) {
+                batchArgs.add(updateArgs(entity, columns));
+            }
+            jdbcTemplate.batchUpdate(updateSql(columns), batchArgs);
+            group.getValue().forEach(TaskExecutionEntity::clearDirtyFields);
+            log.debug("批量更新任务执行记录: {} 条, columns={}", batchArgs.size(), columns);
+        }
+        return entities;
+    }
+
+    @Override
+    public boolean updateState(TaskExecutionEntity entity) {
+        int rows = jdbcTemplate.update(UPDATE_STATE_SQL,
             entity.getStatus(),
-            entity.getNodeName(),
-            entity.getConfigSnapshot(),
             entity.getProgress(),
             entity.getCurrentStage(),
             entity.getErrorMessage(),
             toTimestamp(entity.getStartTime()),
             toTimestamp(entity.getEndTime()),
-            entity.getStatistics(),
-            entity.getExecutionLog() != null ? entity.getExecutionLog() : "[]",
             entity.getId()
         );
-
         if (rows == 0) {
-            log.warn("更新任务执行记录失败，记录不存在: id={}", entity.getId());
+            log.warn("更新任务状态失败，记录不存在: id={}", entity.getId());
         } else {
-            log.debug("更新任务执行记录: id={}, status={}, progress={}",
+            log.debug("更新任务状态: id={}, status={}, progress={}",
                 entity.getId(), entity.getStatus(), entity.getProgress());
         }
-        return entity;
+        return rows > 0;
+    }
+
+    @Override
+    public void updateStateAll(List<TaskExecutionEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(entities.size());
+        for (TaskExecutionEntity entity : entities) {
+            batchArgs.add(new Object[]{
+                entity.getStatus(),
+                entity.getProgress(),
+                entity.getCurrentStage(),
+                entity.getErrorMessage(),
+                toTimestamp(entity.getStartTime()),
+                toTimestamp(entity.getEndTime()),
+                entity.getId()
+            });
+        }
+        jdbcTemplate.batchUpdate(UPDATE_STATE_SQL, batchArgs);
+        log.debug("批量更新任务状态: {} 条", entities.size());
     }
 
     @Override
@@ -125,11 +232,26 @@ public class DatabaseTaskExecutionRepository implements TaskExecutionRepository
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
 
+    @Override
+    public Optional<TaskExecutionEntity> findStateById(Long id) {
+        List<TaskExecutionEntity> results = jdbcTemplate.query(
+            SELECT_STATE_BY_ID_SQL,
+            new TaskExecutionStateRowMapper(),
+            id
+        );
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    }
+
     @Override
     public List<TaskExecutionEntity> findByJobName(String jobName) {
         return jdbcTemplate.query(SELECT_BY_JOB_CODE_SQL, new TaskExecutionRowMapper(), jobName);
     }
 
+    @Override
+    public List<TaskExecutionEntity> findSummariesByJobName(String jobName) {
+        return jdbcTemplate.query(SELECT_SUMMARIES_BY_JOB_CODE_SQL, new TaskExecutionStateRowMapper(), jobName);
+    }
+
     @Override
     public Optional<TaskExecutionEntity> findByBatchNumber(String batchNumber) {
         List<TaskExecutionEntity> results = jdbcTemplate.query(
@@ -145,6 +267,61 @@ public class DatabaseTaskExecutionRepository implements TaskExecutionRepository
         return jdbcTemplate.query(SELECT_ALL_SQL, new TaskExecutionRowMapper());
     }
 
+    @Override
+    public List<TaskExecutionSummary> findSummaries(TaskExecutionQuery query, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(SUMMARY_COLUMNS)
+            .append(" FROM task_execution WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (query.getJobName() != null) {
+            sql.append(" AND job_name = ?");
+            args.add(query.getJobName());
+        }
+        if (query.getStatus() != null) {
+            sql.append(" AND status = ?");
+            args.add(query.getStatus());
+        }
+        if (query.getStartTimeFrom() != null) {
+            sql.append(" AND start_time >= ?");
+            args.add(Timestamp.valueOf(query.getStartTimeFrom()));
+        }
+        if (query.getAfterCreatedAt() != null && query.getAfterId() != null) {
+            // 行值比较可直接利用 (created_at, id) 索引定位到上一页末尾
+            sql.append(" AND (created_at, id) < (?, ?)");
+            args.add(Timestamp.valueOf(query.getAfterCreatedAt()));
+            args.add(query.getAfterId());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), new TaskExecutionSummaryRowMapper(), args.toArray());
+    }
+
+    @Override
+    public Map<String, Long> countUnrolledByStatus(LocalDateTime since, LocalDateTime rolledUpBefore, String jobName) {
+        StringBuilder sql = new StringBuilder("SELECT status, COUNT(*) AS cnt FROM task_execution WHERE ");
+        List<Object> args = new ArrayList<>();
+        if (jobName != null) {
+            sql.append("job_name = ? AND ");
+            args.add(jobName);
+        }
+        sql.append("(").append(STAT_TIME).append(" >= ?");
+        args.add(Timestamp.valueOf(rolledUpBefore));
+        if (since != null) {
+            sql.append(" OR (").append(STAT_TIME).append(" >= ? AND ").append(STAT_TIME).append(" < ?)");
+            args.add(Timestamp.valueOf(since));
+            args.add(Timestamp.valueOf(since.toLocalDate().plusDays(1).atStartOfDay()));
+            sql.append(" OR (status NOT IN ('SUCCESS', 'FAILED', 'CANCELLED') AND ").append(STAT_TIME).append(" >= ?)");
+            args.add(Timestamp.valueOf(since));
+        } else {
+            sql.append(" OR status NOT IN ('SUCCESS', 'FAILED', 'CANCELLED')");
+        }
+        sql.append(") GROUP BY status");
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        RowCallbackHandler handler = rs -> counts.put(rs.getString("status"), rs.getLong("cnt"));
+        jdbcTemplate.query(sql.toString(), handler, args.toArray());
+        return counts;
+    }
+
     @Override
     public void deleteById(Long id) {
         int rows = jdbcTemplate.update(DELETE_SQL, id);
@@ -170,6 +347,53 @@ public class DatabaseTaskExecutionRepository implements TaskExecutionRepository
         return count != null ? count : 0;
     }
 
+    /**
+     * 实体中有修改、可更新的列名（按 {@link #UPDATABLE_COLUMNS} 顺序）
+     */
+    private static List<String> dirtyColumns(TaskExecutionEntity entity) {
+        Set<String> dirty = entity.dirtyFields();
+        List<String> columns = new ArrayList<>(dirty.size());
+        for (String field : UPDATABLE_COLUMNS.keySet()) {
+            if (dirty.contains(field)) {
+                columns.add(field);
+            }
+        }
+        return columns;
+    }
+
+    private static String updateSql(List<String> fields) {
+        StringBuilder sql = new StringBuilder("UPDATE task_execution SET ");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(UPDATABLE_COLUMNS.get(fields.get(i)).name).append(" = ?");
+        }
+        return sql.append(" WHERE id = ?").toString();
+    }
+
+    private static Object[] updateArgs(TaskExecutionEntity entity, List<String> fields) {
+        Object[] args = new Object[fields.size() + 1];
+        for (int i = 0; i < fields.size(); i++) {
+            args[i] = UPDATABLE_COLUMNS.get(fields.get(i)).getter.apply(entity);
+        }
+        args[fields.size()] = entity.getId();
+        return args;
+    }
+
+    /**
+     * 可更新列
+     */
+    private static final class UpdatableColumn {
+        private final String name;
+        private final Function<TaskExecutionEntity, Object> getter;
+
+        private UpdatableColumn(String name, Function<TaskExecutionEntity, Object> getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+    }
+
     /**
      * RowMapper实现
      */
@@ -177,30 +401,70 @@ public class DatabaseTaskExecutionRepository implements TaskExecutionRepository
         @Override
         public TaskExecutionEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
             TaskExecutionEntity entity = new TaskExecutionEntity();
-            entity.setId(rs.getLong("id"));
-            entity.setJobName(rs.getString("job_name"));
-            entity.setBatchNumber(rs.getString("batch_number"));
-            entity.setStatus(rs.getString("status"));
-            entity.setNodeName(rs.getString("node_name"));
+            mapSummary(rs, entity);
             entity.setConfigSnapshot(rs.getString("config_snapshot"));
-            entity.setProgress(rs.getInt("progress"));
-            entity.setCurrentStage(rs.getString("current_stage"));
-            entity.setErrorMessage(rs.getString("error_message"));
-            entity.setStartTime(toLocalDateTime(rs.getTimestamp("start_time")));
-            entity.setEndTime(toLocalDateTime(rs.getTimestamp("end_time")));
             entity.setStatistics(rs.getString("statistics"));
             String executionLog = rs.getString("execution_log");
             entity.setExecutionLog(executionLog != null ? executionLog : "[]");
-            entity.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
-            entity.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+            entity.clearDirtyFields();
             return entity;
         }
     }
 
+    /**
+     * 精简投影的 RowMapper：大字段保持为 null
+     */
+    private static class TaskExecutionStateRowMapper implements RowMapper<TaskExecutionEntity> {
+        @Override
+        public TaskExecutionEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+            TaskExecutionEntity entity = new TaskExecutionEntity();
+            mapSummary(rs, entity);
+            entity.clearDirtyFields();
+            return entity;
+        }
+    }
+
+    /**
+     * 任务摘要 RowMapper
+     */
+    private static class TaskExecutionSummaryRowMapper implements RowMapper<TaskExecutionSummary> {
+        @Override
+        public TaskExecutionSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+            TaskExecutionSummary summary = new TaskExecutionSummary();
+            summary.setId(rs.getLong("id"));
+            summary.setJobName(rs.getString("job_name"));
+            summary.setBatchNumber(rs.getString("batch_number"));
+            summary.setNodeName(rs.getString("node_name"));
+            summary.setStatus(rs.getString("status"));
+            summary.setProgress(rs.getInt("progress"));
+            summary.setCurrentStage(rs.getString("current_stage"));
+            summary.setErrorMessage(rs.getString("error_message"));
+            summary.setStartTime(toLocalDateTime(rs.getTimestamp("start_time")));
+            summary.setEndTime(toLocalDateTime(rs.getTimestamp("end_time")));
+            summary.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+            return summary;
+        }
+    }
+
+    private static void mapSummary(ResultSet rs, TaskExecutionEntity entity) throws SQLException {
+        entity.setId(rs.getLong("id"));
+        entity.setJobName(rs.getString("job_name"));
+        entity.setBatchNumber(rs.getString("batch_number"));
+        entity.setStatus(rs.getString("status"));
+        entity.setNodeName(rs.getString("node_name"));
+        entity.setProgress(rs.getInt("progress"));
+        entity.setCurrentStage(rs.getString("current_stage"));
+        entity.setErrorMessage(rs.getString("error_message"));
+        entity.setStartTime(toLocalDateTime(rs.getTimestamp("start_time")));
+        entity.setEndTime(toLocalDateTime(rs.getTimestamp("end_time")));
+        entity.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        entity.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+    }
+
     /**
      * 转换LocalDateTime到Timestamp
      */
-    private Timestamp toTimestamp(LocalDateTime dateTime) {
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
         return dateTime != null ? Timestamp.valueOf(dateTime) : null;
     }
 
@@ -0,0 +1,29 @@
+package org.csits.kel.dao;
+
+import java.time.LocalDate;
+import lombok.Data;
+
+/**
+ * 任务执行按日汇总，对应 kel.task_execution_daily，按（日期、作业、终态状态）一行。
+ * 日期取任务的统计时间 start_time（为空时取 created_at）所在日。
+ */
+@Data
+public class TaskExecutionDailyEntity {
+
+    private LocalDate statDate;
+
+    private String jobName;
+
+    private String status;
+
+    private long taskCount;
+
+    /** 处理行数合计（取自任务统计 totalRows） */
+    private long totalRows;
+
+    /** 数据量合计（字节，取自任务统计 originalSize） */
+    private long totalBytes;
+
+    /** 执行耗时合计（毫秒，统计时间至 end_time） */
+    private long totalDurationMs;
+}
@@ -0,0 +1,32 @@
+package org.csits.kel.dao;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 任务执行按日汇总仓储。汇总只含已结束（SUCCESS、FAILED、CANCELLED）的任务。
+ */
+public interface TaskExecutionDailyRepository {
+
+    /**
+     * 将 delta 的各项累加到对应（日期、作业、状态）行，行不存在时新增；delta 可为负（撤销）
+     */
+    void add(TaskExecutionDailyEntity delta);
+
+    /**
+     * 按状态合计任务数
+     *
+     * @param afterDate 只统计该日之后（不含）的汇总；为 null 时不限
+     * @param beforeDate 只统计该日之前（不含）的汇总
+     * @param jobName 作业名；为 null 时统计全部作业
+     * @return 状态 -> 任务数
+     */
+    Map<String, Long> sumTaskCountByStatus(LocalDate afterDate, LocalDate beforeDate, String jobName);
+
+    /**
+     * 按 task_execution 重建 [fromInclusive, toExclusive) 的汇总（先删除后重算，同一事务）
+     *
+     * @return 重建后的汇总行数
+     */
+    int rebuild(LocalDate fromInclusive, LocalDate toExclusive);
+}
@@ -1,10 +1,22 @@
 package org.csits.kel.dao;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 /**
  * 任务执行表实体，参照方案 3.1。
+ *
+ * 可更新列的 setter 记录修改过的字段，更新时只写这些列（见 {@link #dirtyFields()}）；
+ * 仓储读出或写库后清空。
  */
 @Data
 public class TaskExecutionEntity {
@@ -38,10 +50,85 @@ public class TaskExecutionEntity {
     private String statistics;
 
     /**
-     * 执行日志（原 task_execution_log 合并），JSON 数组，元素含 log_level、stage、message、created_at。
+     * 旧版本写入的执行日志，JSON 数组，元素含 log_level、stage、message、created_at；只读，
+     * 新日志追加到 task_execution_log（见 TaskExecutionLogRepository）。
      */
     private String executionLog;
 
+    /**
+     * 自读出或上次写库以来值有变化的字段（属性名）；不参与序列化与比较
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient Set<String> dirtyFields = new HashSet<>();
+
+    public void setStatus(String status) {
+        markDirty("status", this.status, status);
+        this.status = status;
+    }
+
+    public void setNodeName(String nodeName) {
+        markDirty("nodeName", this.nodeName, nodeName);
+        this.nodeName = nodeName;
+    }
+
+    public void setConfigSnapshot(String configSnapshot) {
+        markDirty("configSnapshot", this.configSnapshot, configSnapshot);
+        this.configSnapshot = configSnapshot;
+    }
+
+    public void setProgress(Integer progress) {
+        markDirty("progress", this.progress, progress);
+        this.progress = progress;
+    }
+
+    public void setCurrentStage(String currentStage) {
+        markDirty("currentStage", this.currentStage, currentStage);
+        this.currentStage = currentStage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        markDirty("errorMessage", this.errorMessage, errorMessage);
+        this.errorMessage = errorMessage;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        markDirty("startTime", this.startTime, startTime);
+        this.startTime = startTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        markDirty("endTime", this.endTime, endTime);
+        this.endTime = endTime;
+    }
+
+    public void setStatistics(String statistics) {
+        markDirty("statistics", this.statistics, statistics);
+        this.statistics = statistics;
+    }
+
+    /**
+     * 值有变化、尚未写库的字段（属性名）
+     */
+    public Set<String> dirtyFields() {
+        return Collections.unmodifiableSet(dirtyFields);
+    }
+
+    /**
+     * 清空修改记录（仓储读出或写库后调用）
+     */
+    public void clearDirtyFields() {
+        dirtyFields.clear();
+    }
+
+    private void markDirty(String field, Object oldValue, Object newValue) {
+        if (!Objects.equals(oldValue, newValue)) {
+            dirtyFields.add(field);
+        }
+    }
+
     // 兼容旧代码的getter/setter
     public Long getTaskId() {
         return id;
@@ -64,7 +151,7 @@ public class TaskExecutionEntity {
     }
 
     public void setMessage(String message) {
-        this.currentStage = message;
+        setCurrentStage(message);
     }
 }
 
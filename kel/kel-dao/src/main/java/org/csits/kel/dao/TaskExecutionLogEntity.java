@@ -0,0 +1,23 @@
+package org.csits.kel.dao;
+
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * 任务执行日志实体，对应 kel.task_execution_log（只追加）。
+ */
+@Data
+public class TaskExecutionLogEntity {
+
+    private Long id;
+
+    private Long taskId;
+
+    private String logLevel;
+
+    private String stage;
+
+    private String message;
+
+    private LocalDateTime createdAt;
+}
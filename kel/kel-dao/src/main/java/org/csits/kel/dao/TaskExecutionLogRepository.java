@@ -0,0 +1,26 @@
+package org.csits.kel.dao;
+
+import java.util.List;
+
+/**
+ * 任务执行日志仓储接口：日志只追加不修改，按任务分页读取。
+ */
+public interface TaskExecutionLogRepository {
+
+    /**
+     * 批量追加日志，按列表顺序写入
+     */
+    void appendAll(List<TaskExecutionLogEntity> entries);
+
+    /**
+     * 按写入顺序分页查询任务日志：返回 id 大于 afterId 的前 limit 条
+     *
+     * @param afterId 上一页最后一条的 id，首页传 0
+     */
+    List<TaskExecutionLogEntity> findByTaskId(Long taskId, long afterId, int limit);
+
+    /**
+     * 统计任务日志条数
+     */
+    long countByTaskId(Long taskId);
+}
@@ -0,0 +1,25 @@
+package org.csits.kel.dao;
+
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * 任务列表查询条件，为 null 的条件不参与过滤。
+ *
+ * 结果按 (created_at, id) 倒序；afterCreatedAt 与 afterId 为上一页最后一条记录的值（键集分页），
+ * 均为 null 时从第一页开始。
+ */
+@Data
+public class TaskExecutionQuery {
+
+    private String jobName;
+
+    private String status;
+
+    /** start_time >= startTimeFrom */
+    private LocalDateTime startTimeFrom;
+
+    private LocalDateTime afterCreatedAt;
+
+    private Long afterId;
+}
@@ -2,28 +2,60 @@ package org.csits.kel.dao;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * 任务执行仓储接口，支持内存和数据库两种实现。
+ *
+ * 带 Summary / State 的查询为精简投影，不含 config_snapshot、statistics、execution_log 等大字段，
+ * 用于列表与状态读取；需要这些字段时用 {@link #findById}。
  */
 public interface TaskExecutionRepository {
 
     /**
-     * 保存任务执行记录（新增或更新）
+     * 保存任务执行记录（新增或更新）。更新时只写 {@link TaskExecutionEntity#dirtyFields()} 中的列，无修改时不写库
      */
     TaskExecutionEntity save(TaskExecutionEntity entity);
 
+    /**
+     * 批量保存任务执行记录，更新按修改列分组批量执行
+     */
+    List<TaskExecutionEntity> saveAll(List<TaskExecutionEntity> entities);
+
+    /**
+     * 只更新任务状态相关列：status、progress、current_stage、error_message、start_time、end_time，
+     * 不回写配置快照与统计信息
+     *
+     * @return 是否更新到记录
+     */
+    boolean updateState(TaskExecutionEntity entity);
+
+    /**
+     * 批量执行 {@link #updateState}
+     */
+    void updateStateAll(List<TaskExecutionEntity> entities);
+
     /**
      * 根据ID查询任务执行记录
      */
     Optional<TaskExecutionEntity> findById(Long id);
 
+    /**
+     * 根据ID查询任务状态（精简投影）
+     */
+    Optional<TaskExecutionEntity> findStateById(Long id);
+
     /**
      * 根据作业名查询任务执行记录列表
      */
     List<TaskExecutionEntity> findByJobName(String jobName);
 
+    /**
+     * 根据作业名查询任务执行记录列表（精简投影）
+     */
+    List<TaskExecutionEntity> findSummariesByJobName(String jobName);
+
     /**
      * 根据批次号查询任务执行记录
      */
@@ -34,6 +66,24 @@ public interface TaskExecutionRepository {
      */
     List<TaskExecutionEntity> findAll();
 
+    /**
+     * 按条件查询任务摘要，按 (created_at, id) 倒序，从 query 中的游标之后取最多 limit 条
+     */
+    List<TaskExecutionSummary> findSummaries(TaskExecutionQuery query, int limit);
+
+    /**
+     * 按状态统计未计入按日汇总的任务数，与 {@link TaskExecutionDailyRepository} 的汇总合并即为完整统计。
+     * 统计时间取 start_time，为空时取 created_at；计入的任务为：
+     * 统计时间 >= rolledUpBefore 的任务（当天），统计时间在 since 所在日内且 >= since 的任务（首个不完整日），
+     * 以及统计时间 >= since 的未结束任务
+     *
+     * @param since 统计起始时间；为 null 时不限
+     * @param rolledUpBefore 汇总覆盖到该时间之前（当天零点）
+     * @param jobName 作业名；为 null 时统计全部作业
+     * @return 状态 -> 任务数
+     */
+    Map<String, Long> countUnrolledByStatus(LocalDateTime since, LocalDateTime rolledUpBefore, String jobName);
+
     /**
      * 删除任务执行记录
      */
@@ -0,0 +1,33 @@
+package org.csits.kel.dao;
+
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * 任务执行记录摘要，用于任务列表；不含配置快照、统计信息与执行日志。
+ */
+@Data
+public class TaskExecutionSummary {
+
+    private Long id;
+
+    private String jobName;
+
+    private String batchNumber;
+
+    private String nodeName;
+
+    private String status;
+
+    private Integer progress;
+
+    private String currentStage;
+
+    private String errorMessage;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+
+    private LocalDateTime createdAt;
+}
@@ -1,7 +1,7 @@
 -- Kel 元数据库 schema：实例名 kel，所有表置于 kel schema 下。
 CREATE SCHEMA IF NOT EXISTS kel;
 
--- 任务执行表（含执行日志：execution_log 合并原 task_execution_log）
+-- 任务执行表（execution_log 仅保留旧版本写入的日志，新日志追加到 task_execution_log）
 CREATE TABLE IF NOT EXISTS kel.task_execution (
     id BIGSERIAL PRIMARY KEY,
     job_name VARCHAR(100) NOT NULL,
@@ -24,6 +24,36 @@ CREATE INDEX IF NOT EXISTS idx_task_execution_job_name ON kel.task_execution(job
 CREATE INDEX IF NOT EXISTS idx_task_execution_batch_number ON kel.task_execution(batch_number);
 CREATE INDEX IF NOT EXISTS idx_task_execution_status ON kel.task_execution(status);
 CREATE INDEX IF NOT EXISTS idx_task_execution_created_at ON kel.task_execution(created_at);
+-- 任务列表键集分页：ORDER BY created_at DESC, id DESC
+CREATE INDEX IF NOT EXISTS idx_task_execution_created_at_id ON kel.task_execution(created_at DESC, id DESC);
+-- 任务统计时间（start_time 为空时取 created_at），用于统计当天及未结束任务
+CREATE INDEX IF NOT EXISTS idx_task_execution_stat_time ON kel.task_execution((COALESCE(start_time, created_at)));
+
+-- 任务执行日志表（只追加，按 task_id + id 分页读取）
+CREATE TABLE IF NOT EXISTS kel.task_execution_log (
+    id BIGSERIAL PRIMARY KEY,
+    task_id BIGINT NOT NULL,
+    log_level VARCHAR(10) NOT NULL,
+    stage VARCHAR(50),
+    message TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (task_id) REFERENCES kel.task_execution(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_task_execution_log_task_id ON kel.task_execution_log(task_id, id);
+
+-- 任务执行按日汇总（日期、作业、终态状态；任务结束时累加，可按日期区间从 task_execution 回填）
+CREATE TABLE IF NOT EXISTS kel.task_execution_daily (
+    stat_date DATE NOT NULL,
+    job_name VARCHAR(100) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    task_count BIGINT NOT NULL DEFAULT 0,
+    total_rows BIGINT NOT NULL DEFAULT 0,
+    total_bytes BIGINT NOT NULL DEFAULT 0,
+    total_duration_ms BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (stat_date, job_name, status)
+);
 
 -- 任务执行统计表
 CREATE TABLE IF NOT EXISTS kel.task_execution_stats (
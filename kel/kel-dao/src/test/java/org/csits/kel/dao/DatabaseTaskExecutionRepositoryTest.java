@@ -0,0 +1,122 @@
+package org.csits.kel.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * 任务执行仓储按修改列更新与列表查询测试
+ */
+@ExtendWith(MockitoExtension.class)
+class DatabaseTaskExecutionRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private DatabaseTaskExecutionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new DatabaseTaskExecutionRepository(jdbcTemplate);
+    }
+
+    @Test
+    void save_updatesOnlyChangedColumns() {
+        TaskExecutionEntity entity = loaded(1L);
+        entity.setProgress(50);
+        entity.setCurrentStage("EXPORT");
+        // 值未变化的字段不写
+        entity.setStatus("RUNNING");
+
+        repository.save(entity);
+
+        verify(jdbcTemplate).update("UPDATE task_execution SET progress = ?, current_stage = ? WHERE id = ?",
+            50, "EXPORT", 1L);
+        assertThat(entity.dirtyFields()).isEmpty();
+    }
+
+    @Test
+    void save_withoutChanges_skipsUpdate() {
+        TaskExecutionEntity entity = loaded(1L);
+
+        repository.save(entity);
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void saveAll_batchesUpdatesByChangedColumns() {
+        TaskExecutionEntity a = loaded(1L);
+        a.setStatistics("{\"a\":1}");
+        TaskExecutionEntity b = loaded(2L);
+        b.setStatistics("{\"b\":2}");
+        TaskExecutionEntity c = loaded(3L);
+        c.setProgress(80);
+
+        repository.saveAll(Arrays.asList(a, b, c));
+
+        ArgumentCaptor<List<Object[]>> statisticsArgs = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE task_execution SET statistics = ? WHERE id = ?"),
+            statisticsArgs.capture());
+        assertThat(statisticsArgs.getValue()).containsExactly(
+            new Object[]{"{\"a\":1}", 1L}, new Object[]{"{\"b\":2}", 2L});
+        ArgumentCaptor<List<Object[]>> progressArgs = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE task_execution SET progress = ? WHERE id = ?"),
+            progressArgs.capture());
+        assertThat(progressArgs.getValue()).containsExactly(new Object[]{80, 3L});
+        assertThat(c.dirtyFields()).isEmpty();
+    }
+
+    @Test
+    void findSummaries_pushesFiltersAndKeysetCursorIntoSql() {
+        LocalDateTime since = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LocalDateTime cursor = LocalDateTime.of(2026, 1, 2, 8, 30, 0, 123456000);
+        TaskExecutionQuery query = new TaskExecutionQuery();
+        query.setJobName("job1");
+        query.setStatus("FAILED");
+        query.setStartTimeFrom(since);
+        query.setAfterCreatedAt(cursor);
+        query.setAfterId(10L);
+
+        repository.findSummaries(query, 21);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), eq("job1"), eq("FAILED"),
+            eq(Timestamp.valueOf(since)), eq(Timestamp.valueOf(cursor)), eq(10L), eq(21));
+        assertThat(sql.getValue())
+            .doesNotContain("config_snapshot", "statistics", "execution_log")
+            .endsWith("WHERE 1 = 1 AND job_name = ? AND status = ? AND start_time >= ?"
+                + " AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC LIMIT ?");
+    }
+
+    /**
+     * 模拟从数据库读出的记录（修改记录已清空）
+     */
+    private static TaskExecutionEntity loaded(Long id) {
+        TaskExecutionEntity entity = new TaskExecutionEntity();
+        entity.setId(id);
+        entity.setJobName("job1");
+        entity.setStatus("RUNNING");
+        entity.setProgress(10);
+        entity.setCurrentStage("INIT");
+        entity.setConfigSnapshot("{\"job\":{}}");
+        entity.clearDirtyFields();
+        return entity;
+    }
+}
@@ -0,0 +1,37 @@
+package org.csits.kel.manager.compression;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 流式归档写入器：按条目追加内容到压缩归档，调用方无需先把数据落盘。
+ *
+ * 实现需保证多线程并发调用 putEntry/putFile 时条目互不交错。
+ */
+public interface ArchiveWriter extends Closeable {
+
+    /**
+     * 以内存数据写入一个归档条目。
+     *
+     * @param name 条目名（相对路径，如 data/t_order.txt）
+     * @param data 数据缓冲区
+     * @param offset 起始偏移
+     * @param length 长度
+     */
+    void putEntry(String name, byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * 以本地文件写入一个归档条目。
+     *
+     * @param name 条目名（相对路径）
+     * @param file 本地文件
+     */
+    void putFile(String name, Path file) throws IOException;
+
+    /**
+     * 写入归档结束标记并关闭底层输出流。
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,259 @@
+package org.csits.kel.manager.compression;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+
+/**
+ * 归档压缩编码。
+ *
+ * - gzip：默认；threads 大于 1 时按块并行压缩为多成员 gzip 流
+ * - zstd：threads 大于 1 时使用 zstd 内置多线程压缩，压缩率与 gzip 相近，压缩/解压速度明显更快
+ * - lz4：LZ4 帧格式，单线程，速度最快、压缩率最低
+ * - none：只打包不压缩
+ *
+ * 压缩级别未设置时使用编码默认级别；gzip 为 0-9（0 只存储不压缩，适合已压缩的数据），zstd 为 1-19，
+ * lz4 与 none 不支持级别。
+ *
+ * 加载侧按文件头魔数识别编码，无需依赖文件扩展名或配置。
+ */
+public enum CompressionCodec {
+
+    GZIP("gzip", ".tar.gz", Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION, Deflater.DEFAULT_COMPRESSION) {
+        @Override
+        OutputStream wrapOutput(OutputStream out, CompressionOptions options) throws IOException {
+            int level = resolveLevel(options.getLevel());
+            if (options.isParallel()) {
+                return new ParallelGzipOutputStream(out, options.getThreads(), options.getBlockSize(), level);
+            }
+            GzipParameters parameters = new GzipParameters();
+            parameters.setCompressionLevel(level);
+            return new GzipCompressorOutputStream(out, parameters);
+        }
+
+        @Override
+        InputStream wrapInput(InputStream in) throws IOException {
+            // 兼容并行压缩产生的多成员 gzip 流
+            return new GzipCompressorInputStream(in, true);
+        }
+    },
+
+    ZSTD("zstd", ".tar.zst", 1, CompressionCodec.MAX_ZSTD_LEVEL, CompressionCodec.DEFAULT_ZSTD_LEVEL) {
+        @Override
+        OutputStream wrapOutput(OutputStream out, CompressionOptions options) throws IOException {
+            int level = resolveLevel(options.getLevel());
+            ZstdOutputStream zstdOut = new ZstdOutputStream(out, level);
+            if (options.isParallel()) {
+                zstdOut.setWorkers(options.getThreads());
+            }
+            return zstdOut;
+        }
+
+        @Override
+        InputStream wrapInput(InputStream in) throws IOException {
+            return new ZstdInputStream(in);
+        }
+    },
+
+    LZ4("lz4", ".tar.lz4") {
+        @Override
+        OutputStream wrapOutput(OutputStream out, CompressionOptions options) throws IOException {
+            return new FramedLZ4CompressorOutputStream(out);
+        }
+
+        @Override
+        InputStream wrapInput(InputStream in) throws IOException {
+            return new FramedLZ4CompressorInputStream(in, true);
+        }
+    },
+
+    NONE("none", ".tar") {
+        @Override
+        OutputStream wrapOutput(OutputStream out, CompressionOptions options) {
+            return out;
+        }
+
+        @Override
+        InputStream wrapInput(InputStream in) {
+            return in;
+        }
+    };
+
+    /** zstd 默认压缩级别 */
+    static final int DEFAULT_ZSTD_LEVEL = 3;
+
+    /** zstd 常用最高级别（更高级别为 ultra 模式，内存占用大） */
+    static final int MAX_ZSTD_LEVEL = 19;
+
+    /** 识别编码所需的文件头长度（tar 的 ustar 魔数位于偏移 257） */
+    static final int DETECT_HEADER_SIZE = 512;
+
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final byte[] TAR_MAGIC = {'u', 's', 't', 'a', 'r'};
+
+    /** 归档文件及其分片：*.tar、*.tar.gz、*.tar.zst、*.tar.lz4，可带 .001 等分片后缀 */
+    private static final Pattern ARCHIVE_FILE = Pattern.compile(".*\\.tar(\\.gz|\\.zst|\\.lz4)?(\\.\\d{3})?$");
+    private static final Pattern SPLIT_PART = Pattern.compile(".*\\.tar(\\.gz|\\.zst|\\.lz4)?\\.\\d{3}$");
+
+    private final String codecName;
+    private final String archiveExtension;
+    private final boolean levelSupported;
+    private final int minLevel;
+    private final int maxLevel;
+    private final int defaultLevel;
+
+    CompressionCodec(String codecName, String archiveExtension) {
+        this.codecName = codecName;
+        this.archiveExtension = archiveExtension;
+        this.levelSupported = false;
+        this.minLevel = 0;
+        this.maxLevel = 0;
+        this.defaultLevel = 0;
+    }
+
+    CompressionCodec(String codecName, String archiveExtension, int minLevel, int maxLevel, int defaultLevel) {
+        this.codecName = codecName;
+        this.archiveExtension = archiveExtension;
+        this.levelSupported = true;
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+        this.defaultLevel = defaultLevel;
+    }
+
+    /**
+     * 包装压缩输出流
+     */
+    abstract OutputStream wrapOutput(OutputStream out, CompressionOptions options) throws IOException;
+
+    /**
+     * 包装解压输入流
+     */
+    abstract InputStream wrapInput(InputStream in) throws IOException;
+
+    /**
+     * 配置与 manifest 中使用的编码名
+     */
+    public String getCodecName() {
+        return codecName;
+    }
+
+    /**
+     * 归档文件扩展名，如 .tar.gz
+     */
+    public String getArchiveExtension() {
+        return archiveExtension;
+    }
+
+    /**
+     * 是否支持压缩级别（lz4、none 不支持）
+     */
+    public boolean supportsLevel() {
+        return levelSupported;
+    }
+
+    /**
+     * 校验压缩级别是否在该编码的范围内
+     *
+     * @throws IllegalArgumentException 超出范围或编码不支持级别
+     */
+    public void validateLevel(int level) {
+        if (!levelSupported) {
+            throw new IllegalArgumentException(codecName + " 不支持压缩级别");
+        }
+        if (level < minLevel || level > maxLevel) {
+            throw new IllegalArgumentException(codecName + " 压缩级别应为 " + minLevel + "-" + maxLevel + "，实际为 " + level);
+        }
+    }
+
+    /**
+     * 实际使用的压缩级别：未设置（null）时为编码默认级别
+     *
+     * @throws IllegalArgumentException 超出范围
+     */
+    int resolveLevel(Integer level) {
+        if (level == null) {
+            return defaultLevel;
+        }
+        validateLevel(level);
+        return level;
+    }
+
+    /**
+     * 按配置名解析编码，未配置时为 gzip
+     *
+     * @throws IllegalArgumentException 不支持的编码
+     */
+    public static CompressionCodec fromName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return GZIP;
+        }
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "gz":
+                return GZIP;
+            case "zstd":
+            case "zst":
+                return ZSTD;
+            case "lz4":
+                return LZ4;
+            case "none":
+            case "store":
+                return NONE;
+            default:
+                throw new IllegalArgumentException("不支持的压缩算法: " + name + "，可选 gzip、zstd、lz4、none");
+        }
+    }
+
+    /**
+     * 按文件头魔数识别编码，无法识别时返回 null
+     *
+     * @param header 文件头
+     * @param length 有效长度
+     */
+    public static CompressionCodec detect(byte[] header, int length) {
+        if (length >= 2 && header[0] == (byte) 0x1f && header[1] == (byte) 0x8b) {
+            return GZIP;
+        }
+        if (length >= 4 && header[0] == (byte) 0x28 && header[1] == (byte) 0xb5
+            && header[2] == (byte) 0x2f && header[3] == (byte) 0xfd) {
+            return ZSTD;
+        }
+        if (length >= 4 && header[0] == (byte) 0x04 && header[1] == (byte) 0x22
+            && header[2] == (byte) 0x4d && header[3] == (byte) 0x18) {
+            return LZ4;
+        }
+        if (length >= TAR_MAGIC_OFFSET + TAR_MAGIC.length) {
+            for (int i = 0; i < TAR_MAGIC.length; i++) {
+                if (header[TAR_MAGIC_OFFSET + i] != TAR_MAGIC[i]) {
+                    return null;
+                }
+            }
+            return NONE;
+        }
+        return null;
+    }
+
+    /**
+     * 是否为归档文件或归档分片
+     */
+    public static boolean isArchiveFile(String fileName) {
+        return ARCHIVE_FILE.matcher(fileName).matches();
+    }
+
+    /**
+     * 是否为归档分片（*.tar.gz.001 等）
+     */
+    public static boolean isSplitPart(String fileName) {
+        return SPLIT_PART.matcher(fileName).matches();
+    }
+}
@@ -1,6 +1,7 @@
 package org.csits.kel.manager.compression;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -12,25 +13,69 @@ public interface CompressionManager {
     /**
      * 将目录打成 tar.gz 包。
      */
-    Path compressToTarGz(Path sourceDir, Path targetFile) throws IOException;
+    default Path compressToTarGz(Path sourceDir, Path targetFile) throws IOException {
+        return compressToTarGz(sourceDir, targetFile, CompressionOptions.defaults());
+    }
 
     /**
-     * 按阈值分片。
+     * 按指定压缩参数（编码、线程数等）将目录打成归档包。
+     */
+    Path compressToTarGz(Path sourceDir, Path targetFile, CompressionOptions options) throws IOException;
+
+    /**
+     * 将目录打包压缩写入输出流（可为分片/加密输出流），写完后关闭 target。
+     */
+    void compressDirectory(Path sourceDir, OutputStream target, CompressionOptions options) throws IOException;
+
+    /**
+     * 按阈值将已生成的文件切分为分片（需回读整个文件）；打包时直接分片请使用
+     * {@link #compressDirectory} 配合 {@link RollingPartOutputStream}。
      */
     List<Path> split(Path sourceFile, long thresholdBytes) throws IOException;
 
     /**
-     * 将 tar.gz 解压到目标目录。
+     * 将归档解压到目标目录，按文件头自动识别压缩编码（gzip 含多成员流、zstd、lz4、不压缩的 tar）。
      */
     void decompressTarGz(Path archive, Path targetDir) throws IOException;
 
     /**
-     * 合并分片文件并解压到目标目录。
+     * 按序串联分片文件并解压到目标目录（不生成合并文件）。
      *
      * @param inputDir 输入目录（包含分片文件或主压缩包）
      * @param outputDir 输出目录
      * @return 输出目录
      */
     Path mergeAndDecompress(Path inputDir, Path outputDir) throws IOException;
+
+    /**
+     * 按序串联分片文件并解压到目标目录：每个分片先经包装器（如 SM4 解密）再串联，一次读取完成
+     * 解密、解压与解包，不生成中间文件、不修改输入目录；分片读完时按落盘字节校验，
+     * 文件条目写出时同时计算摘要。
+     *
+     * @param inputDir 输入目录（包含分片文件或主压缩包）
+     * @param outputDir 输出目录
+     * @param options 解压参数
+     * @return 输出目录
+     */
+    Path mergeAndDecompress(Path inputDir, Path outputDir, UnpackOptions options) throws IOException;
+
+    /**
+     * 打开流式归档写入器，条目数据直接压缩写入 target，无需先落盘到工作目录。
+     *
+     * @param target 归档输出流（可为分片/加密输出流），随写入器关闭
+     * @return 归档写入器
+     */
+    default ArchiveWriter openArchiveWriter(OutputStream target) throws IOException {
+        return openArchiveWriter(target, CompressionOptions.defaults());
+    }
+
+    /**
+     * 按指定压缩参数打开流式归档写入器。
+     *
+     * @param target 归档输出流，随写入器关闭
+     * @param options 压缩参数
+     * @return 归档写入器
+     */
+    ArchiveWriter openArchiveWriter(OutputStream target, CompressionOptions options) throws IOException;
 }
 
@@ -0,0 +1,55 @@
+package org.csits.kel.manager.compression;
+
+import lombok.Data;
+
+/**
+ * 压缩参数。
+ *
+ * - codec 为压缩编码，默认 gzip
+ * - gzip 下 threads 大于 1 时按块并行压缩（pigz 方式），输出为多成员 gzip 流，标准 gzip -d 可直接解压；
+ *   threads 小于等于 1 时单线程压缩，输出与原有单成员 gzip 流一致
+ * - zstd 下 threads 大于 1 时使用 zstd 内置多线程压缩
+ */
+@Data
+public class CompressionOptions {
+
+    /** 默认块大小：1MB */
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    /** 最小块大小：64KB，块过小时每个 gzip 成员的头尾开销与压缩率损失明显 */
+    public static final int MIN_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * 压缩编码
+     */
+    private CompressionCodec codec = CompressionCodec.GZIP;
+
+    /**
+     * 压缩线程数
+     */
+    private int threads = 1;
+
+    /**
+     * 并行压缩时每块的未压缩字节数
+     */
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    /**
+     * 压缩级别：gzip 为 0-9（0 只存储），zstd 为 1-19；为 null 时使用编码默认级别
+     */
+    private Integer level;
+
+    /**
+     * 默认参数：gzip、单线程、默认压缩级别
+     */
+    public static CompressionOptions defaults() {
+        return new CompressionOptions();
+    }
+
+    /**
+     * 是否多线程压缩
+     */
+    public boolean isParallel() {
+        return threads > 1;
+    }
+}
@@ -5,51 +5,57 @@ import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.springframework.stereotype.Component;
 
 /**
- * 本地 tar.gz 压缩及简单分片实现。
+ * 本地 tar 归档压缩（gzip / zstd / lz4 / 不压缩）及简单分片实现。
  */
 @Slf4j
 @Component
 public class LocalCompressionManager implements CompressionManager {
 
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     @Override
-    public Path compressToTarGz(Path sourceDir, Path targetFile) throws IOException {
+    public Path compressToTarGz(Path sourceDir, Path targetFile, CompressionOptions options) throws IOException {
         Files.createDirectories(targetFile.getParent());
-        try (FileOutputStream fos = new FileOutputStream(targetFile.toFile());
-             BufferedOutputStream bos = new BufferedOutputStream(fos);
-             GzipCompressorOutputStream gzos = new GzipCompressorOutputStream(bos);
-             TarArchiveOutputStream taos = new TarArchiveOutputStream(gzos)) {
+        compressDirectory(sourceDir, new FileOutputStream(targetFile.toFile()), options);
+        return targetFile;
+    }
 
-            Files.walk(sourceDir)
+    @Override
+    public void compressDirectory(Path sourceDir, OutputStream target, CompressionOptions options)
+        throws IOException {
+        List<Path> files;
+        try (java.util.stream.Stream<Path> stream = Files.walk(sourceDir)) {
+            files = stream
                 .filter(path -> !Files.isDirectory(path))
-                .forEach(path -> {
-                    String entryName = sourceDir.relativize(path).toString();
-                    TarArchiveEntry entry = new TarArchiveEntry(path.toFile(), entryName);
-                    try {
-                        taos.putArchiveEntry(entry);
-                        Files.copy(path, taos);
-                        taos.closeArchiveEntry();
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-            taos.finish();
+                .collect(java.util.stream.Collectors.toList());
+        } catch (IOException e) {
+            target.close();
+            throw e;
+        }
+        try (ArchiveWriter writer = openArchiveWriter(target, options)) {
+            for (Path path : files) {
+                writer.putFile(sourceDir.relativize(path).toString(), path);
+            }
         }
-        return targetFile;
     }
 
     @Override
@@ -91,11 +97,21 @@ public class LocalCompressionManager implements CompressionManager {
 
     @Override
     public void decompressTarGz(Path archive, Path targetDir) throws IOException {
+        try (InputStream in = new FileInputStream(archive.toFile())) {
+            decompressTar(in, targetDir, UnpackOptions.defaults());
+        }
+    }
+
+    /**
+     * 从归档流解压到目标目录，按文件头识别压缩编码；配置条目摘要器时边写边算每个文件的摘要。不关闭 raw
+     */
+    private void decompressTar(InputStream raw, Path targetDir, UnpackOptions options) throws IOException {
         Files.createDirectories(targetDir);
-        try (FileInputStream fis = new FileInputStream(archive.toFile());
-             BufferedInputStream bis = new BufferedInputStream(fis);
-             GzipCompressorInputStream gzis = new GzipCompressorInputStream(bis);
-             TarArchiveInputStream tais = new TarArchiveInputStream(gzis)) {
+        BufferedInputStream bis = new BufferedInputStream(new CloseShieldInputStream(raw), BUFFER_SIZE);
+        CompressionCodec codec = detectCodec(bis);
+        log.debug("归档压缩编码: {}", codec.getCodecName());
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (TarArchiveInputStream tais = new TarArchiveInputStream(codec.wrapInput(bis))) {
             TarArchiveEntry entry;
             while ((entry = tais.getNextTarEntry()) != null) {
                 Path dest = targetDir.resolve(entry.getName()).normalize();
@@ -106,53 +122,76 @@ public class LocalCompressionManager implements CompressionManager {
                     Files.createDirectories(dest);
                 } else {
                     Files.createDirectories(dest.getParent());
-                    Files.copy(tais, dest, StandardCopyOption.REPLACE_EXISTING);
+                    writeEntry(tais, entry.getName(), dest, options, buffer);
                 }
             }
         }
     }
 
+    private void writeEntry(InputStream in, String name, Path dest, UnpackOptions options, byte[] buffer)
+        throws IOException {
+        MessageDigest digest = options.getEntryDigestFactory() != null ? options.getEntryDigestFactory().get() : null;
+        long size;
+        try (OutputStream out = Files.newOutputStream(dest)) {
+            OutputStream target = digest != null ? new DigestOutputStream(out, digest) : out;
+            size = IOUtils.copyLarge(in, target, buffer);
+        }
+        if (options.getEntryListener() != null) {
+            options.getEntryListener().onEntry(name, size, digest != null ? digest.digest() : null);
+        }
+    }
+
+    /**
+     * 读取文件头识别压缩编码，读取后流位置复原
+     */
+    static CompressionCodec detectCodec(BufferedInputStream in) throws IOException {
+        byte[] header = new byte[CompressionCodec.DETECT_HEADER_SIZE];
+        in.mark(header.length);
+        int read = IOUtils.read(in, header);
+        in.reset();
+        CompressionCodec codec = CompressionCodec.detect(header, read);
+        if (codec == null) {
+            throw new IOException("无法识别归档压缩格式（支持 gzip、zstd、lz4、tar）");
+        }
+        return codec;
+    }
+
     @Override
     public Path mergeAndDecompress(Path inputDir, Path outputDir) throws IOException {
+        return mergeAndDecompress(inputDir, outputDir, UnpackOptions.defaults());
+    }
+
+    @Override
+    public Path mergeAndDecompress(Path inputDir, Path outputDir, UnpackOptions options) throws IOException {
         if (!Files.exists(inputDir) || !Files.isDirectory(inputDir)) {
             throw new IOException("输入目录不存在: " + inputDir);
         }
 
-        // 1. 查找分片文件（.tar.gz.001, .002, ...）
-        List<Path> splits = findSplitFiles(inputDir);
-
-        if (splits.isEmpty()) {
-            // 无分片，查找主文件
+        // 查找分片文件（.tar.gz.001、.tar.zst.001 ...），无分片时查找主文件
+        List<Path> parts = findSplitFiles(inputDir);
+        if (parts.isEmpty()) {
             Path mainArchive = findMainArchive(inputDir);
-            if (mainArchive != null) {
-                log.info("未找到分片文件，直接解压主文件: {}", mainArchive);
-                decompressTarGz(mainArchive, outputDir);
-                return outputDir;
-            } else {
+            if (mainArchive == null) {
                 throw new IOException("未找到压缩包或分片文件: " + inputDir);
             }
+            log.info("未找到分片文件，直接解压主文件: {}", mainArchive);
+            parts = Collections.singletonList(mainArchive);
+        } else {
+            log.info("找到 {} 个分片文件，按序串联解压", parts.size());
         }
 
-        // 2. 合并分片到临时文件
-        log.info("找到 {} 个分片文件，开始合并", splits.size());
-        Path merged = Files.createTempFile("kel-merged-", ".tar.gz");
-        try {
-            try (FileOutputStream out = new FileOutputStream(merged.toFile())) {
-                for (Path split : splits) {
-                    log.debug("合并分片: {}", split.getFileName());
-                    Files.copy(split, out);
-                }
-            }
-
-            // 3. 解压合并后的文件
-            log.info("分片合并完成，开始解压");
-            decompressTarGz(merged, outputDir);
-
-            return outputDir;
-        } finally {
-            // 4. 清理临时文件
-            Files.deleteIfExists(merged);
+        // 分片按序（逐片解密后）串联为一条输入流直接解压，不生成合并文件；每个分片读完即校验
+        try (SequentialPartInputStream in = new SequentialPartInputStream(parts, options.getPartDigestFactory(),
+            options.getPartVerifier(), options.getPartWrapper())) {
+            decompressTar(in, outputDir, options);
+            in.drain();
         }
+        return outputDir;
+    }
+
+    @Override
+    public ArchiveWriter openArchiveWriter(OutputStream target, CompressionOptions options) throws IOException {
+        return new TarArchiveWriter(target, options);
     }
 
     /**
@@ -162,11 +201,8 @@ public class LocalCompressionManager implements CompressionManager {
         try (java.util.stream.Stream<Path> stream = Files.list(dir)) {
             return stream
                 .filter(Files::isRegularFile)
-                .filter(p -> {
-                    String name = p.getFileName().toString();
-                    // 匹配 *.tar.gz.001, *.tar.gz.002 等
-                    return name.contains(".tar.gz.") && name.matches(".*\\.tar\\.gz\\.\\d{3}$");
-                })
+                // 匹配 *.tar.gz.001, *.tar.zst.002 等
+                .filter(p -> CompressionCodec.isSplitPart(p.getFileName().toString()))
                 .sorted((p1, p2) -> {
                     // 按文件名排序，确保 .001, .002, .003 的顺序
                     return p1.getFileName().toString().compareTo(p2.getFileName().toString());
@@ -184,7 +220,7 @@ public class LocalCompressionManager implements CompressionManager {
                 .filter(Files::isRegularFile)
                 .filter(p -> {
                     String name = p.getFileName().toString();
-                    return name.endsWith(".tar.gz") && !name.matches(".*\\.\\d{3}$");
+                    return CompressionCodec.isArchiveFile(name) && !CompressionCodec.isSplitPart(name);
                 })
                 .findFirst()
                 .orElse(null);
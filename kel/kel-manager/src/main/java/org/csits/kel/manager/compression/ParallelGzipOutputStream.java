@@ -0,0 +1,192 @@
+package org.csits.kel.manager.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 并行块 gzip 输出流（pigz 方式）：写入数据按固定大小切块，由线程池并行压缩，
+ * 每块压缩为一个完整的 gzip 成员并按写入顺序拼接输出。
+ *
+ * - 输出为多成员 gzip 流（RFC 1952），gzip -d 与 GzipCompressorInputStream(decompressConcatenated=true) 均可解压
+ * - 在途块数上限为线程数的 2 倍，内存占用约为 2 * threads * blockSize
+ * - 块之间不共享字典，压缩率较单流略低（块越大差异越小）
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    private static final byte[] MEMBER_HEADER = {
+        0x1f, (byte) 0x8b, // 魔数
+        Deflater.DEFLATED, // CM
+        0,                 // FLG
+        0, 0, 0, 0,        // MTIME
+        0,                 // XFL
+        (byte) 0xff        // OS：未知
+    };
+
+    private static final int DEFLATE_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final int level;
+    private final int maxPending;
+    private final ExecutorService executor;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] block;
+    private int blockLength;
+    private long membersWritten;
+    private boolean closed;
+
+    /**
+     * @param out 压缩数据输出流，随本流关闭
+     * @param threads 压缩线程数
+     * @param blockSize 每块未压缩字节数
+     * @param level 压缩级别
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads, int blockSize, int level) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("压缩线程数必须大于 0: " + threads);
+        }
+        this.out = out;
+        this.blockSize = Math.max(blockSize, CompressionOptions.MIN_BLOCK_SIZE);
+        this.level = level;
+        this.maxPending = threads * 2;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.block = new byte[this.blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int chunk = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, chunk);
+            blockLength += chunk;
+            off += chunk;
+            len -= chunk;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * 只刷新已压缩完成的块；未满的块不提前提交，避免产生过小的 gzip 成员
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeNextMember();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitBlock();
+            while (!pending.isEmpty()) {
+                writeNextMember();
+            }
+            if (membersWritten == 0) {
+                // 空输入也输出一个空成员，保证结果是合法的 gzip 文件
+                out.write(compressMember(new byte[0], 0, level));
+            }
+            out.flush();
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (blockLength == 0) {
+            return;
+        }
+        final byte[] data = block;
+        final int length = blockLength;
+        pending.addLast(executor.submit(() -> compressMember(data, length, level)));
+        block = new byte[blockSize];
+        blockLength = 0;
+        while (pending.size() > maxPending) {
+            writeNextMember();
+        }
+    }
+
+    private void writeNextMember() throws IOException {
+        Future<byte[]> future = pending.pollFirst();
+        try {
+            out.write(future.get());
+            membersWritten++;
+        } catch (ExecutionException e) {
+            throw new IOException("并行压缩失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("并行压缩被中断");
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("输出流已关闭");
+        }
+    }
+
+    /**
+     * 将一块数据压缩为一个完整的 gzip 成员：头部 + deflate 数据 + CRC32 + 原始长度
+     */
+    static byte[] compressMember(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2 + 64);
+            member.write(MEMBER_HEADER, 0, MEMBER_HEADER.length);
+            byte[] buffer = new byte[DEFLATE_BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                member.write(buffer, 0, n);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            writeIntLe(member, (int) crc.getValue());
+            writeIntLe(member, length);
+            return member.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLe(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        out.write((value >>> 16) & 0xff);
+        out.write((value >>> 24) & 0xff);
+    }
+}
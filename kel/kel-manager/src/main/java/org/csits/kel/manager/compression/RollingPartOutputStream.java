@@ -0,0 +1,241 @@
+package org.csits.kel.manager.compression;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.csits.kel.manager.security.Sm3ChunkTree;
+import org.csits.kel.manager.security.Sm3ChunkTreeDigest;
+
+/**
+ * 边写边分片的输出流：写入量达到分片大小时自动滚动到下一个分片文件。
+ *
+ * - 分片命名与 {@link CompressionManager#split} 一致：base.001、base.002 ...
+ * - 只产生一个分片时直接命名为 base（与未分片的主文件一致）
+ * - 每个分片先写入 .tmp 临时文件，写完后再重命名为最终文件名
+ * - 分片大小按写入本流的字节数计算（即包装前的字节数）
+ * - 配置摘要器时，每个分片关闭时记录落盘字节（包装后，如加密后）的大小与摘要，无需回读分片文件；
+ *   摘要器为 {@link Sm3ChunkTreeDigest} 时同时记录分块校验树
+ */
+@Slf4j
+public class RollingPartOutputStream extends OutputStream {
+
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 分片输出流包装器，例如在分片文件外层套一层加密流。
+     */
+    @FunctionalInterface
+    public interface PartStreamWrapper {
+
+        OutputStream wrap(OutputStream partOut) throws IOException;
+    }
+
+    private final Path baseFile;
+    private final long partSize;
+    private final PartStreamWrapper wrapper;
+    private final Supplier<MessageDigest> digestFactory;
+    private final List<PartInfo> parts = new ArrayList<>();
+
+    private OutputStream current;
+    private CountingOutputStream currentCounter;
+    private MessageDigest currentDigest;
+    private Path currentTmp;
+    private long writtenInPart;
+    private long totalWritten;
+    private boolean closed;
+
+    /**
+     * @param baseFile 主文件路径（如 exchange/job/batch/job_batch.tar.gz）
+     * @param partSize 分片大小（字节），小于等于 0 表示不分片
+     * @param wrapper 分片输出流包装器，可为 null
+     */
+    public RollingPartOutputStream(Path baseFile, long partSize, PartStreamWrapper wrapper) throws IOException {
+        this(baseFile, partSize, wrapper, null);
+    }
+
+    /**
+     * @param baseFile 主文件路径
+     * @param partSize 分片大小（字节），小于等于 0 表示不分片
+     * @param wrapper 分片输出流包装器，可为 null
+     * @param digestFactory 分片摘要器（如 SM3），可为 null
+     */
+    public RollingPartOutputStream(Path baseFile, long partSize, PartStreamWrapper wrapper,
+                                   Supplier<MessageDigest> digestFactory) throws IOException {
+        this.baseFile = baseFile;
+        this.partSize = partSize > 0 ? partSize : Long.MAX_VALUE;
+        this.wrapper = wrapper;
+        this.digestFactory = digestFactory;
+        Files.createDirectories(baseFile.getParent());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensurePart();
+        current.write(b);
+        writtenInPart++;
+        totalWritten++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            ensurePart();
+            int chunk = (int) Math.min(len, partSize - writtenInPart);
+            current.write(b, off, chunk);
+            writtenInPart += chunk;
+            totalWritten += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (current == null) {
+            // 未写入任何数据也产生一个空文件，保持与整包压缩一致
+            openNextPart();
+        }
+        closeCurrentPart(true);
+    }
+
+    /**
+     * 放弃输出：关闭并删除当前临时分片及已完成的分片。
+     */
+    public void abort() {
+        closed = true;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("关闭分片输出流失败: {}", currentTmp, e);
+            }
+            current = null;
+        }
+        deleteQuietly(currentTmp);
+        for (PartInfo part : parts) {
+            deleteQuietly(part.getFile());
+        }
+    }
+
+    /**
+     * 已完成的分片文件（按序号排列），close 后可用。
+     */
+    public List<Path> getPartFiles() {
+        return parts.stream().map(PartInfo::getFile).collect(Collectors.toList());
+    }
+
+    /**
+     * 已完成的分片信息（按序号排列），close 后可用。
+     */
+    public List<PartInfo> getParts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * 写入的总字节数（包装前）。
+     */
+    public long getTotalWritten() {
+        return totalWritten;
+    }
+
+    private void ensurePart() throws IOException {
+        if (closed) {
+            throw new IOException("输出流已关闭: " + baseFile);
+        }
+        if (current == null) {
+            openNextPart();
+        } else if (writtenInPart >= partSize) {
+            closeCurrentPart(false);
+            openNextPart();
+        }
+    }
+
+    private void openNextPart() throws IOException {
+        int index = parts.size() + 1;
+        currentTmp = baseFile.resolveSibling(partName(index) + TMP_SUFFIX);
+        Files.deleteIfExists(currentTmp);
+        OutputStream fileOut = Files.newOutputStream(currentTmp);
+        currentDigest = digestFactory != null ? digestFactory.get() : null;
+        if (currentDigest != null) {
+            fileOut = new DigestOutputStream(fileOut, currentDigest);
+        }
+        currentCounter = new CountingOutputStream(fileOut);
+        OutputStream partOut = new BufferedOutputStream(currentCounter, BUFFER_SIZE);
+        current = wrapper != null ? wrapper.wrap(partOut) : partOut;
+        writtenInPart = 0L;
+    }
+
+    private void closeCurrentPart(boolean last) throws IOException {
+        current.close();
+        current = null;
+        int index = parts.size() + 1;
+        // 只有一个分片时使用主文件名
+        Path target = last && index == 1 ? baseFile : baseFile.resolveSibling(partName(index));
+        Files.move(currentTmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        currentTmp = null;
+        byte[] digest = currentDigest != null ? currentDigest.digest() : null;
+        Sm3ChunkTree chunkTree = currentDigest instanceof Sm3ChunkTreeDigest
+            ? ((Sm3ChunkTreeDigest) currentDigest).getTree() : null;
+        parts.add(new PartInfo(target, index, currentCounter.getByteCount(), digest, chunkTree));
+        currentCounter = null;
+        currentDigest = null;
+        log.debug("分片写入完成: {}", target.getFileName());
+    }
+
+    private String partName(int index) {
+        return baseFile.getFileName().toString() + String.format(".%03d", index);
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除分片文件失败: {}", path, e);
+        }
+    }
+
+    /**
+     * 已完成的分片
+     */
+    @Data
+    public static class PartInfo {
+        /** 分片文件 */
+        private final Path file;
+        /** 分片序号（从 1 开始） */
+        private final int index;
+        /** 落盘字节数 */
+        private final long size;
+        /** 落盘字节的摘要，未配置摘要器时为 null */
+        private final byte[] digest;
+        /** 落盘字节的分块校验树，摘要器为 {@link Sm3ChunkTreeDigest} 时记录，否则为 null */
+        private final Sm3ChunkTree chunkTree;
+    }
+}
@@ -0,0 +1,225 @@
+package org.csits.kel.manager.compression;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按序号依次读取分片文件的输入流，效果等同于读取合并后的整包，但不产生合并文件。
+ *
+ * - 配置摘要器时，每个分片读完即回调校验器，传入该分片的字节数与摘要（读取过程中计算，无需额外读文件）
+ * - 配置包装器时（如逐片 SM4 解密），摘要与字节数按分片落盘字节（包装前）计算，读出的是包装后的数据
+ * - 解压完成后应调用 {@link #drain()} 读完剩余字节，保证最后一个分片也经过校验
+ */
+@Slf4j
+public class SequentialPartInputStream extends InputStream {
+
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 分片校验器：分片读完时回调，校验失败时抛出 IOException 终止读取。
+     */
+    @FunctionalInterface
+    public interface PartVerifier {
+
+        /**
+         * @param part 分片文件
+         * @param size 读取的字节数
+         * @param digest 分片摘要，未配置摘要器时为 null
+         */
+        void verify(Path part, long size, byte[] digest) throws IOException;
+    }
+
+    /**
+     * 分片输入流包装器，例如在分片文件外层套一层解密流，与 {@link RollingPartOutputStream.PartStreamWrapper} 对应。
+     */
+    @FunctionalInterface
+    public interface PartStreamWrapper {
+
+        InputStream wrap(InputStream partIn) throws IOException;
+    }
+
+    private final List<Path> parts;
+    private final Supplier<MessageDigest> digestFactory;
+    private final PartVerifier verifier;
+    private final PartStreamWrapper wrapper;
+
+    private int nextIndex;
+    private Path currentPart;
+    private InputStream current;
+    private PartTap currentTap;
+    private boolean closed;
+
+    /**
+     * @param parts 分片文件（按序号排列）
+     * @param digestFactory 摘要器，可为 null
+     * @param verifier 校验器，可为 null
+     */
+    public SequentialPartInputStream(List<Path> parts, Supplier<MessageDigest> digestFactory,
+                                     PartVerifier verifier) {
+        this(parts, digestFactory, verifier, null);
+    }
+
+    /**
+     * @param parts 分片文件（按序号排列）
+     * @param digestFactory 摘要器，可为 null
+     * @param verifier 校验器，可为 null
+     * @param wrapper 分片输入流包装器，可为 null
+     */
+    public SequentialPartInputStream(List<Path> parts, Supplier<MessageDigest> digestFactory,
+                                     PartVerifier verifier, PartStreamWrapper wrapper) {
+        this.parts = new ArrayList<>(parts);
+        this.digestFactory = digestFactory;
+        this.verifier = verifier;
+        this.wrapper = wrapper;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("输入流已关闭");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            if (current == null && !openNextPart()) {
+                return -1;
+            }
+            int n = current.read(b, off, len);
+            if (n > 0) {
+                return n;
+            }
+            if (n == -1) {
+                finishCurrentPart();
+            }
+        }
+    }
+
+    /**
+     * 读完所有剩余字节（解压器在归档结束标记后不再读取时使用），使每个分片都经过校验
+     */
+    public void drain() throws IOException {
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        while (read(buffer, 0, buffer.length) != -1) {
+            // 仅为触发剩余分片的校验
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    private boolean openNextPart() throws IOException {
+        if (nextIndex >= parts.size()) {
+            return false;
+        }
+        currentPart = parts.get(nextIndex++);
+        currentTap = new PartTap(new BufferedInputStream(Files.newInputStream(currentPart), BUFFER_SIZE),
+            digestFactory != null ? digestFactory.get() : null);
+        try {
+            current = wrapper != null ? wrapper.wrap(currentTap) : currentTap;
+        } catch (IOException | RuntimeException e) {
+            currentTap.close();
+            currentTap = null;
+            throw e;
+        }
+        log.debug("读取分片: {}", currentPart.getFileName());
+        return true;
+    }
+
+    private void finishCurrentPart() throws IOException {
+        // 包装流结束后分片文件可能仍有未读字节（如解密流不读到文件末尾），读完以保证摘要覆盖整个分片
+        currentTap.drain();
+        current.close();
+        current = null;
+        if (verifier != null) {
+            verifier.verify(currentPart, currentTap.size, currentTap.digest != null ? currentTap.digest.digest() : null);
+        }
+        currentTap = null;
+    }
+
+    /**
+     * 分片落盘字节的计数与摘要
+     */
+    private static final class PartTap extends FilterInputStream {
+
+        private final MessageDigest digest;
+        private long size;
+
+        PartTap(InputStream in, MessageDigest digest) {
+            super(in);
+            this.digest = digest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                if (digest != null) {
+                    digest.update((byte) b);
+                }
+                size++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                if (digest != null) {
+                    digest.update(b, off, n);
+                }
+                size += n;
+            }
+            return n;
+        }
+
+        /**
+         * 跳过的字节同样计入摘要
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, DRAIN_BUFFER_SIZE)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        void drain() throws IOException {
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            while (read(buffer, 0, buffer.length) != -1) {
+                // 仅为计入摘要
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.csits.kel.manager.compression;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+/**
+ * tar 归档写入器，条目写入后按 {@link CompressionCodec} 压缩输出到目标流。
+ *
+ * 使用 POSIX 扩展头，支持超长文件名与超过 8GB 的条目。
+ */
+public class TarArchiveWriter implements ArchiveWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final TarArchiveOutputStream tarOut;
+    private boolean closed;
+
+    public TarArchiveWriter(OutputStream target) throws IOException {
+        this(target, CompressionOptions.defaults());
+    }
+
+    public TarArchiveWriter(OutputStream target, CompressionOptions options) throws IOException {
+        OutputStream compressed = options.getCodec().wrapOutput(new BufferedOutputStream(target, BUFFER_SIZE), options);
+        this.tarOut = new TarArchiveOutputStream(compressed);
+        this.tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        this.tarOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+    }
+
+    @Override
+    public synchronized void putEntry(String name, byte[] data, int offset, int length) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(length);
+        entry.setModTime(System.currentTimeMillis());
+        tarOut.putArchiveEntry(entry);
+        tarOut.write(data, offset, length);
+        tarOut.closeArchiveEntry();
+    }
+
+    @Override
+    public synchronized void putFile(String name, Path file) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(file.toFile(), name);
+        tarOut.putArchiveEntry(entry);
+        Files.copy(file, tarOut);
+        tarOut.closeArchiveEntry();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            tarOut.finish();
+        } finally {
+            tarOut.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.csits.kel.manager.compression;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.function.Supplier;
+import lombok.Data;
+
+/**
+ * 解压参数。
+ *
+ * - 分片：按分片落盘字节计算摘要并回调校验器，分片可先经包装器（如 SM4 解密）再串联
+ * - 条目：解包写出每个文件时同时计算摘要与字节数并回调监听器，校验 manifest 时无需回读文件
+ */
+@Data
+public class UnpackOptions {
+
+    /**
+     * 解包条目监听器：每个文件条目写完时回调。
+     */
+    @FunctionalInterface
+    public interface EntryListener {
+
+        /**
+         * @param name 归档内条目名，如 data/t1.txt
+         * @param size 写出的字节数
+         * @param digest 条目摘要，未配置条目摘要器时为 null
+         */
+        void onEntry(String name, long size, byte[] digest) throws IOException;
+    }
+
+    /**
+     * 分片摘要器（如 SM3），可为 null
+     */
+    private Supplier<MessageDigest> partDigestFactory;
+
+    /**
+     * 分片校验器，可为 null
+     */
+    private SequentialPartInputStream.PartVerifier partVerifier;
+
+    /**
+     * 分片输入流包装器，可为 null
+     */
+    private SequentialPartInputStream.PartStreamWrapper partWrapper;
+
+    /**
+     * 条目摘要器（如 SM3），可为 null
+     */
+    private Supplier<MessageDigest> entryDigestFactory;
+
+    /**
+     * 条目监听器，可为 null
+     */
+    private EntryListener entryListener;
+
+    /**
+     * 默认参数：不校验、不包装、不计算条目摘要
+     */
+    public static UnpackOptions defaults() {
+        return new UnpackOptions();
+    }
+}
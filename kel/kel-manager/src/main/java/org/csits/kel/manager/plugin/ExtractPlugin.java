@@ -21,5 +21,12 @@ public interface ExtractPlugin {
      * @param context 运行时上下文对象，一般为 TaskExecutionContext
      */
     void extract(Object context) throws Exception;
+
+    /**
+     * 是否支持流式导出：数据写入上下文提供的导出通道（直接进入压缩归档），而非工作目录文件。
+     */
+    default boolean supportsStreaming() {
+        return false;
+    }
 }
 
@@ -1,11 +1,15 @@
 package org.csits.kel.manager.security;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.Security;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
@@ -15,12 +19,14 @@ import javax.crypto.spec.SecretKeySpec;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.crypto.digests.SM3Digest;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 /**
  * 基于Bouncy Castle的国密算法实现。
  * 使用流式处理支持大文件加密解密，避免内存溢出。
+ * SM4 支持原有 CBC 格式与可并行的分段格式（CTR/GCM，见 {@link Sm4SegmentedFormat}），解密时按文件头自动识别。
  */
 @Slf4j
 @Component
@@ -28,9 +34,13 @@ import org.springframework.stereotype.Component;
 public class BouncyCastleSmCryptoManager implements SmCryptoManager {
 
     private static final int BUFFER_SIZE = 8192; // 8KB缓冲区
+    private static final int SEGMENTED_BUFFER_SIZE = 1024 * 1024; // 分段格式1MB缓冲区
     private static final int SM4_KEY_SIZE = 16; // SM4密钥长度16字节
     private static final int SM4_IV_SIZE = 16; // SM4 IV长度16字节
 
+    private volatile Sm3FileHasher sm3Hasher =
+        new Sm3FileHasher(Sm3FileHasher.ReadMode.CHANNEL, Sm3FileHasher.DEFAULT_CHUNK_SIZE);
+
     static {
         // 注册Bouncy Castle Provider
         if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
@@ -39,40 +49,97 @@ public class BouncyCastleSmCryptoManager implements SmCryptoManager {
         }
     }
 
+    /**
+     * SM3 读取方式：channel（直接缓冲区顺序读取，默认）或 mapped（按块映射文件）
+     */
+    @Value("${kel.crypto.sm3-read-mode:channel}")
+    public void setSm3ReadMode(String readMode) {
+        sm3Hasher = new Sm3FileHasher(Sm3FileHasher.ReadMode.fromName(readMode), sm3Hasher.getChunkSize());
+    }
+
+    /**
+     * SM3 每次读取（或映射）的块大小（KB），限制在 64KB 到 64MB 之间，默认 1024
+     */
+    @Value("${kel.crypto.sm3-chunk-kb:1024}")
+    public void setSm3ChunkKb(int chunkKb) {
+        sm3Hasher = new Sm3FileHasher(sm3Hasher.getMode(), (int) Math.min(chunkKb * 1024L, Integer.MAX_VALUE));
+    }
+
     @Override
     public String calculateSm3(Path file) throws IOException {
         try {
-            SM3Digest digest = new SM3Digest();
-            byte[] buffer = new byte[BUFFER_SIZE];
-
-            // 流式计算哈希，避免大文件OOM
-            try (InputStream in = Files.newInputStream(file)) {
-                int bytesRead;
-                while ((bytesRead = in.read(buffer)) != -1) {
-                    digest.update(buffer, 0, bytesRead);
-                }
+            // 按块读取计算哈希，避免大文件OOM
+            return toHex(sm3Hasher.hash(file));
+        } catch (Exception e) {
+            throw new IOException("SM3计算失败: " + file, e);
+        }
+    }
+
+    @Override
+    public MessageDigest newSm3Digest() {
+        try {
+            return MessageDigest.getInstance("SM3", BouncyCastleProvider.PROVIDER_NAME);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SM3摘要算法不可用", e);
+        }
+    }
+
+    @Override
+    public String toHex(byte[] digest) {
+        return HexEncoder.encode(digest);
+    }
+
+    @Override
+    public void encryptSm4(Path source, Path target, String key, Sm4Options options) throws IOException {
+        try {
+            // 先校验密钥，避免密钥非法时产生空的目标文件
+            prepareKey(key);
+            int bufferSize = options.getMode().isSegmented() ? SEGMENTED_BUFFER_SIZE : BUFFER_SIZE;
+            // 流式加密
+            try (InputStream in = Files.newInputStream(source);
+                 OutputStream cos = newSm4EncryptingStream(
+                     new BufferedOutputStream(Files.newOutputStream(target), bufferSize), key, options)) {
+                copy(in, cos, bufferSize);
             }
 
-            // 获取哈希值
-            byte[] hash = new byte[digest.getDigestSize()];
-            digest.doFinal(hash, 0);
+            log.debug("SM4加密完成({}): {} -> {}", options.getMode().getModeName(),
+                source.getFileName(), target.getFileName());
+        } catch (Exception e) {
+            throw new IOException("SM4加密失败: " + source, e);
+        }
+    }
 
-            // 转换为十六进制字符串
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
+    @Override
+    public void decryptSm4(Path source, Path target, String key, Sm4Options options) throws IOException {
+        try {
+            // 先校验密钥与文件头，避免失败时产生空的目标文件
+            try (InputStream in = newSm4DecryptingStream(Files.newInputStream(source), key, options)) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target),
+                    SEGMENTED_BUFFER_SIZE)) {
+                    copy(in, out, SEGMENTED_BUFFER_SIZE);
+                }
             }
-            return sb.toString();
+
+            log.debug("SM4解密完成: {} -> {}", source.getFileName(), target.getFileName());
         } catch (Exception e) {
-            throw new IOException("SM3计算失败: " + file, e);
+            throw new IOException("SM4解密失败: " + source, e);
         }
     }
 
     @Override
-    public void encryptSm4(Path source, Path target, String key) throws IOException {
+    public OutputStream newSm4EncryptingStream(OutputStream target, String key, Sm4Options options)
+        throws IOException {
         try {
-            // 准备密钥和IV
+            // 准备密钥
             byte[] keyBytes = prepareKey(key);
+
+            if (options.getMode().isSegmented()) {
+                // 分段格式：每个文件随机数不同，各段独立加密
+                Sm4SegmentedFormat format = Sm4SegmentedFormat.create(options.getMode(),
+                    clampSegmentSize(options.getSegmentSize()), keyBytes);
+                return new Sm4SegmentedOutputStream(target, format, Math.max(1, options.getThreads()));
+            }
+
             byte[] iv = generateIV(key); // 基于密钥生成确定性IV
 
             // 初始化SM4加密器
@@ -81,64 +148,78 @@ public class BouncyCastleSmCryptoManager implements SmCryptoManager {
             IvParameterSpec ivSpec = new IvParameterSpec(iv);
             cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
 
-            // 流式加密
-            try (InputStream in = Files.newInputStream(source);
-                 OutputStream out = Files.newOutputStream(target)) {
-
-                // 先写入IV（解密时需要）
-                out.write(iv);
-
-                // 使用CipherOutputStream流式加密
-                try (CipherOutputStream cos = new CipherOutputStream(out, cipher)) {
-                    byte[] buffer = new byte[BUFFER_SIZE];
-                    int bytesRead;
-                    while ((bytesRead = in.read(buffer)) != -1) {
-                        cos.write(buffer, 0, bytesRead);
-                    }
-                }
-            }
-
-            log.debug("SM4加密完成: {} -> {}", source.getFileName(), target.getFileName());
-        } catch (Exception e) {
-            throw new IOException("SM4加密失败: " + source, e);
+            // 先写入IV（解密时需要）
+            target.write(iv);
+            return new CipherOutputStream(target, cipher);
+        } catch (GeneralSecurityException e) {
+            target.close();
+            throw new IOException("SM4加密初始化失败", e);
+        } catch (IOException | IllegalArgumentException e) {
+            target.close();
+            throw e;
         }
     }
 
     @Override
-    public void decryptSm4(Path source, Path target, String key) throws IOException {
+    public InputStream newSm4DecryptingStream(InputStream source, String key, Sm4Options options)
+        throws IOException {
         try {
             byte[] keyBytes = prepareKey(key);
 
-            try (InputStream in = Files.newInputStream(source);
-                 OutputStream out = Files.newOutputStream(target)) {
-
-                // 读取IV（前16字节）
-                byte[] iv = new byte[SM4_IV_SIZE];
-                int ivBytesRead = in.read(iv);
-                if (ivBytesRead != SM4_IV_SIZE) {
-                    throw new IOException("无法读取IV，文件可能已损坏");
-                }
+            // 按魔数识别分段格式，否则为原有 CBC 格式
+            BufferedInputStream in = new BufferedInputStream(source, BUFFER_SIZE);
+            in.mark(Sm4SegmentedFormat.MAGIC.length);
+            byte[] head = new byte[Sm4SegmentedFormat.MAGIC.length];
+            int headLength = readFully(in, head);
+            in.reset();
+            if (Sm4SegmentedFormat.hasMagic(head, headLength)) {
+                Sm4SegmentedFormat format = Sm4SegmentedFormat.readHeader(in, keyBytes);
+                return new Sm4SegmentedInputStream(in, format, Math.max(1, options.getThreads()));
+            }
 
-                // 初始化解密器
-                Cipher cipher = Cipher.getInstance("SM4/CBC/PKCS5Padding", BouncyCastleProvider.PROVIDER_NAME);
-                SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "SM4");
-                IvParameterSpec ivSpec = new IvParameterSpec(iv);
-                cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-
-                // 流式解密
-                try (CipherInputStream cis = new CipherInputStream(in, cipher)) {
-                    byte[] buffer = new byte[BUFFER_SIZE];
-                    int bytesRead;
-                    while ((bytesRead = cis.read(buffer)) != -1) {
-                        out.write(buffer, 0, bytesRead);
-                    }
-                }
+            // 读取IV（前16字节）
+            byte[] iv = new byte[SM4_IV_SIZE];
+            if (readFully(in, iv) != SM4_IV_SIZE) {
+                throw new IOException("无法读取IV，文件可能已损坏");
             }
 
-            log.debug("SM4解密完成: {} -> {}", source.getFileName(), target.getFileName());
-        } catch (Exception e) {
-            throw new IOException("SM4解密失败: " + source, e);
+            // 初始化解密器
+            Cipher cipher = Cipher.getInstance("SM4/CBC/PKCS5Padding", BouncyCastleProvider.PROVIDER_NAME);
+            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "SM4");
+            IvParameterSpec ivSpec = new IvParameterSpec(iv);
+            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
+            return new CipherInputStream(in, cipher);
+        } catch (GeneralSecurityException e) {
+            source.close();
+            throw new IOException("SM4解密初始化失败", e);
+        } catch (IOException | IllegalArgumentException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    private static int clampSegmentSize(int segmentSize) {
+        return Math.min(Math.max(segmentSize, Sm4Options.MIN_SEGMENT_SIZE), Sm4Options.MAX_SEGMENT_SIZE);
+    }
+
+    private static void copy(InputStream in, OutputStream out, int bufferSize) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            out.write(buffer, 0, bytesRead);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int n = in.read(buffer, read, buffer.length - read);
+            if (n == -1) {
+                break;
+            }
+            read += n;
         }
+        return read;
     }
 
     /**
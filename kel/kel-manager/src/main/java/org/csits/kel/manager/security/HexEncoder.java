@@ -0,0 +1,22 @@
+package org.csits.kel.manager.security;
+
+/**
+ * 小写十六进制编码，查表实现，替代逐字节 String.format。
+ */
+final class HexEncoder {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private HexEncoder() {
+    }
+
+    static String encode(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            chars[i * 2] = DIGITS[v >>> 4];
+            chars[i * 2 + 1] = DIGITS[v & 0x0f];
+        }
+        return new String(chars);
+    }
+}
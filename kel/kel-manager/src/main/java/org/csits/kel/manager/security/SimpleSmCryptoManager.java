@@ -1,6 +1,8 @@
 package org.csits.kel.manager.security;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
@@ -25,24 +27,46 @@ public class SimpleSmCryptoManager implements SmCryptoManager {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] data = Files.readAllBytes(file);
             byte[] hash = digest.digest(data);
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return toHex(hash);
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("Digest algorithm not available", e);
         }
     }
 
     @Override
-    public void encryptSm4(Path source, Path target, String key) throws IOException {
+    public MessageDigest newSm3Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Digest algorithm not available", e);
+        }
+    }
+
+    @Override
+    public String toHex(byte[] digest) {
+        return HexEncoder.encode(digest);
+    }
+
+    @Override
+    public OutputStream newSm4EncryptingStream(OutputStream target, String key, Sm4Options options) {
+        // 占位实现：不加密，原样输出
+        return target;
+    }
+
+    @Override
+    public InputStream newSm4DecryptingStream(InputStream source, String key, Sm4Options options) {
+        // 占位实现：不解密，原样读取
+        return source;
+    }
+
+    @Override
+    public void encryptSm4(Path source, Path target, String key, Sm4Options options) throws IOException {
         // 占位实现：直接复制文件
         FileUtils.copyFile(source.toFile(), target.toFile());
     }
 
     @Override
-    public void decryptSm4(Path source, Path target, String key) throws IOException {
+    public void decryptSm4(Path source, Path target, String key, Sm4Options options) throws IOException {
         // 占位实现：直接复制文件
         FileUtils.copyFile(source.toFile(), target.toFile());
     }
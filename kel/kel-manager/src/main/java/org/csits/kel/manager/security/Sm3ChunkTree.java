@@ -0,0 +1,233 @@
+package org.csits.kel.manager.security;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.Data;
+
+/**
+ * 分块 SM3 校验树（Merkle 树）。
+ *
+ * - 文件按 chunkSize 切块，每块的 SM3 为一个叶子（即该字节区间的 SM3，可单独核对补传的块）
+ * - 父节点 = SM3(0x01 || 左子节点 || 右子节点)，奇数个节点时末节点直接上移；只有一个叶子时根即为该叶子
+ * - 校验时各块独立定位读取，可多线程并行，并能给出损坏的字节区间，供只重传损坏的块
+ */
+@Data
+public class Sm3ChunkTree {
+
+    /** 最小块大小：1MB，块过小时叶子过多，manifest 体积明显增大 */
+    public static final long MIN_CHUNK_SIZE = 1024L * 1024;
+
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 块大小（字节），末块可能不足
+     */
+    private final long chunkSize;
+
+    /**
+     * 文件总字节数
+     */
+    private final long size;
+
+    /**
+     * 各块 SM3（十六进制，按块序号排列）
+     */
+    private final List<String> leaves;
+
+    /**
+     * 根节点 SM3（十六进制）
+     */
+    private final String root;
+
+    /**
+     * 损坏的字节区间
+     */
+    @Data
+    public static class ChunkRange {
+        /** 块序号（从 0 开始），超出预期大小的多余字节序号为叶子数 */
+        private final int index;
+        /** 起始偏移 */
+        private final long offset;
+        /** 字节数 */
+        private final long length;
+    }
+
+    /**
+     * 由叶子摘要计算根节点
+     */
+    static byte[] computeRoot(List<byte[]> leafDigests, MessageDigest digest) {
+        if (leafDigests.isEmpty()) {
+            digest.reset();
+            return digest.digest();
+        }
+        List<byte[]> level = leafDigests;
+        while (level.size() > 1) {
+            List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                if (i + 1 == level.size()) {
+                    parents.add(level.get(i));
+                    continue;
+                }
+                digest.reset();
+                digest.update((byte) 0x01);
+                digest.update(level.get(i));
+                digest.update(level.get(i + 1));
+                parents.add(digest.digest());
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+
+    /**
+     * 比对实际计算的树与本树，返回不一致的字节区间（按块序号排列）。
+     * 实际内容比预期短时缺失部分计为损坏，比预期长时多余部分计为损坏。
+     *
+     * @param actual 对实际内容计算的树，块大小须与本树一致
+     */
+    public List<ChunkRange> diff(Sm3ChunkTree actual) {
+        if (actual.getChunkSize() != chunkSize) {
+            throw new IllegalArgumentException("块大小不一致: " + chunkSize + " / " + actual.getChunkSize());
+        }
+        List<ChunkRange> damaged = new ArrayList<>();
+        for (int i = 0; i < leaves.size(); i++) {
+            boolean same = i < actual.getLeaves().size()
+                && actual.chunkLength(i) == chunkLength(i)
+                && leaves.get(i).equalsIgnoreCase(actual.getLeaves().get(i));
+            if (!same) {
+                damaged.add(new ChunkRange(i, i * chunkSize, chunkLength(i)));
+            }
+        }
+        if (actual.getSize() > size) {
+            damaged.add(new ChunkRange(leaves.size(), size, actual.getSize() - size));
+        }
+        return damaged;
+    }
+
+    /**
+     * 按本树校验文件：各块按偏移独立读取、并行计算 SM3。
+     *
+     * @param file 待校验文件
+     * @param crypto 提供 SM3 摘要器
+     * @param threads 并行线程数
+     * @param stopOnFirst 为 true 时发现损坏块即停止其余块的计算（只作通过/不通过判定时使用），
+     *                    返回的区间只包含已发现的部分；为 false 时校验全部块
+     * @return 损坏的字节区间（按块序号排列），为空表示校验通过
+     */
+    public List<ChunkRange> verify(Path file, SmCryptoManager crypto, int threads, boolean stopOnFirst)
+        throws IOException {
+        long actualSize = Files.size(file);
+        List<ChunkRange> damaged = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean stop = new AtomicBoolean();
+        // 文件比预期短时，缺失的块无需读取
+        List<Integer> readable = new ArrayList<>();
+        for (int i = 0; i < leaves.size(); i++) {
+            if (i * chunkSize + chunkLength(i) <= actualSize) {
+                readable.add(i);
+            } else {
+                damaged.add(new ChunkRange(i, i * chunkSize, chunkLength(i)));
+            }
+        }
+        if (actualSize > size) {
+            damaged.add(new ChunkRange(leaves.size(), size, actualSize - size));
+        }
+        if (stopOnFirst && !damaged.isEmpty()) {
+            return sorted(damaged);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int poolSize = Math.max(1, Math.min(threads, readable.size()));
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+            try {
+                List<Future<?>> futures = new ArrayList<>(readable.size());
+                for (Integer index : readable) {
+                    futures.add(executor.submit(() -> {
+                        if (stop.get()) {
+                            return null;
+                        }
+                        String sm3 = hashChunk(channel, index, crypto, stop);
+                        if (sm3 != null && !sm3.equalsIgnoreCase(leaves.get(index))) {
+                            damaged.add(new ChunkRange(index, index * chunkSize, chunkLength(index)));
+                            if (stopOnFirst) {
+                                stop.set(true);
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("分块SM3校验失败: " + file, cause);
+            } catch (CancellationException e) {
+                throw new IOException("分块SM3校验被取消: " + file, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("分块SM3校验被中断: " + file);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return sorted(damaged);
+    }
+
+    /**
+     * 第 index 块的字节数
+     */
+    long chunkLength(int index) {
+        return Math.min(chunkSize, size - index * chunkSize);
+    }
+
+    /**
+     * 读取并计算一块的 SM3；stop 被置位时中途放弃并返回 null
+     */
+    private String hashChunk(FileChannel channel, int index, SmCryptoManager crypto, AtomicBoolean stop)
+        throws IOException {
+        MessageDigest digest = crypto.newSm3Digest();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long position = index * chunkSize;
+        long remaining = chunkLength(index);
+        while (remaining > 0) {
+            if (stop.get()) {
+                return null;
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), remaining));
+            int n = channel.read(buffer, position);
+            if (n == -1) {
+                throw new IOException("读取数据块时文件被截断，块序号: " + index);
+            }
+            digest.update(buffer.array(), 0, n);
+            position += n;
+            remaining -= n;
+        }
+        return crypto.toHex(digest.digest());
+    }
+
+    private static List<ChunkRange> sorted(List<ChunkRange> ranges) {
+        List<ChunkRange> result = new ArrayList<>(ranges);
+        result.sort(Comparator.comparingInt(ChunkRange::getIndex));
+        return result;
+    }
+}
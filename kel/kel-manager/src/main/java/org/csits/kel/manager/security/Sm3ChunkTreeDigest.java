@@ -0,0 +1,108 @@
+package org.csits.kel.manager.security;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 同时计算整体 SM3 与分块校验树的摘要器。
+ *
+ * digest() 返回整体 SM3（与 {@link SmCryptoManager#calculateSm3} 一致），
+ * 因此可直接替换边写边算管道中的 SM3 摘要器；分块校验树在 digest() 之后由 {@link #getTree()} 取得。
+ */
+public class Sm3ChunkTreeDigest extends MessageDigest {
+
+    private final Supplier<MessageDigest> digestFactory;
+    private final Function<byte[], String> hexEncoder;
+    private final long chunkSize;
+    private final MessageDigest whole;
+
+    private MessageDigest leaf;
+    private long leafFilled;
+    private long size;
+    private List<byte[]> leafDigests = new ArrayList<>();
+    private Sm3ChunkTree tree;
+
+    /**
+     * @param digestFactory SM3 摘要器工厂
+     * @param hexEncoder 摘要转十六进制，格式与 {@link SmCryptoManager#toHex} 一致
+     * @param chunkSize 块大小（字节）
+     */
+    public Sm3ChunkTreeDigest(Supplier<MessageDigest> digestFactory, Function<byte[], String> hexEncoder,
+                              long chunkSize) {
+        super("SM3");
+        if (chunkSize < Sm3ChunkTree.MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("分块大小不能小于 " + Sm3ChunkTree.MIN_CHUNK_SIZE + ": " + chunkSize);
+        }
+        this.digestFactory = digestFactory;
+        this.hexEncoder = hexEncoder;
+        this.chunkSize = chunkSize;
+        this.whole = digestFactory.get();
+        this.leaf = digestFactory.get();
+    }
+
+    /**
+     * 最近一次 digest() 时的分块校验树，尚未 digest() 时为 null
+     */
+    public Sm3ChunkTree getTree() {
+        return tree;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        engineUpdate(new byte[] {input}, 0, 1);
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        whole.update(input, offset, len);
+        size += len;
+        while (len > 0) {
+            int n = (int) Math.min(len, chunkSize - leafFilled);
+            leaf.update(input, offset, n);
+            leafFilled += n;
+            offset += n;
+            len -= n;
+            if (leafFilled == chunkSize) {
+                finishLeaf();
+            }
+        }
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        if (leafFilled > 0) {
+            finishLeaf();
+        }
+        List<String> leaves = new ArrayList<>(leafDigests.size());
+        for (byte[] leafDigest : leafDigests) {
+            leaves.add(hexEncoder.apply(leafDigest));
+        }
+        String root = hexEncoder.apply(Sm3ChunkTree.computeRoot(leafDigests, digestFactory.get()));
+        tree = new Sm3ChunkTree(chunkSize, size, leaves, root);
+        byte[] result = whole.digest();
+        resetState();
+        return result;
+    }
+
+    @Override
+    protected void engineReset() {
+        whole.reset();
+        resetState();
+        tree = null;
+    }
+
+    private void finishLeaf() {
+        leafDigests.add(leaf.digest());
+        leafFilled = 0L;
+    }
+
+    private void resetState() {
+        leaf.reset();
+        leafFilled = 0L;
+        size = 0L;
+        leafDigests = new ArrayList<>();
+    }
+}
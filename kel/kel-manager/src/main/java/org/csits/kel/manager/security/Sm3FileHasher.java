@@ -0,0 +1,128 @@
+package org.csits.kel.manager.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.bouncycastle.crypto.digests.SM3Digest;
+
+/**
+ * 文件 SM3 计算：经 FileChannel 按块读取，避免 InputStream 小缓冲的逐次系统调用。
+ *
+ * - CHANNEL：每个线程复用一块直接缓冲区顺序读取（默认）
+ * - MAPPED：按块大小的窗口映射文件，省去 read 系统调用；映射在 GC 前不释放，适合少量大文件
+ *
+ * SM3Digest 只接受字节数组，缓冲区内容经一块 64KB 的数组分批送入摘要。
+ */
+final class Sm3FileHasher {
+
+    /** 默认块大小：1MB */
+    static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /** 最小块大小：64KB */
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    /** 最大块大小：64MB */
+    static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final int SCRATCH_SIZE = 64 * 1024;
+
+    /**
+     * 读取方式
+     */
+    enum ReadMode {
+        CHANNEL,
+        MAPPED;
+
+        /**
+         * 按名称解析（不区分大小写），为空时返回 CHANNEL
+         *
+         * @throws IllegalArgumentException 不支持的名称
+         */
+        static ReadMode fromName(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                return CHANNEL;
+            }
+            for (ReadMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(name.trim())) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("不支持的SM3读取方式: " + name);
+        }
+    }
+
+    private static final ThreadLocal<ByteBuffer> DIRECT_BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+    private final ReadMode mode;
+    private final int chunkSize;
+
+    /**
+     * @param mode 读取方式
+     * @param chunkSize 每次读取（或映射）的字节数，限制在 64KB 到 64MB 之间
+     */
+    Sm3FileHasher(ReadMode mode, int chunkSize) {
+        this.mode = mode;
+        this.chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+    }
+
+    ReadMode getMode() {
+        return mode;
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 计算文件 SM3
+     */
+    byte[] hash(Path file) throws IOException {
+        SM3Digest digest = new SM3Digest();
+        byte[] scratch = SCRATCH.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (mode == ReadMode.MAPPED) {
+                long size = channel.size();
+                for (long position = 0; position < size; position += chunkSize) {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(chunkSize, size - position));
+                    update(digest, window, scratch);
+                }
+            } else {
+                ByteBuffer buffer = directBuffer();
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    update(digest, buffer, scratch);
+                    buffer.clear();
+                }
+            }
+        }
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.doFinal(hash, 0);
+        return hash;
+    }
+
+    /**
+     * 当前线程的直接缓冲区，块大小变化时重新分配
+     */
+    private ByteBuffer directBuffer() {
+        ByteBuffer buffer = DIRECT_BUFFER.get();
+        if (buffer == null || buffer.capacity() != chunkSize) {
+            buffer = ByteBuffer.allocateDirect(chunkSize);
+            DIRECT_BUFFER.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private static void update(SM3Digest digest, ByteBuffer source, byte[] scratch) {
+        while (source.hasRemaining()) {
+            int n = Math.min(scratch.length, source.remaining());
+            source.get(scratch, 0, n);
+            digest.update(scratch, 0, n);
+        }
+    }
+}
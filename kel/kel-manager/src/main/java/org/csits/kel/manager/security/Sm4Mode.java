@@ -0,0 +1,87 @@
+package org.csits.kel.manager.security;
+
+import java.util.Locale;
+
+/**
+ * SM4 加密模式。
+ *
+ * - cbc：原有格式，16 字节 IV + SM4/CBC/PKCS5Padding 密文，只能单线程顺序加解密
+ * - ctr：分段格式，各段以 SM4-CTR 独立加密，可并行；不带认证，完整性依赖 SM3 校验
+ * - gcm：分段格式，各段以 SM4-GCM 独立加密并带 16 字节认证标签，可并行，能发现篡改、截断与段重排
+ */
+public enum Sm4Mode {
+
+    CBC("cbc", 0, 0),
+
+    CTR("ctr", 1, 0),
+
+    GCM("gcm", 2, 16);
+
+    private final String modeName;
+    private final int headerId;
+    private final int tagLength;
+
+    Sm4Mode(String modeName, int headerId, int tagLength) {
+        this.modeName = modeName;
+        this.headerId = headerId;
+        this.tagLength = tagLength;
+    }
+
+    /**
+     * 配置与 manifest 中使用的模式名
+     */
+    public String getModeName() {
+        return modeName;
+    }
+
+    /**
+     * 分段格式文件头中的模式编号
+     */
+    int getHeaderId() {
+        return headerId;
+    }
+
+    /**
+     * 每段认证标签长度（字节）
+     */
+    int getTagLength() {
+        return tagLength;
+    }
+
+    /**
+     * 是否为分段格式
+     */
+    public boolean isSegmented() {
+        return this != CBC;
+    }
+
+    /**
+     * 按配置名解析模式，未配置时为 cbc
+     *
+     * @throws IllegalArgumentException 不支持的模式
+     */
+    public static Sm4Mode fromName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return CBC;
+        }
+        String normalized = name.trim().toLowerCase(Locale.ROOT);
+        for (Sm4Mode mode : values()) {
+            if (mode.modeName.equals(normalized)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("不支持的SM4模式: " + name + "，可选 cbc、ctr、gcm");
+    }
+
+    /**
+     * 按文件头中的模式编号解析，无法识别时返回 null
+     */
+    static Sm4Mode fromHeaderId(int headerId) {
+        for (Sm4Mode mode : values()) {
+            if (mode.isSegmented() && mode.headerId == headerId) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}
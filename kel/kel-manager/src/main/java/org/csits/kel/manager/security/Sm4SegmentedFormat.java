@@ -0,0 +1,178 @@
+package org.csits.kel.manager.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * SM4 分段密文格式。
+ *
+ * <pre>
+ * 文件头（24 字节）：
+ *   0-7   魔数 "KELSM4SG"
+ *   8     版本号 1
+ *   9     模式编号：1=CTR，2=GCM
+ *   10-11 保留，0
+ *   12-15 段大小（明文字节数，大端）
+ *   16-23 文件随机数（每个文件随机生成）
+ * 之后为各段密文，按段号顺序排列：
+ *   CTR：与明文等长；IV = 文件随机数 + 段号(4 字节) + 块计数(4 字节，从 0 开始)
+ *   GCM：明文长度 + 16 字节认证标签；nonce = 文件随机数 + 段号(4 字节)，
+ *        附加认证数据为文件头 + 末段标记，截断或重排段会导致认证失败
+ * </pre>
+ *
+ * 除末段外每段密文长度固定，解密时可按偏移直接定位各段并行处理。
+ * 末段总是写出（明文为空时 GCM 仍有认证标签），用于识别截断。
+ */
+final class Sm4SegmentedFormat {
+
+    static final int HEADER_SIZE = 24;
+
+    static final byte[] MAGIC = {'K', 'E', 'L', 'S', 'M', '4', 'S', 'G'};
+
+    private static final int VERSION = 1;
+    private static final int NONCE_SIZE = 8;
+    private static final int GCM_TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final byte[] header;
+    private final Sm4Mode mode;
+    private final int segmentSize;
+    private final byte[] nonce;
+    private final SecretKeySpec keySpec;
+
+    private Sm4SegmentedFormat(byte[] header, Sm4Mode mode, int segmentSize, byte[] nonce, byte[] key) {
+        this.header = header;
+        this.mode = mode;
+        this.segmentSize = segmentSize;
+        this.nonce = nonce;
+        this.keySpec = new SecretKeySpec(key, "SM4");
+    }
+
+    /**
+     * 新建加密格式，生成文件随机数
+     */
+    static Sm4SegmentedFormat create(Sm4Mode mode, int segmentSize, byte[] key) {
+        if (!mode.isSegmented()) {
+            throw new IllegalArgumentException("非分段模式: " + mode.getModeName());
+        }
+        byte[] nonce = new byte[NONCE_SIZE];
+        RANDOM.nextBytes(nonce);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC);
+        header.put((byte) VERSION);
+        header.put((byte) mode.getHeaderId());
+        header.putShort((short) 0);
+        header.putInt(segmentSize);
+        header.put(nonce);
+        return new Sm4SegmentedFormat(header.array(), mode, segmentSize, nonce, key);
+    }
+
+    /**
+     * 读取并解析文件头（魔数已由调用方确认）
+     */
+    static Sm4SegmentedFormat readHeader(InputStream in, byte[] key) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int read = 0;
+        while (read < HEADER_SIZE) {
+            int n = in.read(header, read, HEADER_SIZE - read);
+            if (n == -1) {
+                throw new IOException("SM4分段密文文件头不完整，文件可能已损坏");
+            }
+            read += n;
+        }
+        if (!hasMagic(header, HEADER_SIZE)) {
+            throw new IOException("不是SM4分段密文");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        buffer.position(MAGIC.length);
+        int version = buffer.get() & 0xff;
+        if (version != VERSION) {
+            throw new IOException("不支持的SM4分段密文版本: " + version);
+        }
+        int modeId = buffer.get() & 0xff;
+        Sm4Mode mode = Sm4Mode.fromHeaderId(modeId);
+        if (mode == null) {
+            throw new IOException("不支持的SM4分段模式编号: " + modeId);
+        }
+        buffer.getShort();
+        int segmentSize = buffer.getInt();
+        if (segmentSize < Sm4Options.MIN_SEGMENT_SIZE || segmentSize > Sm4Options.MAX_SEGMENT_SIZE) {
+            throw new IOException("SM4分段密文段大小非法: " + segmentSize);
+        }
+        byte[] nonce = new byte[NONCE_SIZE];
+        buffer.get(nonce);
+        return new Sm4SegmentedFormat(header, mode, segmentSize, nonce, key);
+    }
+
+    /**
+     * 是否以分段格式魔数开头
+     */
+    static boolean hasMagic(byte[] head, int length) {
+        return length >= MAGIC.length && Arrays.equals(Arrays.copyOf(head, MAGIC.length), MAGIC);
+    }
+
+    byte[] getHeader() {
+        return header.clone();
+    }
+
+    Sm4Mode getMode() {
+        return mode;
+    }
+
+    int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * 每段密文最大长度：段大小 + 认证标签
+     */
+    int getCipherSegmentSize() {
+        return segmentSize + mode.getTagLength();
+    }
+
+    /**
+     * 加密一段
+     *
+     * @param index 段号，从 0 开始
+     * @param last 是否为末段
+     */
+    byte[] encryptSegment(long index, boolean last, byte[] data, int length) throws GeneralSecurityException {
+        Cipher cipher = initCipher(Cipher.ENCRYPT_MODE, index, last);
+        return cipher.doFinal(data, 0, length);
+    }
+
+    /**
+     * 解密一段，GCM 认证失败时抛出 AEADBadTagException
+     */
+    byte[] decryptSegment(long index, boolean last, byte[] data, int length) throws GeneralSecurityException {
+        Cipher cipher = initCipher(Cipher.DECRYPT_MODE, index, last);
+        return cipher.doFinal(data, 0, length);
+    }
+
+    private Cipher initCipher(int opmode, long index, boolean last) throws GeneralSecurityException {
+        if (index < 0 || index > 0xffffffffL) {
+            throw new GeneralSecurityException("SM4分段数超出上限: " + index);
+        }
+        if (mode == Sm4Mode.GCM) {
+            Cipher cipher = Cipher.getInstance("SM4/GCM/NoPadding", BouncyCastleProvider.PROVIDER_NAME);
+            byte[] iv = ByteBuffer.allocate(NONCE_SIZE + 4).put(nonce).putInt((int) index).array();
+            cipher.init(opmode, keySpec, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            cipher.updateAAD(header);
+            cipher.updateAAD(new byte[] {(byte) (last ? 1 : 0)});
+            return cipher;
+        }
+        Cipher cipher = Cipher.getInstance("SM4/CTR/NoPadding", BouncyCastleProvider.PROVIDER_NAME);
+        byte[] iv = ByteBuffer.allocate(NONCE_SIZE + 8).put(nonce).putInt((int) index).putInt(0).array();
+        cipher.init(opmode, keySpec, new IvParameterSpec(iv));
+        return cipher;
+    }
+}
@@ -0,0 +1,152 @@
+package org.csits.kel.manager.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * SM4 分段解密输入流：顺序读取密文段，由线程池并行解密，按段号顺序返回明文，
+ * 格式见 {@link Sm4SegmentedFormat}。
+ *
+ * - 预读一段以判断当前段是否为末段（GCM 附加认证数据包含末段标记）
+ * - 在途段数上限为线程数的 2 倍
+ */
+class Sm4SegmentedInputStream extends InputStream {
+
+    private final InputStream in;
+    private final Sm4SegmentedFormat format;
+    private final int cipherSegmentSize;
+    private final int maxPending;
+    private final ExecutorService executor;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] lookahead;
+    private int lookaheadLength;
+    private boolean started;
+    private boolean inputDone;
+    private long nextIndex;
+    private byte[] current;
+    private int currentPos;
+    private boolean closed;
+
+    /**
+     * @param in 密文输入流（已读过文件头），随本流关闭
+     * @param format 由文件头解析的分段格式
+     * @param threads 解密线程数
+     */
+    Sm4SegmentedInputStream(InputStream in, Sm4SegmentedFormat format, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("解密线程数必须大于 0: " + threads);
+        }
+        this.in = in;
+        this.format = format;
+        this.cipherSegmentSize = format.getCipherSegmentSize();
+        this.maxPending = threads * 2;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("输入流已关闭");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || currentPos >= current.length) {
+            fillPending();
+            if (pending.isEmpty()) {
+                return -1;
+            }
+            current = takeNextSegment();
+            currentPos = 0;
+        }
+        int n = Math.min(len, current.length - currentPos);
+        System.arraycopy(current, currentPos, b, off, n);
+        currentPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<byte[]> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        executor.shutdownNow();
+        in.close();
+    }
+
+    /**
+     * 提交密文段直到在途段数达到上限或输入读完
+     */
+    private void fillPending() throws IOException {
+        if (!started) {
+            started = true;
+            readLookahead();
+            if (lookaheadLength == 0 && format.getMode().getTagLength() > 0) {
+                throw new IOException("SM4分段密文缺少末段，文件可能被截断");
+            }
+        }
+        while (!inputDone && pending.size() < maxPending) {
+            final byte[] data = lookahead;
+            final int length = lookaheadLength;
+            readLookahead();
+            final boolean last = lookaheadLength == 0;
+            if (length < format.getMode().getTagLength()) {
+                throw new IOException("SM4分段密文末段不完整，文件可能被截断");
+            }
+            final long index = nextIndex++;
+            pending.addLast(executor.submit(() -> format.decryptSegment(index, last, data, length)));
+            if (last) {
+                inputDone = true;
+            }
+        }
+    }
+
+    /**
+     * 读取下一段密文到预读缓冲，输入结束时长度为 0
+     */
+    private void readLookahead() throws IOException {
+        byte[] buffer = new byte[cipherSegmentSize];
+        int read = 0;
+        while (read < buffer.length) {
+            int n = in.read(buffer, read, buffer.length - read);
+            if (n == -1) {
+                break;
+            }
+            read += n;
+        }
+        lookahead = buffer;
+        lookaheadLength = read;
+    }
+
+    private byte[] takeNextSegment() throws IOException {
+        Future<byte[]> future = pending.pollFirst();
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("SM4分段解密失败，密钥错误或密文已损坏", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("SM4分段解密被中断");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.csits.kel.manager.security;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * SM4 分段加密输出流：写入的明文按段大小切段，由线程池并行加密，按写入顺序输出，
+ * 格式见 {@link Sm4SegmentedFormat}。
+ *
+ * - 在途段数上限为线程数的 2 倍，内存占用约为 2 * threads * segmentSize
+ * - 段写满后待有后续数据写入时才提交，保证关闭时提交的一定是末段
+ */
+class Sm4SegmentedOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final Sm4SegmentedFormat format;
+    private final int segmentSize;
+    private final int maxPending;
+    private final ExecutorService executor;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] segment;
+    private int segmentLength;
+    private long nextIndex;
+    private boolean closed;
+
+    /**
+     * @param out 密文输出流，随本流关闭
+     * @param format 分段格式，构造时写出文件头
+     * @param threads 加密线程数
+     */
+    Sm4SegmentedOutputStream(OutputStream out, Sm4SegmentedFormat format, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("加密线程数必须大于 0: " + threads);
+        }
+        this.out = out;
+        this.format = format;
+        this.segmentSize = format.getSegmentSize();
+        this.maxPending = threads * 2;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.segment = new byte[segmentSize];
+        try {
+            out.write(format.getHeader());
+        } catch (IOException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (segmentLength == segmentSize) {
+                submitSegment(false);
+            }
+            int chunk = Math.min(len, segmentSize - segmentLength);
+            System.arraycopy(b, off, segment, segmentLength, chunk);
+            segmentLength += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * 只刷新已加密完成的段；未满的段不提前提交，否则段长度不再固定
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+            writeNextSegment();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // 末段总是提交（可能为空），解密时据此识别截断
+            submitSegment(true);
+            while (!pending.isEmpty()) {
+                writeNextSegment();
+            }
+            out.flush();
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    private void submitSegment(boolean last) throws IOException {
+        final byte[] data = segment;
+        final int length = segmentLength;
+        final long index = nextIndex++;
+        pending.addLast(executor.submit(() -> format.encryptSegment(index, last, data, length)));
+        segment = last ? null : new byte[segmentSize];
+        segmentLength = 0;
+        while (pending.size() > maxPending) {
+            writeNextSegment();
+        }
+    }
+
+    private void writeNextSegment() throws IOException {
+        Future<byte[]> future = pending.pollFirst();
+        try {
+            out.write(future.get());
+        } catch (ExecutionException e) {
+            throw new IOException("SM4分段加密失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("SM4分段加密被中断");
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("输出流已关闭");
+        }
+    }
+}
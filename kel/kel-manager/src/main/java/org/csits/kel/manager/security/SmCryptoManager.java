@@ -1,7 +1,10 @@
 package org.csits.kel.manager.security;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 
 /**
  * 国密相关处理抽象，后续可接入真实 SM3/SM4 实现。
@@ -14,13 +17,65 @@ public interface SmCryptoManager {
     String calculateSm3(Path file) throws IOException;
 
     /**
-     * 使用 SM4 加密文件，输出到 target。
+     * 使用 SM4 加密文件，输出到 target（cbc 格式）。
      */
-    void encryptSm4(Path source, Path target, String key) throws IOException;
+    default void encryptSm4(Path source, Path target, String key) throws IOException {
+        encryptSm4(source, target, key, Sm4Options.defaults());
+    }
 
     /**
-     * 使用 SM4 解密文件，输出到 target。
+     * 按指定模式使用 SM4 加密文件，输出到 target；ctr、gcm 为可并行的分段格式。
      */
-    void decryptSm4(Path source, Path target, String key) throws IOException;
+    void encryptSm4(Path source, Path target, String key, Sm4Options options) throws IOException;
+
+    /**
+     * 使用 SM4 解密文件，输出到 target；按文件头识别分段格式，否则按 cbc 格式解密。
+     */
+    default void decryptSm4(Path source, Path target, String key) throws IOException {
+        decryptSm4(source, target, key, Sm4Options.defaults());
+    }
+
+    /**
+     * 使用 SM4 解密文件，输出到 target；分段格式按 options 的线程数并行解密，模式与段大小以文件头为准。
+     */
+    void decryptSm4(Path source, Path target, String key, Sm4Options options) throws IOException;
+
+    /**
+     * 创建增量 SM3 摘要器，用于边写边算（流式管道中无需回读文件）。
+     */
+    MessageDigest newSm3Digest();
+
+    /**
+     * 创建同时计算整体 SM3 与分块校验树的摘要器，digest() 返回值与 {@link #newSm3Digest} 一致。
+     *
+     * @param chunkSize 块大小（字节）
+     */
+    default Sm3ChunkTreeDigest newSm3ChunkTreeDigest(long chunkSize) {
+        return new Sm3ChunkTreeDigest(this::newSm3Digest, this::toHex, chunkSize);
+    }
+
+    /**
+     * 将摘要值转为十六进制字符串，格式与 {@link #calculateSm3} 一致。
+     */
+    String toHex(byte[] digest);
+
+    /**
+     * 创建 SM4 加密输出流（cbc 格式），写入的明文加密后输出到 target，输出格式与 {@link #encryptSm4} 一致。
+     * 关闭返回的流时同时关闭 target。
+     */
+    default OutputStream newSm4EncryptingStream(OutputStream target, String key) throws IOException {
+        return newSm4EncryptingStream(target, key, Sm4Options.defaults());
+    }
+
+    /**
+     * 按指定模式创建 SM4 加密输出流。关闭返回的流时同时关闭 target。
+     */
+    OutputStream newSm4EncryptingStream(OutputStream target, String key, Sm4Options options) throws IOException;
+
+    /**
+     * 创建 SM4 解密输入流，读取时从 source 解密，格式识别同 {@link #decryptSm4}。
+     * 关闭返回的流时同时关闭 source。
+     */
+    InputStream newSm4DecryptingStream(InputStream source, String key, Sm4Options options) throws IOException;
 }
 
@@ -1,11 +1,27 @@
 package org.csits.kel.manager.compression;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.csits.kel.manager.security.BouncyCastleSmCryptoManager;
+import org.csits.kel.manager.security.Sm4Mode;
+import org.csits.kel.manager.security.Sm4Options;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -74,4 +90,348 @@ class LocalCompressionManagerTest {
         assertThat(result).hasSize(1);
         assertThat(result.get(0)).isEqualTo(smallFile);
     }
+
+    @Test
+    void openArchiveWriter_withRollingParts_canBeMergedAndDecompressed() throws IOException {
+        Path exchangeDir = tempDir.resolve("exchange");
+        Path archive = exchangeDir.resolve("job_20260101_001.tar.gz");
+        // 随机数据基本不可压缩，压缩后仍大于分片大小，确保写出多个分片
+        byte[] data = new byte[256 * 1024];
+        new Random(42L).nextBytes(data);
+
+        RollingPartOutputStream parts = new RollingPartOutputStream(archive, 64 * 1024, null);
+        try (ArchiveWriter writer = manager.openArchiveWriter(parts)) {
+            writer.putEntry("data/t1.txt", data, 0, data.length);
+            byte[] manifest = "{}".getBytes(StandardCharsets.UTF_8);
+            writer.putEntry("manifest.json", manifest, 0, manifest.length);
+        }
+
+        assertThat(parts.getPartFiles()).hasSizeGreaterThan(1);
+        assertThat(parts.getPartFiles().get(0).getFileName().toString()).isEqualTo("job_20260101_001.tar.gz.001");
+        assertThat(Files.exists(archive)).isFalse();
+
+        Path targetDir = tempDir.resolve("unpacked");
+        manager.mergeAndDecompress(exchangeDir, targetDir);
+
+        assertThat(Files.readAllBytes(targetDir.resolve("data").resolve("t1.txt"))).isEqualTo(data);
+        assertThat(Files.readAllBytes(targetDir.resolve("manifest.json"))).isEqualTo("{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rollingPartOutputStream_singlePart_usesBaseFileName() throws IOException {
+        Path archive = tempDir.resolve("out").resolve("single.tar.gz");
+
+        RollingPartOutputStream parts = new RollingPartOutputStream(archive, 1024 * 1024, null);
+        try (ArchiveWriter writer = manager.openArchiveWriter(parts)) {
+            byte[] data = "content".getBytes(StandardCharsets.UTF_8);
+            writer.putEntry("f.txt", data, 0, data.length);
+        }
+
+        assertThat(parts.getPartFiles()).containsExactly(archive);
+        assertThat(Files.exists(archive.resolveSibling("single.tar.gz.tmp"))).isFalse();
+        assertThat(Files.exists(archive.resolveSibling("single.tar.gz.001.tmp"))).isFalse();
+    }
+
+    @Test
+    void compressToTarGz_parallel_roundTripAndReadableAsStandardGzip() throws IOException {
+        Path sourceDir = tempDir.resolve("source");
+        Files.createDirectories(sourceDir);
+        byte[] data = new byte[1024 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + i / 7);
+        }
+        Files.write(sourceDir.resolve("t1.txt"), data);
+        Files.write(sourceDir.resolve("t2.txt"), "content2".getBytes(StandardCharsets.UTF_8));
+        CompressionOptions options = CompressionOptions.defaults();
+        options.setThreads(4);
+        options.setBlockSize(CompressionOptions.MIN_BLOCK_SIZE);
+
+        Path archive = tempDir.resolve("parallel.tar.gz");
+        manager.compressToTarGz(sourceDir, archive, options);
+
+        Path targetDir = tempDir.resolve("decompressed");
+        manager.decompressTarGz(archive, targetDir);
+        assertThat(Files.readAllBytes(targetDir.resolve("t1.txt"))).isEqualTo(data);
+        assertThat(Files.readAllBytes(targetDir.resolve("t2.txt"))).isEqualTo("content2".getBytes(StandardCharsets.UTF_8));
+
+        // JDK 的 GZIPInputStream 与 gzip -d 一样按多成员流解压，解压结果为完整 tar 流
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            ByteArrayOutputStream tar = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                tar.write(buffer, 0, n);
+            }
+            assertThat(tar.size()).isGreaterThan(data.length).matches(size -> size % 512 == 0);
+        }
+    }
+
+    @Test
+    void parallelGzipOutputStream_emptyInputIsValidGzip() throws IOException {
+        Path gz = tempDir.resolve("empty.gz");
+
+        new ParallelGzipOutputStream(Files.newOutputStream(gz), 2, CompressionOptions.MIN_BLOCK_SIZE, 6).close();
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+            assertThat(in.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void compressToTarGz_gzipLevelZero_storesWithoutCompression() throws IOException {
+        Path sourceDir = tempDir.resolve("source");
+        Files.createDirectories(sourceDir);
+        byte[] data = new byte[256 * 1024];
+        Files.write(sourceDir.resolve("t1.txt"), data);
+        CompressionOptions options = CompressionOptions.defaults();
+        // 显式的 0 级为只存储，不能被当作未设置而退回默认级别
+        options.setLevel(0);
+
+        Path archive = tempDir.resolve("stored.tar.gz");
+        manager.compressToTarGz(sourceDir, archive, options);
+
+        assertThat(Files.size(archive)).isGreaterThan(data.length);
+        Path targetDir = tempDir.resolve("decompressed");
+        manager.decompressTarGz(archive, targetDir);
+        assertThat(Files.readAllBytes(targetDir.resolve("t1.txt"))).isEqualTo(data);
+    }
+
+    @Test
+    void compressionLevel_isValidatedPerCodec() {
+        CompressionCodec.GZIP.validateLevel(0);
+        CompressionCodec.ZSTD.validateLevel(19);
+        assertThatThrownBy(() -> CompressionCodec.GZIP.validateLevel(10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompressionCodec.ZSTD.validateLevel(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompressionCodec.LZ4.validateLevel(1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(CompressionCodec.NONE.supportsLevel()).isFalse();
+    }
+
+    @Test
+    void compressToTarGz_eachCodec_isDetectedAndDecompressedByMergeAndDecompress() throws IOException {
+        Path sourceDir = tempDir.resolve("source");
+        Files.createDirectories(sourceDir.resolve("data"));
+        byte[] data = new byte[512 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 97);
+        }
+        Files.write(sourceDir.resolve("data").resolve("t1.txt"), data);
+
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            CompressionOptions options = CompressionOptions.defaults();
+            options.setCodec(codec);
+            options.setThreads(2);
+            Path inputDir = tempDir.resolve("in_" + codec.getCodecName());
+            Path archive = inputDir.resolve("job_20260101_001" + codec.getArchiveExtension());
+            manager.compressToTarGz(sourceDir, archive, options);
+
+            // 加载侧不依赖配置，按文件头识别编码
+            Path targetDir = tempDir.resolve("out_" + codec.getCodecName());
+            manager.mergeAndDecompress(inputDir, targetDir);
+
+            assertThat(Files.readAllBytes(targetDir.resolve("data").resolve("t1.txt"))).as(codec.name()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    void compressionCodec_fromNameAndFileNames() {
+        assertThat(CompressionCodec.fromName(null)).isEqualTo(CompressionCodec.GZIP);
+        assertThat(CompressionCodec.fromName("ZSTD")).isEqualTo(CompressionCodec.ZSTD);
+        assertThat(CompressionCodec.fromName("store")).isEqualTo(CompressionCodec.NONE);
+        assertThatThrownBy(() -> CompressionCodec.fromName("bzip2")).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(CompressionCodec.isArchiveFile("job_001.tar.zst")).isTrue();
+        assertThat(CompressionCodec.isArchiveFile("job_001.tar.lz4.002")).isTrue();
+        assertThat(CompressionCodec.isSplitPart("job_001.tar.002")).isTrue();
+        assertThat(CompressionCodec.isSplitPart("job_001.tar.gz")).isFalse();
+        assertThat(CompressionCodec.isArchiveFile("manifest.json")).isFalse();
+    }
+
+    @Test
+    void decompressTarGz_unknownFormat_fails() throws IOException {
+        Path archive = tempDir.resolve("bad.tar.gz");
+        Files.write(archive, "not an archive".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> manager.decompressTarGz(archive, tempDir.resolve("out")))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("无法识别");
+    }
+
+    @Test
+    void compressDirectory_intoRollingParts_recordsSizeAndDigestPerPart() throws Exception {
+        Path sourceDir = tempDir.resolve("source");
+        Files.createDirectories(sourceDir.resolve("data"));
+        // 随机数据不可压缩，保证压缩后跨越多个分片
+        byte[] data = new byte[512 * 1024];
+        new Random(7).nextBytes(data);
+        Files.write(sourceDir.resolve("data").resolve("t1.txt"), data);
+        Path exchangeDir = tempDir.resolve("exchange");
+        Path archive = exchangeDir.resolve("job_20260101_001.tar.gz");
+        Supplier<MessageDigest> digestFactory = () -> {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        RollingPartOutputStream parts = new RollingPartOutputStream(archive, 64 * 1024, null, digestFactory);
+        manager.compressDirectory(sourceDir, parts, CompressionOptions.defaults());
+
+        // 边压缩边分片，不产生整包文件
+        assertThat(parts.getParts()).hasSizeGreaterThan(1);
+        assertThat(Files.exists(archive)).isFalse();
+        for (RollingPartOutputStream.PartInfo part : parts.getParts()) {
+            byte[] onDisk = Files.readAllBytes(part.getFile());
+            assertThat(part.getSize()).isEqualTo(onDisk.length);
+            assertThat(part.getDigest()).isEqualTo(digestFactory.get().digest(onDisk));
+        }
+        assertThat(parts.getParts().get(1).getIndex()).isEqualTo(2);
+
+        Path targetDir = tempDir.resolve("unpacked");
+        manager.mergeAndDecompress(exchangeDir, targetDir);
+        assertThat(Files.readAllBytes(targetDir.resolve("data").resolve("t1.txt"))).isEqualTo(data);
+    }
+
+    @Test
+    void mergeAndDecompress_verifiesEachPartWithoutMergedFile() throws Exception {
+        Path sourceDir = tempDir.resolve("source");
+        Files.createDirectories(sourceDir.resolve("data"));
+        byte[] data = new byte[512 * 1024];
+        new Random(11).nextBytes(data);
+        Files.write(sourceDir.resolve("data").resolve("t1.txt"), data);
+        Path exchangeDir = tempDir.resolve("exchange");
+        Path archive = exchangeDir.resolve("job_20260101_001.tar.gz");
+        Supplier<MessageDigest> digestFactory = () -> {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        RollingPartOutputStream parts = new RollingPartOutputStream(archive, 64 * 1024, null, digestFactory);
+        manager.compressDirectory(sourceDir, parts, CompressionOptions.defaults());
+        Map<Path, RollingPartOutputStream.PartInfo> expected = new HashMap<>();
+        for (RollingPartOutputStream.PartInfo part : parts.getParts()) {
+            expected.put(part.getFile(), part);
+        }
+
+        List<Path> verified = new ArrayList<>();
+        Path targetDir = tempDir.resolve("unpacked");
+        UnpackOptions options = UnpackOptions.defaults();
+        options.setPartDigestFactory(digestFactory);
+        options.setPartVerifier((part, size, digest) -> {
+            RollingPartOutputStream.PartInfo info = expected.get(part);
+            assertThat(size).isEqualTo(info.getSize());
+            assertThat(digest).isEqualTo(info.getDigest());
+            verified.add(part);
+        });
+        manager.mergeAndDecompress(exchangeDir, targetDir, options);
+
+        // 每个分片按序校验，且交换目录中不产生合并文件
+        assertThat(verified).containsExactlyElementsOf(parts.getPartFiles());
+        assertThat(Files.readAllBytes(targetDir.resolve("data").resolve("t1.txt"))).isEqualTo(data);
+        try (Stream<Path> files = Files.list(exchangeDir)) {
+            assertThat(files.map(p -> p.getFileName().toString())).allMatch(name -> name.matches(".*\\.\\d{3}$"));
+        }
+
+        // 分片摘要不一致时中止解压
+        Path corruptDir = tempDir.resolve("unpacked-corrupt");
+        UnpackOptions failing = UnpackOptions.defaults();
+        failing.setPartDigestFactory(digestFactory);
+        failing.setPartVerifier((part, size, digest) -> {
+            throw new IOException("分片校验失败: " + part.getFileName());
+        });
+        assertThatThrownBy(() -> manager.mergeAndDecompress(exchangeDir, corruptDir, failing))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("分片校验失败");
+    }
+
+    @Test
+    void mergeAndDecompress_decryptsEachPartInOnePassAndLeavesInputsUntouched() throws Exception {
+        Path sourceDir = tempDir.resolve("source");
+        Files.createDirectories(sourceDir.resolve("data"));
+        byte[] data = new byte[512 * 1024];
+        new Random(13).nextBytes(data);
+        Files.write(sourceDir.resolve("data").resolve("t1.txt"), data);
+        BouncyCastleSmCryptoManager crypto = new BouncyCastleSmCryptoManager();
+
+        for (Sm4Mode mode : Sm4Mode.values()) {
+            Sm4Options sm4Options = Sm4Options.defaults();
+            sm4Options.setMode(mode);
+            sm4Options.setSegmentSize(Sm4Options.MIN_SEGMENT_SIZE);
+            sm4Options.setThreads(2);
+            Path exchangeDir = tempDir.resolve("exchange-" + mode.getModeName());
+            RollingPartOutputStream parts = new RollingPartOutputStream(
+                exchangeDir.resolve("job_20260101_001.tar.gz"), 128 * 1024,
+                partOut -> crypto.newSm4EncryptingStream(partOut, "part_key", sm4Options), crypto::newSm3Digest);
+            manager.compressDirectory(sourceDir, parts, CompressionOptions.defaults());
+            Map<Path, byte[]> before = new HashMap<>();
+            for (Path part : parts.getPartFiles()) {
+                before.put(part, Files.readAllBytes(part));
+            }
+
+            // 摘要按密文计算，与写出时记录的一致
+            List<Path> verified = new ArrayList<>();
+            Map<Path, RollingPartOutputStream.PartInfo> expected = new HashMap<>();
+            for (RollingPartOutputStream.PartInfo part : parts.getParts()) {
+                expected.put(part.getFile(), part);
+            }
+            Path targetDir = tempDir.resolve("unpacked-" + mode.getModeName());
+            UnpackOptions options = UnpackOptions.defaults();
+            options.setPartDigestFactory(crypto::newSm3Digest);
+            options.setPartVerifier((part, size, digest) -> {
+                assertThat(size).isEqualTo(expected.get(part).getSize());
+                assertThat(digest).isEqualTo(expected.get(part).getDigest());
+                verified.add(part);
+            });
+            options.setPartWrapper(partIn -> crypto.newSm4DecryptingStream(partIn, "part_key", Sm4Options.defaults()));
+            manager.mergeAndDecompress(exchangeDir, targetDir, options);
+
+            assertThat(verified).containsExactlyElementsOf(parts.getPartFiles());
+            assertThat(Files.readAllBytes(targetDir.resolve("data").resolve("t1.txt"))).isEqualTo(data);
+            // 输入目录保持原样：不生成 .dec 文件，密文分片未被改写
+            try (Stream<Path> files = Files.list(exchangeDir)) {
+                assertThat(files.collect(Collectors.toSet())).isEqualTo(before.keySet());
+            }
+            for (Map.Entry<Path, byte[]> entry : before.entrySet()) {
+                assertThat(Files.readAllBytes(entry.getKey())).isEqualTo(entry.getValue());
+            }
+        }
+    }
+
+    @Test
+    void mergeAndDecompress_reportsEntryDigestsWhileUnpacking() throws Exception {
+        Path sourceDir = tempDir.resolve("source");
+        Files.createDirectories(sourceDir.resolve("data"));
+        Files.write(sourceDir.resolve("data").resolve("t1.txt"), "a\u001Eb\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(sourceDir.resolve("data").resolve("t2.txt"), new byte[0]);
+        Files.write(sourceDir.resolve("manifest.json"), "{}".getBytes(StandardCharsets.UTF_8));
+        Path inputDir = tempDir.resolve("input");
+        manager.compressToTarGz(sourceDir, inputDir.resolve("job_20260101_001.tar.gz"));
+
+        Map<String, byte[]> digests = new HashMap<>();
+        Map<String, Long> sizes = new HashMap<>();
+        UnpackOptions options = UnpackOptions.defaults();
+        options.setEntryDigestFactory(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        options.setEntryListener((name, size, digest) -> {
+            digests.put(name, digest);
+            sizes.put(name, size);
+        });
+        Path targetDir = tempDir.resolve("unpacked");
+        manager.mergeAndDecompress(inputDir, targetDir, options);
+
+        // 每个文件条目的摘要与字节数在写出时得到，与落盘文件一致
+        assertThat(digests).containsOnlyKeys("data/t1.txt", "data/t2.txt", "manifest.json");
+        for (String name : digests.keySet()) {
+            byte[] onDisk = Files.readAllBytes(targetDir.resolve(name));
+            assertThat(sizes.get(name)).isEqualTo(onDisk.length);
+            assertThat(digests.get(name)).isEqualTo(MessageDigest.getInstance("SHA-256").digest(onDisk));
+        }
+    }
 }
@@ -3,9 +3,13 @@ package org.csits.kel.manager.security;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -77,6 +81,32 @@ class BouncyCastleSmCryptoManagerTest {
         assertEquals(64, hash.length());
     }
 
+    @Test
+    void testCalculateSm3_ReadModesAndChunkSizesAgree() throws IOException {
+        // 标准测试向量 SM3("abc")
+        Path abc = tempDir.resolve("abc.txt");
+        Files.write(abc, "abc".getBytes(StandardCharsets.UTF_8));
+        assertEquals("66c7f0f462eeedd9d1f2d46bdc10e4e24167c4875cf2f7a2297da02b8f4ba8e0",
+            cryptoManager.calculateSm3(abc));
+
+        // 不对齐块大小的文件，两种读取方式、不同块大小结果一致
+        Path file = tempDir.resolve("odd.bin");
+        byte[] data = new byte[3 * 64 * 1024 + 17];
+        new Random(7).nextBytes(data);
+        Files.write(file, data);
+        String expected = cryptoManager.calculateSm3(file);
+        for (String readMode : new String[] {"channel", "mapped"}) {
+            for (int chunkKb : new int[] {64, 100, 4096}) {
+                BouncyCastleSmCryptoManager tuned = new BouncyCastleSmCryptoManager();
+                tuned.setSm3ReadMode(readMode);
+                tuned.setSm3ChunkKb(chunkKb);
+                assertEquals(expected, tuned.calculateSm3(file), readMode + "/" + chunkKb);
+                assertEquals(expected, tuned.calculateSm3(file), readMode + "/" + chunkKb + " 复用缓冲区");
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> cryptoManager.setSm3ReadMode("stream"));
+    }
+
     @Test
     void testEncryptDecryptSm4_SmallFile() throws IOException {
         // 创建测试文件
@@ -207,4 +237,111 @@ class BouncyCastleSmCryptoManagerTest {
         });
         assertTrue(ex2.getCause() instanceof IllegalArgumentException);
     }
+
+    @Test
+    void testEncryptDecryptSm4_Segmented() throws IOException {
+        // 跨越多个段、且末段不满
+        Path source = tempDir.resolve("seg_source.bin");
+        byte[] data = new byte[3 * 64 * 1024 + 123];
+        new Random(5).nextBytes(data);
+        Files.write(source, data);
+
+        for (Sm4Mode mode : new Sm4Mode[] {Sm4Mode.CTR, Sm4Mode.GCM}) {
+            Sm4Options options = segmentedOptions(mode);
+            Path encrypted = tempDir.resolve("seg_" + mode.getModeName() + ".bin");
+            cryptoManager.encryptSm4(source, encrypted, "seg_key", options);
+
+            // 文件头（24 字节）+ 各段密文（GCM 每段另加 16 字节认证标签）
+            long expectedSize = 24 + data.length + (mode == Sm4Mode.GCM ? 4 * 16 : 0);
+            assertEquals(expectedSize, Files.size(encrypted));
+
+            // 解密不需要指定模式，按文件头识别
+            Path decrypted = tempDir.resolve("seg_" + mode.getModeName() + ".dec");
+            cryptoManager.decryptSm4(encrypted, decrypted, "seg_key");
+            assertArrayEquals(data, Files.readAllBytes(decrypted));
+        }
+    }
+
+    @Test
+    void testEncryptDecryptSm4_SegmentedEmptyAndExactSegments() throws IOException {
+        for (int size : new int[] {0, 2 * 64 * 1024}) {
+            Path source = tempDir.resolve("exact_" + size + ".bin");
+            byte[] data = new byte[size];
+            new Random(size).nextBytes(data);
+            Files.write(source, data);
+
+            Path encrypted = tempDir.resolve("exact_" + size + ".enc");
+            Path decrypted = tempDir.resolve("exact_" + size + ".dec");
+            cryptoManager.encryptSm4(source, encrypted, "k", segmentedOptions(Sm4Mode.GCM));
+            cryptoManager.decryptSm4(encrypted, decrypted, "k", segmentedOptions(Sm4Mode.GCM));
+            assertArrayEquals(data, Files.readAllBytes(decrypted));
+        }
+    }
+
+    @Test
+    void testEncryptSm4_SegmentedUsesRandomNonce() throws IOException {
+        Path source = tempDir.resolve("nonce.txt");
+        Files.write(source, "Test content".getBytes(StandardCharsets.UTF_8));
+
+        // 分段格式每个文件随机数不同，相同明文与密钥也不会产生相同的密文（避免 CTR 密钥流重用）
+        Path enc1 = tempDir.resolve("nonce1.bin");
+        Path enc2 = tempDir.resolve("nonce2.bin");
+        cryptoManager.encryptSm4(source, enc1, "same_key", segmentedOptions(Sm4Mode.CTR));
+        cryptoManager.encryptSm4(source, enc2, "same_key", segmentedOptions(Sm4Mode.CTR));
+        assertFalse(Arrays.equals(Files.readAllBytes(enc1), Files.readAllBytes(enc2)));
+    }
+
+    @Test
+    void testDecryptSm4_GcmDetectsTamperTruncationAndWrongKey() throws IOException {
+        Path source = tempDir.resolve("gcm_source.bin");
+        byte[] data = new byte[3 * 64 * 1024];
+        new Random(9).nextBytes(data);
+        Files.write(source, data);
+        Path encrypted = tempDir.resolve("gcm.bin");
+        cryptoManager.encryptSm4(source, encrypted, "gcm_key", segmentedOptions(Sm4Mode.GCM));
+        byte[] cipherText = Files.readAllBytes(encrypted);
+        Path decrypted = tempDir.resolve("gcm.dec");
+
+        // 错误密钥
+        assertThrows(IOException.class, () -> cryptoManager.decryptSm4(encrypted, decrypted, "other_key"));
+
+        // 篡改第二段中的一个字节
+        byte[] tampered = cipherText.clone();
+        tampered[24 + 64 * 1024 + 16 + 100] ^= 1;
+        Path tamperedFile = tempDir.resolve("gcm_tampered.bin");
+        Files.write(tamperedFile, tampered);
+        assertThrows(IOException.class, () -> cryptoManager.decryptSm4(tamperedFile, decrypted, "gcm_key"));
+
+        // 在段边界处截断
+        Path truncatedFile = tempDir.resolve("gcm_truncated.bin");
+        Files.write(truncatedFile, Arrays.copyOf(cipherText, 24 + 2 * (64 * 1024 + 16)));
+        assertThrows(IOException.class, () -> cryptoManager.decryptSm4(truncatedFile, decrypted, "gcm_key"));
+    }
+
+    @Test
+    void testDecryptingStream_ReadsLegacyCbcAndSegmented() throws IOException {
+        Path source = tempDir.resolve("stream_source.txt");
+        byte[] data = "stream decrypt content".getBytes(StandardCharsets.UTF_8);
+        Files.write(source, data);
+
+        Path cbc = tempDir.resolve("stream_cbc.bin");
+        Path gcm = tempDir.resolve("stream_gcm.bin");
+        cryptoManager.encryptSm4(source, cbc, "stream_key");
+        cryptoManager.encryptSm4(source, gcm, "stream_key", segmentedOptions(Sm4Mode.GCM));
+
+        for (Path encrypted : new Path[] {cbc, gcm}) {
+            try (InputStream in = cryptoManager.newSm4DecryptingStream(Files.newInputStream(encrypted),
+                "stream_key", Sm4Options.defaults())) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+            }
+        }
+    }
+
+    private static Sm4Options segmentedOptions(Sm4Mode mode) {
+        Sm4Options options = Sm4Options.defaults();
+        options.setMode(mode);
+        options.setSegmentSize(64 * 1024);
+        options.setThreads(4);
+        return options;
+    }
 }
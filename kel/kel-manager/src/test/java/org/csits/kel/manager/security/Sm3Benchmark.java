@@ -0,0 +1,117 @@
+package org.csits.kel.manager.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bouncycastle.crypto.digests.SM3Digest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 文件 SM3 计算基准：原实现（InputStream 8KB 缓冲 + 逐字节 String.format）与
+ * FileChannel 直接缓冲区、按块映射两种读取方式，在不同文件大小下对比。
+ *
+ * 运行（不随单元测试执行）：
+ * <pre>
+ * mvn -pl kel-manager test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main Sm3Benchmark"
+ * </pre>
+ * 结果为每次计算的平均耗时，吞吐量（MB/s）= fileSize / 耗时。
+ * 测试文件首次读取后位于页缓存中，结果反映 CPU 与拷贝开销，不含磁盘读取。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Sm3Benchmark {
+
+    private static final int LEGACY_BUFFER_SIZE = 8192;
+
+    /** 文件大小：64KB、16MB、256MB */
+    @Param({"65536", "16777216", "268435456"})
+    private long fileSize;
+
+    /** 实现：legacy（原实现）、channel、mapped */
+    @Param({"legacy", "channel", "mapped"})
+    private String impl;
+
+    /** channel、mapped 每次读取的块大小（KB） */
+    @Param({"1024"})
+    private int chunkKb;
+
+    private Path file;
+    private Sm3FileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("kel-sm3-bench", ".bin");
+        byte[] block = new byte[1024 * 1024];
+        new Random(42).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < fileSize; written += block.length) {
+                out.write(block, 0, (int) Math.min(block.length, fileSize - written));
+            }
+        }
+        if (!"legacy".equals(impl)) {
+            hasher = new Sm3FileHasher(Sm3FileHasher.ReadMode.fromName(impl), chunkKb * 1024);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String calculateSm3() throws IOException {
+        if (hasher == null) {
+            return legacySm3(file);
+        }
+        return HexEncoder.encode(hasher.hash(file));
+    }
+
+    /**
+     * 原 BouncyCastleSmCryptoManager.calculateSm3 实现，作为对比基线
+     */
+    private static String legacySm3(Path file) throws IOException {
+        SM3Digest digest = new SM3Digest();
+        byte[] buffer = new byte[LEGACY_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+        }
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.doFinal(hash, 0);
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(Sm3Benchmark.class.getSimpleName()).build()).run();
+    }
+}
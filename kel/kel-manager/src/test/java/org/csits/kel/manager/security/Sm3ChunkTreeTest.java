@@ -0,0 +1,124 @@
+package org.csits.kel.manager.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 分块SM3校验树单元测试
+ */
+class Sm3ChunkTreeTest {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private BouncyCastleSmCryptoManager cryptoManager;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        cryptoManager = new BouncyCastleSmCryptoManager();
+    }
+
+    @Test
+    void testDigest_WholeSm3UnchangedAndLeavesMatchChunks() throws IOException {
+        byte[] data = randomBytes(5 * CHUNK_SIZE + 123);
+        Path file = tempDir.resolve("data.bin");
+        Files.write(file, data);
+
+        Sm3ChunkTreeDigest digest = cryptoManager.newSm3ChunkTreeDigest(CHUNK_SIZE);
+        // 以不对齐块边界的长度写入
+        for (int off = 0; off < data.length; off += 7777) {
+            digest.update(data, off, Math.min(7777, data.length - off));
+        }
+        String sm3 = cryptoManager.toHex(digest.digest());
+        Sm3ChunkTree tree = digest.getTree();
+
+        // 整体SM3与逐文件计算一致，叶子即各块字节区间的SM3
+        assertEquals(cryptoManager.calculateSm3(file), sm3);
+        assertEquals(6, tree.getLeaves().size());
+        assertEquals(data.length, tree.getSize());
+        Path lastChunk = tempDir.resolve("last.bin");
+        Files.write(lastChunk, Arrays.copyOfRange(data, 5 * CHUNK_SIZE, data.length));
+        assertEquals(cryptoManager.calculateSm3(lastChunk), tree.getLeaves().get(5));
+        assertEquals(64, tree.getRoot().length());
+    }
+
+    @Test
+    void testVerify_ReportsDamagedRanges() throws IOException {
+        byte[] data = randomBytes(5 * CHUNK_SIZE + 123);
+        Path file = tempDir.resolve("data.bin");
+        Files.write(file, data);
+        Sm3ChunkTree tree = treeOf(data);
+
+        assertTrue(tree.verify(file, cryptoManager, 3, false).isEmpty());
+
+        data[2 * CHUNK_SIZE + 500] ^= 1;
+        data[4 * CHUNK_SIZE + 1] ^= 1;
+        Files.write(file, data);
+        List<Sm3ChunkTree.ChunkRange> damaged = tree.verify(file, cryptoManager, 3, false);
+        assertEquals(2, damaged.size());
+        assertEquals(new Sm3ChunkTree.ChunkRange(2, 2L * CHUNK_SIZE, CHUNK_SIZE), damaged.get(0));
+        assertEquals(new Sm3ChunkTree.ChunkRange(4, 4L * CHUNK_SIZE, CHUNK_SIZE), damaged.get(1));
+
+        // 发现损坏即停止时至少报告一个损坏块
+        assertFalse(tree.verify(file, cryptoManager, 3, true).isEmpty());
+    }
+
+    @Test
+    void testVerify_TruncatedAndExtendedFile() throws IOException {
+        byte[] data = randomBytes(3 * CHUNK_SIZE + 10);
+        Sm3ChunkTree tree = treeOf(data);
+        Path file = tempDir.resolve("data.bin");
+
+        // 截断：缺失部分所在的块计为损坏，之前的块完好
+        Files.write(file, Arrays.copyOf(data, 2 * CHUNK_SIZE));
+        List<Sm3ChunkTree.ChunkRange> damaged = tree.verify(file, cryptoManager, 2, false);
+        assertEquals(2, damaged.size());
+        assertEquals(2, damaged.get(0).getIndex());
+        assertEquals(new Sm3ChunkTree.ChunkRange(3, 3L * CHUNK_SIZE, 10), damaged.get(1));
+
+        // 多出的字节计为一个区间
+        Files.write(file, Arrays.copyOf(data, data.length + 5));
+        damaged = tree.verify(file, cryptoManager, 2, false);
+        assertEquals(1, damaged.size());
+        assertEquals(new Sm3ChunkTree.ChunkRange(4, data.length, 5), damaged.get(0));
+    }
+
+    @Test
+    void testDiff_ComparesLeaves() {
+        byte[] data = randomBytes(3 * CHUNK_SIZE);
+        Sm3ChunkTree expected = treeOf(data);
+        assertTrue(expected.diff(treeOf(data)).isEmpty());
+        assertEquals(expected.getRoot(), treeOf(data).getRoot());
+
+        data[CHUNK_SIZE] ^= 1;
+        Sm3ChunkTree actual = treeOf(data);
+        assertNotEquals(expected.getRoot(), actual.getRoot());
+        List<Sm3ChunkTree.ChunkRange> damaged = expected.diff(actual);
+        assertEquals(1, damaged.size());
+        assertEquals(1, damaged.get(0).getIndex());
+    }
+
+    private Sm3ChunkTree treeOf(byte[] data) {
+        Sm3ChunkTreeDigest digest = cryptoManager.newSm3ChunkTreeDigest(CHUNK_SIZE);
+        digest.update(data);
+        digest.digest();
+        return digest.getTree();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}
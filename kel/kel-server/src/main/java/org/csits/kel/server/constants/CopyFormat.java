@@ -0,0 +1,34 @@
+package org.csits.kel.server.constants;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.Locale;
+
+/**
+ * COPY 数据格式：文本（默认，0x1E 分隔，可按行切分）或二进制（免去服务端文本格式化与解析）。
+ */
+public enum CopyFormat {
+
+    TEXT,
+
+    BINARY;
+
+    /** 二进制格式数据文件扩展名 */
+    public static final String BINARY_EXTENSION = ".bin";
+
+    /**
+     * 配置与 manifest 中使用小写（text / binary），解析时不区分大小写
+     */
+    @JsonCreator
+    public static CopyFormat fromValue(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @JsonValue
+    public String toValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -11,6 +11,12 @@ public enum JobType {
 
     KINGBASE_LOAD,
 
-    FILE_LOAD
+    FILE_LOAD,
+
+    /** 合成数据卸载：进程内按配置生成表数据，不连接数据库，用于全流程基准测试 */
+    SYNTHETIC_EXTRACT,
+
+    /** 合成数据加载：进程内解析并核对数据文件，不写入数据库，用于全流程基准测试 */
+    SYNTHETIC_LOAD
 }
 
@@ -42,6 +42,12 @@ public class GlobalConfig {
          */
         @JsonProperty("default_table_concurrency")
         private Integer defaultTableConcurrency;
+
+        /**
+         * 生成与校验 manifest 时并行计算 SM3 的文件数，默认 1。
+         */
+        @JsonProperty("hash_threads")
+        private Integer hashThreads;
     }
 
     @Data
@@ -67,6 +73,22 @@ public class GlobalConfig {
          */
         @JsonProperty("split_threshold_gb")
         private Double splitThresholdGb;
+
+        /**
+         * 压缩线程数，大于 1 时按块并行压缩（多成员 gzip），默认 1。
+         */
+        private Integer threads;
+
+        /**
+         * 并行压缩块大小（KB），默认 1024。
+         */
+        @JsonProperty("block_size_kb")
+        private Integer blockSizeKb;
+
+        /**
+         * 压缩级别 1-9，默认 6。
+         */
+        private Integer level;
     }
 
     @Data
@@ -84,6 +106,30 @@ public class GlobalConfig {
          */
         @JsonProperty("enable_encryption")
         private Boolean enableEncryption;
+
+        /**
+         * SM4 模式：cbc（默认，原有格式）、ctr、gcm（分段格式，可并行）。
+         */
+        @JsonProperty("sm4_mode")
+        private String sm4Mode;
+
+        /**
+         * 分段格式的段大小（MB），默认 4。
+         */
+        @JsonProperty("sm4_segment_mb")
+        private Integer sm4SegmentMb;
+
+        /**
+         * 分段格式的加解密线程数，默认 1。
+         */
+        @JsonProperty("sm4_threads")
+        private Integer sm4Threads;
+
+        /**
+         * 分块 SM3 校验树的块大小（MB），建议 64；未配置或为 0 时不记录分块校验树。
+         */
+        @JsonProperty("sm3_chunk_mb")
+        private Integer sm3ChunkMb;
     }
 
     @Data
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
+import org.csits.kel.server.constants.CopyFormat;
 import org.csits.kel.server.constants.ExtractType;
 import org.csits.kel.server.constants.JobType;
 import org.csits.kel.server.constants.LoadMode;
@@ -69,6 +70,9 @@ public class JobConfig {
     @Getter(AccessLevel.NONE)
     private String targetDirectory;
 
+    /** 合成数据配置，仅 SYNTHETIC_EXTRACT / SYNTHETIC_LOAD 使用 */
+    private SyntheticConfig synthetic;
+
     // ---------- 兼容 getter：优先从新结构取值 ----------
     public ExtractDatabaseConfig getExtractDatabase() {
         if (resources != null && resources.getExtractDatabase() != null) {
@@ -173,6 +177,9 @@ public class JobConfig {
                     ltc.setType(LoadMode.valueOf(mode.toUpperCase()));
                     ltc.setInterfaceMapping(t.getMappings());
                     ltc.setEnableTransaction(t.getTransaction());
+                    ltc.setMergeKeys(t.getMergeKeys());
+                    ltc.setDeleteColumn(t.getDeleteColumn());
+                    ltc.setDeleteValue(t.getDeleteValue());
                     if (t.getMergeSql() != null && !t.getMergeSql().trim().isEmpty()) {
                         SqlItem item = new SqlItem();
                         item.setName("merge_sql");
@@ -334,6 +341,18 @@ public class JobConfig {
         @JsonProperty("merge_sql")
         private String mergeSql;
 
+        /** MERGE 合并键列，配置后按键合并到 mappings 中的目标表 */
+        @JsonProperty("merge_keys")
+        private List<String> mergeKeys;
+
+        /** MERGE 删除标记列（可选） */
+        @JsonProperty("delete_column")
+        private String deleteColumn;
+
+        /** MERGE 删除标记值，默认 D */
+        @JsonProperty("delete_value")
+        private String deleteValue;
+
         private Boolean transaction;
 
         @JsonProperty("target_dir")
@@ -454,6 +473,17 @@ public class JobConfig {
         private List<SqlItem> sqlList;
 
         private Boolean enableTransaction;
+
+        /** MERGE 合并键列；为空时 MERGE 按旧方式直接加载到映射表并执行 sql_list */
+        @JsonProperty("merge_keys")
+        private List<String> mergeKeys;
+
+        /** MERGE 删除标记列，该列等于 deleteValue 的行按合并键从目标表删除 */
+        @JsonProperty("delete_column")
+        private String deleteColumn;
+
+        @JsonProperty("delete_value")
+        private String deleteValue;
     }
 
     @Data
@@ -467,5 +497,76 @@ public class JobConfig {
 
         @JsonProperty("retry_interval_sec")
         private Integer retryIntervalSec;
+
+        /** 单表分段数，大于 1 时按主键或 ctid 范围将大表切分为多段并发导出 */
+        @JsonProperty("table_chunks")
+        private Integer tableChunks;
+
+        /** 启用单表分段的最小表大小（MB），默认 1024 */
+        @JsonProperty("chunk_threshold_mb")
+        private Integer chunkThresholdMb;
+
+        /** 是否使用导出快照保证多连接导出的一致性（REPEATABLE READ + pg_export_snapshot） */
+        @JsonProperty("consistent_snapshot")
+        private Boolean consistentSnapshot;
+
+        /** 流式卸载：导出数据直接进入压缩、分片与加密流，不在工作目录落盘（仅支持流式导出的插件生效） */
+        @JsonProperty("streaming_pipeline")
+        private Boolean streamingPipeline;
+
+        /** 落盘卸载时导出与压缩打包重叠执行：每个数据文件写完即归档，默认 true */
+        @JsonProperty("stage_overlap")
+        private Boolean stageOverlap;
+
+        /** 阶段重叠时待归档文件队列容量，队列满时导出线程等待，默认 4 */
+        @JsonProperty("overlap_queue_size")
+        private Integer overlapQueueSize;
+
+        /** 流式卸载时单个数据文件的内存分段大小（MB），默认 64 */
+        @JsonProperty("stream_segment_mb")
+        private Integer streamSegmentMb;
+
+        /** 并发加载时大数据文件按记录边界切分的单段最小大小（MB），默认 256 */
+        @JsonProperty("load_split_mb")
+        private Integer loadSplitMb;
+
+        /** 加载时 COPY FROM STDIN 的读缓冲大小（KB），默认 1024 */
+        @JsonProperty("copy_buffer_kb")
+        private Integer copyBufferKb;
+
+        /** COPY 数据格式：text（默认）或 binary */
+        @JsonProperty("copy_format")
+        private CopyFormat copyFormat;
+
+        /** 按表（或 SQL 名）覆盖 COPY 数据格式 */
+        @JsonProperty("table_copy_formats")
+        private Map<String, CopyFormat> tableCopyFormats;
+    }
+
+    /**
+     * 合成数据配置：表数量、总行数、列类型组合与表间行数倾斜
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class SyntheticConfig {
+
+        /** 表数量，默认 4 */
+        private Integer tables;
+
+        /** 所有表的总行数，默认 100000 */
+        private Long rows;
+
+        /** 列类型组合，依次为各列类型：bigint / int / numeric / text / date / timestamp / bool，默认 bigint、text、numeric、timestamp */
+        private List<String> columns;
+
+        /** text 列的字符数，默认 32 */
+        @JsonProperty("text_length")
+        private Integer textLength;
+
+        /** 表间行数倾斜（Zipf 指数）：0 为各表均分，1 时第 i 张表行数约为第一张表的 1/i，默认 0 */
+        private Double skew;
+
+        /** 随机种子，相同配置与种子生成相同数据，默认 42 */
+        private Long seed;
     }
 }
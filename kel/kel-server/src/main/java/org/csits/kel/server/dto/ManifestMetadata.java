@@ -1,8 +1,10 @@
 package org.csits.kel.server.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 import lombok.Data;
+import org.csits.kel.server.constants.CopyFormat;
 
 /**
  * Manifest元数据，记录卸载任务的文件清单、校验和等信息。
@@ -83,6 +85,11 @@ public class ManifestMetadata {
          * 加密算法
          */
         private String algorithm;
+
+        /**
+         * SM4 模式：cbc、ctr、gcm，解密时以密文文件头为准
+         */
+        private String mode;
     }
 
     /**
@@ -116,6 +123,34 @@ public class ManifestMetadata {
          */
         @JsonProperty("row_count")
         private Long rowCount;
+
+        /**
+         * 分段序号（从1开始，仅分段导出的表）
+         */
+        @JsonProperty("part_index")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Integer partIndex;
+
+        /**
+         * 表的总分段数（仅分段导出的表）
+         */
+        @JsonProperty("part_count")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Integer partCount;
+
+        /**
+         * COPY 数据格式（仅二进制格式记录，缺省为文本）
+         */
+        @JsonProperty("copy_format")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private CopyFormat copyFormat;
+
+        /**
+         * 分块SM3校验树（仅超过一个块的文件）
+         */
+        @JsonProperty("chunk_tree")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private ChunkTreeInfo chunkTree;
     }
 
     /**
@@ -142,5 +177,34 @@ public class ManifestMetadata {
          * 分片序号（从1开始）
          */
         private Integer index;
+
+        /**
+         * 分块SM3校验树（仅超过一个块的分片）
+         */
+        @JsonProperty("chunk_tree")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private ChunkTreeInfo chunkTree;
+    }
+
+    /**
+     * 分块SM3校验树：文件按块大小切块，各块SM3为叶子，可定位损坏的字节区间
+     */
+    @Data
+    public static class ChunkTreeInfo {
+        /**
+         * 块大小（字节），末块可能不足
+         */
+        @JsonProperty("chunk_size")
+        private Long chunkSize;
+
+        /**
+         * 根节点SM3
+         */
+        private String root;
+
+        /**
+         * 各块SM3（按块序号排列，第 i 块覆盖 [i * chunk_size, (i + 1) * chunk_size)）
+         */
+        private List<String> leaves;
     }
 }
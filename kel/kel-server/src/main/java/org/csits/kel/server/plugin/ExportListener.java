@@ -0,0 +1,30 @@
+package org.csits.kel.server.plugin;
+
+import java.io.IOException;
+import org.csits.kel.server.plugin.kingbase.KingbaseExtractPlugin;
+
+/**
+ * 导出进度监听。落盘卸载且启用阶段重叠时由任务流程放入上下文（属性 {@link #CONTEXT_KEY}），
+ * 插件每写完一个数据文件即通知，任务流程随即对该文件做校验与归档，不必等待全部表导出完成。
+ */
+public interface ExportListener {
+
+    /**
+     * 上下文属性名
+     */
+    String CONTEXT_KEY = "exportListener";
+
+    /**
+     * 导出开始前告知计划导出的数据文件数（含分段文件），用于计算进度；数量未知时可不调用
+     */
+    default void onExportPlanned(int fileCount) {
+    }
+
+    /**
+     * 一个数据文件（或分段文件）已写入完成、不再修改。
+     * 实现可能阻塞（待处理队列已满时），以此限制导出领先归档的程度；可被多个导出线程并发调用。
+     *
+     * @param result 该文件的导出结果（分段导出时为单个分段的结果）
+     */
+    void onFileExported(KingbaseExtractPlugin.TableExportResult result) throws IOException;
+}
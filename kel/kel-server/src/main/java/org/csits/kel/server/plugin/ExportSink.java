@@ -0,0 +1,24 @@
+package org.csits.kel.server.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 导出数据通道。流式卸载时由任务流程放入上下文（属性 {@link #CONTEXT_KEY}），
+ * 支持流式导出的插件将数据写入该通道而不是工作目录下的文件。
+ */
+public interface ExportSink {
+
+    /**
+     * 上下文属性名
+     */
+    String CONTEXT_KEY = "exportSink";
+
+    /**
+     * 打开一个数据文件的输出流，关闭输出流即表示该文件写入完成。
+     *
+     * @param fileName 数据文件名（与写入 data 目录时的文件名一致）
+     * @return 输出流，可被多个线程各自打开、并发写入
+     */
+    OutputStream openDataFile(String fileName) throws IOException;
+}
@@ -0,0 +1,203 @@
+package org.csits.kel.server.plugin.kingbase;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 单表分段导出规划。
+ *
+ * 将大表切分为若干互不重叠的范围，每个范围可在独立连接上执行 COPY (SELECT ... WHERE 范围) TO STDOUT：
+ * - 表存在单列整型主键时，按主键 min/max 等分
+ * - 否则按 ctid 物理块范围等分（块数由 pg_relation_size / block_size 计算）。ctid 范围条件只有在
+ *   PostgreSQL 14 起（server_version_num >= 140000）的 TID Range Scan 下才只读取对应块；更早的版本
+ *   （包括基于 PG12 的 Kingbase V8）每段都是全表顺序扫描，分 N 段即读 N 遍全表，因此不分段、整表导出
+ * 首段不设下界、末段不设上界，保证范围并集覆盖全表。
+ */
+@Slf4j
+class KingbaseChunkPlanner {
+
+    private static final String TABLE_SIZE_SQL =
+        "SELECT pg_relation_size(?::regclass), current_setting('block_size')::bigint";
+
+    private static final String INTEGER_PK_SQL =
+        "SELECT a.attname FROM pg_index i "
+            + "JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0] "
+            + "WHERE i.indrelid = ?::regclass AND i.indisprimary AND i.indnatts = 1 "
+            + "AND a.atttypid IN ('int2'::regtype, 'int4'::regtype, 'int8'::regtype)";
+
+    private static final String SERVER_VERSION_NUM_SQL = "SELECT current_setting('server_version_num')::int";
+
+    /** 支持 TID Range Scan 的最低 server_version_num（PostgreSQL 14） */
+    static final int TID_RANGE_SCAN_VERSION_NUM = 140000;
+
+    /**
+     * 规划表的分段范围。
+     *
+     * @param conn 数据库连接
+     * @param table 表名（可带 schema）
+     * @param chunkCount 期望段数
+     * @param thresholdBytes 启用分段的最小表大小（字节）
+     * @return 分段列表；表较小或无法切分时返回空列表，表示按整表导出
+     */
+    List<Chunk> plan(Connection conn, String table, int chunkCount, long thresholdBytes) throws SQLException {
+        if (chunkCount <= 1) {
+            return Collections.emptyList();
+        }
+        long relationSize;
+        long blockSize;
+        try (PreparedStatement ps = conn.prepareStatement(TABLE_SIZE_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return Collections.emptyList();
+                }
+                relationSize = rs.getLong(1);
+                blockSize = rs.getLong(2);
+            }
+        }
+        if (relationSize < thresholdBytes) {
+            log.debug("表 {} 大小 {} 字节，低于分段阈值 {}，整表导出", table, relationSize, thresholdBytes);
+            return Collections.emptyList();
+        }
+
+        String keyColumn = findIntegerPrimaryKey(conn, table);
+        List<String> predicates;
+        if (keyColumn != null) {
+            predicates = planByKey(conn, table, keyColumn, chunkCount);
+        } else {
+            int versionNum = serverVersionNum(conn);
+            if (!supportsTidRangeScan(versionNum)) {
+                log.info("表 {} 无单列整型主键，服务端版本 {} 不支持 TID Range Scan（按 ctid 分段每段都会全表扫描），整表导出",
+                    table, versionNum);
+                return Collections.emptyList();
+            }
+            long blocks = blockSize > 0 ? relationSize / blockSize : 0;
+            predicates = buildCtidPredicates(blocks, chunkCount);
+        }
+        if (predicates.size() <= 1) {
+            return Collections.emptyList();
+        }
+
+        List<Chunk> chunks = new ArrayList<>(predicates.size());
+        for (int i = 0; i < predicates.size(); i++) {
+            chunks.add(new Chunk(i + 1, predicates.size(), predicates.get(i)));
+        }
+        log.info("表 {} 大小 {} 字节，按{}切分为 {} 段导出", table, relationSize,
+            keyColumn != null ? "主键 " + keyColumn : " ctid 块范围", chunks.size());
+        return chunks;
+    }
+
+    private String findIntegerPrimaryKey(Connection conn, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INTEGER_PK_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private int serverVersionNum(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SERVER_VERSION_NUM_SQL)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * ctid 范围条件能否只扫描对应块（PostgreSQL 14 起的 TID Range Scan）
+     */
+    static boolean supportsTidRangeScan(int serverVersionNum) {
+        return serverVersionNum >= TID_RANGE_SCAN_VERSION_NUM;
+    }
+
+    private List<String> planByKey(Connection conn, String table, String keyColumn, int chunkCount)
+        throws SQLException {
+        String quoted = quoteIdentifier(keyColumn);
+        String sql = "SELECT min(" + quoted + "), max(" + quoted + ") FROM " + table;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (!rs.next()) {
+                return Collections.emptyList();
+            }
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                // 空表
+                return Collections.emptyList();
+            }
+            long max = rs.getLong(2);
+            return buildKeyPredicates(quoted, min, max, chunkCount);
+        }
+    }
+
+    /**
+     * 按整型键区间 [min, max] 生成等分范围条件。
+     */
+    static List<String> buildKeyPredicates(String column, long min, long max, int chunkCount) {
+        BigInteger lower = BigInteger.valueOf(min);
+        BigInteger span = BigInteger.valueOf(max).subtract(lower).add(BigInteger.ONE);
+        int count = (int) Math.min(chunkCount, span.min(BigInteger.valueOf(Integer.MAX_VALUE)).longValue());
+        if (count <= 1) {
+            return Collections.singletonList("TRUE");
+        }
+        List<Long> bounds = new ArrayList<>(count - 1);
+        for (int i = 1; i < count; i++) {
+            bounds.add(lower.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(count)))
+                .longValue());
+        }
+        List<String> predicates = new ArrayList<>(count);
+        predicates.add(column + " < " + bounds.get(0));
+        for (int i = 1; i < bounds.size(); i++) {
+            predicates.add(column + " >= " + bounds.get(i - 1) + " AND " + column + " < " + bounds.get(i));
+        }
+        predicates.add(column + " >= " + bounds.get(bounds.size() - 1));
+        return predicates;
+    }
+
+    /**
+     * 按 ctid 物理块范围生成等分范围条件。
+     */
+    static List<String> buildCtidPredicates(long blocks, int chunkCount) {
+        int count = (int) Math.min(chunkCount, blocks);
+        if (count <= 1) {
+            return Collections.singletonList("TRUE");
+        }
+        List<Long> bounds = new ArrayList<>(count - 1);
+        for (int i = 1; i < count; i++) {
+            bounds.add(blocks * i / count);
+        }
+        List<String> predicates = new ArrayList<>(count);
+        predicates.add("ctid < '(" + bounds.get(0) + ",0)'::tid");
+        for (int i = 1; i < bounds.size(); i++) {
+            predicates.add("ctid >= '(" + bounds.get(i - 1) + ",0)'::tid AND ctid < '("
+                + bounds.get(i) + ",0)'::tid");
+        }
+        predicates.add("ctid >= '(" + bounds.get(bounds.size() - 1) + ",0)'::tid");
+        return predicates;
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * 分段范围
+     */
+    @Data
+    static class Chunk {
+        /** 段序号（从 1 开始） */
+        private final int index;
+        /** 总段数 */
+        private final int count;
+        /** 范围条件（WHERE 子句） */
+        private final String predicate;
+    }
+}
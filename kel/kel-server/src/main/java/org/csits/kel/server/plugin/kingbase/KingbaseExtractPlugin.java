@@ -2,17 +2,25 @@ package org.csits.kel.server.plugin.kingbase;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -22,11 +30,19 @@ import java.util.concurrent.atomic.AtomicInteger;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.csits.kel.manager.plugin.ExtractPlugin;
+import org.csits.kel.manager.security.Sm3ChunkTree;
+import org.csits.kel.manager.security.Sm3ChunkTreeDigest;
+import org.csits.kel.manager.security.SmCryptoManager;
+import org.csits.kel.server.constants.CopyFormat;
 import org.csits.kel.server.constants.JobType;
 import org.csits.kel.server.dto.JobConfig;
 import org.csits.kel.server.dto.TaskExecutionContext;
+import org.csits.kel.server.plugin.ExportListener;
+import org.csits.kel.server.plugin.ExportSink;
 import org.csits.kel.server.service.FileNamingService;
+import org.csits.kel.server.service.ManifestService;
 import org.csits.kel.server.service.MetricsCollector;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
@@ -40,15 +56,25 @@ import org.springframework.stereotype.Component;
  * - 自动fallback到COPY TO文件路径（需要服务器权限）
  * - 返回导出元数据供manifest使用
  * - 支持标准文件命名规范
+ * - 支持大表按主键/ctid 范围分段并发导出，各段写入编号分段文件
+ * - 支持一致性快照：协调连接导出快照，各工作连接 SET TRANSACTION SNAPSHOT 后再 COPY
+ * - 支持流式导出：上下文存在 ExportSink 时 COPY 输出直接写入导出通道，不落工作目录
+ * - 写文件时边写边计算 SM3 与字节数，随导出结果返回，生成 manifest 时无需回读数据文件
+ * - 上下文存在 ExportListener 时每写完一个数据文件（或分段文件）即通知，供任务流程边导出边归档
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class KingbaseExtractPlugin implements ExtractPlugin {
 
+    private static final int DEFAULT_CHUNK_THRESHOLD_MB = 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
     private final FileNamingService fileNamingService;
     private final MetricsCollector metricsCollector;
+    private final SmCryptoManager smCryptoManager;
     private final AtomicInteger sequenceGenerator = new AtomicInteger(1);
+    private final KingbaseChunkPlanner chunkPlanner = new KingbaseChunkPlanner();
 
     @Override
     public boolean supports(Object context) {
@@ -60,6 +86,11 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
         return job != null && job.getType() == JobType.EXTRACT_KINGBASE;
     }
 
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
     @Override
     public void extract(Object context) throws Exception {
         TaskExecutionContext ctx = (TaskExecutionContext) context;
@@ -79,14 +110,17 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
 
         // 收集所有需要导出的表和SQL
         List<ExportTask> exportTasks = collectExportTasks(config, ctx);
+        int tableChunks = getTableChunks(ctx);
+        boolean consistentSnapshot = isConsistentSnapshot(ctx);
 
         List<TableExportResult> results;
-        if (concurrency <= 1 || exportTasks.size() <= 1) {
+        if (concurrency <= 1 || (exportTasks.size() <= 1 && tableChunks <= 1)) {
             // 串行导出（单线程或单任务）
-            results = exportSerially(url, db, exportTasks);
+            results = exportSerially(url, db, exportTasks, consistentSnapshot);
         } else {
-            // 并发导出（多线程）
-            results = exportConcurrently(url, db, exportTasks, concurrency);
+            // 并发导出（多线程，大表可分段）
+            results = exportConcurrently(url, db, exportTasks, concurrency, tableChunks,
+                getChunkThresholdBytes(ctx), consistentSnapshot);
         }
 
         // 将导出结果存储到context中供manifest使用
@@ -96,30 +130,56 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
         Long taskId = ctx.getTaskId();
         for (TableExportResult result : results) {
             metricsCollector.recordTableStats(taskId, result.getTableName(), result.getRowCount());
-            metricsCollector.recordFileStats(taskId, result.getFilePath());
+            for (Path dataFile : result.getDataFiles()) {
+                metricsCollector.recordFileStats(taskId, dataFile);
+            }
         }
 
         log.info("数据库卸载完成，共导出 {} 个表/查询", results.size());
     }
 
-    private TableExportResult exportTable(Connection conn, String table, TaskExecutionContext context)
-        throws Exception {
+    /**
+     * 导出单表：优先 COPY TO STDOUT，失败时回退到服务端 COPY TO 文件。
+     * 一致性快照模式下连接处于事务中，失败的 COPY 会使事务中止，因此先设保存点，
+     * 失败时回滚到保存点，回退仍在同一快照内执行
+     */
+    TableExportResult exportTable(Connection conn, ExportTask task) throws Exception {
+        String table = task.tableName;
+        TaskExecutionContext context = task.context;
+        CopyFormat format = task.copyFormat;
         // 生成文件名（支持标准命名）
-        String fileName = generateFileName(context, table, false);
+        String fileName = withFormatExtension(generateFileName(context, table, false), format);
         Path file = prepareOutputFile(context, fileName);
 
+        Savepoint savepoint = conn.getAutoCommit() ? null : conn.setSavepoint();
         try {
             // 优先使用COPY TO STDOUT（无需服务器权限）
-            long rowCount = exportTableWithCopyToStdout(conn, table, file);
-            log.info("导出表 {} 完成，共 {} 行（使用COPY TO STDOUT）", table, rowCount);
-            return new TableExportResult(table, file, rowCount);
+            CopyOutResult copied = exportTableWithCopyToStdout(conn, table, file, context, format);
+            if (savepoint != null) {
+                conn.releaseSavepoint(savepoint);
+            }
+            log.info("导出表 {} 完成，共 {} 行（使用COPY TO STDOUT）", table, copied.rowCount);
+            return copied.toExportResult(table, file, format);
         } catch (Exception e) {
+            if (context.getAttribute(ExportSink.CONTEXT_KEY) != null) {
+                // 流式导出时数据不落盘，无法回退到服务端 COPY TO 文件
+                throw e;
+            }
+            if (savepoint != null) {
+                try {
+                    conn.rollback(savepoint);
+                } catch (SQLException rollbackError) {
+                    // 无法恢复事务时回退也会失败，抛出原始异常
+                    e.addSuppressed(rollbackError);
+                    throw e;
+                }
+            }
             log.warn("COPY TO STDOUT失败，尝试COPY TO文件: {}", e.getMessage());
             try {
                 // Fallback到COPY TO文件路径（需要服务器权限）
-                long rowCount = exportTableWithCopyToFile(conn, table, file);
+                long rowCount = exportTableWithCopyToFile(conn, table, file, context, format);
                 log.info("导出表 {} 完成，共 {} 行（使用COPY TO文件）", table, rowCount);
-                return new TableExportResult(table, file, rowCount);
+                return withFormat(new TableExportResult(table, file, rowCount), format);
             } catch (Exception e2) {
                 log.error("COPY TO文件也失败，表 {} 导出失败", table, e2);
                 throw e2;
@@ -127,25 +187,61 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
         }
     }
 
-    private long exportTableWithCopyToStdout(Connection conn, String table, Path file) throws Exception {
-        String copyToSql = String.format(
-            "COPY %s TO STDOUT WITH (FORMAT text, DELIMITER E'\\x1E', ENCODING 'UTF-8', NULL '', HEADER false)",
-            table
-        );
+    private CopyOutResult exportTableWithCopyToStdout(Connection conn, String table, Path file,
+                                                      TaskExecutionContext context, CopyFormat format)
+        throws Exception {
+        return copyOut(conn, table, file, context, format);
+    }
+
+    /**
+     * 导出单表的一个分段：COPY (SELECT * FROM 表 WHERE 范围) TO STDOUT
+     */
+    private TableExportResult exportChunk(Connection conn, ExportTask task) throws Exception {
+        Path file = prepareOutputFile(task.context, task.fileName);
+        KingbaseChunkPlanner.Chunk chunk = task.chunk;
+        String query = String.format("(SELECT * FROM %s WHERE %s)", task.tableName, chunk.getPredicate());
+        CopyOutResult copied = copyOut(conn, query, file, task.context, task.copyFormat);
+        log.info("导出表 {} 分段 {}/{} 完成，共 {} 行", task.tableName, chunk.getIndex(), chunk.getCount(),
+            copied.rowCount);
+        return copied.toExportResult(task.tableName, file, task.copyFormat);
+    }
+
+    /**
+     * COPY TO STDOUT 导出：流式导出时写入导出通道（由通道计算校验值），
+     * 否则写入工作目录文件，并在写入过程中计算 SM3 与字节数
+     */
+    private CopyOutResult copyOut(Connection conn, String source, Path file, TaskExecutionContext context,
+                                  CopyFormat format) throws Exception {
+        String copyToSql = "COPY " + source + " TO STDOUT WITH " + copyOptions(context, format);
 
         // PostgreSQL JDBC提供的CopyManager API
-        CopyManager copyManager = new CopyManager((BaseConnection) conn);
-        try (FileOutputStream fos = new FileOutputStream(file.toFile())) {
-            long rows = copyManager.copyOut(copyToSql, fos);
-            return rows;
+        CopyManager copyManager = new CopyManager(conn.unwrap(BaseConnection.class));
+        ExportSink sink = context.getAttribute(ExportSink.CONTEXT_KEY);
+        if (sink != null) {
+            try (OutputStream out = sink.openDataFile(file.getFileName().toString())) {
+                return new CopyOutResult(copyManager.copyOut(copyToSql, out), null, null, null);
+            }
         }
+
+        // 驱动按行写出，缓冲后再摘要、落盘；摘要在关闭（刷出缓冲）后取值，启用分块校验时同时记录分块校验树
+        long chunkTreeSize = ManifestService.chunkTreeSize(context.getGlobalConfig());
+        MessageDigest digest = chunkTreeSize > 0
+            ? smCryptoManager.newSm3ChunkTreeDigest(chunkTreeSize) : smCryptoManager.newSm3Digest();
+        CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(file.toFile()));
+        long rowCount;
+        try (OutputStream out = new BufferedOutputStream(new DigestOutputStream(counter, digest),
+            OUTPUT_BUFFER_SIZE)) {
+            rowCount = copyManager.copyOut(copyToSql, out);
+        }
+        String sm3 = smCryptoManager.toHex(digest.digest());
+        Sm3ChunkTree chunkTree = digest instanceof Sm3ChunkTreeDigest ? ((Sm3ChunkTreeDigest) digest).getTree() : null;
+        return new CopyOutResult(rowCount, counter.getByteCount(), sm3, chunkTree);
     }
 
-    private long exportTableWithCopyToFile(Connection conn, String table, Path file) throws Exception {
-        String copyToSql = String.format(
-            "COPY %s TO '%s' WITH (FORMAT text, DELIMITER E'\\x1E', ENCODING 'UTF-8', NULL '', HEADER false)",
-            table, file.toAbsolutePath().toString().replace("\\", "\\\\")
-        );
+    private long exportTableWithCopyToFile(Connection conn, String table, Path file,
+                                           TaskExecutionContext context, CopyFormat format) throws Exception {
+        String copyToSql = String.format("COPY %s TO '%s' WITH %s",
+            table, file.toAbsolutePath().toString().replace("\\", "\\\\"), copyOptions(context, format));
 
         try (Statement stmt = conn.createStatement()) {
             stmt.execute(copyToSql);
@@ -155,26 +251,20 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
         return getRowCount(conn, "SELECT COUNT(*) FROM " + table);
     }
 
-    private TableExportResult exportSql(Connection conn, JobConfig.SqlItem sqlItem, TaskExecutionContext context)
-        throws Exception {
+    private TableExportResult exportSql(Connection conn, ExportTask task) throws Exception {
+        JobConfig.SqlItem sqlItem = task.sqlItem;
+        TaskExecutionContext context = task.context;
         // 生成文件名（支持标准命名）
-        String fileName = generateSqlFileName(context, sqlItem.getName(), true);
+        String fileName = withFormatExtension(generateSqlFileName(context, sqlItem.getName(), true),
+            task.copyFormat);
         Path file = prepareOutputFile(context, fileName);
 
-        String copyToSql = String.format(
-            "COPY (%s) TO STDOUT WITH (FORMAT text, DELIMITER E'\\x1E', ENCODING 'UTF-8', NULL '', HEADER false)",
-            sqlItem.getSql()
-        );
-
         log.info("按 SQL [{}] 导出到 {}", sqlItem.getName(), file);
 
         try {
-            CopyManager copyManager = new CopyManager((BaseConnection) conn);
-            try (FileOutputStream fos = new FileOutputStream(file.toFile())) {
-                long rows = copyManager.copyOut(copyToSql, fos);
-                log.info("SQL导出完成，共 {} 行", rows);
-                return new TableExportResult(sqlItem.getName(), file, rows);
-            }
+            CopyOutResult copied = copyOut(conn, "(" + sqlItem.getSql() + ")", file, context, task.copyFormat);
+            log.info("SQL导出完成，共 {} 行", copied.rowCount);
+            return copied.toExportResult(sqlItem.getName(), file, task.copyFormat);
         } catch (Exception e) {
             log.error("SQL导出失败: {}", sqlItem.getName(), e);
             throw e;
@@ -226,6 +316,35 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
         return 1;
     }
 
+    /**
+     * 获取单表分段数配置（默认 1，不分段）
+     */
+    private int getTableChunks(TaskExecutionContext context) {
+        JobConfig.RuntimeConfig runtime = context.getJobConfig().getRuntime();
+        if (runtime != null && runtime.getTableChunks() != null) {
+            return runtime.getTableChunks();
+        }
+        return 1;
+    }
+
+    /**
+     * 是否启用一致性快照导出
+     */
+    private boolean isConsistentSnapshot(TaskExecutionContext context) {
+        JobConfig.RuntimeConfig runtime = context.getJobConfig().getRuntime();
+        return runtime != null && Boolean.TRUE.equals(runtime.getConsistentSnapshot());
+    }
+
+    /**
+     * 获取启用分段的最小表大小（字节）
+     */
+    private long getChunkThresholdBytes(TaskExecutionContext context) {
+        JobConfig.RuntimeConfig runtime = context.getJobConfig().getRuntime();
+        long thresholdMb = runtime != null && runtime.getChunkThresholdMb() != null
+            ? runtime.getChunkThresholdMb() : DEFAULT_CHUNK_THRESHOLD_MB;
+        return thresholdMb * 1024L * 1024L;
+    }
+
     /**
      * 收集所有需要导出的任务
      */
@@ -234,19 +353,22 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
 
         if (config.getExtractTasks() == null || config.getExtractTasks().isEmpty()) {
             // 没有配置任务时，导出 demo_source 作为示例
-            exportTasks.add(new ExportTask(ExportTaskType.TABLE, "demo_source", null, ctx));
+            exportTasks.add(new ExportTask(ExportTaskType.TABLE, "demo_source", null, ctx,
+                resolveCopyFormat(ctx, "demo_source")));
         } else {
             for (JobConfig.ExtractTaskConfig task : config.getExtractTasks()) {
                 // 全量表导出
                 if (task.getTables() != null) {
                     for (String table : task.getTables()) {
-                        exportTasks.add(new ExportTask(ExportTaskType.TABLE, table, null, ctx));
+                        exportTasks.add(new ExportTask(ExportTaskType.TABLE, table, null, ctx,
+                            resolveCopyFormat(ctx, table)));
                     }
                 }
                 // 增量 SQL 导出
                 if (task.getSqlList() != null) {
                     for (JobConfig.SqlItem sqlItem : task.getSqlList()) {
-                        exportTasks.add(new ExportTask(ExportTaskType.SQL, null, sqlItem, ctx));
+                        exportTasks.add(new ExportTask(ExportTaskType.SQL, null, sqlItem, ctx,
+                            resolveCopyFormat(ctx, sqlItem.getName())));
                     }
                 }
             }
@@ -259,14 +381,33 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
      * 串行导出（单连接）
      */
     private List<TableExportResult> exportSerially(String url, JobConfig.ExtractDatabaseConfig db,
-                                                    List<ExportTask> tasks) throws Exception {
+                                                    List<ExportTask> tasks, boolean consistentSnapshot)
+        throws Exception {
         List<TableExportResult> results = new ArrayList<>();
         try (Connection conn = DriverManager.getConnection(url, db.getUser(), db.getPassword())) {
-            for (ExportTask task : tasks) {
-                TableExportResult result = executeExportTask(conn, task);
-                if (result != null) {
-                    results.add(result);
+            if (consistentSnapshot) {
+                // 单连接：所有任务在同一个 REPEATABLE READ 事务内执行即可保证一致
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            }
+            if (!tasks.isEmpty()) {
+                notifyPlanned(tasks.get(0).context, tasks.size());
+            }
+            try {
+                for (ExportTask task : tasks) {
+                    TableExportResult result = executeExportTask(conn, task);
+                    if (result != null) {
+                        results.add(result);
+                    }
+                }
+                if (consistentSnapshot) {
+                    conn.commit();
                 }
+            } catch (Exception e) {
+                if (consistentSnapshot) {
+                    conn.rollback();
+                }
+                throw e;
             }
         }
         return results;
@@ -276,20 +417,49 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
      * 并发导出（连接池 + 线程池）
      */
     private List<TableExportResult> exportConcurrently(String url, JobConfig.ExtractDatabaseConfig db,
-                                                        List<ExportTask> tasks, int concurrency) throws Exception {
+                                                        List<ExportTask> tasks, int concurrency,
+                                                        int tableChunks, long chunkThresholdBytes,
+                                                        boolean consistentSnapshot) throws Exception {
         // 创建HikariCP连接池
         HikariDataSource dataSource = createDataSource(url, db, concurrency);
         ExecutorService executor = Executors.newFixedThreadPool(concurrency);
         List<TableExportResult> results = new ArrayList<>();
+        // 一致性快照：协调连接持有快照事务直到所有工作连接导出完成
+        Connection coordinator = null;
 
         try {
+            String snapshotId = null;
+            if (consistentSnapshot) {
+                coordinator = DriverManager.getConnection(url, db.getUser(), db.getPassword());
+                snapshotId = exportSnapshot(coordinator);
+            }
+
+            // 大表切分为多个分段任务（一致性快照下在协调连接上规划，范围与导出数据一致）
+            List<ExportTask> plannedTasks = tasks;
+            if (tableChunks > 1) {
+                if (coordinator != null) {
+                    plannedTasks = planChunkTasks(coordinator, tasks, tableChunks, chunkThresholdBytes);
+                } else {
+                    try (Connection conn = dataSource.getConnection()) {
+                        plannedTasks = planChunkTasks(conn, tasks, tableChunks, chunkThresholdBytes);
+                    }
+                }
+            }
+            final String sharedSnapshot = snapshotId;
+            if (!plannedTasks.isEmpty()) {
+                notifyPlanned(plannedTasks.get(0).context, plannedTasks.size());
+            }
+
             // 提交所有导出任务
             List<Future<TableExportResult>> futures = new ArrayList<>();
-            for (ExportTask task : tasks) {
+            for (ExportTask task : plannedTasks) {
                 Future<TableExportResult> future = executor.submit(new Callable<TableExportResult>() {
                     @Override
                     public TableExportResult call() throws Exception {
                         try (Connection conn = dataSource.getConnection()) {
+                            if (sharedSnapshot != null) {
+                                return executeInSnapshot(conn, sharedSnapshot, task);
+                            }
                             return executeExportTask(conn, task);
                         }
                     }
@@ -298,17 +468,16 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
             }
 
             // 等待所有任务完成并收集结果
+            List<TableExportResult> taskResults = new ArrayList<>();
             for (Future<TableExportResult> future : futures) {
                 try {
-                    TableExportResult result = future.get();
-                    if (result != null) {
-                        results.add(result);
-                    }
+                    taskResults.add(future.get());
                 } catch (Exception e) {
                     log.error("导出任务失败", e);
                     throw new RuntimeException("并发导出失败", e);
                 }
             }
+            results.addAll(mergeChunkResults(plannedTasks, taskResults));
         } finally {
             // 关闭线程池
             executor.shutdown();
@@ -321,6 +490,16 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
                 Thread.currentThread().interrupt();
             }
 
+            // 结束快照事务（只读，回滚即可）
+            if (coordinator != null) {
+                try {
+                    coordinator.rollback();
+                    coordinator.close();
+                } catch (Exception e) {
+                    log.warn("关闭快照协调连接失败: {}", e.getMessage());
+                }
+            }
+
             // 关闭连接池
             dataSource.close();
         }
@@ -328,6 +507,120 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
         return results;
     }
 
+    /**
+     * 在协调连接上开启 REPEATABLE READ 事务并导出快照
+     *
+     * @return 快照标识，供工作连接 SET TRANSACTION SNAPSHOT 使用
+     */
+    private String exportSnapshot(Connection coordinator) throws Exception {
+        coordinator.setAutoCommit(false);
+        coordinator.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try (Statement stmt = coordinator.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_export_snapshot()")) {
+            if (!rs.next()) {
+                throw new IllegalStateException("pg_export_snapshot 未返回快照标识");
+            }
+            String snapshotId = rs.getString(1);
+            log.info("已导出事务快照: {}", snapshotId);
+            return snapshotId;
+        }
+    }
+
+    /**
+     * 在导入的快照事务中执行导出任务
+     */
+    private TableExportResult executeInSnapshot(Connection conn, String snapshotId, ExportTask task)
+        throws Exception {
+        conn.setAutoCommit(false);
+        conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        try {
+            // SET TRANSACTION SNAPSHOT 必须是事务内第一条语句
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET TRANSACTION SNAPSHOT '" + snapshotId.replace("'", "''") + "'");
+            }
+            TableExportResult result = executeExportTask(conn, task);
+            conn.commit();
+            return result;
+        } catch (Exception e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * 将达到分段阈值的表任务展开为分段任务，同一表的各段共用一个逻辑文件名
+     */
+    private List<ExportTask> planChunkTasks(Connection conn, List<ExportTask> tasks,
+                                            int tableChunks, long chunkThresholdBytes) throws Exception {
+        List<ExportTask> planned = new ArrayList<>();
+        for (ExportTask task : tasks) {
+            if (task.type != ExportTaskType.TABLE) {
+                planned.add(task);
+                continue;
+            }
+            List<KingbaseChunkPlanner.Chunk> chunks =
+                chunkPlanner.plan(conn, task.tableName, tableChunks, chunkThresholdBytes);
+            if (chunks.isEmpty()) {
+                planned.add(task);
+                continue;
+            }
+            String logicalFileName = withFormatExtension(
+                generateFileName(task.context, task.tableName, false), task.copyFormat);
+            for (KingbaseChunkPlanner.Chunk chunk : chunks) {
+                planned.add(new ExportTask(task, chunk, logicalFileName,
+                    FileNamingService.generatePartFileName(logicalFileName, chunk.getIndex())));
+            }
+        }
+        return planned;
+    }
+
+    /**
+     * 将同一表的分段结果合并为一个逻辑表结果，保持任务原有顺序
+     */
+    private List<TableExportResult> mergeChunkResults(List<ExportTask> plannedTasks,
+                                                      List<TableExportResult> taskResults) {
+        List<TableExportResult> merged = new ArrayList<>();
+        Map<ExportTask, Integer> positionByTable = new IdentityHashMap<>();
+        for (int i = 0; i < plannedTasks.size(); i++) {
+            ExportTask task = plannedTasks.get(i);
+            TableExportResult result = taskResults.get(i);
+            if (result == null) {
+                continue;
+            }
+            if (task.chunk == null) {
+                merged.add(result);
+                continue;
+            }
+            ExportPart part = new ExportPart(task.chunk.getIndex(), result.getFilePath(), result.getRowCount());
+            part.setSize(result.getSize());
+            part.setSm3(result.getSm3());
+            part.setChunkTree(result.getChunkTree());
+            Integer position = positionByTable.get(task.parent);
+            if (position == null) {
+                TableExportResult tableResult = withFormat(new TableExportResult(task.tableName,
+                    result.getFilePath().resolveSibling(task.logicalFileName), 0), task.copyFormat);
+                positionByTable.put(task.parent, merged.size());
+                merged.add(tableResult);
+                position = merged.size() - 1;
+            }
+            TableExportResult current = merged.get(position);
+            TableExportResult accumulated = new TableExportResult(current.getTableName(), current.getFilePath(),
+                current.getRowCount() + part.getRowCount());
+            accumulated.setParts(new ArrayList<>(current.getParts()));
+            accumulated.setCopyFormat(current.getCopyFormat());
+            accumulated.getParts().add(part);
+            merged.set(position, accumulated);
+        }
+        for (Integer position : positionByTable.values()) {
+            TableExportResult result = merged.get(position);
+            log.info("表 {} 分段导出完成，共 {} 段 {} 行", result.getTableName(), result.getParts().size(),
+                result.getRowCount());
+        }
+        return merged;
+    }
+
     /**
      * 创建HikariCP连接池
      */
@@ -360,13 +653,75 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
      * 执行单个导出任务
      */
     private TableExportResult executeExportTask(Connection conn, ExportTask task) throws Exception {
-        if (task.type == ExportTaskType.TABLE) {
-            return exportTable(conn, task.tableName, task.context);
+        TableExportResult result;
+        if (task.chunk != null) {
+            result = exportChunk(conn, task);
+        } else if (task.type == ExportTaskType.TABLE) {
+            result = exportTable(conn, task);
         } else {
-            return exportSql(conn, task.sqlItem, task.context);
+            result = exportSql(conn, task);
+        }
+        ExportListener listener = task.context.getAttribute(ExportListener.CONTEXT_KEY);
+        if (listener != null && result != null) {
+            listener.onFileExported(result);
+        }
+        return result;
+    }
+
+    /**
+     * 通知监听器计划导出的文件数
+     */
+    private static void notifyPlanned(TaskExecutionContext context, int fileCount) {
+        ExportListener listener = context.getAttribute(ExportListener.CONTEXT_KEY);
+        if (listener != null) {
+            listener.onExportPlanned(fileCount);
         }
     }
 
+    /**
+     * 解析表或 SQL 的 COPY 数据格式：runtime.table_copy_formats 优先，其次 runtime.copy_format，默认文本
+     */
+    private CopyFormat resolveCopyFormat(TaskExecutionContext context, String name) {
+        JobConfig.RuntimeConfig runtime = context.getJobConfig().getRuntime();
+        if (runtime == null) {
+            return CopyFormat.TEXT;
+        }
+        if (name != null && runtime.getTableCopyFormats() != null) {
+            CopyFormat format = runtime.getTableCopyFormats().get(name);
+            if (format != null) {
+                return format;
+            }
+        }
+        return runtime.getCopyFormat() != null ? runtime.getCopyFormat() : CopyFormat.TEXT;
+    }
+
+    /**
+     * COPY TO 选项：文本格式按配置的文件编码输出（服务端负责转换），二进制格式无分隔符与编码
+     */
+    private String copyOptions(TaskExecutionContext context, CopyFormat format) {
+        if (format == CopyFormat.BINARY) {
+            return "(FORMAT binary)";
+        }
+        return "(FORMAT text, DELIMITER E'\\x1E', ENCODING "
+            + KingbaseFileEncoding.quote(KingbaseFileEncoding.resolve(context)) + ", NULL '', HEADER false)";
+    }
+
+    /**
+     * 二进制格式数据文件使用 .bin 扩展名（替换原扩展名），文本格式保持原文件名
+     */
+    static String withFormatExtension(String fileName, CopyFormat format) {
+        if (format != CopyFormat.BINARY) {
+            return fileName;
+        }
+        int dot = fileName.lastIndexOf('.');
+        return (dot > 0 ? fileName.substring(0, dot) : fileName) + CopyFormat.BINARY_EXTENSION;
+    }
+
+    private static TableExportResult withFormat(TableExportResult result, CopyFormat format) {
+        result.setCopyFormat(format);
+        return result;
+    }
+
     /**
      * 生成表文件名
      */
@@ -404,24 +759,73 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
     /**
      * 导出任务类型
      */
-    private enum ExportTaskType {
+    enum ExportTaskType {
         TABLE, SQL
     }
 
     /**
      * 导出任务封装
      */
-    private static class ExportTask {
+    static class ExportTask {
         final ExportTaskType type;
         final String tableName;
         final JobConfig.SqlItem sqlItem;
         final TaskExecutionContext context;
-
-        ExportTask(ExportTaskType type, String tableName, JobConfig.SqlItem sqlItem, TaskExecutionContext context) {
+        /** 分段任务所属的整表任务，非分段任务为 null */
+        final ExportTask parent;
+        final KingbaseChunkPlanner.Chunk chunk;
+        final String logicalFileName;
+        final String fileName;
+        final CopyFormat copyFormat;
+
+        ExportTask(ExportTaskType type, String tableName, JobConfig.SqlItem sqlItem, TaskExecutionContext context,
+                   CopyFormat copyFormat) {
             this.type = type;
             this.tableName = tableName;
             this.sqlItem = sqlItem;
             this.context = context;
+            this.copyFormat = copyFormat;
+            this.parent = null;
+            this.chunk = null;
+            this.logicalFileName = null;
+            this.fileName = null;
+        }
+
+        ExportTask(ExportTask parent, KingbaseChunkPlanner.Chunk chunk, String logicalFileName, String fileName) {
+            this.type = parent.type;
+            this.tableName = parent.tableName;
+            this.sqlItem = null;
+            this.context = parent.context;
+            this.copyFormat = parent.copyFormat;
+            this.parent = parent;
+            this.chunk = chunk;
+            this.logicalFileName = logicalFileName;
+            this.fileName = fileName;
+        }
+    }
+
+    /**
+     * COPY TO STDOUT 导出结果：行数，以及写文件时边写边算的字节数、SM3 与分块校验树（写入导出通道时为 null）
+     */
+    private static final class CopyOutResult {
+        final long rowCount;
+        final Long size;
+        final String sm3;
+        final Sm3ChunkTree chunkTree;
+
+        CopyOutResult(long rowCount, Long size, String sm3, Sm3ChunkTree chunkTree) {
+            this.rowCount = rowCount;
+            this.size = size;
+            this.sm3 = sm3;
+            this.chunkTree = chunkTree;
+        }
+
+        TableExportResult toExportResult(String tableName, Path file, CopyFormat format) {
+            TableExportResult result = withFormat(new TableExportResult(tableName, file, rowCount), format);
+            result.setSize(size);
+            result.setSm3(sm3);
+            result.setChunkTree(chunkTree);
+            return result;
         }
     }
 
@@ -431,7 +835,55 @@ public class KingbaseExtractPlugin implements ExtractPlugin {
     @Data
     public static class TableExportResult {
         private final String tableName;
+        /** 数据文件；分段导出时为逻辑文件路径，实际数据在各分段文件中 */
+        private final Path filePath;
+        private final long rowCount;
+        /** 分段导出的各段文件（按段序号排列），未分段时为空 */
+        private List<ExportPart> parts = new ArrayList<>();
+        /** COPY 数据格式 */
+        private CopyFormat copyFormat = CopyFormat.TEXT;
+        /** 数据文件字节数，写入时计算；未计算（COPY TO 文件回退、流式导出、分段导出的逻辑表）时为 null */
+        private Long size;
+        /** 数据文件 SM3，写入时计算；未计算时为 null */
+        private String sm3;
+        /** 数据文件分块校验树，写入时计算；未启用或未计算时为 null */
+        private Sm3ChunkTree chunkTree;
+
+        public boolean isChunked() {
+            return !parts.isEmpty();
+        }
+
+        /**
+         * 实际落盘的数据文件：分段时为各分段文件，否则为 filePath
+         */
+        public List<Path> getDataFiles() {
+            if (parts.isEmpty()) {
+                List<Path> files = new ArrayList<>();
+                files.add(filePath);
+                return files;
+            }
+            List<Path> files = new ArrayList<>(parts.size());
+            for (ExportPart part : parts) {
+                files.add(part.getFilePath());
+            }
+            return files;
+        }
+    }
+
+    /**
+     * 表分段导出结果
+     */
+    @Data
+    public static class ExportPart {
+        /** 段序号（从 1 开始） */
+        private final int index;
         private final Path filePath;
         private final long rowCount;
+        /** 分段文件字节数，写入时计算，未计算时为 null */
+        private Long size;
+        /** 分段文件 SM3，写入时计算，未计算时为 null */
+        private String sm3;
+        /** 分段文件分块校验树，写入时计算，未启用或未计算时为 null */
+        private Sm3ChunkTree chunkTree;
     }
 }
@@ -0,0 +1,44 @@
+package org.csits.kel.server.plugin.kingbase;
+
+import org.csits.kel.server.dto.JobConfig;
+import org.csits.kel.server.dto.TaskExecutionContext;
+
+/**
+ * 数据文件编码。
+ *
+ * 卸载与加载均以字节流执行 COPY，文件编码通过 COPY 的 ENCODING 选项告知服务端：
+ * 与库编码一致时服务端不做转换，不一致时由服务端转换，客户端不做任何字符解码/编码。
+ */
+final class KingbaseFileEncoding {
+
+    static final String DEFAULT_ENCODING = "UTF-8";
+
+    private KingbaseFileEncoding() {
+    }
+
+    /**
+     * 解析数据文件编码：作业 settings.encoding 优先，其次全局 extract.encoding，默认 UTF-8
+     */
+    static String resolve(TaskExecutionContext context) {
+        JobConfig.Settings settings = context.getJobConfig() != null ? context.getJobConfig().getSettings() : null;
+        if (settings != null && !isBlank(settings.getEncoding())) {
+            return settings.getEncoding().trim();
+        }
+        if (context.getGlobalConfig() != null && context.getGlobalConfig().getExtract() != null
+            && !isBlank(context.getGlobalConfig().getExtract().getEncoding())) {
+            return context.getGlobalConfig().getExtract().getEncoding().trim();
+        }
+        return DEFAULT_ENCODING;
+    }
+
+    /**
+     * COPY 的 ENCODING 选项值（已转义，可直接拼入单引号内）
+     */
+    static String quote(String encoding) {
+        return "'" + encoding.replace("'", "''") + "'";
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
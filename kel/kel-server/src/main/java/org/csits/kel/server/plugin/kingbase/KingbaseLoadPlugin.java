@@ -1,23 +1,41 @@
 package org.csits.kel.server.plugin.kingbase;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.csits.kel.manager.plugin.LoadPlugin;
+import org.csits.kel.server.constants.CopyFormat;
 import org.csits.kel.server.constants.JobType;
 import org.csits.kel.server.constants.LoadMode;
 import org.csits.kel.server.dto.JobConfig;
+import org.csits.kel.server.dto.ManifestMetadata;
 import org.csits.kel.server.dto.TaskExecutionContext;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
@@ -25,11 +43,33 @@ import org.springframework.stereotype.Component;
 
 /**
  * 人大金仓结构化数据加载插件。解包后按 TRUNCATE_LOAD/APPEND/MERGE 策略执行 COPY FROM 到目标库。
+ *
+ * MERGE 配置了 merge_keys 时先 COPY 到 UNLOGGED 暂存表，再按合并键以集合语句合并到目标表（见 KingbaseMergeLoader）；
+ * 未配置时直接加载到映射表，由 sql_list（merge_sql）完成合并。
+ * 并发度（runtime.table_concurrency）大于 1 时由 KingbaseParallelLoader 在连接池上并行加载。
  */
 @Slf4j
 @Component
 public class KingbaseLoadPlugin implements LoadPlugin {
 
+    /**
+     * 分段文件名后缀：.pNNN 或 .pNNN.扩展名（见 FileNamingService#generatePartFileName）；
+     * 分段导出的段在流式卸载时可能再按大小切段，形如 .p001.p002.txt
+     */
+    private static final Pattern PART_SUFFIX = Pattern.compile("^(\\.p\\d{3,})+(\\.[^.]+)?$");
+
+    private static final String DEFAULT_DELETE_VALUE = "D";
+
+    private static final int DEFAULT_LOAD_SPLIT_MB = 256;
+
+    private static final int DEFAULT_COPY_BUFFER_KB = 1024;
+
+    /** 二进制 COPY 文件签名：PGCOPY\n\377\r\n\0 */
+    private static final byte[] BINARY_COPY_SIGNATURE =
+        {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    private final KingbaseMergeLoader mergeLoader = new KingbaseMergeLoader();
+
     @Override
     public boolean supports(Object context) {
         if (!(context instanceof TaskExecutionContext)) {
@@ -58,6 +98,14 @@ public class KingbaseLoadPlugin implements LoadPlugin {
             target.getHost(), target.getPort(), target.getName());
         log.info("加载目标库 url={}, user={}", url, target.getUser());
         Map<String, Long> loadTableStats = new LinkedHashMap<>();
+        CopyOptions copyOptions = buildCopyOptions(ctx);
+        int concurrency = getConcurrency(ctx);
+        if (concurrency > 1) {
+            // 并发加载（连接池 + 线程池，多表并行、大文件切分）
+            loadConcurrently(ctx, url, target, dataDir, concurrency, copyOptions, loadTableStats);
+            ctx.setAttribute("loadTableStats", loadTableStats);
+            return;
+        }
         try (Connection conn = DriverManager.getConnection(url, target.getUser(), target.getPassword())) {
             List<JobConfig.LoadTaskConfig> loadTasks = config.getLoadTasks();
                 if (loadTasks == null || loadTasks.isEmpty()) {
@@ -72,6 +120,8 @@ public class KingbaseLoadPlugin implements LoadPlugin {
                     continue;
                 }
                 boolean useTransaction = Boolean.TRUE.equals(task.getEnableTransaction());
+                KingbaseMergeLoader.MergeOptions mergeOptions = mode == LoadMode.MERGE
+                    ? buildMergeOptions(task, target, conn) : null;
                 if (useTransaction) {
                     conn.setAutoCommit(false);
                 }
@@ -79,19 +129,26 @@ public class KingbaseLoadPlugin implements LoadPlugin {
                     for (Map.Entry<String, String> e : mapping.entrySet()) {
                         String sourceKey = e.getKey();
                         String targetTable = e.getValue();
-                        Path file = resolveDataFile(dataDir, sourceKey);
-                        if (file == null) {
+                        List<Path> files = resolveDataFiles(dataDir, sourceKey);
+                        if (files.isEmpty()) {
                             log.warn("未找到对应数据文件: {} -> {}", sourceKey, targetTable);
                             continue;
                         }
+                        if (mergeOptions != null) {
+                            mergeFiles(conn, files, targetTable, mergeOptions, copyOptions, loadTableStats);
+                            continue;
+                        }
                         if (mode == LoadMode.TRUNCATE_LOAD) {
                             try (Statement stmt = conn.createStatement()) {
                                 stmt.execute("TRUNCATE TABLE " + targetTable);
                             }
                         }
-                        long rows = copyFromFile(conn, file, targetTable);
-                        loadTableStats.merge(targetTable, rows, Long::sum);
-                        log.info("已加载 {} -> {}，写入 {} 行", file.getFileName(), targetTable, rows);
+                        // 分段导出的表按段序号依次加载
+                        for (Path file : files) {
+                            long rows = copyFromFile(conn, file, targetTable, copyOptions);
+                            loadTableStats.merge(targetTable, rows, Long::sum);
+                            log.info("已加载 {} -> {}，写入 {} 行", file.getFileName(), targetTable, rows);
+                        }
                     }
                     if (task.getSqlList() != null && !task.getSqlList().isEmpty()) {
                         for (JobConfig.SqlItem sql : task.getSqlList()) {
@@ -120,6 +177,150 @@ public class KingbaseLoadPlugin implements LoadPlugin {
         }
     }
 
+    /**
+     * 并发加载：各加载任务依次执行，任务内的表与大文件分段在连接池上并行 COPY
+     */
+    private void loadConcurrently(TaskExecutionContext ctx, String url, JobConfig.TargetDatabaseConfig target,
+                                  Path dataDir, int concurrency, CopyOptions copyOptions,
+                                  Map<String, Long> loadTableStats)
+        throws Exception {
+        List<JobConfig.LoadTaskConfig> loadTasks = ctx.getJobConfig().getLoadTasks();
+        if (loadTasks == null || loadTasks.isEmpty()) {
+            log.info("作业 {} 未配置 load_tasks，跳过加载", ctx.getJobName());
+            return;
+        }
+        log.info("使用并发度: {}", concurrency);
+        HikariDataSource dataSource = createDataSource(url, target, concurrency);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            KingbaseParallelLoader loader = new KingbaseParallelLoader(dataSource, executor, mergeLoader,
+                (conn, range, table) -> copyRange(conn, range, table, copyOptions),
+                file -> resolveCopyFormat(file, copyOptions) == CopyFormat.TEXT, concurrency,
+                getLoadSplitBytes(ctx));
+            for (JobConfig.LoadTaskConfig task : loadTasks) {
+                LoadMode mode = task.getType() != null ? task.getType() : LoadMode.APPEND;
+                Map<String, String> mapping = task.getInterfaceMapping();
+                if (mapping == null || mapping.isEmpty()) {
+                    continue;
+                }
+                // 多个源映射到同一目标表时合并为一组，保证 TRUNCATE 与暂存表只处理一次
+                Map<String, List<Path>> filesByTable = new LinkedHashMap<>();
+                for (Map.Entry<String, String> e : mapping.entrySet()) {
+                    List<Path> files = resolveDataFiles(dataDir, e.getKey());
+                    if (files.isEmpty()) {
+                        log.warn("未找到对应数据文件: {} -> {}", e.getKey(), e.getValue());
+                        continue;
+                    }
+                    filesByTable.computeIfAbsent(e.getValue(), k -> new ArrayList<>()).addAll(files);
+                }
+                KingbaseMergeLoader.MergeOptions mergeOptions = null;
+                if (mode == LoadMode.MERGE) {
+                    try (Connection conn = dataSource.getConnection()) {
+                        mergeOptions = buildMergeOptions(task, target, conn);
+                    }
+                }
+                loader.load(mode, filesByTable, mergeOptions, Boolean.TRUE.equals(task.getEnableTransaction()),
+                    task.getSqlList(), loadTableStats);
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            dataSource.close();
+        }
+    }
+
+    /**
+     * 创建目标库连接池：并发度 + 1 个合并/事务连接
+     */
+    private HikariDataSource createDataSource(String url, JobConfig.TargetDatabaseConfig target, int concurrency) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(target.getUser());
+        config.setPassword(target.getPassword());
+        config.setMaximumPoolSize(concurrency + 1);
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(30000);
+        config.setIdleTimeout(600000);
+        config.setMaxLifetime(1800000);
+        config.setConnectionTestQuery("SELECT 1");
+        config.setPoolName("kel-load-pool");
+        log.info("创建连接池: maxPoolSize={}, minIdle={}", config.getMaximumPoolSize(), config.getMinimumIdle());
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * 获取并发度配置：作业 runtime.table_concurrency 优先，其次全局默认，默认串行
+     */
+    private int getConcurrency(TaskExecutionContext context) {
+        if (context.getJobConfig().getRuntime() != null
+            && context.getJobConfig().getRuntime().getTableConcurrency() != null) {
+            return context.getJobConfig().getRuntime().getTableConcurrency();
+        }
+        if (context.getGlobalConfig() != null && context.getGlobalConfig().getConcurrency() != null
+            && context.getGlobalConfig().getConcurrency().getDefaultTableConcurrency() != null) {
+            return context.getGlobalConfig().getConcurrency().getDefaultTableConcurrency();
+        }
+        return 1;
+    }
+
+    /**
+     * 获取大文件切分的单段最小字节数（runtime.load_split_mb，默认 256MB）
+     */
+    private long getLoadSplitBytes(TaskExecutionContext context) {
+        JobConfig.RuntimeConfig runtime = context.getJobConfig().getRuntime();
+        int mb = runtime != null && runtime.getLoadSplitMb() != null
+            ? runtime.getLoadSplitMb() : DEFAULT_LOAD_SPLIT_MB;
+        return mb * 1024L * 1024L;
+    }
+
+    /**
+     * 构建 MERGE 合并配置；未配置 merge_keys 时返回 null，按旧方式加载
+     */
+    private KingbaseMergeLoader.MergeOptions buildMergeOptions(JobConfig.LoadTaskConfig task,
+                                                               JobConfig.TargetDatabaseConfig target,
+                                                               Connection conn) throws SQLException {
+        List<String> keys = task.getMergeKeys();
+        if (keys == null || keys.isEmpty()) {
+            log.info("MERGE 任务未配置 merge_keys，直接加载到映射表并执行 sql_list");
+            return null;
+        }
+        boolean onConflict = KingbaseMergeLoader.supportsOnConflict(target.getDatabaseVersion(), conn);
+        String deleteValue = task.getDeleteValue() != null ? task.getDeleteValue() : DEFAULT_DELETE_VALUE;
+        return new KingbaseMergeLoader.MergeOptions(keys, task.getDeleteColumn(), deleteValue, onConflict);
+    }
+
+    /**
+     * MERGE 加载：全部数据文件 COPY 到暂存表后一次性合并到目标表。
+     * 事务内失败时暂存表随回滚撤销，非事务失败时立即删除。
+     */
+    private void mergeFiles(Connection conn, List<Path> files, String targetTable,
+                            KingbaseMergeLoader.MergeOptions options, CopyOptions copyOptions,
+                            Map<String, Long> loadTableStats)
+        throws Exception {
+        String staging = mergeLoader.createStagingTable(conn, targetTable);
+        boolean merged = false;
+        try {
+            for (Path file : files) {
+                long rows = copyFromFile(conn, file, staging, copyOptions);
+                loadTableStats.merge(targetTable, rows, Long::sum);
+                log.info("已加载 {} -> {}（暂存），写入 {} 行", file.getFileName(), staging, rows);
+            }
+            mergeLoader.merge(conn, staging, targetTable, options);
+            merged = true;
+        } finally {
+            if (merged || conn.getAutoCommit()) {
+                mergeLoader.dropStagingTable(conn, staging);
+            }
+        }
+    }
+
     private Path resolveWorkDir(TaskExecutionContext ctx) {
         JobConfig jobConfig = ctx.getJobConfig();
         String jobName = jobConfig.getJob().getName();
@@ -133,30 +334,88 @@ public class KingbaseLoadPlugin implements LoadPlugin {
         return Paths.get(baseWorkDir, jobName, ctx.getBatchNumber());
     }
 
-    private Path resolveDataFile(Path dataDir, final String sourceKey) throws IOException {
+    /**
+     * 解析映射对应的数据文件。表按分段导出时返回全部分段文件（按段序号排序），否则至多返回一个文件。
+     */
+    private List<Path> resolveDataFiles(Path dataDir, final String sourceKey) throws IOException {
         String base = sourceKey;
         if (base.endsWith(".txt")) {
             base = base.substring(0, base.length() - 4);
         }
         final String baseName = base;
+        final String underscoreName = baseName.replace('.', '_');
         Path p = dataDir.resolve(baseName + ".txt");
         if (Files.isRegularFile(p)) {
-            return p;
+            return Collections.singletonList(p);
         }
-        Path withUnderscore = dataDir.resolve(baseName.replace('.', '_') + ".txt");
+        Path withUnderscore = dataDir.resolve(underscoreName + ".txt");
         if (Files.isRegularFile(withUnderscore)) {
-            return withUnderscore;
+            return Collections.singletonList(withUnderscore);
         }
+        List<Path> candidates;
         try (java.util.stream.Stream<Path> stream = Files.list(dataDir)) {
-            return stream
+            candidates = stream
                 .filter(Files::isRegularFile)
                 .filter(f -> {
                     String name = f.getFileName().toString();
                     return name.equals(sourceKey) || name.equals(baseName + ".txt")
-                        || name.startsWith(baseName + "_") || name.startsWith(baseName + ".");
+                        || name.startsWith(baseName + "_") || name.startsWith(baseName + ".")
+                        || isPartFile(name, underscoreName);
                 })
-                .findFirst()
-                .orElse(null);
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        List<Path> parts = candidates.stream()
+            .filter(f -> isPartFile(f.getFileName().toString(), baseName)
+                || isPartFile(f.getFileName().toString(), underscoreName))
+            .collect(Collectors.toList());
+        if (!parts.isEmpty()) {
+            return parts;
+        }
+        return candidates.isEmpty() ? Collections.emptyList() : Collections.singletonList(candidates.get(0));
+    }
+
+    private boolean isPartFile(String fileName, String baseName) {
+        return fileName.startsWith(baseName + ".p")
+            && PART_SUFFIX.matcher(fileName.substring(baseName.length())).matches();
+    }
+
+    /**
+     * 构建 COPY 选项：文件编码（settings.encoding）、读缓冲大小（runtime.copy_buffer_kb，默认 1024KB）
+     * 及 manifest 中记录的各数据文件格式
+     */
+    private CopyOptions buildCopyOptions(TaskExecutionContext ctx) {
+        JobConfig.RuntimeConfig runtime = ctx.getJobConfig().getRuntime();
+        int kb = runtime != null && runtime.getCopyBufferKb() != null && runtime.getCopyBufferKb() > 0
+            ? runtime.getCopyBufferKb() : DEFAULT_COPY_BUFFER_KB;
+        CopyOptions options = new CopyOptions(KingbaseFileEncoding.resolve(ctx), kb * 1024);
+        ManifestMetadata manifest = ctx.getAttribute("manifest");
+        if (manifest != null && manifest.getFiles() != null) {
+            Map<String, CopyFormat> fileFormats = new HashMap<>();
+            for (ManifestMetadata.FileInfo fileInfo : manifest.getFiles()) {
+                if (fileInfo.getName() != null) {
+                    fileFormats.put(Paths.get(fileInfo.getName()).getFileName().toString(),
+                        fileInfo.getCopyFormat() != null ? fileInfo.getCopyFormat() : CopyFormat.TEXT);
+                }
+            }
+            options.setFileFormats(fileFormats);
+        }
+        return options;
+    }
+
+    /**
+     * 数据文件的 COPY 格式：以 manifest 记录为准，manifest 未记录时按文件头的二进制 COPY 签名识别
+     */
+    static CopyFormat resolveCopyFormat(Path file, CopyOptions options) throws IOException {
+        CopyFormat format = options.getFileFormats().get(file.getFileName().toString());
+        if (format != null) {
+            return format;
+        }
+        byte[] header = new byte[BINARY_COPY_SIGNATURE.length];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read = IOUtils.read(in, header);
+            return read == header.length && Arrays.equals(header, BINARY_COPY_SIGNATURE)
+                ? CopyFormat.BINARY : CopyFormat.TEXT;
         }
     }
 
@@ -164,11 +423,46 @@ public class KingbaseLoadPlugin implements LoadPlugin {
      * 使用 COPY FROM STDIN 由客户端读文件并写入服务端，无需 pg_read_server_files 权限。
      * @return 写入的行数
      */
-    private long copyFromFile(Connection conn, Path file, String targetTable) throws Exception {
-        String copySql = "COPY " + targetTable + " FROM STDIN WITH (FORMAT text, DELIMITER E'\\x1E', ENCODING 'UTF-8', NULL '')";
-        CopyManager copyManager = new CopyManager((BaseConnection) conn);
-        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
-            return copyManager.copyIn(copySql, reader);
+    private long copyFromFile(Connection conn, Path file, String targetTable, CopyOptions options)
+        throws Exception {
+        return copyRange(conn, new KingbaseParallelLoader.FileRange(file, 0L, Files.size(file)), targetTable,
+            options);
+    }
+
+    /**
+     * COPY FROM STDIN 写入文件中的字节范围（范围边界位于记录末尾；二进制格式文件不切分，范围即整个文件）。
+     * 文件字节原样发送，编码由 ENCODING 选项声明，仅在与库编码不同时由服务端转换。
+     * @return 写入的行数
+     */
+    private long copyRange(Connection conn, KingbaseParallelLoader.FileRange range, String targetTable,
+                           CopyOptions options) throws Exception {
+        String copySql = buildCopyInSql(targetTable, resolveCopyFormat(range.getFile(), options), options);
+        CopyManager copyManager = new CopyManager(conn.unwrap(BaseConnection.class));
+        try (FileChannel channel = FileChannel.open(range.getFile(), StandardOpenOption.READ);
+             InputStream in = new BoundedInputStream(
+                 Channels.newInputStream(channel.position(range.getStart())), range.length())) {
+            return copyManager.copyIn(copySql, in, options.getBufferSize());
         }
     }
+
+    static String buildCopyInSql(String targetTable, CopyFormat format, CopyOptions options) {
+        if (format == CopyFormat.BINARY) {
+            return "COPY " + targetTable + " FROM STDIN WITH (FORMAT binary)";
+        }
+        return "COPY " + targetTable + " FROM STDIN WITH (FORMAT text, DELIMITER E'\\x1E', ENCODING "
+            + KingbaseFileEncoding.quote(options.getEncoding()) + ", NULL '')";
+    }
+
+    /**
+     * COPY FROM STDIN 选项
+     */
+    @Data
+    static class CopyOptions {
+        /** 数据文件编码 */
+        private final String encoding;
+        /** 读缓冲大小（字节），即每次发送给服务端的数据块大小 */
+        private final int bufferSize;
+        /** manifest 记录的数据文件格式（文件名 -> 格式） */
+        private Map<String, CopyFormat> fileFormats = Collections.emptyMap();
+    }
 }
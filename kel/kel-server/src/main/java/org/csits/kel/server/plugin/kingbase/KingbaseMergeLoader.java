@@ -0,0 +1,320 @@
+package org.csits.kel.server.plugin.kingbase;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MERGE 加载：数据文件先 COPY 到 UNLOGGED 暂存表，再以集合语句按合并键合并到目标表。
+ *
+ * - 暂存表结构由 CREATE UNLOGGED TABLE ... (LIKE 目标表) 生成，与目标表同 schema，合并后删除；
+ *   表名带每次加载唯一的后缀，同一目标表的并发加载互不影响（暂存表会在多个连接间共用，不能按会话区分）
+ * - 同一批次内合并键重复时以最后写入的行为准（DISTINCT ON ... ORDER BY ctid DESC），
+ *   因此同一表的数据文件须按段序号在一个连接上依次 COPY 到暂存表
+ * - 支持 ON CONFLICT 的版本执行 INSERT ... ON CONFLICT DO UPDATE（目标表需有合并键上的唯一约束）；
+ *   V8R3 及更早版本执行 UPDATE ... FROM + INSERT ... WHERE NOT EXISTS
+ * - 配置删除标记列时，标记行按合并键从目标表删除，不参与插入/更新
+ */
+@Slf4j
+class KingbaseMergeLoader {
+
+    private static final String STAGING_SUFFIX = "_kel_stg_";
+
+    /** 加载标识长度（十六进制字符） */
+    private static final int LOAD_ID_LENGTH = 12;
+
+    /** PostgreSQL 标识符最大长度 */
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+
+    private static final Pattern KINGBASE_VERSION = Pattern.compile("^V(\\d+)R(\\d+)", Pattern.CASE_INSENSITIVE);
+
+    /** 生成每次加载的暂存表名后缀 */
+    private final Supplier<String> loadIdGenerator;
+
+    KingbaseMergeLoader() {
+        this(() -> UUID.randomUUID().toString().replace("-", "").substring(0, LOAD_ID_LENGTH));
+    }
+
+    KingbaseMergeLoader(Supplier<String> loadIdGenerator) {
+        this.loadIdGenerator = loadIdGenerator;
+    }
+
+    /**
+     * 合并配置
+     */
+    static class MergeOptions {
+        /** 合并键列 */
+        final List<String> keys;
+        /** 删除标记列，可为 null */
+        final String deleteColumn;
+        /** 删除标记值 */
+        final String deleteValue;
+        /** 是否使用 INSERT ... ON CONFLICT */
+        final boolean onConflict;
+
+        MergeOptions(List<String> keys, String deleteColumn, String deleteValue, boolean onConflict) {
+            this.keys = keys;
+            this.deleteColumn = deleteColumn;
+            this.deleteValue = deleteValue;
+            this.onConflict = onConflict;
+        }
+
+        boolean hasTombstone() {
+            return deleteColumn != null && !deleteColumn.trim().isEmpty();
+        }
+    }
+
+    /**
+     * 合并结果
+     */
+    static class MergeResult {
+        long deleted;
+        long upserted;
+    }
+
+    /**
+     * 为本次加载创建暂存表。
+     *
+     * @return 暂存表名
+     */
+    String createStagingTable(Connection conn, String targetTable) throws SQLException {
+        String staging = stagingTableName(targetTable, loadIdGenerator.get());
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE UNLOGGED TABLE " + staging + " (LIKE " + targetTable + " INCLUDING DEFAULTS)");
+        }
+        log.debug("已创建暂存表 {} -> {}", staging, targetTable);
+        return staging;
+    }
+
+    void dropStagingTable(Connection conn, String staging) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + staging);
+        } catch (SQLException e) {
+            log.warn("删除暂存表失败: {}", staging, e);
+        }
+    }
+
+    /**
+     * 将暂存表数据合并到目标表。
+     */
+    MergeResult merge(Connection conn, String staging, String targetTable, MergeOptions options)
+        throws SQLException {
+        List<String> columns = readColumns(conn, staging);
+        List<String> keys = resolveColumns(columns, options.keys, targetTable);
+        String tombstone = options.hasTombstone()
+            ? resolveColumns(columns, Collections.singletonList(options.deleteColumn), targetTable).get(0)
+            : null;
+        String source = buildDedupSource(staging, keys);
+        MergeResult result = new MergeResult();
+        if (tombstone != null) {
+            result.deleted = executeUpdate(conn, buildDeleteSql(targetTable, source, keys, tombstone),
+                options.deleteValue);
+        }
+        String deleteValue = tombstone != null ? options.deleteValue : null;
+        if (options.onConflict) {
+            result.upserted = executeUpdate(conn,
+                buildUpsertSql(targetTable, source, columns, keys, tombstone), deleteValue);
+        } else {
+            String updateSql = buildUpdateSql(targetTable, source, columns, keys, tombstone);
+            long updated = updateSql != null ? executeUpdate(conn, updateSql, deleteValue) : 0L;
+            long inserted = executeUpdate(conn,
+                buildInsertMissingSql(targetTable, source, columns, keys, tombstone), deleteValue);
+            result.upserted = updated + inserted;
+        }
+        log.info("MERGE {} -> {}：合并 {} 行，删除 {} 行", staging, targetTable, result.upserted, result.deleted);
+        return result;
+    }
+
+    /**
+     * 执行带可选删除标记参数的更新语句
+     */
+    private long executeUpdate(Connection conn, String sql, String deleteValue) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (deleteValue != null) {
+                ps.setString(1, deleteValue);
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 将配置的列名按不区分大小写匹配为表中的实际列名
+     */
+    static List<String> resolveColumns(List<String> columns, List<String> names, String table) {
+        List<String> resolved = new ArrayList<>(names.size());
+        for (String name : names) {
+            String match = columns.stream()
+                .filter(c -> c.equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("表 " + table + " 不存在列: " + name));
+            resolved.add(match);
+        }
+        return resolved;
+    }
+
+    private List<String> readColumns(Connection conn, String staging) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + staging + " WHERE FALSE")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                columns.add(meta.getColumnName(i));
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 判断目标库是否支持 INSERT ... ON CONFLICT。
+     * 优先按配置的 database_version（V8R3 及更早不支持）；未配置时按驱动报告的服务端版本（9.5 起支持）。
+     */
+    static boolean supportsOnConflict(String databaseVersion, Connection conn) throws SQLException {
+        if (databaseVersion != null && !databaseVersion.trim().isEmpty()) {
+            Boolean byVersion = supportsOnConflict(databaseVersion.trim());
+            if (byVersion != null) {
+                return byVersion;
+            }
+        }
+        DatabaseMetaData meta = conn.getMetaData();
+        int major = meta.getDatabaseMajorVersion();
+        return major > 9 || (major == 9 && meta.getDatabaseMinorVersion() >= 5);
+    }
+
+    /**
+     * 按金仓版本号（如 V8R6）判断，无法识别时返回 null。
+     */
+    static Boolean supportsOnConflict(String databaseVersion) {
+        Matcher m = KINGBASE_VERSION.matcher(databaseVersion);
+        if (!m.find()) {
+            return null;
+        }
+        int major = Integer.parseInt(m.group(1));
+        int release = Integer.parseInt(m.group(2));
+        return major > 8 || (major == 8 && release > 3);
+    }
+
+    /**
+     * 暂存表名：与目标表同 schema，表名追加 _kel_stg_ 与加载标识，超长时截断表名部分。
+     */
+    static String stagingTableName(String targetTable, String loadId) {
+        String schema = null;
+        String table = targetTable;
+        int dot = targetTable.lastIndexOf('.');
+        if (dot > 0) {
+            schema = targetTable.substring(0, dot);
+            table = targetTable.substring(dot + 1);
+        }
+        table = table.replace("\"", "");
+        String suffix = STAGING_SUFFIX + loadId;
+        if (table.length() + suffix.length() > MAX_IDENTIFIER_LENGTH) {
+            table = table.substring(0, MAX_IDENTIFIER_LENGTH - suffix.length());
+        }
+        String staging = quoteIdentifier(table + suffix);
+        return schema != null ? schema + "." + staging : staging;
+    }
+
+    /**
+     * 去重后的暂存数据：合并键重复时保留最后写入的行。
+     */
+    static String buildDedupSource(String staging, List<String> keys) {
+        String keyList = joinQuoted(keys, "");
+        return "(SELECT DISTINCT ON (" + keyList + ") * FROM " + staging
+            + " ORDER BY " + keyList + ", ctid DESC)";
+    }
+
+    static String buildDeleteSql(String targetTable, String source, List<String> keys, String deleteColumn) {
+        return "DELETE FROM " + targetTable + " t USING " + source + " s WHERE " + keyMatch(keys)
+            + " AND s." + quoteIdentifier(deleteColumn) + "::text = ?";
+    }
+
+    static String buildUpsertSql(String targetTable, String source, List<String> columns, List<String> keys,
+                                 String tombstone) {
+        List<String> updateColumns = nonKeyColumns(columns, keys);
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT INTO ").append(targetTable).append(" (").append(joinQuoted(columns, ""))
+            .append(") SELECT ").append(joinQuoted(columns, "s.")).append(" FROM ").append(source).append(" s");
+        if (tombstone != null) {
+            sql.append(" WHERE ").append(notTombstone(tombstone));
+        }
+        sql.append(" ON CONFLICT (").append(joinQuoted(keys, "")).append(")");
+        if (updateColumns.isEmpty()) {
+            sql.append(" DO NOTHING");
+        } else {
+            sql.append(" DO UPDATE SET ").append(updateColumns.stream()
+                .map(c -> quoteIdentifier(c) + " = EXCLUDED." + quoteIdentifier(c))
+                .collect(Collectors.joining(", ")));
+        }
+        return sql.toString();
+    }
+
+    /**
+     * @return UPDATE 语句；只有合并键列时返回 null
+     */
+    static String buildUpdateSql(String targetTable, String source, List<String> columns, List<String> keys,
+                                 String tombstone) {
+        List<String> updateColumns = nonKeyColumns(columns, keys);
+        if (updateColumns.isEmpty()) {
+            // 只有合并键列，无需更新
+            return null;
+        }
+        StringBuilder sql = new StringBuilder();
+        sql.append("UPDATE ").append(targetTable).append(" t SET ").append(updateColumns.stream()
+            .map(c -> quoteIdentifier(c) + " = s." + quoteIdentifier(c))
+            .collect(Collectors.joining(", ")));
+        sql.append(" FROM ").append(source).append(" s WHERE ").append(keyMatch(keys));
+        if (tombstone != null) {
+            sql.append(" AND ").append(notTombstone(tombstone));
+        }
+        return sql.toString();
+    }
+
+    static String buildInsertMissingSql(String targetTable, String source, List<String> columns,
+                                        List<String> keys, String tombstone) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT INTO ").append(targetTable).append(" (").append(joinQuoted(columns, ""))
+            .append(") SELECT ").append(joinQuoted(columns, "s.")).append(" FROM ").append(source)
+            .append(" s WHERE NOT EXISTS (SELECT 1 FROM ").append(targetTable).append(" t WHERE ")
+            .append(keyMatch(keys)).append(")");
+        if (tombstone != null) {
+            sql.append(" AND ").append(notTombstone(tombstone));
+        }
+        return sql.toString();
+    }
+
+    private static List<String> nonKeyColumns(List<String> columns, List<String> keys) {
+        return columns.stream()
+            .filter(c -> !keys.contains(c))
+            .collect(Collectors.toList());
+    }
+
+    private static String keyMatch(List<String> keys) {
+        return keys.stream()
+            .map(k -> "t." + quoteIdentifier(k) + " = s." + quoteIdentifier(k))
+            .collect(Collectors.joining(" AND "));
+    }
+
+    private static String notTombstone(String tombstone) {
+        return "s." + quoteIdentifier(tombstone) + "::text IS DISTINCT FROM ?";
+    }
+
+    private static String joinQuoted(List<String> columns, String prefix) {
+        return columns.stream().map(c -> prefix + quoteIdentifier(c)).collect(Collectors.joining(", "));
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
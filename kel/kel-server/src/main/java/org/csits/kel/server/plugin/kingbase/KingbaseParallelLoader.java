@@ -0,0 +1,367 @@
+package org.csits.kel.server.plugin.kingbase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.csits.kel.server.constants.LoadMode;
+import org.csits.kel.server.dto.JobConfig;
+
+/**
+ * 并发加载：连接池 + 线程池，多表并行，大数据文件按记录边界（换行符）切分为多个 COPY FROM STDIN 流并行写入。
+ *
+ * - 非事务任务：APPEND / TRUNCATE_LOAD 直接并行 COPY 到目标表；MERGE（配置 merge_keys）COPY 到暂存表后逐表合并
+ * - MERGE 按暂存表中的写入顺序（ctid）保留合并键重复时的最后一行，因此同一表的数据文件不切分、
+ *   在一个连接上按段序号依次 COPY，只在表之间并行
+ * - 事务任务：所有表先并行 COPY 到暂存表，再在单个事务中由暂存表写入目标表（TRUNCATE_LOAD 先清空、MERGE 按键合并）
+ *   并执行 sql_list，任一步骤失败整体回滚，目标表保持加载前状态
+ * 暂存表在任务结束后删除。
+ */
+@Slf4j
+class KingbaseParallelLoader {
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 判断数据文件能否按记录边界切分（二进制 COPY 文件不能切分）
+     */
+    @FunctionalInterface
+    interface SplitPolicy {
+
+        boolean splittable(Path file) throws IOException;
+    }
+
+    /**
+     * 将文件范围 COPY 到指定表
+     */
+    @FunctionalInterface
+    interface RangeCopier {
+
+        long copy(Connection conn, FileRange range, String table) throws Exception;
+    }
+
+    private final DataSource dataSource;
+    private final ExecutorService executor;
+    private final KingbaseMergeLoader mergeLoader;
+    private final RangeCopier copier;
+    private final SplitPolicy splitPolicy;
+    private final int concurrency;
+    private final long splitBytes;
+
+    /**
+     * @param dataSource 目标库连接池
+     * @param executor 加载线程池
+     * @param mergeLoader 暂存表与合并
+     * @param copier 范围 COPY 实现
+     * @param splitPolicy 文件能否切分
+     * @param concurrency 并发度，单个文件最多切分的段数
+     * @param splitBytes 单段最小字节数，小于 2 倍该值的文件不切分
+     */
+    KingbaseParallelLoader(DataSource dataSource, ExecutorService executor, KingbaseMergeLoader mergeLoader,
+                           RangeCopier copier, SplitPolicy splitPolicy, int concurrency, long splitBytes) {
+        this.dataSource = dataSource;
+        this.executor = executor;
+        this.mergeLoader = mergeLoader;
+        this.copier = copier;
+        this.splitPolicy = splitPolicy;
+        this.concurrency = concurrency;
+        this.splitBytes = splitBytes;
+    }
+
+    /**
+     * 执行一个加载任务
+     *
+     * @param mode 加载模式
+     * @param filesByTable 目标表 -> 数据文件（按段序号排序）
+     * @param mergeOptions MERGE 合并配置，未配置 merge_keys 时为 null
+     * @param useTransaction 是否要求全部成功或全部回滚
+     * @param sqlList 加载后执行的 SQL
+     * @param loadTableStats 各表写入行数
+     */
+    void load(LoadMode mode, Map<String, List<Path>> filesByTable, KingbaseMergeLoader.MergeOptions mergeOptions,
+              boolean useTransaction, List<JobConfig.SqlItem> sqlList, Map<String, Long> loadTableStats)
+        throws Exception {
+        boolean staged = useTransaction || mergeOptions != null;
+        Map<String, String> stagingTables = new LinkedHashMap<>();
+        try {
+            try (Connection conn = dataSource.getConnection()) {
+                for (String table : filesByTable.keySet()) {
+                    if (staged) {
+                        stagingTables.put(table, mergeLoader.createStagingTable(conn, table));
+                    } else if (mode == LoadMode.TRUNCATE_LOAD) {
+                        execute(conn, "TRUNCATE TABLE " + table);
+                    }
+                }
+            }
+
+            Map<String, Long> rows = copyAll(filesByTable, staged ? stagingTables : null, mergeOptions != null);
+            rows.forEach((table, count) -> loadTableStats.merge(table, count, Long::sum));
+
+            if (useTransaction) {
+                applyInTransaction(mode, stagingTables, mergeOptions, sqlList);
+            } else {
+                if (mergeOptions != null) {
+                    mergeConcurrently(stagingTables, mergeOptions);
+                }
+                try (Connection conn = dataSource.getConnection()) {
+                    executeSqlList(conn, sqlList);
+                }
+            }
+        } finally {
+            if (!stagingTables.isEmpty()) {
+                try (Connection conn = dataSource.getConnection()) {
+                    for (String staging : stagingTables.values()) {
+                        mergeLoader.dropStagingTable(conn, staging);
+                    }
+                } catch (SQLException e) {
+                    log.warn("清理暂存表失败: {}", stagingTables.values(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 并行 COPY 所有文件（大文件切分为多段）
+     *
+     * @param stagingTables 目标表 -> 暂存表，为 null 时直接写入目标表
+     * @param preserveOrder 是否保持文件顺序写入（MERGE）：同一表的文件不切分，按顺序在一个连接上 COPY
+     * @return 目标表 -> 写入行数
+     */
+    private Map<String, Long> copyAll(Map<String, List<Path>> filesByTable, Map<String, String> stagingTables,
+                                      boolean preserveOrder) throws Exception {
+        List<String> futureTables = new ArrayList<>();
+        List<Future<Long>> futures = new ArrayList<>();
+        for (Map.Entry<String, List<Path>> e : filesByTable.entrySet()) {
+            String table = e.getKey();
+            String dest = stagingTables != null ? stagingTables.get(table) : table;
+            if (preserveOrder) {
+                List<Path> files = e.getValue();
+                futureTables.add(table);
+                futures.add(executor.submit(() -> copyInOrder(files, dest)));
+                continue;
+            }
+            for (Path file : e.getValue()) {
+                List<FileRange> ranges = splitPolicy.splittable(file)
+                    ? splitAtRecordBoundaries(file, concurrency, splitBytes)
+                    : Collections.singletonList(new FileRange(file, 0L, Files.size(file)));
+                if (ranges.size() > 1) {
+                    log.info("数据文件 {} 按记录边界切分为 {} 段并行加载", file.getFileName(), ranges.size());
+                }
+                for (FileRange range : ranges) {
+                    futureTables.add(table);
+                    futures.add(executor.submit(() -> {
+                        try (Connection conn = dataSource.getConnection()) {
+                            long count = copier.copy(conn, range, dest);
+                            log.info("已加载 {} [{}, {}) -> {}，写入 {} 行", range.getFile().getFileName(),
+                                range.getStart(), range.getEnd(), dest, count);
+                            return count;
+                        }
+                    }));
+                }
+            }
+        }
+        List<Long> counts = awaitAll(futures);
+        Map<String, Long> rows = new LinkedHashMap<>();
+        for (String table : filesByTable.keySet()) {
+            rows.put(table, 0L);
+        }
+        for (int i = 0; i < counts.size(); i++) {
+            rows.merge(futureTables.get(i), counts.get(i), Long::sum);
+        }
+        return rows;
+    }
+
+    /**
+     * 在一个连接上按顺序整体 COPY 各文件，暂存表中的行序与文件顺序一致
+     */
+    private long copyInOrder(List<Path> files, String dest) throws Exception {
+        long total = 0L;
+        try (Connection conn = dataSource.getConnection()) {
+            for (Path file : files) {
+                long count = copier.copy(conn, new FileRange(file, 0L, Files.size(file)), dest);
+                log.info("已按顺序加载 {} -> {}，写入 {} 行", file.getFileName(), dest, count);
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 在单个事务中由暂存表写入目标表并执行 sql_list
+     */
+    private void applyInTransaction(LoadMode mode, Map<String, String> stagingTables,
+                                    KingbaseMergeLoader.MergeOptions mergeOptions,
+                                    List<JobConfig.SqlItem> sqlList) throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, String> e : stagingTables.entrySet()) {
+                    String table = e.getKey();
+                    String staging = e.getValue();
+                    if (mergeOptions != null) {
+                        mergeLoader.merge(conn, staging, table, mergeOptions);
+                        continue;
+                    }
+                    if (mode == LoadMode.TRUNCATE_LOAD) {
+                        execute(conn, "TRUNCATE TABLE " + table);
+                    }
+                    execute(conn, "INSERT INTO " + table + " SELECT * FROM " + staging);
+                }
+                executeSqlList(conn, sqlList);
+                conn.commit();
+                log.info("事务加载已提交，共 {} 个表", stagingTables.size());
+            } catch (Exception ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * 非事务 MERGE：各表在独立连接上并行合并
+     */
+    private void mergeConcurrently(Map<String, String> stagingTables,
+                                   KingbaseMergeLoader.MergeOptions mergeOptions) throws Exception {
+        List<Future<Long>> futures = new ArrayList<>();
+        for (Map.Entry<String, String> e : stagingTables.entrySet()) {
+            futures.add(executor.submit(() -> {
+                try (Connection conn = dataSource.getConnection()) {
+                    KingbaseMergeLoader.MergeResult result =
+                        mergeLoader.merge(conn, e.getValue(), e.getKey(), mergeOptions);
+                    return result.upserted;
+                }
+            }));
+        }
+        awaitAll(futures);
+    }
+
+    /**
+     * 等待全部任务完成；任一失败时取消其余任务并抛出原始异常
+     */
+    private static <T> List<T> awaitAll(List<Future<T>> futures) throws Exception {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+            log.error("并发加载任务失败", e.getCause());
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        return results;
+    }
+
+    private static void executeSqlList(Connection conn, List<JobConfig.SqlItem> sqlList) throws SQLException {
+        if (sqlList == null) {
+            return;
+        }
+        for (JobConfig.SqlItem sql : sqlList) {
+            if (sql.getSql() != null && !sql.getSql().trim().isEmpty()) {
+                execute(conn, sql.getSql());
+            }
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * 按记录边界将文件切分为至多 maxRanges 段，每段不小于 minRangeBytes。
+     * 文本格式 COPY 中数据内的换行已转义为 \n，原始换行符（0x0A）只出现在记录末尾，切分点取目标偏移之后的第一个换行符之后。
+     */
+    static List<FileRange> splitAtRecordBoundaries(Path file, int maxRanges, long minRangeBytes) throws IOException {
+        long size = Files.size(file);
+        int count = minRangeBytes > 0 ? (int) Math.min(maxRanges, size / minRangeBytes) : 1;
+        if (count <= 1) {
+            return Collections.singletonList(new FileRange(file, 0L, size));
+        }
+        List<FileRange> ranges = new ArrayList<>(count);
+        long start = 0L;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            for (int i = 1; i < count; i++) {
+                long target = Math.max(size * i / count, start);
+                long boundary = nextRecordBoundary(channel, buffer, target, size);
+                if (boundary >= size) {
+                    break;
+                }
+                if (boundary > start) {
+                    ranges.add(new FileRange(file, start, boundary));
+                    start = boundary;
+                }
+            }
+        }
+        ranges.add(new FileRange(file, start, size));
+        return ranges;
+    }
+
+    /**
+     * 返回 position 及之后第一个换行符的下一个偏移；找不到时返回文件大小
+     */
+    private static long nextRecordBoundary(FileChannel channel, ByteBuffer buffer, long position, long size)
+        throws IOException {
+        long pos = position;
+        while (pos < size) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * 数据文件中的字节范围 [start, end)
+     */
+    @Data
+    static class FileRange {
+        private final Path file;
+        private final long start;
+        private final long end;
+
+        long length() {
+            return end - start;
+        }
+    }
+}
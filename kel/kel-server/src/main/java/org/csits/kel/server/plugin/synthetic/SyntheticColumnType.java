@@ -0,0 +1,47 @@
+package org.csits.kel.server.plugin.synthetic;
+
+import java.util.Locale;
+
+/**
+ * 合成数据的列类型，取值按 COPY 文本格式输出。
+ */
+enum SyntheticColumnType {
+
+    /** 行号，自增 */
+    BIGINT,
+
+    /** 0 ~ 999999 的随机整数 */
+    INT,
+
+    /** 两位小数的随机金额 */
+    NUMERIC,
+
+    /** 指定长度的随机小写字母串 */
+    TEXT,
+
+    /** 2020 ~ 2026 年的随机日期 */
+    DATE,
+
+    /** 2020 ~ 2026 年的随机时间戳（精确到秒） */
+    TIMESTAMP,
+
+    /** t / f */
+    BOOL;
+
+    /**
+     * 按名称解析列类型（不区分大小写）
+     *
+     * @throws IllegalArgumentException 不支持的列类型
+     */
+    static SyntheticColumnType fromName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("合成数据列类型不能为空");
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的合成数据列类型: " + name
+                + "，可选 bigint / int / numeric / text / date / timestamp / bool");
+        }
+    }
+}
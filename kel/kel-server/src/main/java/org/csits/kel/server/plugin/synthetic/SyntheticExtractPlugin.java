@@ -0,0 +1,195 @@
+package org.csits.kel.server.plugin.synthetic;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.csits.kel.manager.plugin.ExtractPlugin;
+import org.csits.kel.manager.security.Sm3ChunkTree;
+import org.csits.kel.manager.security.Sm3ChunkTreeDigest;
+import org.csits.kel.manager.security.SmCryptoManager;
+import org.csits.kel.server.constants.JobType;
+import org.csits.kel.server.dto.JobConfig;
+import org.csits.kel.server.dto.TaskExecutionContext;
+import org.csits.kel.server.plugin.ExportListener;
+import org.csits.kel.server.plugin.ExportSink;
+import org.csits.kel.server.plugin.kingbase.KingbaseExtractPlugin;
+import org.csits.kel.server.service.ManifestService;
+import org.csits.kel.server.service.MetricsCollector;
+import org.springframework.stereotype.Component;
+
+/**
+ * 合成数据卸载插件（job.type=SYNTHETIC_EXTRACT）。
+ *
+ * 按 synthetic 配置在进程内生成各表数据，以 COPY 文本格式写入工作目录 data/（流式卸载时写入导出通道），
+ * 导出结果与 Kingbase 卸载一致（exportResults），每张表写完即通知 ExportListener，
+ * 之后的清单、压缩、分片、加密与加载流程不变。
+ * 不依赖数据库，用于在任意环境下对整条流水线做基准测试。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SyntheticExtractPlugin implements ExtractPlugin {
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final MetricsCollector metricsCollector;
+    private final SmCryptoManager smCryptoManager;
+
+    @Override
+    public boolean supports(Object context) {
+        if (!(context instanceof TaskExecutionContext)) {
+            return false;
+        }
+        TaskExecutionContext ctx = (TaskExecutionContext) context;
+        JobConfig.JobBasic job = ctx.getJobConfig().getJob();
+        return job != null && job.getType() == JobType.SYNTHETIC_EXTRACT;
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return true;
+    }
+
+    @Override
+    public void extract(Object context) throws Exception {
+        TaskExecutionContext ctx = (TaskExecutionContext) context;
+        SyntheticSettings settings = SyntheticSettings.resolve(ctx.getJobConfig());
+        long[] rowsPerTable = settings.rowsPerTable();
+        int concurrency = Math.max(1, Math.min(getConcurrency(ctx), settings.getTables()));
+        log.info("合成数据卸载：{} 张表，共 {} 行，列 {}，倾斜 {}，并发度 {}", settings.getTables(),
+            settings.getRows(), settings.getColumns(), settings.getSkew(), concurrency);
+
+        List<KingbaseExtractPlugin.TableExportResult> results = new ArrayList<>(settings.getTables());
+        ExportListener listener = ctx.getAttribute(ExportListener.CONTEXT_KEY);
+        if (listener != null) {
+            listener.onExportPlanned(settings.getTables());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<KingbaseExtractPlugin.TableExportResult>> futures = new ArrayList<>();
+            for (int i = 0; i < settings.getTables(); i++) {
+                final int index = i;
+                futures.add(executor.submit(() -> exportTable(ctx, settings, index, rowsPerTable[index])));
+            }
+            for (Future<KingbaseExtractPlugin.TableExportResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (Exception e) {
+                    throw new RuntimeException("合成数据导出失败", e);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        ctx.setAttribute("exportResults", results);
+        Long taskId = ctx.getTaskId();
+        for (KingbaseExtractPlugin.TableExportResult result : results) {
+            metricsCollector.recordTableStats(taskId, result.getTableName(), result.getRowCount());
+            if (ctx.getAttribute(ExportSink.CONTEXT_KEY) == null) {
+                metricsCollector.recordFileStats(taskId, result.getFilePath());
+            }
+        }
+        log.info("合成数据卸载完成，共 {} 张表", results.size());
+    }
+
+    /**
+     * 生成一张表：流式卸载时写入导出通道，否则写入工作目录文件并边写边计算 SM3 与字节数
+     */
+    private KingbaseExtractPlugin.TableExportResult exportTable(TaskExecutionContext context,
+                                                                SyntheticSettings settings, int index,
+                                                                long rows) throws IOException {
+        String table = SyntheticSettings.tableName(index);
+        Path file = prepareOutputFile(context, table + ".txt");
+        SyntheticRowWriter writer = new SyntheticRowWriter(settings.getColumns(), settings.getTextLength(),
+            settings.getSeed() + index);
+
+        ExportSink sink = context.getAttribute(ExportSink.CONTEXT_KEY);
+        if (sink != null) {
+            try (OutputStream out = new BufferedOutputStream(sink.openDataFile(file.getFileName().toString()),
+                OUTPUT_BUFFER_SIZE)) {
+                writeRows(writer, rows, out);
+            }
+            return new KingbaseExtractPlugin.TableExportResult(table, file, rows);
+        }
+
+        long chunkTreeSize = ManifestService.chunkTreeSize(context.getGlobalConfig());
+        MessageDigest digest = chunkTreeSize > 0
+            ? smCryptoManager.newSm3ChunkTreeDigest(chunkTreeSize) : smCryptoManager.newSm3Digest();
+        CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(file.toFile()));
+        try (OutputStream out = new BufferedOutputStream(new DigestOutputStream(counter, digest),
+            OUTPUT_BUFFER_SIZE)) {
+            writeRows(writer, rows, out);
+        }
+        KingbaseExtractPlugin.TableExportResult result = new KingbaseExtractPlugin.TableExportResult(table, file, rows);
+        result.setSize(counter.getByteCount());
+        result.setSm3(smCryptoManager.toHex(digest.digest()));
+        Sm3ChunkTree chunkTree = digest instanceof Sm3ChunkTreeDigest ? ((Sm3ChunkTreeDigest) digest).getTree() : null;
+        result.setChunkTree(chunkTree);
+        log.debug("合成表 {} 生成完成，{} 行，{} 字节", table, rows, counter.getByteCount());
+        ExportListener listener = context.getAttribute(ExportListener.CONTEXT_KEY);
+        if (listener != null) {
+            listener.onFileExported(result);
+        }
+        return result;
+    }
+
+    private static void writeRows(SyntheticRowWriter writer, long rows, OutputStream out) throws IOException {
+        for (long row = 1; row <= rows; row++) {
+            writer.writeRow(row, out);
+        }
+    }
+
+    private Path prepareOutputFile(TaskExecutionContext context, String fileName) throws IOException {
+        JobConfig jobConfig = context.getJobConfig();
+        String jobName = jobConfig.getJob().getName();
+        String baseWorkDir = jobConfig.getWorkDir();
+        if (baseWorkDir == null && context.getGlobalConfig().getExtract() != null) {
+            baseWorkDir = context.getGlobalConfig().getExtract().getWorkDir();
+        }
+        if (baseWorkDir == null) {
+            baseWorkDir = "work";
+        }
+        Path dir = Paths.get(baseWorkDir, jobName, context.getBatchNumber(), "data");
+        Files.createDirectories(dir);
+        return dir.resolve(fileName);
+    }
+
+    /**
+     * 并发度：作业 runtime.table_concurrency 优先，其次全局 concurrency.default_table_concurrency，默认串行
+     */
+    private int getConcurrency(TaskExecutionContext context) {
+        JobConfig.RuntimeConfig runtime = context.getJobConfig().getRuntime();
+        if (runtime != null && runtime.getTableConcurrency() != null) {
+            return runtime.getTableConcurrency();
+        }
+        if (context.getGlobalConfig().getConcurrency() != null
+            && context.getGlobalConfig().getConcurrency().getDefaultTableConcurrency() != null) {
+            return context.getGlobalConfig().getConcurrency().getDefaultTableConcurrency();
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,200 @@
+package org.csits.kel.server.plugin.synthetic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.csits.kel.manager.plugin.LoadPlugin;
+import org.csits.kel.server.constants.JobType;
+import org.csits.kel.server.dto.JobConfig;
+import org.csits.kel.server.dto.ManifestMetadata;
+import org.csits.kel.server.dto.TaskExecutionContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * 合成数据加载插件（job.type=SYNTHETIC_LOAD）。
+ *
+ * 解包校验后逐个读取工作目录 data/ 下的数据文件，按 COPY 文本格式逐行解析、核对列数，
+ * 并与 manifest 记录的行数比对，结果写入 loadTableStats。不写入数据库，
+ * 代替 COPY FROM 消费数据，使加载侧流水线（解密、解压、解包、校验、读取）可以独立测量。
+ */
+@Slf4j
+@Component
+public class SyntheticLoadPlugin implements LoadPlugin {
+
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    @Override
+    public boolean supports(Object context) {
+        if (!(context instanceof TaskExecutionContext)) {
+            return false;
+        }
+        TaskExecutionContext ctx = (TaskExecutionContext) context;
+        JobConfig.JobBasic job = ctx.getJobConfig().getJob();
+        return job != null && job.getType() == JobType.SYNTHETIC_LOAD;
+    }
+
+    @Override
+    public void load(Object context) throws Exception {
+        TaskExecutionContext ctx = (TaskExecutionContext) context;
+        Path workDir = resolveWorkDir(ctx);
+        Path dataDir = workDir.resolve("data");
+        if (Files.notExists(dataDir) || !Files.isDirectory(dataDir)) {
+            log.warn("作业 {} 工作目录下无 data 目录: {}", ctx.getJobName(), dataDir);
+            return;
+        }
+        SyntheticSettings settings = SyntheticSettings.resolve(ctx.getJobConfig());
+        int expectedColumns = settings.getColumns().size();
+        List<ManifestMetadata.FileInfo> files = listDataFiles(ctx, workDir, dataDir);
+        int concurrency = Math.max(1, Math.min(getConcurrency(ctx), files.size()));
+
+        List<Long> fileRows = new ArrayList<>(files.size());
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Long>> futures = new ArrayList<>(files.size());
+            for (ManifestMetadata.FileInfo fileInfo : files) {
+                Path file = workDir.resolve(fileInfo.getName());
+                futures.add(executor.submit(() -> consume(file, expectedColumns)));
+            }
+            for (Future<Long> future : futures) {
+                try {
+                    fileRows.add(future.get());
+                } catch (Exception e) {
+                    throw new RuntimeException("合成数据加载失败", e);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // 按表汇总，manifest 记录了行数的表核对行数（流式卸载按大小切段的表只在表级记录行数，此处不核对）
+        Map<String, Long> loadTableStats = new LinkedHashMap<>();
+        Map<String, Long> expectedRows = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            ManifestMetadata.FileInfo fileInfo = files.get(i);
+            String table = fileInfo.getTableName() != null ? fileInfo.getTableName() : fileInfo.getName();
+            loadTableStats.merge(table, fileRows.get(i), Long::sum);
+            if (fileInfo.getRowCount() == null) {
+                expectedRows.put(table, -1L);
+            } else if (expectedRows.getOrDefault(table, 0L) >= 0) {
+                expectedRows.merge(table, fileInfo.getRowCount(), Long::sum);
+            }
+        }
+        for (Map.Entry<String, Long> e : expectedRows.entrySet()) {
+            long actual = loadTableStats.get(e.getKey());
+            if (e.getValue() >= 0 && e.getValue() != actual) {
+                throw new IllegalStateException("表 " + e.getKey() + " 行数不一致: manifest=" + e.getValue()
+                    + "，实际=" + actual);
+            }
+        }
+        ctx.setAttribute("loadTableStats", loadTableStats);
+        log.info("作业 {} 合成数据加载完成，共 {} 个文件、{} 张表", ctx.getJobName(), files.size(), loadTableStats.size());
+    }
+
+    /**
+     * 读取并解析一个数据文件，核对每行列数
+     *
+     * @return 行数
+     */
+    static long consume(Path file, int expectedColumns) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        long rows = 0;
+        int columns = 1;
+        boolean partialRow = false;
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    byte b = buffer[i];
+                    if (b == '\t') {
+                        columns++;
+                    } else if (b == '\n') {
+                        if (columns != expectedColumns) {
+                            throw new IOException("数据文件 " + file.getFileName() + " 第 " + (rows + 1) + " 行列数为 "
+                                + columns + "，应为 " + expectedColumns);
+                        }
+                        rows++;
+                        columns = 1;
+                        partialRow = false;
+                        continue;
+                    }
+                    partialRow = true;
+                }
+            }
+        }
+        if (partialRow) {
+            throw new IOException("数据文件 " + file.getFileName() + " 末行不完整");
+        }
+        return rows;
+    }
+
+    /**
+     * 数据文件清单：优先取校验阶段放入上下文的 manifest，否则扫描 data 目录（以文件名作为表名）
+     */
+    private List<ManifestMetadata.FileInfo> listDataFiles(TaskExecutionContext ctx, Path workDir, Path dataDir)
+        throws IOException {
+        ManifestMetadata manifest = ctx.getAttribute("manifest");
+        if (manifest != null && manifest.getFiles() != null) {
+            return manifest.getFiles().stream()
+                .filter(f -> f.getName() != null && f.getName().startsWith("data/"))
+                .collect(Collectors.toList());
+        }
+        try (Stream<Path> stream = Files.list(dataDir)) {
+            return stream
+                .filter(Files::isRegularFile)
+                .sorted()
+                .map(p -> {
+                    ManifestMetadata.FileInfo fileInfo = new ManifestMetadata.FileInfo();
+                    fileInfo.setName(workDir.relativize(p).toString().replace('\\', '/'));
+                    fileInfo.setTableName(p.getFileName().toString());
+                    return fileInfo;
+                })
+                .collect(Collectors.toList());
+        }
+    }
+
+    private Path resolveWorkDir(TaskExecutionContext ctx) {
+        JobConfig jobConfig = ctx.getJobConfig();
+        String jobName = jobConfig.getJob().getName();
+        String baseWorkDir = jobConfig.getWorkDir();
+        if (baseWorkDir == null && ctx.getGlobalConfig().getExtract() != null) {
+            baseWorkDir = ctx.getGlobalConfig().getExtract().getWorkDir();
+        }
+        if (baseWorkDir == null) {
+            baseWorkDir = "work";
+        }
+        return Paths.get(baseWorkDir, jobName, ctx.getBatchNumber());
+    }
+
+    private int getConcurrency(TaskExecutionContext context) {
+        JobConfig.RuntimeConfig runtime = context.getJobConfig().getRuntime();
+        if (runtime != null && runtime.getTableConcurrency() != null) {
+            return runtime.getTableConcurrency();
+        }
+        if (context.getGlobalConfig().getConcurrency() != null
+            && context.getGlobalConfig().getConcurrency().getDefaultTableConcurrency() != null) {
+            return context.getGlobalConfig().getConcurrency().getDefaultTableConcurrency();
+        }
+        return 1;
+    }
+}
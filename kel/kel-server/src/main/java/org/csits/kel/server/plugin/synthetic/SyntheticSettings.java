@@ -0,0 +1,105 @@
+package org.csits.kel.server.plugin.synthetic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+import org.csits.kel.server.dto.JobConfig;
+
+/**
+ * 合成数据参数解析，未配置的项使用默认值。
+ *
+ * 卸载与加载两侧按同一份配置解析：加载侧据此核对每行的列数。
+ */
+@Getter
+final class SyntheticSettings {
+
+    private static final int DEFAULT_TABLES = 4;
+    private static final long DEFAULT_ROWS = 100000L;
+    private static final int DEFAULT_TEXT_LENGTH = 32;
+    private static final long DEFAULT_SEED = 42L;
+    private static final List<String> DEFAULT_COLUMNS = Arrays.asList("bigint", "text", "numeric", "timestamp");
+
+    private final int tables;
+    private final long rows;
+    private final List<SyntheticColumnType> columns;
+    private final int textLength;
+    private final double skew;
+    private final long seed;
+
+    private SyntheticSettings(int tables, long rows, List<SyntheticColumnType> columns, int textLength,
+                              double skew, long seed) {
+        this.tables = tables;
+        this.rows = rows;
+        this.columns = columns;
+        this.textLength = textLength;
+        this.skew = skew;
+        this.seed = seed;
+    }
+
+    /**
+     * 解析作业的 synthetic 配置
+     *
+     * @throws IllegalArgumentException 配置值非法
+     */
+    static SyntheticSettings resolve(JobConfig jobConfig) {
+        JobConfig.SyntheticConfig config = jobConfig != null ? jobConfig.getSynthetic() : null;
+        if (config == null) {
+            config = new JobConfig.SyntheticConfig();
+        }
+        int tables = config.getTables() != null ? config.getTables() : DEFAULT_TABLES;
+        long rows = config.getRows() != null ? config.getRows() : DEFAULT_ROWS;
+        int textLength = config.getTextLength() != null ? config.getTextLength() : DEFAULT_TEXT_LENGTH;
+        double skew = config.getSkew() != null ? config.getSkew() : 0D;
+        long seed = config.getSeed() != null ? config.getSeed() : DEFAULT_SEED;
+        if (tables <= 0) {
+            throw new IllegalArgumentException("synthetic.tables 必须大于 0: " + tables);
+        }
+        if (rows < 0) {
+            throw new IllegalArgumentException("synthetic.rows 不能为负数: " + rows);
+        }
+        if (textLength < 0) {
+            throw new IllegalArgumentException("synthetic.text_length 不能为负数: " + textLength);
+        }
+        if (skew < 0) {
+            throw new IllegalArgumentException("synthetic.skew 不能为负数: " + skew);
+        }
+        List<String> names = config.getColumns() != null && !config.getColumns().isEmpty()
+            ? config.getColumns() : DEFAULT_COLUMNS;
+        List<SyntheticColumnType> columns = new ArrayList<>(names.size());
+        for (String name : names) {
+            columns.add(SyntheticColumnType.fromName(name));
+        }
+        return new SyntheticSettings(tables, rows, columns, textLength, skew, seed);
+    }
+
+    /**
+     * 第 index 张表（从 0 开始）的表名
+     */
+    static String tableName(int index) {
+        return String.format("synthetic_t%03d", index);
+    }
+
+    /**
+     * 按 Zipf 权重 1/(i+1)^skew 将总行数分配到各表，余数依次补给靠前的表，合计恰为 rows
+     */
+    long[] rowsPerTable() {
+        double[] weights = new double[tables];
+        double totalWeight = 0;
+        for (int i = 0; i < tables; i++) {
+            weights[i] = 1D / Math.pow(i + 1, skew);
+            totalWeight += weights[i];
+        }
+        long[] result = new long[tables];
+        long assigned = 0;
+        for (int i = 0; i < tables; i++) {
+            result[i] = (long) Math.floor(rows * weights[i] / totalWeight);
+            assigned += result[i];
+        }
+        for (int i = 0; assigned < rows; i = (i + 1) % tables) {
+            result[i]++;
+            assigned++;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package org.csits.kel.server.service;
+
+import org.csits.kel.manager.compression.CompressionCodec;
+import org.csits.kel.manager.compression.CompressionOptions;
+import org.csits.kel.server.dto.GlobalConfig;
+import org.csits.kel.server.dto.JobConfig;
+import org.csits.kel.server.dto.TaskExecutionContext;
+
+/**
+ * 压缩参数解析。
+ *
+ * 压缩算法：作业 settings.compression.algorithm 优先，其次全局 compression.algorithm，默认 gzip；
+ * 线程数、块大小、压缩级别取全局 compression 配置。压缩级别按所选编码校验范围，编码不支持级别（lz4、none）时忽略。
+ */
+final class CompressionSettings {
+
+    private CompressionSettings() {
+    }
+
+    /**
+     * 解析压缩编码
+     *
+     * @throws IllegalArgumentException 配置了不支持的算法
+     */
+    static CompressionCodec resolveCodec(TaskExecutionContext context) {
+        JobConfig.Settings settings = context.getJobConfig() != null ? context.getJobConfig().getSettings() : null;
+        if (settings != null && settings.getCompression() != null
+            && !isBlank(settings.getCompression().getAlgorithm())) {
+            return CompressionCodec.fromName(settings.getCompression().getAlgorithm());
+        }
+        GlobalConfig.CompressionConfig compression =
+            context.getGlobalConfig() != null ? context.getGlobalConfig().getCompression() : null;
+        return CompressionCodec.fromName(compression != null ? compression.getAlgorithm() : null);
+    }
+
+    /**
+     * 生成压缩参数，未配置的项使用默认值
+     *
+     * @throws IllegalArgumentException 配置了不支持的算法或超出范围的压缩级别
+     */
+    static CompressionOptions resolve(TaskExecutionContext context) {
+        CompressionOptions options = CompressionOptions.defaults();
+        options.setCodec(resolveCodec(context));
+        GlobalConfig.CompressionConfig compression =
+            context.getGlobalConfig() != null ? context.getGlobalConfig().getCompression() : null;
+        if (compression == null) {
+            return options;
+        }
+        if (compression.getThreads() != null && compression.getThreads() > 0) {
+            options.setThreads(compression.getThreads());
+        }
+        if (compression.getBlockSizeKb() != null && compression.getBlockSizeKb() > 0) {
+            options.setBlockSize(compression.getBlockSizeKb() * 1024);
+        }
+        if (compression.getLevel() != null && options.getCodec().supportsLevel()) {
+            options.getCodec().validateLevel(compression.getLevel());
+            options.setLevel(compression.getLevel());
+        }
+        return options;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
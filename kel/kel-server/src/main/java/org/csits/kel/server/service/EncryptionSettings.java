@@ -0,0 +1,38 @@
+package org.csits.kel.server.service;
+
+import org.csits.kel.manager.security.Sm4Mode;
+import org.csits.kel.manager.security.Sm4Options;
+import org.csits.kel.server.dto.GlobalConfig;
+
+/**
+ * SM4 加密参数解析。
+ *
+ * 模式、段大小、线程数取全局 security 配置，未配置时为 cbc、4MB、单线程。
+ */
+final class EncryptionSettings {
+
+    private EncryptionSettings() {
+    }
+
+    /**
+     * 生成 SM4 参数，未配置的项使用默认值
+     *
+     * @throws IllegalArgumentException 配置了不支持的模式
+     */
+    static Sm4Options resolve(GlobalConfig globalConfig) {
+        Sm4Options options = Sm4Options.defaults();
+        GlobalConfig.SecurityConfig security = globalConfig != null ? globalConfig.getSecurity() : null;
+        if (security == null) {
+            return options;
+        }
+        options.setMode(Sm4Mode.fromName(security.getSm4Mode()));
+        if (security.getSm4SegmentMb() != null && security.getSm4SegmentMb() > 0) {
+            long segmentBytes = security.getSm4SegmentMb() * 1024L * 1024L;
+            options.setSegmentSize((int) Math.min(segmentBytes, Sm4Options.MAX_SEGMENT_SIZE));
+        }
+        if (security.getSm4Threads() != null && security.getSm4Threads() > 0) {
+            options.setThreads(security.getSm4Threads());
+        }
+        return options;
+    }
+}
@@ -82,4 +82,20 @@ public class FileNamingService {
     public String generateSimpleFileName(String name) {
         return name.replace(".", "_") + ".txt";
     }
+
+    /**
+     * 生成分段文件名：在扩展名前插入段序号，如 t_order.txt -> t_order.p001.txt
+     *
+     * @param fileName 逻辑文件名
+     * @param partIndex 段序号（从 1 开始）
+     * @return 分段文件名
+     */
+    public static String generatePartFileName(String fileName, int partIndex) {
+        String part = String.format("p%03d", partIndex);
+        int dot = fileName.lastIndexOf('.');
+        if (dot <= 0) {
+            return fileName + "." + part;
+        }
+        return fileName.substring(0, dot) + "." + part + fileName.substring(dot);
+    }
 }
@@ -3,16 +3,30 @@ package org.csits.kel.server.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.csits.kel.manager.compression.RollingPartOutputStream;
+import org.csits.kel.manager.compression.SequentialPartInputStream;
+import org.csits.kel.manager.security.Sm3ChunkTree;
+import org.csits.kel.manager.security.Sm3ChunkTreeDigest;
 import org.csits.kel.manager.security.SmCryptoManager;
+import org.csits.kel.server.constants.CopyFormat;
 import org.csits.kel.server.dto.GlobalConfig;
 import org.csits.kel.server.dto.ManifestMetadata;
 import org.csits.kel.server.dto.TaskExecutionContext;
@@ -27,6 +41,11 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class ManifestService {
 
+    /** 分片清单文件后缀 */
+    public static final String PART_MANIFEST_SUFFIX = ".manifest.json";
+
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+
     private final SmCryptoManager smCryptoManager;
     private final ObjectMapper objectMapper;
 
@@ -38,6 +57,145 @@ public class ManifestService {
      * @return Manifest元数据
      */
     public ManifestMetadata generateManifest(TaskExecutionContext context, Path workDir) throws IOException {
+        ManifestMetadata manifest = createManifest(context);
+
+        // 数据文件清单：按导出结果顺序登记；导出时已边写边算的大小与SM3直接使用，
+        // 其余文件（如 COPY TO 文件回退）由线程池并行计算，结果按登记顺序回填
+        List<ManifestMetadata.FileInfo> fileInfos = new ArrayList<>();
+        List<Path> dataFiles = new ArrayList<>();
+        Path dataDir = workDir.resolve("data");
+        if (Files.exists(dataDir) && Files.isDirectory(dataDir)) {
+            // 从context中获取导出结果
+            List<KingbaseExtractPlugin.TableExportResult> exportResults = context.getAttribute("exportResults");
+            if (exportResults != null) {
+                for (KingbaseExtractPlugin.TableExportResult result : exportResults) {
+                    // 二进制格式记录在每个文件上，加载侧据此选择 COPY 格式
+                    CopyFormat copyFormat = result.getCopyFormat() == CopyFormat.BINARY ? CopyFormat.BINARY : null;
+                    if (!result.isChunked()) {
+                        ManifestMetadata.FileInfo fileInfo =
+                            newFileInfo(result.getFilePath(), result.getTableName(), result.getRowCount());
+                        fileInfo.setCopyFormat(copyFormat);
+                        fileInfo.setSize(result.getSize());
+                        fileInfo.setSm3(result.getSm3());
+                        fileInfo.setChunkTree(toChunkTreeInfo(result.getChunkTree()));
+                        fileInfos.add(fileInfo);
+                        dataFiles.add(result.getFilePath());
+                        continue;
+                    }
+                    // 分段导出：每个分段文件一条记录，通过 table_name 归属同一逻辑表
+                    int partCount = result.getParts().size();
+                    for (KingbaseExtractPlugin.ExportPart part : result.getParts()) {
+                        ManifestMetadata.FileInfo fileInfo =
+                            newFileInfo(part.getFilePath(), result.getTableName(), part.getRowCount());
+                        fileInfo.setPartIndex(part.getIndex());
+                        fileInfo.setPartCount(partCount);
+                        fileInfo.setCopyFormat(copyFormat);
+                        fileInfo.setSize(part.getSize());
+                        fileInfo.setSm3(part.getSm3());
+                        fileInfo.setChunkTree(toChunkTreeInfo(part.getChunkTree()));
+                        fileInfos.add(fileInfo);
+                        dataFiles.add(part.getFilePath());
+                    }
+                }
+            }
+        }
+        List<Integer> unhashed = new ArrayList<>();
+        for (int i = 0; i < fileInfos.size(); i++) {
+            if (fileInfos.get(i).getSm3() == null || fileInfos.get(i).getSize() == null) {
+                unhashed.add(i);
+            }
+        }
+        int threads = hashThreads(context.getGlobalConfig());
+        long chunkTreeSize = chunkTreeSize(context.getGlobalConfig());
+        List<ManifestMetadata.FileInfo> hashed =
+            mapInOrder(unhashed, threads, i -> hashFile(dataFiles.get(i), chunkTreeSize));
+        for (int k = 0; k < unhashed.size(); k++) {
+            ManifestMetadata.FileInfo fileInfo = fileInfos.get(unhashed.get(k));
+            fileInfo.setSize(hashed.get(k).getSize());
+            fileInfo.setSm3(hashed.get(k).getSm3());
+            fileInfo.setChunkTree(hashed.get(k).getChunkTree());
+        }
+        manifest.setFiles(fileInfos);
+
+        log.info("生成manifest，包含 {} 个数据文件，其中 {} 个回读计算SM3（并发度 {}）",
+            fileInfos.size(), unhashed.size(), threads);
+        return manifest;
+    }
+
+    /**
+     * 为流式卸载生成manifest：文件清单来自导出通道写入归档时记录的条目（大小与SM3边写边算），不读取任何文件。
+     *
+     * @param context 任务执行上下文（exportResults 提供表名与行数）
+     * @param entries 导出通道写入归档的数据条目
+     * @return Manifest元数据
+     */
+    public ManifestMetadata generateStreamingManifest(TaskExecutionContext context,
+                                                      List<StreamingExportSink.EntryRecord> entries) {
+        ManifestMetadata manifest = createManifest(context);
+        List<ManifestMetadata.FileInfo> fileInfos = new ArrayList<>();
+        List<StreamingExportSink.EntryRecord> remaining = new ArrayList<>(entries);
+
+        List<KingbaseExtractPlugin.TableExportResult> exportResults = context.getAttribute("exportResults");
+        if (exportResults != null) {
+            for (KingbaseExtractPlugin.TableExportResult result : exportResults) {
+                // 逻辑表的每个数据文件（分段导出时为各段）及其行数
+                List<String> dataFileNames = new ArrayList<>();
+                List<Long> dataFileRows = new ArrayList<>();
+                if (result.isChunked()) {
+                    for (KingbaseExtractPlugin.ExportPart part : result.getParts()) {
+                        dataFileNames.add(part.getFilePath().getFileName().toString());
+                        dataFileRows.add(part.getRowCount());
+                    }
+                } else {
+                    dataFileNames.add(result.getFilePath().getFileName().toString());
+                    dataFileRows.add(result.getRowCount());
+                }
+
+                List<ManifestMetadata.FileInfo> tableFiles = new ArrayList<>();
+                for (int i = 0; i < dataFileNames.size(); i++) {
+                    String dataFileName = dataFileNames.get(i);
+                    List<StreamingExportSink.EntryRecord> fileEntries = remaining.stream()
+                        .filter(e -> dataFileName.equals(e.getSourceFileName()))
+                        .collect(Collectors.toList());
+                    remaining.removeAll(fileEntries);
+                    for (StreamingExportSink.EntryRecord entry : fileEntries) {
+                        ManifestMetadata.FileInfo fileInfo = buildFileInfo(entry, result.getTableName());
+                        // 数据文件按大小再切段时，行数只记录在表级（exportResults）中
+                        fileInfo.setRowCount(fileEntries.size() == 1 ? dataFileRows.get(i) : null);
+                        tableFiles.add(fileInfo);
+                    }
+                }
+                if (tableFiles.size() > 1) {
+                    for (int i = 0; i < tableFiles.size(); i++) {
+                        tableFiles.get(i).setPartIndex(i + 1);
+                        tableFiles.get(i).setPartCount(tableFiles.size());
+                    }
+                }
+                fileInfos.addAll(tableFiles);
+            }
+        }
+        for (StreamingExportSink.EntryRecord entry : remaining) {
+            fileInfos.add(buildFileInfo(entry, null));
+        }
+        manifest.setFiles(fileInfos);
+
+        log.info("生成流式manifest，包含 {} 个数据文件", fileInfos.size());
+        return manifest;
+    }
+
+    /**
+     * 序列化manifest为JSON字节（与 writeManifest 输出格式一致），用于直接写入归档
+     */
+    public byte[] toJsonBytes(ManifestMetadata manifest) throws IOException {
+        ObjectMapper mapper = objectMapper.copy();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        return mapper.writeValueAsBytes(manifest);
+    }
+
+    /**
+     * 创建manifest基本信息（作业、批次、压缩与加密配置），不含文件清单
+     */
+    private ManifestMetadata createManifest(TaskExecutionContext context) {
         ManifestMetadata manifest = new ManifestMetadata();
 
         // 基本信息
@@ -45,14 +203,14 @@ public class ManifestService {
         manifest.setBatchNumber(context.getBatchNumber());
         manifest.setTimestamp(ZonedDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
 
-        // 压缩配置
+        // 压缩配置：记录实际使用的压缩编码，加载侧以文件头识别为准
         GlobalConfig.CompressionConfig compression = context.getGlobalConfig().getCompression();
+        ManifestMetadata.CompressionInfo compressionInfo = new ManifestMetadata.CompressionInfo();
+        compressionInfo.setAlgorithm(CompressionSettings.resolveCodec(context).getCodecName());
         if (compression != null) {
-            ManifestMetadata.CompressionInfo compressionInfo = new ManifestMetadata.CompressionInfo();
-            compressionInfo.setAlgorithm(compression.getAlgorithm());
             compressionInfo.setSplitThresholdGb(compression.getSplitThresholdGb());
-            manifest.setCompression(compressionInfo);
         }
+        manifest.setCompression(compressionInfo);
 
         // 加密配置
         GlobalConfig.SecurityConfig security = context.getGlobalConfig().getSecurity();
@@ -60,31 +218,44 @@ public class ManifestService {
             ManifestMetadata.EncryptionInfo encryptionInfo = new ManifestMetadata.EncryptionInfo();
             encryptionInfo.setEnabled(security.getEnableEncryption());
             encryptionInfo.setAlgorithm("SM4");
+            encryptionInfo.setMode(EncryptionSettings.resolve(context.getGlobalConfig()).getMode().getModeName());
             manifest.setEncryption(encryptionInfo);
         }
+        return manifest;
+    }
 
-        // 数据文件清单
-        List<ManifestMetadata.FileInfo> fileInfos = new ArrayList<>();
-        Path dataDir = workDir.resolve("data");
-        if (Files.exists(dataDir) && Files.isDirectory(dataDir)) {
-            // 从context中获取导出结果
-            List<KingbaseExtractPlugin.TableExportResult> exportResults = context.getAttribute("exportResults");
-            if (exportResults != null) {
-                for (KingbaseExtractPlugin.TableExportResult result : exportResults) {
-                    ManifestMetadata.FileInfo fileInfo = new ManifestMetadata.FileInfo();
-                    Path file = result.getFilePath();
-                    fileInfo.setName("data/" + file.getFileName().toString());
-                    fileInfo.setSize(Files.size(file));
-                    fileInfo.setSm3(smCryptoManager.calculateSm3(file));
-                    fileInfo.setTableName(result.getTableName());
-                    fileInfo.setRowCount(result.getRowCount());
-                    fileInfos.add(fileInfo);
-                }
-            }
-        }
-        manifest.setFiles(fileInfos);
+    /**
+     * 数据文件记录，大小与SM3由调用方并行计算后回填
+     */
+    private ManifestMetadata.FileInfo newFileInfo(Path file, String tableName, long rowCount) {
+        ManifestMetadata.FileInfo fileInfo = new ManifestMetadata.FileInfo();
+        fileInfo.setName("data/" + file.getFileName().toString());
+        fileInfo.setTableName(tableName);
+        fileInfo.setRowCount(rowCount);
+        return fileInfo;
+    }
+
+    private ManifestMetadata.FileInfo buildFileInfo(StreamingExportSink.EntryRecord entry, String tableName) {
+        ManifestMetadata.FileInfo fileInfo = new ManifestMetadata.FileInfo();
+        fileInfo.setName("data/" + entry.getFileName());
+        fileInfo.setSize(entry.getSize());
+        fileInfo.setSm3(entry.getSm3());
+        fileInfo.setTableName(tableName);
+        return fileInfo;
+    }
 
-        log.info("生成manifest，包含 {} 个数据文件", fileInfos.size());
+    /**
+     * 生成分片清单：记录归档各分片（落盘字节，启用加密时为密文）的大小与SM3，写在分片旁供加载侧校验。
+     * 归档内的 manifest.json 无法包含归档自身的校验值，因此分片信息单独成文件。
+     *
+     * @param context 任务执行上下文
+     * @param parts 归档分片（大小与摘要在写入时计算）
+     * @return Manifest元数据（不含数据文件清单）
+     */
+    public ManifestMetadata generatePartManifest(TaskExecutionContext context,
+                                                 List<RollingPartOutputStream.PartInfo> parts) {
+        ManifestMetadata manifest = createManifest(context);
+        addSplitInfo(manifest, parts);
         return manifest;
     }
 
@@ -92,23 +263,101 @@ public class ManifestService {
      * 添加分片信息到manifest
      *
      * @param manifest Manifest元数据
-     * @param splitFiles 分片文件列表
+     * @param parts 分片信息（大小与SM3摘要在写入分片时计算，无需回读文件）
      */
-    public void addSplitInfo(ManifestMetadata manifest, List<Path> splitFiles) throws IOException {
+    public void addSplitInfo(ManifestMetadata manifest, List<RollingPartOutputStream.PartInfo> parts) {
         List<ManifestMetadata.SplitInfo> splitInfos = new ArrayList<>();
-        int index = 1;
-        for (Path splitFile : splitFiles) {
+        for (RollingPartOutputStream.PartInfo part : parts) {
             ManifestMetadata.SplitInfo splitInfo = new ManifestMetadata.SplitInfo();
-            splitInfo.setName(splitFile.getFileName().toString());
-            splitInfo.setSize(Files.size(splitFile));
-            splitInfo.setSm3(smCryptoManager.calculateSm3(splitFile));
-            splitInfo.setIndex(index++);
+            splitInfo.setName(part.getFile().getFileName().toString());
+            splitInfo.setSize(part.getSize());
+            splitInfo.setSm3(part.getDigest() != null ? smCryptoManager.toHex(part.getDigest()) : null);
+            splitInfo.setIndex(part.getIndex());
+            splitInfo.setChunkTree(toChunkTreeInfo(part.getChunkTree()));
             splitInfos.add(splitInfo);
         }
         manifest.setSplits(splitInfos);
         log.info("添加 {} 个分片文件到manifest", splitInfos.size());
     }
 
+    /**
+     * 归档的分片清单路径：与归档同目录，如 job_20260101_001.tar.gz.manifest.json
+     */
+    public static Path partManifestPath(Path archive) {
+        return archive.resolveSibling(archive.getFileName().toString() + PART_MANIFEST_SUFFIX);
+    }
+
+    /**
+     * 查找输入目录中的分片清单，不存在（早期版本卸载的批次）时返回 null
+     */
+    public ManifestMetadata findPartManifest(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return null;
+        }
+        Path partManifest;
+        try (java.util.stream.Stream<Path> stream = Files.list(dir)) {
+            partManifest = stream
+                .filter(Files::isRegularFile)
+                .filter(p -> p.getFileName().toString().endsWith(PART_MANIFEST_SUFFIX))
+                .findFirst()
+                .orElse(null);
+        }
+        return partManifest != null ? parseManifest(partManifest) : null;
+    }
+
+    /**
+     * 校验分片清单登记的分片均存在
+     *
+     * @throws IOException 存在缺失分片
+     */
+    public void checkPartsPresent(ManifestMetadata partManifest, Path dir) throws IOException {
+        if (partManifest.getSplits() == null) {
+            return;
+        }
+        List<String> missing = partManifest.getSplits().stream()
+            .map(ManifestMetadata.SplitInfo::getName)
+            .filter(name -> !Files.isRegularFile(dir.resolve(name)))
+            .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            throw new IOException("分片文件缺失: " + missing);
+        }
+    }
+
+    /**
+     * 按分片清单创建分片校验器，供串联解压时逐片校验大小与SM3；
+     * 不一致且分片带分块校验树时，按块定位损坏的字节区间并写入异常信息
+     *
+     * @param threads 定位损坏区间时的并发度
+     */
+    public SequentialPartInputStream.PartVerifier newPartVerifier(ManifestMetadata partManifest, int threads) {
+        return (part, size, digest) -> verifyPart(partManifest, part, size, smCryptoManager.toHex(digest), threads);
+    }
+
+    /**
+     * 按分片清单校验单个分片
+     *
+     * @param sm3 分片的 SM3 十六进制值
+     * @throws IOException 分片未登记或大小、SM3 不一致
+     */
+    private void verifyPart(ManifestMetadata partManifest, Path part, long size, String sm3, int threads)
+        throws IOException {
+        String name = part.getFileName().toString();
+        ManifestMetadata.SplitInfo splitInfo = partManifest.getSplits() == null ? null
+            : partManifest.getSplits().stream().filter(s -> name.equals(s.getName())).findFirst().orElse(null);
+        if (splitInfo == null) {
+            throw new IOException("分片未在分片清单中登记: " + name);
+        }
+        if (splitInfo.getSize() != null && splitInfo.getSize() != size) {
+            throw new IOException("分片大小不匹配: " + name + " (期望=" + splitInfo.getSize() + ", 实际=" + size + ")"
+                + describeDamage(part, splitInfo.getSize(), splitInfo.getChunkTree(), threads));
+        }
+        if (splitInfo.getSm3() != null && !splitInfo.getSm3().equalsIgnoreCase(sm3)) {
+            throw new IOException("分片SM3校验失败: " + name + " (期望=" + splitInfo.getSm3() + ", 实际=" + sm3 + ")"
+                + describeDamage(part, splitInfo.getSize(), splitInfo.getChunkTree(), threads));
+        }
+        log.info("分片校验通过: {}", name);
+    }
+
     /**
      * 写入manifest.json到文件
      *
@@ -140,48 +389,70 @@ public class ManifestService {
     }
 
     /**
-     * 校验manifest完整性
+     * 校验manifest完整性（单线程）
      *
      * @param manifest Manifest元数据
      * @param dataDir 数据目录
      * @return 是否校验通过
      */
     public boolean validateManifest(ManifestMetadata manifest, Path dataDir) {
+        return validateManifest(manifest, dataDir, 1);
+    }
+
+    /**
+     * 校验manifest完整性，各文件的SM3由线程池并行计算，日志按manifest顺序输出
+     *
+     * @param manifest Manifest元数据
+     * @param dataDir 数据目录
+     * @param threads SM3计算并发度
+     * @return 是否校验通过
+     */
+    public boolean validateManifest(ManifestMetadata manifest, Path dataDir, int threads) {
+        return validateManifest(manifest, dataDir, null, threads);
+    }
+
+    /**
+     * 校验manifest完整性：解包时已记录大小与SM3的文件直接比对记录值，其余文件由线程池并行回读计算
+     *
+     * @param manifest Manifest元数据
+     * @param dataDir 数据目录
+     * @param unpacked 解包时边写边算的文件大小与SM3（键为归档内条目名，如 data/t1.txt），可为 null
+     * @param threads SM3计算并发度
+     * @return 是否校验通过
+     */
+    public boolean validateManifest(ManifestMetadata manifest, Path dataDir,
+                                    Map<String, ManifestMetadata.FileInfo> unpacked, int threads) {
         if (manifest.getFiles() == null || manifest.getFiles().isEmpty()) {
             log.warn("Manifest中没有文件记录");
             return true; // 空manifest视为有效
         }
 
-        boolean allValid = true;
-        for (ManifestMetadata.FileInfo fileInfo : manifest.getFiles()) {
-            Path file = dataDir.resolve(fileInfo.getName());
-            if (!Files.exists(file)) {
-                log.error("文件不存在: {}", fileInfo.getName());
-                allValid = false;
-                continue;
-            }
-
-            try {
-                long actualSize = Files.size(file);
-                if (actualSize != fileInfo.getSize()) {
-                    log.error("文件大小不匹配: {} (期望={}, 实际={})",
-                        fileInfo.getName(), fileInfo.getSize(), actualSize);
-                    allValid = false;
-                    continue;
-                }
-
-                String actualSm3 = smCryptoManager.calculateSm3(file);
-                if (!actualSm3.equals(fileInfo.getSm3())) {
-                    log.error("SM3校验和不匹配: {} (期望={}, 实际={})",
-                        fileInfo.getName(), fileInfo.getSm3(), actualSm3);
-                    allValid = false;
-                    continue;
+        // 文件间已并行时，单个文件内按块并行的线程数相应减少，总并发度不超过 threads
+        int chunkThreads = Math.max(1, threads / Math.max(1, Math.min(threads, manifest.getFiles().size())));
+        List<String> errors;
+        try {
+            errors = mapInOrder(manifest.getFiles(), threads, fileInfo -> {
+                ManifestMetadata.FileInfo actual = unpacked != null ? unpacked.get(fileInfo.getName()) : null;
+                String error = actual != null ? compareFile(fileInfo, actual.getSize(), actual.getSm3())
+                    : checkFile(fileInfo, dataDir, chunkThreads);
+                if (error != null && actual != null && fileInfo.getChunkTree() != null) {
+                    error += describeDamage(dataDir.resolve(fileInfo.getName()), fileInfo.getSize(),
+                        fileInfo.getChunkTree(), chunkThreads);
                 }
+                return error;
+            });
+        } catch (IOException e) {
+            log.error("校验manifest失败", e);
+            return false;
+        }
 
-                log.debug("文件校验通过: {}", fileInfo.getName());
-            } catch (IOException e) {
-                log.error("校验文件失败: {}", fileInfo.getName(), e);
+        boolean allValid = true;
+        for (int i = 0; i < errors.size(); i++) {
+            if (errors.get(i) != null) {
+                log.error(errors.get(i));
                 allValid = false;
+            } else {
+                log.debug("文件校验通过: {}", manifest.getFiles().get(i).getName());
             }
         }
 
@@ -194,6 +465,238 @@ public class ManifestService {
         return allValid;
     }
 
+    /**
+     * 校验单个文件的存在性、大小与SM3；带分块校验树的文件按块并行校验，发现损坏块即停止
+     *
+     * @return 校验失败原因，通过时为 null
+     */
+    private String checkFile(ManifestMetadata.FileInfo fileInfo, Path dataDir, int chunkThreads) {
+        Path file = dataDir.resolve(fileInfo.getName());
+        if (!Files.exists(file)) {
+            return "文件不存在: " + fileInfo.getName();
+        }
+        try {
+            Sm3ChunkTree chunkTree = toChunkTree(fileInfo.getChunkTree(), fileInfo.getSize());
+            if (chunkTree != null) {
+                List<Sm3ChunkTree.ChunkRange> damaged = chunkTree.verify(file, smCryptoManager, chunkThreads, true);
+                return damaged.isEmpty() ? null
+                    : "分块SM3校验失败: " + fileInfo.getName() + "，损坏区间 " + formatRanges(damaged);
+            }
+            long actualSize = Files.size(file);
+            if (actualSize != fileInfo.getSize()) {
+                return compareFile(fileInfo, actualSize, null);
+            }
+            return compareFile(fileInfo, actualSize, smCryptoManager.calculateSm3(file));
+        } catch (IOException e) {
+            log.error("校验文件失败: {}", fileInfo.getName(), e);
+            return "校验文件失败: " + fileInfo.getName() + ": " + e.getMessage();
+        }
+    }
+
+    /**
+     * 比对文件大小与SM3（actualSm3 为 null 时只比对大小）
+     *
+     * @return 不一致原因，一致时为 null
+     */
+    private static String compareFile(ManifestMetadata.FileInfo fileInfo, long actualSize, String actualSm3) {
+        if (actualSize != fileInfo.getSize()) {
+            return "文件大小不匹配: " + fileInfo.getName() + " (期望=" + fileInfo.getSize() + ", 实际=" + actualSize + ")";
+        }
+        if (actualSm3 != null && !actualSm3.equals(fileInfo.getSm3())) {
+            return "SM3校验和不匹配: " + fileInfo.getName()
+                + " (期望=" + fileInfo.getSm3() + ", 实际=" + actualSm3 + ")";
+        }
+        return null;
+    }
+
+    /**
+     * 定位文件中与记录不一致的字节区间，供交付层只重传损坏的块或分片。
+     * 带分块校验树时校验全部块；否则按整体大小与SM3判定，不一致时整个文件计为一个区间。
+     *
+     * @param file 待检查的文件
+     * @param size 记录的文件大小
+     * @param sm3 记录的SM3
+     * @param chunkTree 记录的分块校验树，可为 null
+     * @param threads 按块校验的并发度
+     * @return 损坏的字节区间（按块序号排列），为空表示与记录一致
+     */
+    public List<Sm3ChunkTree.ChunkRange> findDamagedRanges(Path file, Long size, String sm3,
+                                                          ManifestMetadata.ChunkTreeInfo chunkTree, int threads)
+        throws IOException {
+        Sm3ChunkTree tree = toChunkTree(chunkTree, size);
+        if (tree != null) {
+            return tree.verify(file, smCryptoManager, threads, false);
+        }
+        List<Sm3ChunkTree.ChunkRange> damaged = new ArrayList<>();
+        long actualSize = Files.exists(file) ? Files.size(file) : 0L;
+        boolean sizeMatches = size == null || size == actualSize;
+        if (!sizeMatches || (sm3 != null && !sm3.equalsIgnoreCase(smCryptoManager.calculateSm3(file)))) {
+            damaged.add(new Sm3ChunkTree.ChunkRange(0, 0L, Math.max(actualSize, size != null ? size : 0L)));
+        }
+        return damaged;
+    }
+
+    /**
+     * 损坏区间说明，附加在校验失败信息之后；无分块校验树或定位失败时为空串
+     */
+    private String describeDamage(Path file, Long size, ManifestMetadata.ChunkTreeInfo chunkTree, int threads) {
+        if (chunkTree == null || !Files.isRegularFile(file)) {
+            return "";
+        }
+        try {
+            List<Sm3ChunkTree.ChunkRange> damaged = findDamagedRanges(file, size, null, chunkTree, threads);
+            return damaged.isEmpty() ? "" : "，损坏区间 " + formatRanges(damaged);
+        } catch (IOException e) {
+            log.warn("定位损坏区间失败: {}", file, e);
+            return "";
+        }
+    }
+
+    /**
+     * 损坏区间格式化为 [起始, 结束) 列表
+     */
+    private static String formatRanges(List<Sm3ChunkTree.ChunkRange> ranges) {
+        return ranges.stream()
+            .map(r -> "[" + r.getOffset() + ", " + (r.getOffset() + r.getLength()) + ")")
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * 读取文件计算大小、SM3，启用时同时计算分块校验树
+     */
+    private ManifestMetadata.FileInfo hashFile(Path file, long chunkTreeSize) throws IOException {
+        ManifestMetadata.FileInfo hashed = new ManifestMetadata.FileInfo();
+        if (chunkTreeSize <= 0) {
+            hashed.setSize(Files.size(file));
+            hashed.setSm3(smCryptoManager.calculateSm3(file));
+            return hashed;
+        }
+        Sm3ChunkTreeDigest digest = smCryptoManager.newSm3ChunkTreeDigest(chunkTreeSize);
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        hashed.setSm3(smCryptoManager.toHex(digest.digest()));
+        hashed.setSize(digest.getTree().getSize());
+        hashed.setChunkTree(toChunkTreeInfo(digest.getTree()));
+        return hashed;
+    }
+
+    /**
+     * 按配置创建数据文件与分片的摘要器工厂：启用分块校验时同时记录分块校验树
+     */
+    public Supplier<MessageDigest> dataDigestFactory(GlobalConfig globalConfig) {
+        long chunkTreeSize = chunkTreeSize(globalConfig);
+        if (chunkTreeSize > 0) {
+            return () -> smCryptoManager.newSm3ChunkTreeDigest(chunkTreeSize);
+        }
+        return smCryptoManager::newSm3Digest;
+    }
+
+    /**
+     * 分块校验树写入manifest的形式；只有一个块时与整体SM3相同，不记录
+     */
+    private static ManifestMetadata.ChunkTreeInfo toChunkTreeInfo(Sm3ChunkTree tree) {
+        if (tree == null || tree.getLeaves().size() <= 1) {
+            return null;
+        }
+        ManifestMetadata.ChunkTreeInfo info = new ManifestMetadata.ChunkTreeInfo();
+        info.setChunkSize(tree.getChunkSize());
+        info.setRoot(tree.getRoot());
+        info.setLeaves(new ArrayList<>(tree.getLeaves()));
+        return info;
+    }
+
+    /**
+     * 由manifest记录还原分块校验树（根节点不参与逐块比对）；记录不完整时返回 null
+     */
+    private static Sm3ChunkTree toChunkTree(ManifestMetadata.ChunkTreeInfo info, Long size) {
+        if (info == null || info.getChunkSize() == null || info.getChunkSize() <= 0
+            || info.getLeaves() == null || size == null) {
+            return null;
+        }
+        long expectedLeaves = (size + info.getChunkSize() - 1) / info.getChunkSize();
+        if (expectedLeaves != info.getLeaves().size()) {
+            log.warn("分块校验树与文件大小不符，忽略: 叶子数={}, 大小={}", info.getLeaves().size(), size);
+            return null;
+        }
+        return new Sm3ChunkTree(info.getChunkSize(), size, info.getLeaves(), info.getRoot());
+    }
+
+    /**
+     * 分块校验树的块大小（字节）：global.security.sm3_chunk_mb，未配置或为 0 时不记录（返回 0）。
+     * 启用后写入时每个字节多计算一次SM3（整体与分块各一次）
+     */
+    public static long chunkTreeSize(GlobalConfig globalConfig) {
+        GlobalConfig.SecurityConfig security = globalConfig != null ? globalConfig.getSecurity() : null;
+        Integer chunkMb = security != null ? security.getSm3ChunkMb() : null;
+        if (chunkMb == null || chunkMb <= 0) {
+            return 0L;
+        }
+        return Math.max(chunkMb * 1024L * 1024L, Sm3ChunkTree.MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * SM3计算并发度：global.concurrency.hash_threads，未配置时为 1
+     */
+    static int hashThreads(GlobalConfig globalConfig) {
+        GlobalConfig.ConcurrencyConfig concurrency = globalConfig != null ? globalConfig.getConcurrency() : null;
+        if (concurrency != null && concurrency.getHashThreads() != null && concurrency.getHashThreads() > 0) {
+            return concurrency.getHashThreads();
+        }
+        return 1;
+    }
+
+    /**
+     * 可抛出 IOException 的映射函数
+     */
+    @FunctionalInterface
+    private interface IoFunction<T, R> {
+
+        R apply(T item) throws IOException;
+    }
+
+    /**
+     * 由有界线程池并行映射，结果按输入顺序返回；并发度为 1 或只有一项时在当前线程顺序执行。
+     * 任一项失败时取消其余任务并抛出该项的异常。
+     */
+    private static <T, R> List<R> mapInOrder(List<T> items, int threads, IoFunction<T, R> function)
+        throws IOException {
+        List<R> results = new ArrayList<>(items.size());
+        int poolSize = Math.min(threads, items.size());
+        if (poolSize <= 1) {
+            for (T item : items) {
+                results.add(function.apply(item));
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        try {
+            List<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> function.apply(item)));
+            }
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("并行计算失败", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("并行计算被中断");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * 查找分片文件
      *
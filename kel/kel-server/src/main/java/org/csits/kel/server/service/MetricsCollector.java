@@ -189,7 +189,8 @@ public class MetricsCollector {
                 // 序列化为JSON并保存到数据库
                 String statsJson = objectMapper.writeValueAsString(stats);
 
-                TaskExecutionEntity entity = taskExecutionRepository.findById(taskId).orElse(null);
+                // 只读状态投影、只写 statistics 列
+                TaskExecutionEntity entity = taskExecutionRepository.findStateById(taskId).orElse(null);
                 if (entity != null) {
                     entity.setStatistics(statsJson);
                     taskExecutionRepository.save(entity);
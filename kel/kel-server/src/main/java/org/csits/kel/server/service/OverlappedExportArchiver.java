@@ -0,0 +1,232 @@
+package org.csits.kel.server.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.csits.kel.manager.compression.ArchiveWriter;
+import org.csits.kel.manager.security.Sm3ChunkTreeDigest;
+import org.csits.kel.manager.security.SmCryptoManager;
+import org.csits.kel.server.plugin.ExportListener;
+import org.csits.kel.server.plugin.kingbase.KingbaseExtractPlugin;
+
+/**
+ * 落盘卸载的阶段重叠：插件每写完一个数据文件即放入有界队列，由归档线程依次写入压缩归档，
+ * 导出、压缩打包（含分片与加密）同时进行，不必等待全部表导出完成。
+ *
+ * - 队列满时导出线程在 {@link #onFileExported} 中阻塞，导出最多领先归档 队列容量 个文件
+ * - 导出时未计算SM3的文件（COPY TO 文件回退）在归档前回读计算，结果写回导出结果，供 manifest 使用
+ * - 导出结束后 {@link #finish} 归档工作目录中其余未通知的文件；manifest.json 由调用方最后写入
+ * 进度按 EXPORT+COMPRESS 两个阶段同时上报。
+ */
+@Slf4j
+class OverlappedExportArchiver implements ExportListener {
+
+    /** 归档线程结束标记 */
+    private static final KingbaseExtractPlugin.TableExportResult END_OF_EXPORT =
+        new KingbaseExtractPlugin.TableExportResult("", null, 0L);
+    private static final long OFFER_WAIT_MS = 200L;
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+
+    private final ArchiveWriter archiveWriter;
+    private final Path workDir;
+    private final SmCryptoManager smCryptoManager;
+    private final Supplier<MessageDigest> digestFactory;
+    private final ProgressTracker progressTracker;
+    private final Long taskId;
+    private final BlockingQueue<KingbaseExtractPlugin.TableExportResult> queue;
+    private final Set<Path> archived = new HashSet<>();
+    private final AtomicInteger plannedFiles = new AtomicInteger();
+    private final AtomicInteger exportedFiles = new AtomicInteger();
+    private final Thread worker;
+    private volatile Throwable failure;
+    private int lastExportPercent = -1;
+    private int lastCompressPercent = -1;
+
+    /**
+     * @param archiveWriter 归档写入器
+     * @param workDir 工作目录，条目名为相对工作目录的路径
+     * @param smCryptoManager 用于回读计算SM3
+     * @param digestFactory 数据文件摘要器工厂（启用时含分块校验树）
+     * @param progressTracker 进度上报
+     * @param taskId 任务ID
+     * @param queueCapacity 待归档文件队列容量
+     */
+    OverlappedExportArchiver(ArchiveWriter archiveWriter, Path workDir, SmCryptoManager smCryptoManager,
+                             Supplier<MessageDigest> digestFactory, ProgressTracker progressTracker,
+                             Long taskId, int queueCapacity) {
+        this.archiveWriter = archiveWriter;
+        this.workDir = workDir.toAbsolutePath().normalize();
+        this.smCryptoManager = smCryptoManager;
+        this.digestFactory = digestFactory;
+        this.progressTracker = progressTracker;
+        this.taskId = taskId;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.worker = new Thread(this::run, "kel-overlap-archiver-" + taskId);
+        this.worker.setDaemon(true);
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    @Override
+    public void onExportPlanned(int fileCount) {
+        plannedFiles.set(fileCount);
+    }
+
+    @Override
+    public void onFileExported(KingbaseExtractPlugin.TableExportResult result) throws IOException {
+        exportedFiles.incrementAndGet();
+        enqueue(result);
+    }
+
+    /**
+     * 等待队列中的文件归档完成，再归档工作目录中其余未通知的文件（manifest.json 除外）
+     */
+    void finish() throws IOException {
+        enqueue(END_OF_EXPORT);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待归档线程结束被中断");
+        }
+        checkFailure();
+
+        List<Path> remaining;
+        try (java.util.stream.Stream<Path> stream = Files.walk(workDir)) {
+            remaining = stream
+                .filter(Files::isRegularFile)
+                .map(p -> p.toAbsolutePath().normalize())
+                .filter(p -> !archived.contains(p) && !p.equals(workDir.resolve("manifest.json")))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        for (Path file : remaining) {
+            putFile(file);
+        }
+        log.info("重叠归档完成：导出时归档 {} 个文件，导出结束后补充归档 {} 个文件",
+            archived.size() - remaining.size(), remaining.size());
+    }
+
+    /**
+     * 失败时停止归档线程，不再等待队列处理完
+     */
+    void abort() {
+        failure = failure != null ? failure : new IOException("卸载已中止");
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 放入队列；队列满时阻塞等待，期间归档线程失败则抛出其异常，避免导出线程永久阻塞
+     */
+    private void enqueue(KingbaseExtractPlugin.TableExportResult result) throws IOException {
+        try {
+            while (!queue.offer(result, OFFER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待归档队列被中断");
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IOException("归档数据文件失败", cause);
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                KingbaseExtractPlugin.TableExportResult result = queue.take();
+                if (result == END_OF_EXPORT) {
+                    return;
+                }
+                if (result.getSm3() == null || result.getSize() == null) {
+                    hash(result);
+                }
+                for (Path file : result.getDataFiles()) {
+                    putFile(file.toAbsolutePath().normalize());
+                }
+                reportProgress();
+            }
+        } catch (InterruptedException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        } catch (Throwable e) {
+            log.error("归档数据文件失败", e);
+            failure = e;
+        }
+    }
+
+    private void putFile(Path file) throws IOException {
+        archiveWriter.putFile(workDir.relativize(file).toString(), file);
+        archived.add(file);
+        log.debug("归档数据文件: {}", file);
+    }
+
+    /**
+     * 回读计算大小、SM3 与分块校验树，写回导出结果
+     */
+    private void hash(KingbaseExtractPlugin.TableExportResult result) throws IOException {
+        MessageDigest digest = digestFactory.get();
+        long size = 0L;
+        try (InputStream in = Files.newInputStream(result.getFilePath())) {
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        result.setSm3(smCryptoManager.toHex(digest.digest()));
+        result.setSize(size);
+        if (digest instanceof Sm3ChunkTreeDigest) {
+            result.setChunkTree(((Sm3ChunkTreeDigest) digest).getTree());
+        }
+    }
+
+    /**
+     * 上报 EXPORT 与 COMPRESS 的进度，仅在百分比变化时写入
+     */
+    private void reportProgress() {
+        int exported = exportedFiles.get();
+        int total = Math.max(plannedFiles.get(), exported);
+        int exportPercent = plannedFiles.get() > 0 ? Math.min(100, exported * 100 / plannedFiles.get()) : 0;
+        int compressPercent = total > 0 ? Math.min(100, archived.size() * 100 / total) : 0;
+        if (exportPercent == lastExportPercent && compressPercent == lastCompressPercent) {
+            return;
+        }
+        lastExportPercent = exportPercent;
+        lastCompressPercent = compressPercent;
+        Map<ProgressTracker.ExtractStage, Integer> stages = new EnumMap<>(ProgressTracker.ExtractStage.class);
+        stages.put(ProgressTracker.ExtractStage.EXPORT, exportPercent);
+        stages.put(ProgressTracker.ExtractStage.COMPRESS, compressPercent);
+        progressTracker.updateExtractProgress(taskId, stages);
+    }
+}
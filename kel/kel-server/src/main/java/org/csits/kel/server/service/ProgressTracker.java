@@ -10,7 +10,8 @@ import org.springframework.stereotype.Service;
 
 /**
  * 任务进度跟踪服务
- * 提供细粒度的进度跟踪和阶段管理
+ * 提供细粒度的进度跟踪和阶段管理。本节点执行中的任务进度只写 {@link TaskStateRegistry}，
+ * 由其合并写库，查询也直接读内存。
  */
 @Slf4j
 @Service
@@ -18,6 +19,7 @@ import org.springframework.stereotype.Service;
 public class ProgressTracker {
 
     private final TaskExecutionRepository taskExecutionRepository;
+    private final TaskStateRegistry taskStateRegistry;
 
     /**
      * 阶段定义（卸载流程）
@@ -98,6 +100,32 @@ public class ProgressTracker {
         updateProgress(taskId, stage.name(), stage.getDescription(), totalProgress);
     }
 
+    /**
+     * 更新重叠执行的多个阶段的进度（卸载流程），如导出与压缩打包同时进行。
+     * 当前阶段记为各阶段名以 + 连接（如 EXPORT+COMPRESS）；总进度取各阶段折算值的最小值，
+     * 即由最靠前的阶段决定，之后切换回单阶段进度时不会回退。
+     */
+    public void updateExtractProgress(Long taskId, Map<ExtractStage, Integer> stageProgress) {
+        if (stageProgress.isEmpty()) {
+            return;
+        }
+        StringBuilder stageName = new StringBuilder();
+        StringBuilder description = new StringBuilder();
+        int totalProgress = 100;
+        for (Map.Entry<ExtractStage, Integer> entry : stageProgress.entrySet()) {
+            ExtractStage stage = entry.getKey();
+            if (stageName.length() > 0) {
+                stageName.append('+');
+                description.append('、');
+            }
+            stageName.append(stage.name());
+            description.append(stage.getDescription()).append(' ').append(entry.getValue()).append('%');
+            totalProgress = Math.min(totalProgress,
+                calculateProgress(stage.getStartProgress(), stage.getEndProgress(), entry.getValue()));
+        }
+        updateProgress(taskId, stageName.toString(), description.toString(), totalProgress);
+    }
+
     /**
      * 更新任务进度（加载流程）
      */
@@ -110,16 +138,22 @@ public class ProgressTracker {
      * 更新任务进度（通用）
      */
     public void updateProgress(Long taskId, String stageName, String stageDescription, int progress) {
-        TaskExecutionEntity entity = taskExecutionRepository.findById(taskId).orElse(null);
-        if (entity == null) {
-            log.warn("任务不存在，无法更新进度: taskId={}", taskId);
-            return;
+        int clamped = Math.min(100, Math.max(0, progress));
+        boolean local = taskStateRegistry.update(taskId, state -> {
+            state.setCurrentStage(stageName);
+            state.setProgress(clamped);
+        });
+        if (!local) {
+            TaskExecutionEntity entity = taskExecutionRepository.findStateById(taskId).orElse(null);
+            if (entity == null) {
+                log.warn("任务不存在，无法更新进度: taskId={}", taskId);
+                return;
+            }
+            entity.setCurrentStage(stageName);
+            entity.setProgress(clamped);
+            taskExecutionRepository.updateState(entity);
         }
 
-        entity.setCurrentStage(stageName);
-        entity.setProgress(Math.min(100, Math.max(0, progress)));
-        taskExecutionRepository.save(entity);
-
         log.debug("任务进度更新: taskId={}, stage={}, progress={}%",
             taskId, stageDescription, progress);
     }
@@ -133,10 +167,11 @@ public class ProgressTracker {
     }
 
     /**
-     * 获取任务进度信息
+     * 获取任务进度信息，本节点执行中的任务直接读内存
      */
     public Map<String, Object> getProgressInfo(Long taskId) {
-        TaskExecutionEntity entity = taskExecutionRepository.findById(taskId).orElse(null);
+        TaskExecutionEntity entity = taskStateRegistry.find(taskId)
+            .orElseGet(() -> taskExecutionRepository.findStateById(taskId).orElse(null));
         if (entity == null) {
             return null;
         }
@@ -176,11 +211,19 @@ public class ProgressTracker {
      * 重置任务进度
      */
     public void resetProgress(Long taskId) {
-        TaskExecutionEntity entity = taskExecutionRepository.findById(taskId).orElse(null);
+        boolean local = taskStateRegistry.update(taskId, state -> {
+            state.setProgress(0);
+            state.setCurrentStage("INIT");
+        });
+        if (local) {
+            log.info("任务进度已重置: taskId={}", taskId);
+            return;
+        }
+        TaskExecutionEntity entity = taskExecutionRepository.findStateById(taskId).orElse(null);
         if (entity != null) {
             entity.setProgress(0);
             entity.setCurrentStage("INIT");
-            taskExecutionRepository.save(entity);
+            taskExecutionRepository.updateState(entity);
             log.info("任务进度已重置: taskId={}", taskId);
         }
     }
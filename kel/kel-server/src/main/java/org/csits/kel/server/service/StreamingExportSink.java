@@ -0,0 +1,177 @@
+package org.csits.kel.server.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.csits.kel.manager.compression.ArchiveWriter;
+import org.csits.kel.manager.security.SmCryptoManager;
+import org.csits.kel.server.plugin.ExportSink;
+
+/**
+ * 流式卸载的导出通道：插件写入的数据在内存中按段缓冲，满段后直接作为归档条目写入压缩流，不落工作目录。
+ *
+ * - tar 条目需要预先知道大小，因此按段（默认 64MB）缓冲，段边界对齐到行尾（换行符），每段都是可独立加载的数据文件
+ * - 数据只有一段时条目名与原文件名一致；多段时按 FileNamingService#generatePartFileName 命名为 xxx.p001.txt 等
+ * - 每段写入归档时同步计算 SM3，供 manifest 使用，无需回读
+ * 内存占用约为 并发度 × 段大小。
+ */
+@Slf4j
+public class StreamingExportSink implements ExportSink {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final ArchiveWriter archiveWriter;
+    private final SmCryptoManager smCryptoManager;
+    private final int segmentSize;
+    private final List<EntryRecord> entries = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * @param archiveWriter 归档写入器
+     * @param smCryptoManager 用于计算条目 SM3
+     * @param segmentSize 段大小（字节）
+     */
+    public StreamingExportSink(ArchiveWriter archiveWriter, SmCryptoManager smCryptoManager, int segmentSize) {
+        this.archiveWriter = archiveWriter;
+        this.smCryptoManager = smCryptoManager;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public OutputStream openDataFile(String fileName) {
+        return new SegmentOutputStream(fileName);
+    }
+
+    /**
+     * 已写入归档的数据条目（按写入顺序）
+     */
+    public List<EntryRecord> getEntries() {
+        synchronized (entries) {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    /**
+     * 写入归档条目，返回条目记录
+     */
+    private EntryRecord writeEntry(String sourceFileName, String entryFileName, int segmentIndex,
+                                   byte[] data, int length) throws IOException {
+        MessageDigest digest = smCryptoManager.newSm3Digest();
+        digest.update(data, 0, length);
+        archiveWriter.putEntry("data/" + entryFileName, data, 0, length);
+
+        EntryRecord record = new EntryRecord();
+        record.setSourceFileName(sourceFileName);
+        record.setFileName(entryFileName);
+        record.setSegmentIndex(segmentIndex);
+        record.setSize(length);
+        record.setSm3(smCryptoManager.toHex(digest.digest()));
+        entries.add(record);
+        log.debug("流式写入归档条目: data/{}，{} 字节", entryFileName, length);
+        return record;
+    }
+
+    /**
+     * 单个数据文件的分段缓冲输出流
+     */
+    private class SegmentOutputStream extends OutputStream {
+
+        private final String fileName;
+        private byte[] buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, segmentSize)];
+        private int count;
+        private int segmentsWritten;
+        private boolean closed;
+
+        SegmentOutputStream(String fileName) {
+            this.fileName = fileName;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("数据文件输出流已关闭: " + fileName);
+            }
+            while (len > 0) {
+                if (count == buffer.length) {
+                    makeRoom();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * 缓冲区已满且仍有数据写入：未达段大小时扩容，否则把最后一个换行符之前的数据作为一段写出
+         */
+        private void makeRoom() throws IOException {
+            if (buffer.length < segmentSize) {
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, segmentSize));
+                return;
+            }
+            int cut = lastLineEnd();
+            if (cut == 0) {
+                // 单行超过段大小，继续扩容直到行结束
+                buffer = Arrays.copyOf(buffer, buffer.length + segmentSize);
+                return;
+            }
+            segmentsWritten++;
+            writeEntry(fileName, FileNamingService.generatePartFileName(fileName, segmentsWritten),
+                segmentsWritten, buffer, cut);
+            System.arraycopy(buffer, cut, buffer, 0, count - cut);
+            count -= cut;
+        }
+
+        private int lastLineEnd() {
+            for (int i = count - 1; i >= 0; i--) {
+                if (buffer[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (segmentsWritten == 0) {
+                writeEntry(fileName, fileName, 0, buffer, count);
+            } else if (count > 0) {
+                segmentsWritten++;
+                writeEntry(fileName, FileNamingService.generatePartFileName(fileName, segmentsWritten),
+                    segmentsWritten, buffer, count);
+            }
+            buffer = null;
+        }
+    }
+
+    /**
+     * 归档数据条目记录
+     */
+    @Data
+    public static class EntryRecord {
+        /** 插件打开的数据文件名 */
+        private String sourceFileName;
+        /** 归档中的文件名（data/ 之下） */
+        private String fileName;
+        /** 段序号，未分段为 0 */
+        private int segmentIndex;
+        private long size;
+        private String sm3;
+    }
+}
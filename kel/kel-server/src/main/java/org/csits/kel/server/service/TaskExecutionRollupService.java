@@ -0,0 +1,135 @@
+package org.csits.kel.server.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.csits.kel.dao.TaskExecutionDailyEntity;
+import org.csits.kel.dao.TaskExecutionDailyRepository;
+import org.csits.kel.dao.TaskExecutionEntity;
+import org.csits.kel.dao.TaskExecutionRepository;
+import org.springframework.stereotype.Service;
+
+/**
+ * 任务执行按日汇总服务
+ * 任务进入终态时将其计入 task_execution_daily（日期取 start_time，为空时取 created_at），
+ * 统计查询读取汇总，只有当天、起始日不完整的部分及未结束的任务查询原始记录。
+ *
+ * - 累加失败只记录告警，可通过 {@link #backfill} 按日期区间从原始记录重建
+ * - 任务离开终态（失败后重试）或被删除时撤销其计数
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TaskExecutionRollupService {
+
+    private static final Set<String> TERMINAL_STATUSES =
+        Collections.unmodifiableSet(new HashSet<>(Arrays.asList("SUCCESS", "FAILED", "CANCELLED")));
+
+    private final TaskExecutionRepository taskExecutionRepository;
+    private final TaskExecutionDailyRepository taskExecutionDailyRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 是否为终态（SUCCESS、FAILED、CANCELLED）
+     */
+    public static boolean isTerminal(String status) {
+        return status != null && TERMINAL_STATUSES.contains(status);
+    }
+
+    /**
+     * 将已写入终态的任务计入按日汇总
+     */
+    public void recordTerminal(Long taskId) {
+        addToRollup(taskId, 1);
+    }
+
+    /**
+     * 撤销任务在按日汇总中的计数，在任务离开终态或删除前调用
+     */
+    public void retractTerminal(Long taskId) {
+        addToRollup(taskId, -1);
+    }
+
+    /**
+     * 按状态统计任务数：完整的日取汇总，其余查询原始记录
+     *
+     * @param since 统计起始时间；为 null 时统计全部
+     * @param jobName 作业名；为 null 时统计全部作业
+     * @return 状态 -> 任务数
+     */
+    public Map<String, Long> countByStatus(LocalDateTime since, String jobName) {
+        LocalDate today = LocalDate.now();
+        LocalDate afterDate = since != null ? since.toLocalDate() : null;
+        Map<String, Long> counts = new LinkedHashMap<>(
+            taskExecutionDailyRepository.sumTaskCountByStatus(afterDate, today, jobName));
+        taskExecutionRepository.countUnrolledByStatus(since, today.atStartOfDay(), jobName)
+            .forEach((status, count) -> counts.merge(status, count, Long::sum));
+        return counts;
+    }
+
+    /**
+     * 从原始记录重建 [from, to] 的按日汇总
+     *
+     * @return 重建后的汇总行数
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("结束日期早于开始日期: from=" + from + ", to=" + to);
+        }
+        return taskExecutionDailyRepository.rebuild(from, to.plusDays(1));
+    }
+
+    private void addToRollup(Long taskId, int sign) {
+        try {
+            TaskExecutionEntity entity = taskExecutionRepository.findById(taskId).orElse(null);
+            if (entity == null || !isTerminal(entity.getStatus())) {
+                log.warn("任务不存在或未写入终态，跳过日汇总，可按日期回填修复: taskId={}, status={}",
+                    taskId, entity != null ? entity.getStatus() : null);
+                return;
+            }
+            TaskExecutionDailyEntity delta = toDaily(entity);
+            delta.setTaskCount(sign);
+            delta.setTotalRows(sign * delta.getTotalRows());
+            delta.setTotalBytes(sign * delta.getTotalBytes());
+            delta.setTotalDurationMs(sign * delta.getTotalDurationMs());
+            taskExecutionDailyRepository.add(delta);
+        } catch (Exception e) {
+            log.warn("更新任务日汇总失败，可按日期回填修复: taskId={}, {}", taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * 单个任务对应的汇总行（计数为 1）
+     */
+    private TaskExecutionDailyEntity toDaily(TaskExecutionEntity entity) {
+        LocalDateTime statTime = entity.getStartTime() != null ? entity.getStartTime() : entity.getCreatedAt();
+        TaskExecutionDailyEntity daily = new TaskExecutionDailyEntity();
+        daily.setStatDate(statTime.toLocalDate());
+        daily.setJobName(entity.getJobName());
+        daily.setStatus(entity.getStatus());
+        daily.setTaskCount(1L);
+        if (entity.getEndTime() != null) {
+            daily.setTotalDurationMs(Math.max(0L, Duration.between(statTime, entity.getEndTime()).toMillis()));
+        }
+        if (entity.getStatistics() != null && !entity.getStatistics().isEmpty()) {
+            try {
+                JsonNode statistics = objectMapper.readTree(entity.getStatistics());
+                daily.setTotalRows(statistics.path("totalRows").asLong());
+                daily.setTotalBytes(statistics.path("originalSize").asLong());
+            } catch (Exception e) {
+                log.warn("解析任务统计失败，行数与数据量按 0 计入: taskId={}, {}", entity.getId(), e.getMessage());
+            }
+        }
+        return daily;
+    }
+}
@@ -10,6 +10,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -19,15 +20,25 @@ import lombok.extern.slf4j.Slf4j;
 import org.csits.kel.dao.TaskExecutionEntity;
 import org.csits.kel.dao.TaskExecutionRepository;
 import org.csits.kel.dao.TaskExecutionStatus;
+import org.csits.kel.manager.compression.ArchiveWriter;
+import org.csits.kel.manager.compression.CompressionCodec;
 import org.csits.kel.manager.compression.CompressionManager;
+import org.csits.kel.manager.compression.CompressionOptions;
+import org.csits.kel.manager.compression.RollingPartOutputStream;
+import org.csits.kel.manager.compression.SequentialPartInputStream;
+import org.csits.kel.manager.compression.UnpackOptions;
 import org.csits.kel.manager.filesystem.FileSystemManager;
+import org.csits.kel.manager.security.Sm4Options;
 import org.csits.kel.manager.security.SmCryptoManager;
 import org.csits.kel.manager.plugin.ExtractPlugin;
 import org.csits.kel.manager.plugin.LoadPlugin;
+import org.csits.kel.server.constants.CopyFormat;
 import org.csits.kel.server.dto.GlobalConfig;
 import org.csits.kel.server.dto.JobConfig;
 import org.csits.kel.server.dto.ManifestMetadata;
 import org.csits.kel.server.dto.TaskExecutionContext;
+import org.csits.kel.server.plugin.ExportListener;
+import org.csits.kel.server.plugin.ExportSink;
 import org.csits.kel.server.plugin.kingbase.KingbaseExtractPlugin;
 import org.csits.kel.server.worker.core.ExtractPluginRegistry;
 import org.csits.kel.server.worker.core.LoadPluginRegistry;
@@ -39,6 +50,8 @@ import org.springframework.stereotype.Service;
  * - （预留）结构化数据导出/加载
  * - 打包压缩与分片
  * - 调用占位的国密加密
+ * - 流式卸载（runtime.streaming_pipeline）：导出、清单、压缩、分片与加密在一次写入中完成，不落工作目录
+ * - 落盘卸载默认阶段重叠（runtime.stage_overlap）：每个数据文件导出完成即进入压缩打包，与其余表的导出同时进行
  */
 @Slf4j
 @Service
@@ -46,6 +59,8 @@ import org.springframework.stereotype.Service;
 public class TaskExecutionService {
 
     private static final int MAX_PATH_LOG_ENTRIES = 500;
+    private static final int DEFAULT_STREAM_SEGMENT_MB = 64;
+    private static final int DEFAULT_OVERLAP_QUEUE_SIZE = 4;
 
     private final TaskExecutionRepository taskExecutionRepository;
     private final FileSystemManager fileSystemManager;
@@ -58,7 +73,6 @@ public class TaskExecutionService {
     private final RetryService retryService;
     private final MetricsCollector metricsCollector;
     private final DiskSpaceChecker diskSpaceChecker;
-    private final FileDeliveryService fileDeliveryService;
     private final TaskStateMachine taskStateMachine;
     private final ProgressTracker progressTracker;
 
@@ -175,14 +189,40 @@ public class TaskExecutionService {
         metricsCollector.recordStageEnd(taskId, "INIT", "SUCCESS", "初始化完成");
         progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.INIT, 100);
 
+        ExtractPlugin plugin = extractPluginRegistry.select(context);
+        if (plugin != null && plugin.supportsStreaming() && isStreamingPipeline(jobConfig)) {
+            executeStreamingExtract(context, plugin);
+        } else {
+            executeStagedExtract(context, plugin, workDirPath);
+        }
+
+        // 完成任务
+        progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.FINALIZE, 100);
+        // 持久化统计信息
+        metricsCollector.persistTaskStatistics(taskId);
+        taskLogger.markSuccess(taskId, "卸载任务完成");
+        taskStateMachine.markSuccess(taskId, "卸载任务完成");
+    }
+
+    /**
+     * 分阶段卸载：导出到工作目录，再依次生成清单、压缩分片、加密；
+     * 启用阶段重叠（runtime.stage_overlap，默认开启）时导出与压缩打包同时进行
+     */
+    private void executeStagedExtract(TaskExecutionContext context, ExtractPlugin plugin, Path workDirPath)
+        throws Exception {
+        if (plugin != null && isStageOverlap(context.getJobConfig())) {
+            executeOverlappedExtract(context, plugin, workDirPath);
+            return;
+        }
+        Long taskId = context.getTaskId();
+
         // 通过插件执行结构化数据导出/非结构化采集
         progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.EXPORT, 0);
         metricsCollector.recordStageStart(taskId, "EXPORT");
-        ExtractPlugin plugin = extractPluginRegistry.select(context);
         if (plugin != null) {
             plugin.extract(context);
             logExportTableStats(taskId, context.getAttribute("exportResults"));
-            logFilePathMappings(taskId, context.getAttribute("extractPathMappings"), "EXPORT", 50, "源: ", " -> 目标: ");
+            logFilePathMappings(taskId, context.getAttribute("extractPathMappings"), "EXPORT", "源: ", " -> 目标: ");
             taskLogger.logProgress(taskId, "EXPORT", 50, "数据导出完成");
             metricsCollector.recordStageEnd(taskId, "EXPORT", "SUCCESS", "数据导出完成");
         } else {
@@ -201,42 +241,246 @@ public class TaskExecutionService {
         metricsCollector.recordStageEnd(taskId, "MANIFEST", "SUCCESS", "生成manifest完成");
         progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.MANIFEST, 100);
 
-        // 压缩与分片
+        // 压缩、分片与加密：归档直接写入滚动分片，启用加密时逐片 SM4 加密，数据只写一次
         progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.COMPRESS, 0);
         metricsCollector.recordStageStart(taskId, "COMPRESS");
+        String key = resolveEncryptionKey(context.getGlobalConfig());
         long originalSize = calculateDirectorySize(workDirPath);
-        Path tarGz = compressAndSplit(context, workDirPath);
-        long compressedSize = java.nio.file.Files.size(tarGz);
+        long start = System.currentTimeMillis();
+        RollingPartOutputStream parts = compressAndSplit(context, workDirPath, key);
+        long duration = System.currentTimeMillis() - start;
+        long compressedSize = parts.getParts().stream().mapToLong(RollingPartOutputStream.PartInfo::getSize).sum();
         metricsCollector.recordCompressionStats(taskId, originalSize, compressedSize);
-        taskLogger.logProgress(taskId, "POST_PROCESS", 80, "压缩与分片完成，主文件=" + tarGz);
+        if (parts.getParts().size() > 1) {
+            metricsCollector.recordSplitStats(taskId, parts.getPartFiles());
+        }
+        if (key != null) {
+            // 加密与压缩在同一条流中完成，记录压缩阶段耗时
+            metricsCollector.recordEncryptionStats(taskId, duration);
+        }
+        taskLogger.logProgress(taskId, "POST_PROCESS", 90, "压缩与分片完成" + (key != null ? "（SM4加密）" : "")
+            + "，共 " + parts.getParts().size() + " 个文件，主文件=" + parts.getPartFiles().get(0));
         metricsCollector.recordStageEnd(taskId, "COMPRESS", "SUCCESS", "压缩完成");
         progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.COMPRESS, 100);
+        progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.ENCRYPT, 100);
+    }
 
-        // 加密处理
-        GlobalConfig globalConfigForEncrypt = context.getGlobalConfig();
-        if (globalConfigForEncrypt.getSecurity() != null && Boolean.TRUE.equals(globalConfigForEncrypt.getSecurity().getEnableEncryption())) {
-            String key = globalConfigForEncrypt.getSecurity().getSm4Key();
-            if (key == null || key.isEmpty()) {
-                log.warn("启用了加密但未配置SM4密钥，跳过加密");
-            } else {
-                progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.ENCRYPT, 0);
-                metricsCollector.recordStageStart(taskId, "ENCRYPT");
-                long encryptStart = System.currentTimeMillis();
-                encryptFiles(tarGz.getParent(), key);
-                long encryptDuration = System.currentTimeMillis() - encryptStart;
-                metricsCollector.recordEncryptionStats(taskId, encryptDuration);
-                taskLogger.logProgress(taskId, "ENCRYPT", 90, "文件加密完成");
-                metricsCollector.recordStageEnd(taskId, "ENCRYPT", "SUCCESS", "加密完成");
-                progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.ENCRYPT, 100);
+    /**
+     * 阶段重叠的落盘卸载：插件每写完一个数据文件即进入有界队列，由归档线程写入滚动分片（启用时逐片 SM4 加密），
+     * 导出与压缩打包、分片、加密同时进行；全部导出后生成清单，manifest.json 作为最后一个条目写入归档。
+     * 归档内容与分阶段流程一致，只是条目顺序按文件完成先后排列。
+     */
+    private void executeOverlappedExtract(TaskExecutionContext context, ExtractPlugin plugin, Path workDirPath)
+        throws Exception {
+        Long taskId = context.getTaskId();
+        GlobalConfig globalConfig = context.getGlobalConfig();
+
+        Path targetDir = resolveExchangeBatchDir(context);
+        fileSystemManager.ensureDirectory(targetDir);
+        CompressionOptions compressionOptions = CompressionSettings.resolve(context);
+        Path archive = targetDir.resolve(context.getJobConfig().getJob().getName() + "_"
+            + context.getBatchNumber() + compressionOptions.getCodec().getArchiveExtension());
+        String key = resolveEncryptionKey(globalConfig);
+
+        progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.EXPORT, 0);
+        metricsCollector.recordStageStart(taskId, "EXPORT");
+        metricsCollector.recordStageStart(taskId, "COMPRESS");
+        taskLogger.logProgress(taskId, "EXPORT", 10, "数据导出开始，导出与压缩打包重叠执行，输出=" + archive
+            + (key != null ? "，SM4加密" : ""));
+        long start = System.currentTimeMillis();
+
+        RollingPartOutputStream parts = new RollingPartOutputStream(archive, getSplitThresholdBytes(globalConfig),
+            partEncryptor(context, key), manifestService.dataDigestFactory(globalConfig));
+        ArchiveWriter archiveWriter = null;
+        OverlappedExportArchiver archiver = null;
+        try {
+            archiveWriter = compressionManager.openArchiveWriter(parts, compressionOptions);
+            archiver = new OverlappedExportArchiver(archiveWriter, workDirPath, smCryptoManager,
+                manifestService.dataDigestFactory(globalConfig), progressTracker, taskId,
+                getOverlapQueueSize(context.getJobConfig()));
+            archiver.start();
+            context.setAttribute(ExportListener.CONTEXT_KEY, archiver);
+            try {
+                plugin.extract(context);
+            } finally {
+                context.getAttributes().remove(ExportListener.CONTEXT_KEY);
             }
+            logExportTableStats(taskId, context.getAttribute("exportResults"));
+            logFilePathMappings(taskId, context.getAttribute("extractPathMappings"), "EXPORT", "源: ", " -> 目标: ");
+            taskLogger.logProgress(taskId, "EXPORT", 50, "数据导出完成");
+            metricsCollector.recordStageEnd(taskId, "EXPORT", "SUCCESS", "数据导出完成");
+
+            // 队列中尚未归档的文件与未通知的文件归档完成后再生成清单
+            archiver.finish();
+            progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.EXPORT, 100);
+
+            progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.MANIFEST, 0);
+            metricsCollector.recordStageStart(taskId, "MANIFEST");
+            ManifestMetadata manifest = manifestService.generateManifest(context, workDirPath);
+            Path manifestFile = workDirPath.resolve("manifest.json");
+            manifestService.writeManifest(manifest, manifestFile);
+            archiveWriter.putFile("manifest.json", manifestFile);
+            taskLogger.logProgress(taskId, "MANIFEST", 60, "生成manifest.json完成");
+            metricsCollector.recordStageEnd(taskId, "MANIFEST", "SUCCESS", "生成manifest完成");
+            progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.MANIFEST, 100);
+
+            archiveWriter.close();
+            writePartManifest(context, archive, parts);
+        } catch (Exception e) {
+            if (archiver != null) {
+                archiver.abort();
+            }
+            if (archiveWriter != null) {
+                try {
+                    archiveWriter.close();
+                } catch (IOException closeError) {
+                    log.debug("关闭归档写入器失败: {}", closeError.getMessage());
+                }
+            }
+            parts.abort();
+            throw new IOException("压缩和交付失败", e);
         }
+        long duration = System.currentTimeMillis() - start;
 
-        // 完成任务
-        progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.FINALIZE, 100);
-        // 持久化统计信息
-        metricsCollector.persistTaskStatistics(taskId);
-        taskLogger.markSuccess(taskId, "卸载任务完成");
-        taskStateMachine.markSuccess(taskId, "卸载任务完成");
+        long originalSize = calculateDirectorySize(workDirPath);
+        long compressedSize = parts.getParts().stream().mapToLong(RollingPartOutputStream.PartInfo::getSize).sum();
+        metricsCollector.recordCompressionStats(taskId, originalSize, compressedSize);
+        if (parts.getParts().size() > 1) {
+            metricsCollector.recordSplitStats(taskId, parts.getPartFiles());
+        }
+        if (key != null) {
+            // 加密与导出、压缩重叠执行，记录整段耗时
+            metricsCollector.recordEncryptionStats(taskId, duration);
+        }
+        taskLogger.logProgress(taskId, "POST_PROCESS", 90, "压缩与分片完成" + (key != null ? "（SM4加密）" : "")
+            + "，共 " + parts.getParts().size() + " 个文件，主文件=" + parts.getPartFiles().get(0));
+        metricsCollector.recordStageEnd(taskId, "COMPRESS", "SUCCESS", "压缩完成（与导出重叠执行）");
+        progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.COMPRESS, 100);
+        progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.ENCRYPT, 100);
+    }
+
+    /**
+     * 流式卸载：插件的 COPY 输出经导出通道直接写入压缩归档流，边写边计算 SM3、按阈值滚动分片、逐片 SM4 加密，
+     * manifest.json 作为最后一个条目写入归档。全程不在工作目录落盘，数据只写一次。
+     */
+    private void executeStreamingExtract(TaskExecutionContext context, ExtractPlugin plugin) throws Exception {
+        Long taskId = context.getTaskId();
+        GlobalConfig globalConfig = context.getGlobalConfig();
+
+        Path targetDir = resolveExchangeBatchDir(context);
+        fileSystemManager.ensureDirectory(targetDir);
+        CompressionOptions compressionOptions = CompressionSettings.resolve(context);
+        Path archive = targetDir.resolve(context.getJobConfig().getJob().getName() + "_"
+            + context.getBatchNumber() + compressionOptions.getCodec().getArchiveExtension());
+
+        long splitThreshold = getSplitThresholdBytes(globalConfig);
+        String key = resolveEncryptionKey(globalConfig);
+
+        progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.EXPORT, 0);
+        metricsCollector.recordStageStart(taskId, "EXPORT");
+        taskLogger.logProgress(taskId, "EXPORT", 10, "流式卸载开始，输出=" + archive
+            + (splitThreshold > 0 ? "，分片阈值=" + splitThreshold + " 字节" : "") + (key != null ? "，SM4加密" : ""));
+        long start = System.currentTimeMillis();
+
+        RollingPartOutputStream parts = new RollingPartOutputStream(archive, splitThreshold,
+            partEncryptor(context, key), manifestService.dataDigestFactory(globalConfig));
+        ArchiveWriter archiveWriter = null;
+        StreamingExportSink sink;
+        try {
+            archiveWriter = compressionManager.openArchiveWriter(parts, compressionOptions);
+            sink = new StreamingExportSink(archiveWriter, smCryptoManager, getStreamSegmentBytes(context.getJobConfig()));
+            context.setAttribute(ExportSink.CONTEXT_KEY, sink);
+            try {
+                plugin.extract(context);
+            } finally {
+                context.getAttributes().remove(ExportSink.CONTEXT_KEY);
+            }
+
+            // manifest 作为最后一个条目写入归档
+            ManifestMetadata manifest = manifestService.generateStreamingManifest(context, sink.getEntries());
+            byte[] manifestJson = manifestService.toJsonBytes(manifest);
+            archiveWriter.putEntry("manifest.json", manifestJson, 0, manifestJson.length);
+            archiveWriter.close();
+            writePartManifest(context, archive, parts);
+        } catch (Exception e) {
+            if (archiveWriter != null) {
+                try {
+                    archiveWriter.close();
+                } catch (IOException closeError) {
+                    log.debug("关闭归档写入器失败: {}", closeError.getMessage());
+                }
+            }
+            parts.abort();
+            throw new IOException("流式卸载失败", e);
+        }
+        long duration = System.currentTimeMillis() - start;
+
+        logExportTableStats(taskId, context.getAttribute("exportResults"));
+        long originalSize = sink.getEntries().stream().mapToLong(StreamingExportSink.EntryRecord::getSize).sum();
+        metricsCollector.recordCompressionStats(taskId, originalSize, parts.getTotalWritten());
+        if (parts.getPartFiles().size() > 1) {
+            metricsCollector.recordSplitStats(taskId, parts.getPartFiles());
+        }
+        if (key != null) {
+            // 加密与导出、压缩在同一条流中完成，记录整条流水线耗时
+            metricsCollector.recordEncryptionStats(taskId, duration);
+        }
+        taskLogger.logProgress(taskId, "EXPORT", 90, "流式卸载完成，数据 " + originalSize + " 字节，压缩后 "
+            + parts.getTotalWritten() + " 字节，共 " + parts.getPartFiles().size() + " 个文件，耗时 " + duration + " ms");
+        metricsCollector.recordStageEnd(taskId, "EXPORT", "SUCCESS", "流式卸载完成（含清单、压缩、分片与加密）");
+        progressTracker.updateExtractProgress(taskId, ProgressTracker.ExtractStage.ENCRYPT, 100);
+    }
+
+    private boolean isStreamingPipeline(JobConfig jobConfig) {
+        JobConfig.RuntimeConfig runtime = jobConfig.getRuntime();
+        if (runtime == null || !Boolean.TRUE.equals(runtime.getStreamingPipeline())) {
+            return false;
+        }
+        // 流式卸载按行边界切段，二进制 COPY 数据无行边界，回退到落盘流程
+        boolean binary = runtime.getCopyFormat() == CopyFormat.BINARY
+            || (runtime.getTableCopyFormats() != null
+                && runtime.getTableCopyFormats().containsValue(CopyFormat.BINARY));
+        if (binary) {
+            log.warn("作业 {} 配置了二进制 COPY 格式，不使用流式卸载", jobConfig.getJob().getName());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 落盘卸载是否重叠执行导出与压缩打包：runtime.stage_overlap，未配置时开启
+     */
+    private boolean isStageOverlap(JobConfig jobConfig) {
+        JobConfig.RuntimeConfig runtime = jobConfig.getRuntime();
+        return runtime == null || !Boolean.FALSE.equals(runtime.getStageOverlap());
+    }
+
+    private int getOverlapQueueSize(JobConfig jobConfig) {
+        JobConfig.RuntimeConfig runtime = jobConfig.getRuntime();
+        return runtime != null && runtime.getOverlapQueueSize() != null && runtime.getOverlapQueueSize() > 0
+            ? runtime.getOverlapQueueSize() : DEFAULT_OVERLAP_QUEUE_SIZE;
+    }
+
+    private int getStreamSegmentBytes(JobConfig jobConfig) {
+        JobConfig.RuntimeConfig runtime = jobConfig.getRuntime();
+        int segmentMb = runtime != null && runtime.getStreamSegmentMb() != null
+            ? runtime.getStreamSegmentMb() : DEFAULT_STREAM_SEGMENT_MB;
+        return segmentMb * 1024 * 1024;
+    }
+
+    /**
+     * 启用加密且配置了密钥时返回 SM4 密钥，否则返回 null
+     */
+    private String resolveEncryptionKey(GlobalConfig globalConfig) {
+        if (globalConfig.getSecurity() == null || !Boolean.TRUE.equals(globalConfig.getSecurity().getEnableEncryption())) {
+            return null;
+        }
+        String key = globalConfig.getSecurity().getSm4Key();
+        if (key == null || key.isEmpty()) {
+            log.warn("启用了加密但未配置SM4密钥，跳过加密");
+            return null;
+        }
+        return key;
     }
 
     public void executeLoad(TaskExecutionContext context) {
@@ -296,24 +540,23 @@ public class TaskExecutionService {
         }
         taskLogger.logProgress(taskId, "INIT", 0, "输入目录=" + loadInputDir);
 
-        // 如果启用加密，先解密
+        // 分片清单：记录各分片落盘字节的大小与SM3，早期版本卸载的批次没有
+        ManifestMetadata partManifest = manifestService.findPartManifest(loadInputDir);
+        if (partManifest != null) {
+            manifestService.checkPartsPresent(partManifest, loadInputDir);
+        }
+
+        // 启用加密时逐片解密，与串联、解压、解包在同一次读取中完成，不生成 .dec 文件、不修改输入目录
+        String decryptKey = null;
         GlobalConfig globalConfigForDecrypt = context.getGlobalConfig();
         if (globalConfigForDecrypt.getSecurity() != null && Boolean.TRUE.equals(globalConfigForDecrypt.getSecurity().getEnableEncryption())) {
             String key = globalConfigForDecrypt.getSecurity().getSm4Key();
             if (key != null && !key.isEmpty()) {
-                progressTracker.updateLoadProgress(taskId, ProgressTracker.LoadStage.DECRYPT, 0);
-                metricsCollector.recordStageStart(taskId, "DECRYPT");
-                long decryptStart = System.currentTimeMillis();
-                decryptFiles(loadInputDir, key);
-                long decryptDuration = System.currentTimeMillis() - decryptStart;
-                metricsCollector.recordEncryptionStats(taskId, decryptDuration);
-                taskLogger.logProgress(taskId, "DECRYPT", 10, "文件解密完成");
-                metricsCollector.recordStageEnd(taskId, "DECRYPT", "SUCCESS", "解密完成");
-                progressTracker.updateLoadProgress(taskId, ProgressTracker.LoadStage.DECRYPT, 100);
+                decryptKey = key;
             }
         }
 
-        // 从输入目录解压到 workDir（自动处理分片合并）
+        // 从输入目录解压到 workDir（分片按序串联解压，不生成合并文件与解密文件）
         progressTracker.updateLoadProgress(taskId, ProgressTracker.LoadStage.UNPACK, 0);
         metricsCollector.recordStageStart(taskId, "UNPACK");
         // 清理工作目录（避免上次执行失败残留文件导致冲突）
@@ -329,7 +572,36 @@ public class TaskExecutionService {
                 });
             Files.createDirectories(workDirPath);
         }
-        compressionManager.mergeAndDecompress(loadInputDir, workDirPath);
+        if (decryptKey != null) {
+            progressTracker.updateLoadProgress(taskId, ProgressTracker.LoadStage.DECRYPT, 0);
+            metricsCollector.recordStageStart(taskId, "DECRYPT");
+        }
+        long unpackStart = System.currentTimeMillis();
+        // 分片按序（逐片解密后）串联解压，每个分片读完即按分片清单校验密文的大小与SM3
+        // 解包时边写边算每个文件的大小与SM3，校验manifest时直接比对，无需回读
+        Map<String, ManifestMetadata.FileInfo> unpackedFiles = new HashMap<>();
+        UnpackOptions unpackOptions = UnpackOptions.defaults();
+        if (partManifest != null) {
+            unpackOptions.setPartDigestFactory(smCryptoManager::newSm3Digest);
+            unpackOptions.setPartVerifier(manifestService.newPartVerifier(partManifest,
+                ManifestService.hashThreads(globalConfig)));
+        }
+        unpackOptions.setPartWrapper(partDecryptor(context, decryptKey));
+        unpackOptions.setEntryDigestFactory(smCryptoManager::newSm3Digest);
+        unpackOptions.setEntryListener((name, size, digest) -> {
+            ManifestMetadata.FileInfo unpacked = new ManifestMetadata.FileInfo();
+            unpacked.setName(name);
+            unpacked.setSize(size);
+            unpacked.setSm3(smCryptoManager.toHex(digest));
+            unpackedFiles.put(name, unpacked);
+        });
+        compressionManager.mergeAndDecompress(loadInputDir, workDirPath, unpackOptions);
+        if (decryptKey != null) {
+            metricsCollector.recordEncryptionStats(taskId, System.currentTimeMillis() - unpackStart);
+            taskLogger.logProgress(taskId, "DECRYPT", 10, "文件解密完成（与解压同一次读取）");
+            metricsCollector.recordStageEnd(taskId, "DECRYPT", "SUCCESS", "解密完成");
+            progressTracker.updateLoadProgress(taskId, ProgressTracker.LoadStage.DECRYPT, 100);
+        }
         taskLogger.logProgress(taskId, "UNPACK", 30, "解压完成，工作目录=" + workDirPath + "，批次号=" + (batchNumber != null ? batchNumber : "—"));
         metricsCollector.recordStageEnd(taskId, "UNPACK", "SUCCESS", "解压完成");
         progressTracker.updateLoadProgress(taskId, ProgressTracker.LoadStage.UNPACK, 100);
@@ -340,10 +612,13 @@ public class TaskExecutionService {
         Path manifestFile = workDirPath.resolve("manifest.json");
         if (Files.exists(manifestFile)) {
             ManifestMetadata manifest = manifestService.parseManifest(manifestFile);
-            boolean valid = manifestService.validateManifest(manifest, workDirPath);
+            boolean valid = manifestService.validateManifest(manifest, workDirPath, unpackedFiles,
+                ManifestService.hashThreads(globalConfig));
             if (!valid) {
                 throw new RuntimeException("Manifest校验失败，数据文件可能损坏");
             }
+            // 加载插件据此识别数据文件格式等信息
+            context.setAttribute("manifest", manifest);
             taskLogger.logProgress(taskId, "VALIDATE", 40, "Manifest校验通过");
             metricsCollector.recordStageEnd(taskId, "VALIDATE", "SUCCESS", "校验通过");
         } else {
@@ -358,7 +633,7 @@ public class TaskExecutionService {
         if (plugin != null) {
             plugin.load(context);
             logLoadTableStats(taskId, context.getAttribute("loadTableStats"));
-            logFilePathMappings(taskId, context.getAttribute("filePathMappings"), "LOAD", 80, "源: ", " -> 目标: ");
+            logFilePathMappings(taskId, context.getAttribute("filePathMappings"), "LOAD", "源: ", " -> 目标: ");
             taskLogger.logProgress(taskId, "LOAD", 80, "数据加载完成");
             metricsCollector.recordStageEnd(taskId, "LOAD", "SUCCESS", "数据加载完成");
         } else {
@@ -376,7 +651,7 @@ public class TaskExecutionService {
     }
 
     @SuppressWarnings("unchecked")
-    private void logFilePathMappings(Long taskId, Object attr, String stage, int progress,
+    private void logFilePathMappings(Long taskId, Object attr, String stage,
                                      String sourcePrefix, String targetSuffix) {
         if (attr == null || !(attr instanceof List)) {
             return;
@@ -392,11 +667,11 @@ public class TaskExecutionService {
             String source = m != null ? m.get("source") : null;
             String target = m != null ? m.get("target") : null;
             if (source != null && target != null) {
-                taskLogger.logProgress(taskId, stage, progress, sourcePrefix + source + targetSuffix + target);
+                taskLogger.log(taskId, stage, sourcePrefix + source + targetSuffix + target);
             }
         }
         if (size > MAX_PATH_LOG_ENTRIES) {
-            taskLogger.logProgress(taskId, stage, progress,
+            taskLogger.log(taskId, stage,
                 "（共 " + size + " 个文件，仅展示前 " + MAX_PATH_LOG_ENTRIES + " 条）");
         }
     }
@@ -411,12 +686,12 @@ public class TaskExecutionService {
         for (Object o : list) {
             if (o instanceof KingbaseExtractPlugin.TableExportResult) {
                 KingbaseExtractPlugin.TableExportResult r = (KingbaseExtractPlugin.TableExportResult) o;
-                taskLogger.logProgress(taskId, "EXPORT", 50, "卸载表 " + r.getTableName() + " " + r.getRowCount() + " 行");
+                taskLogger.log(taskId, "EXPORT", "卸载表 " + r.getTableName() + " " + r.getRowCount() + " 行");
                 total += r.getRowCount();
             }
         }
         if (!list.isEmpty()) {
-            taskLogger.logProgress(taskId, "EXPORT", 50, "卸载合计 " + total + " 行，共 " + list.size() + " 张表");
+            taskLogger.log(taskId, "EXPORT", "卸载合计 " + total + " 行，共 " + list.size() + " 张表");
         }
     }
 
@@ -435,9 +710,9 @@ public class TaskExecutionService {
             String table = e.getKey();
             long rows = e.getValue() != null ? e.getValue() : 0;
             total += rows;
-            taskLogger.logProgress(taskId, "LOAD", 80, "加载表 " + table + " 写入 " + rows + " 行");
+            taskLogger.log(taskId, "LOAD", "加载表 " + table + " 写入 " + rows + " 行");
         }
-        taskLogger.logProgress(taskId, "LOAD", 80, "加载合计 " + total + " 行，共 " + stats.size() + " 张表");
+        taskLogger.log(taskId, "LOAD", "加载合计 " + total + " 行，共 " + stats.size() + " 张表");
     }
 
     /** 批次目录名格式：yyyyMMdd_NNN */
@@ -501,7 +776,10 @@ public class TaskExecutionService {
         return root;
     }
 
-    private Path compressAndSplit(TaskExecutionContext context, Path workDir) throws IOException {
+    /**
+     * 解析交换目录下的批次目录：exchange_dir/作业名/批次号
+     */
+    private Path resolveExchangeBatchDir(TaskExecutionContext context) {
         GlobalConfig globalConfig = context.getGlobalConfig();
         JobConfig jobConfig = context.getJobConfig();
         String jobName = jobConfig.getJob().getName();
@@ -513,103 +791,78 @@ public class TaskExecutionService {
             exchangeDir = "exchange";
         }
         // 规范化路径，处理 .. 和 . 符号，并转换为绝对路径
-        Path targetDir = Paths.get(exchangeDir, jobName, context.getBatchNumber()).toAbsolutePath().normalize();
-        fileSystemManager.ensureDirectory(targetDir);
+        return Paths.get(exchangeDir, jobName, context.getBatchNumber()).toAbsolutePath().normalize();
+    }
 
-        // 使用临时文件名进行压缩
-        String fileName = jobName + "_" + context.getBatchNumber() + ".tar.gz";
-        Path finalTarGz = targetDir.resolve(fileName);
-        Path tmpTarGz = fileDeliveryService.beginDelivery(finalTarGz);
+    /**
+     * 打包压缩：归档直接写入滚动分片（达到 split_threshold_gb 时切换到下一个分片），启用加密时逐片 SM4 加密；
+     * 各分片关闭时记录大小与SM3，写入归档旁的分片清单。无需先生成整包再回读切分，峰值磁盘占用为一份归档。
+     *
+     * @param key SM4 密钥，为 null 时不加密
+     * @return 已完成的分片输出
+     */
+    private RollingPartOutputStream compressAndSplit(TaskExecutionContext context, Path workDir, String key)
+        throws IOException {
+        String jobName = context.getJobConfig().getJob().getName();
+        Path targetDir = resolveExchangeBatchDir(context);
+        fileSystemManager.ensureDirectory(targetDir);
 
+        CompressionOptions compressionOptions = CompressionSettings.resolve(context);
+        Path archive = targetDir.resolve(jobName + "_" + context.getBatchNumber()
+            + compressionOptions.getCodec().getArchiveExtension());
+        RollingPartOutputStream parts = new RollingPartOutputStream(archive,
+            getSplitThresholdBytes(context.getGlobalConfig()), partEncryptor(context, key),
+            manifestService.dataDigestFactory(context.getGlobalConfig()));
         try {
-            // 压缩到临时文件
-            compressionManager.compressToTarGz(workDir, tmpTarGz);
-
-            // 分片处理（如果需要）
-            GlobalConfig.CompressionConfig compression = globalConfig.getCompression();
-            if (compression != null && compression.getSplitThresholdGb() != null) {
-                long thresholdBytes = (long) (compression.getSplitThresholdGb() * 1024 * 1024 * 1024);
-                long fileSize = Files.size(tmpTarGz);
-
-                if (fileSize > thresholdBytes) {
-                    // 需要分片，先完成主文件交付
-                    fileDeliveryService.completeDelivery(finalTarGz);
-                    // 然后进行分片（分片会删除原文件并创建分片文件）
-                    compressionManager.split(finalTarGz, thresholdBytes);
-                    return finalTarGz;
-                }
-            }
-
-            // 不需要分片，直接完成交付
-            fileDeliveryService.completeDelivery(finalTarGz);
-            return finalTarGz;
-
+            compressionManager.compressDirectory(workDir, parts, compressionOptions);
+            writePartManifest(context, archive, parts);
+            return parts;
         } catch (Exception e) {
-            // 失败时取消交付
-            fileDeliveryService.cancelDelivery(finalTarGz);
+            parts.abort();
             throw new IOException("压缩和交付失败", e);
         }
     }
 
     /**
-     * 加密目录中的所有tar.gz文件（包括分片）
+     * 写入分片清单（各分片大小与SM3）
      */
-    private void encryptFiles(Path dir, String key) throws IOException {
-        if (!Files.exists(dir) || !Files.isDirectory(dir)) {
-            return;
-        }
-
-        List<Path> filesToEncrypt = new ArrayList<>();
-        try (java.util.stream.Stream<Path> stream = Files.list(dir)) {
-            stream.filter(Files::isRegularFile)
-                .filter(p -> p.getFileName().toString().endsWith(".tar.gz") ||
-                            p.getFileName().toString().matches(".*\\.tar\\.gz\\.\\d{3}$"))
-                .forEach(filesToEncrypt::add);
-        }
-
-        for (Path file : filesToEncrypt) {
-            // 使用临时文件进行加密
-            Path tmpEncrypted = fileDeliveryService.beginDelivery(file);
-            try {
-                smCryptoManager.encryptSm4(file, tmpEncrypted, key);
-                // 删除原文件
-                Files.delete(file);
-                // 完成交付（重命名临时文件为最终文件）
-                fileDeliveryService.completeDelivery(file);
-                log.info("文件已加密: {}", file.getFileName());
-            } catch (Exception e) {
-                fileDeliveryService.cancelDelivery(file);
-                throw new IOException("加密文件失败: " + file, e);
-            }
-        }
+    private void writePartManifest(TaskExecutionContext context, Path archive, RollingPartOutputStream parts)
+        throws IOException {
+        ManifestMetadata partManifest = manifestService.generatePartManifest(context, parts.getParts());
+        manifestService.writeManifest(partManifest, ManifestService.partManifestPath(archive));
     }
 
     /**
-     * 解密目录中的所有加密文件
+     * 分片阈值（字节），未配置时为 0 表示不分片
      */
-    private void decryptFiles(Path dir, String key) throws IOException {
-        if (!Files.exists(dir) || !Files.isDirectory(dir)) {
-            return;
+    private long getSplitThresholdBytes(GlobalConfig globalConfig) {
+        GlobalConfig.CompressionConfig compression = globalConfig.getCompression();
+        if (compression != null && compression.getSplitThresholdGb() != null) {
+            return (long) (compression.getSplitThresholdGb() * 1024 * 1024 * 1024);
         }
+        return 0L;
+    }
 
-        List<Path> filesToDecrypt = new ArrayList<>();
-        try (java.util.stream.Stream<Path> stream = Files.list(dir)) {
-            stream.filter(Files::isRegularFile)
-                .filter(p -> {
-                    String name = p.getFileName().toString();
-                    return name.endsWith(".tar.gz") || name.matches(".*\\.tar\\.gz\\.\\d{3}$");
-                })
-                .forEach(filesToDecrypt::add);
+    /**
+     * 分片加密包装器，key 为 null 时不加密
+     */
+    private RollingPartOutputStream.PartStreamWrapper partEncryptor(TaskExecutionContext context, String key) {
+        if (key == null) {
+            return null;
         }
+        Sm4Options options = EncryptionSettings.resolve(context.getGlobalConfig());
+        return partOut -> smCryptoManager.newSm4EncryptingStream(partOut, key, options);
+    }
 
-        for (Path file : filesToDecrypt) {
-            Path decrypted = file.getParent().resolve(file.getFileName() + ".dec");
-            smCryptoManager.decryptSm4(file, decrypted, key);
-            // 删除加密文件，重命名解密文件
-            Files.delete(file);
-            Files.move(decrypted, file);
-            log.info("文件已解密: {}", file.getFileName());
+    /**
+     * 分片解密包装器，key 为 null 时不解密；密文格式（cbc 或分段格式）按文件头识别
+     */
+    private SequentialPartInputStream.PartStreamWrapper partDecryptor(TaskExecutionContext context, String key) {
+        if (key == null) {
+            return null;
         }
+        Sm4Options options = EncryptionSettings.resolve(context.getGlobalConfig());
+        return partIn -> smCryptoManager.newSm4DecryptingStream(partIn, key, options);
     }
 
     /**
@@ -0,0 +1,208 @@
+package org.csits.kel.server.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.csits.kel.dao.TaskExecutionLogEntity;
+import org.csits.kel.dao.TaskExecutionLogRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 任务执行日志的批量异步写入器：日志先进入有界队列，由后台线程凑满一批或到达刷新间隔时批量追加到
+ * task_execution_log，记日志的线程不等待数据库。
+ *
+ * - 队列满时记日志的线程等待，内存占用不超过 队列容量 条日志
+ * - 只有后台线程写库，日志按入队顺序落库；{@link #flush()} 等待已入队的日志写出，
+ *   任务结束前调用，保证结束状态可见时日志已完整
+ * - 写入失败只记录告警并丢弃该批，不影响任务执行
+ */
+@Slf4j
+@Component
+public class TaskLogWriter {
+
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final long FLUSH_TIMEOUT_SECONDS = 30L;
+
+    private final TaskExecutionLogRepository taskExecutionLogRepository;
+    private final BlockingQueue<TaskExecutionLogEntity> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private volatile int batchSize = 200;
+    private volatile long flushIntervalMs = 500L;
+    private Thread worker;
+    private volatile boolean closed;
+
+    public TaskLogWriter(TaskExecutionLogRepository taskExecutionLogRepository) {
+        this.taskExecutionLogRepository = taskExecutionLogRepository;
+    }
+
+    /**
+     * 每批最多写入的日志条数，默认 200
+     */
+    @Value("${kel.task-log.batch-size:200}")
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 未凑满一批时的最长等待时间（毫秒），默认 500
+     */
+    @Value("${kel.task-log.flush-interval-ms:500}")
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = Math.max(10L, flushIntervalMs);
+    }
+
+    /**
+     * 追加一条日志（异步写入）
+     */
+    public void append(Long taskId, String logLevel, String stage, String message) {
+        TaskExecutionLogEntity entry = new TaskExecutionLogEntity();
+        entry.setTaskId(taskId);
+        entry.setLogLevel(logLevel);
+        entry.setStage(stage);
+        entry.setMessage(message);
+        entry.setCreatedAt(LocalDateTime.now());
+        ensureStarted();
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("等待日志队列被中断，丢弃日志: taskId={}, message={}", taskId, message);
+        }
+    }
+
+    /**
+     * 同步写出所有已入队的日志：由后台线程按顺序写到该时刻为止的日志后返回
+     */
+    public void flush() {
+        Thread current;
+        synchronized (this) {
+            current = worker;
+        }
+        if (current == null || !current.isAlive()) {
+            List<TaskExecutionLogEntity> items = new ArrayList<>();
+            while (queue.drainTo(items, batchSize) > 0) {
+                process(items);
+                items.clear();
+            }
+            return;
+        }
+        FlushMarker marker = new FlushMarker();
+        try {
+            queue.put(marker);
+            if (!marker.done.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("等待任务执行日志写出超时（{} 秒）", FLUSH_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        Thread current;
+        synchronized (this) {
+            current = worker;
+        }
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(FLUSH_TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    private synchronized void ensureStarted() {
+        if (worker == null && !closed) {
+            worker = new Thread(this::run, "kel-task-log-writer");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * 后台写入：取到第一条后继续凑批，凑满一批、遇到 flush 请求或等满一个刷新间隔即写出
+     */
+    private void run() {
+        List<TaskExecutionLogEntity> items = new ArrayList<>();
+        try {
+            while (!closed) {
+                TaskExecutionLogEntity first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                items.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                int scanned = 0;
+                boolean flushRequested = false;
+                while (true) {
+                    for (; scanned < items.size(); scanned++) {
+                        flushRequested |= items.get(scanned) instanceof FlushMarker;
+                    }
+                    if (flushRequested || items.size() >= batchSize) {
+                        break;
+                    }
+                    if (queue.drainTo(items, batchSize - items.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    TaskExecutionLogEntity next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    items.add(next);
+                }
+                process(items);
+                items.clear();
+            }
+        } catch (InterruptedException e) {
+            // 关闭：写出已取出与仍在队列中的日志
+        }
+        queue.drainTo(items);
+        process(items);
+    }
+
+    /**
+     * 按顺序写出日志，遇到 flush 请求时先写出其之前的日志再通知等待方
+     */
+    private void process(List<TaskExecutionLogEntity> items) {
+        List<TaskExecutionLogEntity> batch = new ArrayList<>(items.size());
+        for (TaskExecutionLogEntity item : items) {
+            if (item instanceof FlushMarker) {
+                write(batch);
+                batch.clear();
+                ((FlushMarker) item).done.countDown();
+            } else {
+                batch.add(item);
+            }
+        }
+        write(batch);
+    }
+
+    private void write(List<TaskExecutionLogEntity> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            taskExecutionLogRepository.appendAll(batch);
+        } catch (Exception e) {
+            log.warn("写入任务执行日志失败，丢弃 {} 条: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * flush 请求：随日志入队，后台线程写出其之前的日志后释放
+     */
+    private static final class FlushMarker extends TaskExecutionLogEntity {
+        private final CountDownLatch done = new CountDownLatch(1);
+    }
+}
@@ -1,12 +1,7 @@
 package org.csits.kel.server.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.csits.kel.dao.TaskExecutionEntity;
@@ -15,72 +10,83 @@ import org.csits.kel.dao.TaskExecutionStatus;
 import org.springframework.stereotype.Component;
 
 /**
- * 任务执行日志记录封装。进度与阶段写入 task_execution，历史日志追加到 execution_log（JSON 数组）。
+ * 任务执行日志记录封装。进度与阶段写入 task_execution（本节点执行中的任务经 {@link TaskStateRegistry} 合并写入），
+ * 历史日志经 {@link TaskLogWriter} 批量追加到 task_execution_log。任务结束时计入 {@link TaskExecutionRollupService} 的按日汇总。
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class TaskLogger {
 
-    private static final TypeReference<List<Map<String, Object>>> LOG_LIST_TYPE = new TypeReference<List<Map<String, Object>>>() {};
-
     private final TaskExecutionRepository taskExecutionRepository;
-    private final ObjectMapper objectMapper;
+    private final TaskLogWriter taskLogWriter;
+    private final TaskStateRegistry taskStateRegistry;
+    private final TaskExecutionRollupService taskExecutionRollupService;
 
     public void logProgress(Long taskId, String phase, int progress, String message) {
-        taskExecutionRepository.findById(taskId).ifPresent(entity -> {
-            entity.setProgress(progress);
-            entity.setCurrentStage(phase);
-            appendExecutionLog(entity, "INFO", phase, message);
-            taskExecutionRepository.save(entity);
+        boolean local = taskStateRegistry.update(taskId, state -> {
+            state.setProgress(progress);
+            state.setCurrentStage(phase);
         });
+        if (!local) {
+            taskExecutionRepository.findStateById(taskId).ifPresent(entity -> {
+                entity.setProgress(progress);
+                entity.setCurrentStage(phase);
+                taskExecutionRepository.updateState(entity);
+            });
+        }
+        taskLogWriter.append(taskId, "INFO", phase, message);
         log.info("[taskId={}] [{}] progress={}, message={}", taskId, phase, progress, message);
     }
 
+    /**
+     * 只追加日志，不更新任务进度与阶段（用于逐表、逐文件的明细日志）
+     */
+    public void log(Long taskId, String phase, String message) {
+        taskLogWriter.append(taskId, "INFO", phase, message);
+        log.info("[taskId={}] [{}] {}", taskId, phase, message);
+    }
+
     public void markSuccess(Long taskId, String message) {
         updateStatus(taskId, TaskExecutionStatus.SUCCESS, 100, message, null);
     }
 
     public void markFailed(Long taskId, String message, String error) {
+        taskLogWriter.append(taskId, "ERROR", "FAILED", error != null ? message + ": " + error : message);
         updateStatus(taskId, TaskExecutionStatus.FAILED, 0, message, error);
     }
 
     private void updateStatus(Long taskId, TaskExecutionStatus status, int progress,
                               String message, String error) {
-        taskExecutionRepository.findById(taskId).ifPresent(entity -> {
+        // 结束状态可见时日志已全部写入
+        taskLogWriter.flush();
+        String[] previousStatus = new String[1];
+        Consumer<TaskExecutionEntity> mutation = entity -> {
+            previousStatus[0] = entity.getStatus();
             entity.setStatus(status.name());
             entity.setProgress(progress);
             entity.setCurrentStage(message);
             entity.setErrorMessage(error);
-            if (status == TaskExecutionStatus.SUCCESS || status == TaskExecutionStatus.FAILED) {
-                entity.setEndTime(LocalDateTime.now());
+            entity.setEndTime(LocalDateTime.now());
+        };
+        if (taskStateRegistry.update(taskId, mutation)) {
+            // 终态写库成功后由登记表计入按日汇总
+            taskStateRegistry.complete(taskId);
+        } else {
+            TaskExecutionEntity entity = taskExecutionRepository.findStateById(taskId).orElse(null);
+            if (entity != null) {
+                if (TaskExecutionRollupService.isTerminal(entity.getStatus()) && !status.name().equals(entity.getStatus())) {
+                    taskExecutionRollupService.retractTerminal(taskId);
+                }
+                mutation.accept(entity);
+                taskExecutionRepository.updateState(entity);
+                // 已是该终态（如状态机已先行标记）时不重复计入
+                if (!status.name().equals(previousStatus[0])) {
+                    taskExecutionRollupService.recordTerminal(taskId);
+                }
             }
-            taskExecutionRepository.save(entity);
-        });
+        }
         log.info("[taskId={}] status={}, progress={}, message={}, error={}",
             taskId, status, progress, message, error);
     }
-
-    private void appendExecutionLog(TaskExecutionEntity entity, String logLevel, String stage, String message) {
-        String raw = entity.getExecutionLog();
-        if (raw == null || raw.trim().isEmpty()) {
-            raw = "[]";
-        }
-        try {
-            List<Map<String, Object>> list = objectMapper.readValue(raw, LOG_LIST_TYPE);
-            if (list == null) {
-                list = new ArrayList<>();
-            }
-            Map<String, Object> entry = new LinkedHashMap<>();
-            entry.put("log_level", logLevel);
-            entry.put("stage", stage);
-            entry.put("message", message);
-            entry.put("created_at", LocalDateTime.now().toString());
-            list.add(entry);
-            entity.setExecutionLog(objectMapper.writeValueAsString(list));
-        } catch (Exception e) {
-            log.warn("appendExecutionLog parse/write failed, skip: {}", e.getMessage());
-        }
-    }
 }
-
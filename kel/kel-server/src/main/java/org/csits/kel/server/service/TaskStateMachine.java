@@ -9,7 +9,8 @@ import org.springframework.stereotype.Service;
 
 /**
  * 任务状态机服务
- * 管理任务状态转换和验证
+ * 管理任务状态转换和验证。转为 RUNNING 时任务登记到 {@link TaskStateRegistry}，
+ * 之后的转换在内存中进行，进入终态时立即写库并计入按日汇总。
  */
 @Slf4j
 @Service
@@ -17,6 +18,15 @@ import org.springframework.stereotype.Service;
 public class TaskStateMachine {
 
     private final TaskExecutionRepository taskExecutionRepository;
+    private final TaskStateRegistry taskStateRegistry;
+    private final TaskExecutionRollupService taskExecutionRollupService;
+
+    /**
+     * 单次转换的结果
+     */
+    private enum TransitionResult {
+        APPLIED, UNCHANGED, REJECTED
+    }
 
     /**
      * 状态转换定义
@@ -58,25 +68,57 @@ public class TaskStateMachine {
      * @return 是否转换成功
      */
     public boolean transitionTo(Long taskId, TaskExecutionStatus targetStatus, String message) {
-        TaskExecutionEntity entity = taskExecutionRepository.findById(taskId).orElse(null);
+        TransitionResult[] result = new TransitionResult[1];
+        if (taskStateRegistry.update(taskId, state -> result[0] = apply(taskId, state, targetStatus, message))) {
+            // 终态写库成功后由登记表计入按日汇总
+            if (result[0] != TransitionResult.REJECTED && isTerminal(targetStatus)) {
+                taskStateRegistry.complete(taskId);
+            }
+            return result[0] != TransitionResult.REJECTED;
+        }
+
+        // 不在本节点内存中：读写数据库
+        TaskExecutionEntity entity = taskExecutionRepository.findStateById(taskId).orElse(null);
         if (entity == null) {
             log.error("任务不存在: taskId={}", taskId);
             return false;
         }
+        String previousStatus = entity.getStatus();
+        TransitionResult applied = apply(taskId, entity, targetStatus, message);
+        if (applied == TransitionResult.APPLIED) {
+            // 离开终态（失败后重试）时先撤销原计数
+            if (TaskExecutionRollupService.isTerminal(previousStatus)) {
+                taskExecutionRollupService.retractTerminal(taskId);
+            }
+            taskExecutionRepository.updateState(entity);
+            if (isTerminal(targetStatus)) {
+                taskExecutionRollupService.recordTerminal(taskId);
+            }
+        }
+        if (applied != TransitionResult.REJECTED && targetStatus == TaskExecutionStatus.RUNNING) {
+            taskStateRegistry.register(entity);
+        }
+        return applied != TransitionResult.REJECTED;
+    }
 
+    /**
+     * 校验并在 entity 上执行状态转换
+     */
+    private TransitionResult apply(Long taskId, TaskExecutionEntity entity,
+                                   TaskExecutionStatus targetStatus, String message) {
         String currentStatus = entity.getStatus();
 
         // 幂等：当前已是目标状态则直接成功
         if (targetStatus.name().equals(currentStatus)) {
             log.debug("任务已是目标状态，跳过转换: taskId={}, status={}", taskId, currentStatus);
-            return true;
+            return TransitionResult.UNCHANGED;
         }
 
         // 验证状态转换是否合法
         if (!isValidTransition(currentStatus, targetStatus)) {
             log.error("非法的状态转换: taskId={}, from={}, to={}",
                 taskId, currentStatus, targetStatus);
-            return false;
+            return TransitionResult.REJECTED;
         }
 
         // 执行状态转换
@@ -88,17 +130,20 @@ public class TaskStateMachine {
         // 设置时间戳
         if (targetStatus == TaskExecutionStatus.RUNNING && entity.getStartTime() == null) {
             entity.setStartTime(java.time.LocalDateTime.now());
-        } else if (targetStatus == TaskExecutionStatus.SUCCESS ||
-                   targetStatus == TaskExecutionStatus.FAILED ||
-                   targetStatus == TaskExecutionStatus.CANCELLED) {
+        } else if (isTerminal(targetStatus)) {
             entity.setEndTime(java.time.LocalDateTime.now());
         }
 
-        taskExecutionRepository.save(entity);
         log.info("任务状态转换: taskId={}, {} -> {}, message={}",
             taskId, currentStatus, targetStatus, message);
 
-        return true;
+        return TransitionResult.APPLIED;
+    }
+
+    private static boolean isTerminal(TaskExecutionStatus status) {
+        return status == TaskExecutionStatus.SUCCESS ||
+               status == TaskExecutionStatus.FAILED ||
+               status == TaskExecutionStatus.CANCELLED;
     }
 
     /**
@@ -131,10 +176,12 @@ public class TaskStateMachine {
      * 标记任务为失败
      */
     public boolean markFailed(Long taskId, String message, String errorMessage) {
-        TaskExecutionEntity entity = taskExecutionRepository.findById(taskId).orElse(null);
-        if (entity != null) {
-            entity.setErrorMessage(errorMessage);
-            taskExecutionRepository.save(entity);
+        if (!taskStateRegistry.update(taskId, state -> state.setErrorMessage(errorMessage))) {
+            TaskExecutionEntity entity = taskExecutionRepository.findStateById(taskId).orElse(null);
+            if (entity != null) {
+                entity.setErrorMessage(errorMessage);
+                taskExecutionRepository.updateState(entity);
+            }
         }
         return transitionTo(taskId, TaskExecutionStatus.FAILED, message);
     }
@@ -150,7 +197,8 @@ public class TaskStateMachine {
      * 获取任务当前状态
      */
     public TaskExecutionStatus getCurrentStatus(Long taskId) {
-        TaskExecutionEntity entity = taskExecutionRepository.findById(taskId).orElse(null);
+        TaskExecutionEntity entity = taskStateRegistry.find(taskId)
+            .orElseGet(() -> taskExecutionRepository.findStateById(taskId).orElse(null));
         if (entity == null) {
             return null;
         }
@@ -161,10 +209,7 @@ public class TaskStateMachine {
      * 检查任务是否处于终态
      */
     public boolean isTerminalState(Long taskId) {
-        TaskExecutionStatus status = getCurrentStatus(taskId);
-        return status == TaskExecutionStatus.SUCCESS ||
-               status == TaskExecutionStatus.FAILED ||
-               status == TaskExecutionStatus.CANCELLED;
+        return isTerminal(getCurrentStatus(taskId));
     }
 
     /**
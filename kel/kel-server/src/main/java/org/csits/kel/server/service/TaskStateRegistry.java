@@ -0,0 +1,226 @@
+package org.csits.kel.server.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.csits.kel.dao.TaskExecutionEntity;
+import org.csits.kel.dao.TaskExecutionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本节点执行中任务的状态登记表：状态、阶段、进度的变更只写内存，由后台线程按刷新间隔合并写库
+ * （同一任务只写最后一次的值，有修改的任务一次批量更新，且只更新状态相关列），进入终态时立即写库并移出。
+ *
+ * - 任务开始执行（转为 RUNNING）时登记，此后 {@link ProgressTracker}、{@link TaskLogger}、
+ *   {@link TaskStateMachine} 的更新与进度查询都走内存，不再每次 findById + 整行 UPDATE
+ * - 未登记的任务（不在本节点执行）由调用方按原方式读写数据库
+ * - 写库失败保留脏标记，下个刷新周期重试；终态写库失败时暂不移出，直到写入成功
+ * - 终态写库成功、任务移出时计入 {@link TaskExecutionRollupService} 的按日汇总，写库失败的终态在重试成功后计入
+ */
+@Slf4j
+@Component
+public class TaskStateRegistry {
+
+    private final TaskExecutionRepository taskExecutionRepository;
+    private final TaskExecutionRollupService taskExecutionRollupService;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private volatile long flushIntervalMs = 1000L;
+    private Thread flusher;
+    private volatile boolean closed;
+
+    public TaskStateRegistry(TaskExecutionRepository taskExecutionRepository,
+                             TaskExecutionRollupService taskExecutionRollupService) {
+        this.taskExecutionRepository = taskExecutionRepository;
+        this.taskExecutionRollupService = taskExecutionRollupService;
+    }
+
+    /**
+     * 执行中任务状态写库的间隔（毫秒），默认 1000
+     */
+    @Value("${kel.task-state.flush-interval-ms:1000}")
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = Math.max(10L, flushIntervalMs);
+    }
+
+    /**
+     * 登记任务，以数据库中的当前记录为初始状态；已登记时不覆盖内存状态
+     */
+    public void register(TaskExecutionEntity entity) {
+        entries.computeIfAbsent(entity.getId(), id -> new Entry(copyState(entity)));
+        ensureStarted();
+    }
+
+    /**
+     * 任务是否在本节点执行中（已登记）
+     */
+    public boolean contains(Long taskId) {
+        return entries.containsKey(taskId);
+    }
+
+    /**
+     * 内存中的任务状态快照（只含 id 与状态相关字段）；未登记时为空
+     */
+    public Optional<TaskExecutionEntity> find(Long taskId) {
+        Entry entry = entries.get(taskId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            return Optional.of(copyState(entry.state));
+        }
+    }
+
+    /**
+     * 修改内存中的任务状态，等待下次刷新写库
+     *
+     * @return 任务已登记并已修改；未登记时返回 false，由调用方直接写库
+     */
+    public boolean update(Long taskId, Consumer<TaskExecutionEntity> mutation) {
+        Entry entry = entries.get(taskId);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry) {
+            mutation.accept(entry.state);
+            entry.version++;
+        }
+        return true;
+    }
+
+    /**
+     * 任务进入终态：立即写库并移出登记表，写库成功后计入按日汇总
+     */
+    public void complete(Long taskId) {
+        Entry entry = entries.get(taskId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.terminal = true;
+        }
+        flush(Collections.singletonMap(taskId, entry));
+    }
+
+    /**
+     * 写出所有未写库的任务状态
+     */
+    public void flushAll() {
+        flush(entries);
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        Thread current;
+        synchronized (this) {
+            current = flusher;
+        }
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(flushIntervalMs * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushAll();
+    }
+
+    private synchronized void ensureStarted() {
+        if (flusher == null && !closed) {
+            flusher = new Thread(this::run, "kel-task-state-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                Thread.sleep(flushIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            flushAll();
+        }
+    }
+
+    /**
+     * 将有修改的任务状态一次批量写库。写库串行执行，较早的快照不会覆盖较新的；
+     * 终态已写库的任务移出后计入按日汇总（在写库锁外执行）
+     */
+    private void flush(Map<Long, Entry> candidates) {
+        List<Long> completed = new ArrayList<>();
+        synchronized (flushLock) {
+            List<TaskExecutionEntity> snapshots = new ArrayList<>();
+            Map<Entry, Long> versions = new HashMap<>();
+            for (Entry entry : candidates.values()) {
+                synchronized (entry) {
+                    if (entry.version != entry.flushedVersion) {
+                        snapshots.add(copyState(entry.state));
+                        versions.put(entry, entry.version);
+                    }
+                }
+            }
+            if (!snapshots.isEmpty()) {
+                try {
+                    taskExecutionRepository.updateStateAll(snapshots);
+                } catch (Exception e) {
+                    log.warn("写入任务状态失败，稍后重试: {} 个任务, {}", snapshots.size(), e.getMessage());
+                    return;
+                }
+            }
+            for (Map.Entry<Long, Entry> e : candidates.entrySet()) {
+                Entry entry = e.getValue();
+                synchronized (entry) {
+                    Long written = versions.get(entry);
+                    if (written != null) {
+                        entry.flushedVersion = written;
+                    }
+                    if (entry.terminal && entry.flushedVersion == entry.version
+                        && entries.remove(e.getKey(), entry)) {
+                        completed.add(e.getKey());
+                    }
+                }
+            }
+        }
+        for (Long taskId : completed) {
+            taskExecutionRollupService.recordTerminal(taskId);
+        }
+    }
+
+    private static TaskExecutionEntity copyState(TaskExecutionEntity source) {
+        TaskExecutionEntity copy = new TaskExecutionEntity();
+        copy.setId(source.getId());
+        copy.setStatus(source.getStatus());
+        copy.setProgress(source.getProgress());
+        copy.setCurrentStage(source.getCurrentStage());
+        copy.setErrorMessage(source.getErrorMessage());
+        copy.setStartTime(source.getStartTime());
+        copy.setEndTime(source.getEndTime());
+        return copy;
+    }
+
+    /**
+     * 登记项：version 每次修改加一，flushedVersion 为已写库的版本
+     */
+    private static final class Entry {
+        private final TaskExecutionEntity state;
+        private long version;
+        private long flushedVersion;
+        private boolean terminal;
+
+        private Entry(TaskExecutionEntity state) {
+            this.state = state;
+        }
+    }
+}
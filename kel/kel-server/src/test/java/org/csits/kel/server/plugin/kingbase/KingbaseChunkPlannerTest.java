@@ -0,0 +1,61 @@
+package org.csits.kel.server.plugin.kingbase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 单表分段范围规划测试
+ */
+class KingbaseChunkPlannerTest {
+
+    @Test
+    void buildKeyPredicates_splitsRangeWithOpenEnds() {
+        List<String> predicates = KingbaseChunkPlanner.buildKeyPredicates("\"id\"", 1, 100, 4);
+
+        assertThat(predicates).containsExactly(
+            "\"id\" < 26",
+            "\"id\" >= 26 AND \"id\" < 51",
+            "\"id\" >= 51 AND \"id\" < 76",
+            "\"id\" >= 76");
+    }
+
+    @Test
+    void buildKeyPredicates_fewerKeysThanChunks() {
+        List<String> predicates = KingbaseChunkPlanner.buildKeyPredicates("\"id\"", 10, 11, 8);
+
+        assertThat(predicates).containsExactly("\"id\" < 11", "\"id\" >= 11");
+    }
+
+    @Test
+    void buildKeyPredicates_fullLongRangeDoesNotOverflow() {
+        List<String> predicates = KingbaseChunkPlanner.buildKeyPredicates("\"id\"", Long.MIN_VALUE, Long.MAX_VALUE, 2);
+
+        assertThat(predicates).containsExactly("\"id\" < 0", "\"id\" >= 0");
+    }
+
+    @Test
+    void buildCtidPredicates_splitsBlocks() {
+        List<String> predicates = KingbaseChunkPlanner.buildCtidPredicates(1000, 3);
+
+        assertThat(predicates).containsExactly(
+            "ctid < '(333,0)'::tid",
+            "ctid >= '(333,0)'::tid AND ctid < '(666,0)'::tid",
+            "ctid >= '(666,0)'::tid");
+    }
+
+    @Test
+    void buildCtidPredicates_singleBlockIsNotSplit() {
+        assertThat(KingbaseChunkPlanner.buildCtidPredicates(1, 4)).hasSize(1);
+    }
+
+    @Test
+    void supportsTidRangeScan_onlyFromPostgres14() {
+        // Kingbase V8 基于 PG12：ctid 分段每段都是全表扫描
+        assertThat(KingbaseChunkPlanner.supportsTidRangeScan(120001)).isFalse();
+        assertThat(KingbaseChunkPlanner.supportsTidRangeScan(130012)).isFalse();
+        assertThat(KingbaseChunkPlanner.supportsTidRangeScan(140000)).isTrue();
+        assertThat(KingbaseChunkPlanner.supportsTidRangeScan(160002)).isTrue();
+    }
+}
@@ -1,5 +1,6 @@
 package org.csits.kel.server.plugin.kingbase;
 
+import org.csits.kel.manager.security.SimpleSmCryptoManager;
 import org.csits.kel.server.dto.GlobalConfig;
 import org.csits.kel.server.dto.JobConfig;
 import org.csits.kel.server.dto.TaskExecutionContext;
@@ -36,7 +37,7 @@ class KingbaseExtractPluginConcurrencyTest {
 
     @BeforeEach
     void setUp() {
-        plugin = new KingbaseExtractPlugin(fileNamingService, metricsCollector);
+        plugin = new KingbaseExtractPlugin(fileNamingService, metricsCollector, new SimpleSmCryptoManager());
     }
 
     @Test
@@ -1,8 +1,23 @@
 package org.csits.kel.server.plugin.kingbase;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import org.csits.kel.manager.security.SimpleSmCryptoManager;
+import org.csits.kel.server.constants.CopyFormat;
 import org.csits.kel.server.constants.JobType;
+import org.csits.kel.server.dto.GlobalConfig;
 import org.csits.kel.server.dto.JobConfig;
 import org.csits.kel.server.dto.TaskExecutionContext;
 import org.csits.kel.server.service.FileNamingService;
@@ -10,8 +25,11 @@ import org.csits.kel.server.service.MetricsCollector;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.core.BaseConnection;
 
 @ExtendWith(MockitoExtension.class)
 class KingbaseExtractPluginTest {
@@ -25,7 +43,7 @@ class KingbaseExtractPluginTest {
 
     @BeforeEach
     void setUp() {
-        plugin = new KingbaseExtractPlugin(fileNamingService, metricsCollector);
+        plugin = new KingbaseExtractPlugin(fileNamingService, metricsCollector, new SimpleSmCryptoManager());
     }
 
     @Test
@@ -65,4 +83,55 @@ class KingbaseExtractPluginTest {
         ctx.setJobConfig(jobConfig);
         assertThat(plugin.supports(ctx)).isFalse();
     }
+
+    @Test
+    void withFormatExtension_binaryFilesUseBinExtension() {
+        assertThat(KingbaseExtractPlugin.withFormatExtension("t_order.txt", CopyFormat.BINARY)).isEqualTo("t_order.bin");
+        assertThat(KingbaseExtractPlugin.withFormatExtension("SYS_J0001_V01_20260101_001_Z.TXT", CopyFormat.BINARY))
+            .isEqualTo("SYS_J0001_V01_20260101_001_Z.bin");
+        assertThat(KingbaseExtractPlugin.withFormatExtension("t_order.txt", CopyFormat.TEXT)).isEqualTo("t_order.txt");
+    }
+
+    @Test
+    void copyFormat_parsesCaseInsensitively() {
+        assertThat(CopyFormat.fromValue("binary")).isEqualTo(CopyFormat.BINARY);
+        assertThat(CopyFormat.fromValue(" TEXT ")).isEqualTo(CopyFormat.TEXT);
+        assertThat(CopyFormat.BINARY.toValue()).isEqualTo("binary");
+    }
+
+    @Test
+    void exportTable_consistentModeRollsBackToSavepointBeforeCopyToFileFallback(@TempDir Path tempDir)
+        throws Exception {
+        JobConfig jobConfig = new JobConfig();
+        JobConfig.JobBasic job = new JobConfig.JobBasic();
+        job.setName("test-job");
+        jobConfig.setJob(job);
+        jobConfig.setWorkDir(tempDir.toString());
+        TaskExecutionContext ctx = new TaskExecutionContext(1L, "20260129000001", "test-job",
+            new GlobalConfig(), jobConfig);
+
+        // 一致性快照模式：连接处于事务中，COPY TO STDOUT 失败
+        Connection conn = mock(Connection.class);
+        Savepoint savepoint = mock(Savepoint.class);
+        Statement stmt = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(conn.getAutoCommit()).thenReturn(false);
+        when(conn.setSavepoint()).thenReturn(savepoint);
+        when(conn.unwrap(BaseConnection.class)).thenThrow(new SQLException("copy out failed"));
+        when(conn.createStatement()).thenReturn(stmt);
+        when(stmt.executeQuery("SELECT COUNT(*) FROM t_order")).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(1)).thenReturn(42L);
+
+        KingbaseExtractPlugin.TableExportResult result = plugin.exportTable(conn,
+            new KingbaseExtractPlugin.ExportTask(KingbaseExtractPlugin.ExportTaskType.TABLE, "t_order", null, ctx,
+                CopyFormat.TEXT));
+
+        InOrder order = inOrder(conn, stmt);
+        order.verify(conn).setSavepoint();
+        order.verify(conn).rollback(savepoint);
+        order.verify(stmt).execute(startsWith("COPY t_order TO '"));
+        verify(conn, never()).releaseSavepoint(savepoint);
+        assertThat(result.getRowCount()).isEqualTo(42L);
+    }
 }
@@ -2,11 +2,18 @@ package org.csits.kel.server.plugin.kingbase;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.csits.kel.server.constants.CopyFormat;
 import org.csits.kel.server.constants.JobType;
+import org.csits.kel.server.dto.GlobalConfig;
 import org.csits.kel.server.dto.JobConfig;
 import org.csits.kel.server.dto.TaskExecutionContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class KingbaseLoadPluginTest {
 
@@ -54,4 +61,55 @@ class KingbaseLoadPluginTest {
         ctx.setJobConfig(jobConfig);
         assertThat(plugin.supports(ctx)).isFalse();
     }
+
+    @Test
+    void buildCopyInSql_declaresFileEncoding() {
+        String sql = KingbaseLoadPlugin.buildCopyInSql("t_order", CopyFormat.TEXT,
+            new KingbaseLoadPlugin.CopyOptions("GBK", 1024 * 1024));
+
+        assertThat(sql).isEqualTo(
+            "COPY t_order FROM STDIN WITH (FORMAT text, DELIMITER E'\\x1E', ENCODING 'GBK', NULL '')");
+    }
+
+    @Test
+    void fileEncoding_jobSettingsOverrideGlobalAndDefaultIsUtf8() {
+        TaskExecutionContext ctx = new TaskExecutionContext();
+        ctx.setJobConfig(new JobConfig());
+        ctx.setGlobalConfig(new GlobalConfig());
+        assertThat(KingbaseFileEncoding.resolve(ctx)).isEqualTo("UTF-8");
+
+        GlobalConfig.ExtractGlobalConfig extract = new GlobalConfig.ExtractGlobalConfig();
+        extract.setEncoding("GB18030");
+        ctx.getGlobalConfig().setExtract(extract);
+        assertThat(KingbaseFileEncoding.resolve(ctx)).isEqualTo("GB18030");
+
+        JobConfig.Settings settings = new JobConfig.Settings();
+        settings.setEncoding(" GBK ");
+        ctx.getJobConfig().setSettings(settings);
+        assertThat(KingbaseFileEncoding.resolve(ctx)).isEqualTo("GBK");
+    }
+
+    @Test
+    void buildCopyInSql_binaryFormat() {
+        String sql = KingbaseLoadPlugin.buildCopyInSql("t_order", CopyFormat.BINARY,
+            new KingbaseLoadPlugin.CopyOptions("UTF-8", 1024 * 1024));
+
+        assertThat(sql).isEqualTo("COPY t_order FROM STDIN WITH (FORMAT binary)");
+    }
+
+    @Test
+    void resolveCopyFormat_prefersManifestThenDetectsBinarySignature(@TempDir Path dir) throws Exception {
+        Path text = dir.resolve("t_text.txt");
+        Files.write(text, "1\u001ea\n".getBytes(StandardCharsets.UTF_8));
+        Path binary = dir.resolve("t_bin.bin");
+        Files.write(binary, new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0, 0, 0, 0, 0});
+        KingbaseLoadPlugin.CopyOptions options = new KingbaseLoadPlugin.CopyOptions("UTF-8", 1024);
+
+        assertThat(KingbaseLoadPlugin.resolveCopyFormat(text, options)).isEqualTo(CopyFormat.TEXT);
+        assertThat(KingbaseLoadPlugin.resolveCopyFormat(binary, options)).isEqualTo(CopyFormat.BINARY);
+
+        // manifest 记录优先于文件头识别
+        options.setFileFormats(Collections.singletonMap("t_text.txt", CopyFormat.BINARY));
+        assertThat(KingbaseLoadPlugin.resolveCopyFormat(text, options)).isEqualTo(CopyFormat.BINARY);
+    }
 }
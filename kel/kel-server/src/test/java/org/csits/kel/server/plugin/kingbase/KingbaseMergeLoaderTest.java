@@ -0,0 +1,127 @@
+package org.csits.kel.server.plugin.kingbase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * MERGE 暂存表合并语句测试
+ */
+class KingbaseMergeLoaderTest {
+
+    private static final List<String> COLUMNS = Arrays.asList("id", "name", "op_flag");
+    private static final List<String> KEYS = Collections.singletonList("id");
+    private static final String SOURCE = KingbaseMergeLoader.buildDedupSource("\"t_order_kel_stg_1\"", KEYS);
+
+    @Test
+    void stagingTableName_keepsSchemaAndAppendsSuffix() {
+        assertThat(KingbaseMergeLoader.stagingTableName("t_order", "1")).isEqualTo("\"t_order_kel_stg_1\"");
+        assertThat(KingbaseMergeLoader.stagingTableName("ods.t_order", "1")).isEqualTo("ods.\"t_order_kel_stg_1\"");
+    }
+
+    @Test
+    void stagingTableName_truncatesLongNames() {
+        String longName = String.join("", Collections.nCopies(70, "a"));
+
+        String staging = KingbaseMergeLoader.stagingTableName(longName, "0123456789ab");
+
+        // 去掉两侧引号后不超过 63 个字符
+        assertThat(staging.length() - 2).isEqualTo(63);
+        assertThat(staging).endsWith("_kel_stg_0123456789ab\"");
+    }
+
+    @Test
+    void createStagingTable_usesDistinctNamePerLoad() throws Exception {
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement()).thenReturn(mock(Statement.class));
+        KingbaseMergeLoader mergeLoader = new KingbaseMergeLoader();
+
+        String first = mergeLoader.createStagingTable(conn, "t_order");
+        String second = mergeLoader.createStagingTable(conn, "t_order");
+
+        // 同一目标表的并发加载使用各自的暂存表
+        assertThat(first).startsWith("\"t_order_kel_stg_").isNotEqualTo(second);
+    }
+
+    @Test
+    void buildDedupSource_keepsLastRowPerKey() {
+        assertThat(SOURCE).isEqualTo(
+            "(SELECT DISTINCT ON (\"id\") * FROM \"t_order_kel_stg_1\" ORDER BY \"id\", ctid DESC)");
+    }
+
+    @Test
+    void buildUpsertSql_updatesNonKeyColumnsOnConflict() {
+        String sql = KingbaseMergeLoader.buildUpsertSql("t_order", SOURCE, COLUMNS, KEYS, null);
+
+        assertThat(sql).isEqualTo("INSERT INTO t_order (\"id\", \"name\", \"op_flag\") "
+            + "SELECT s.\"id\", s.\"name\", s.\"op_flag\" FROM " + SOURCE + " s "
+            + "ON CONFLICT (\"id\") DO UPDATE SET \"name\" = EXCLUDED.\"name\", \"op_flag\" = EXCLUDED.\"op_flag\"");
+    }
+
+    @Test
+    void buildUpsertSql_keyOnlyTableDoesNothingOnConflict() {
+        String sql = KingbaseMergeLoader.buildUpsertSql("t_order", SOURCE, KEYS, KEYS, null);
+
+        assertThat(sql).endsWith("ON CONFLICT (\"id\") DO NOTHING");
+    }
+
+    @Test
+    void buildUpsertSql_excludesTombstones() {
+        String sql = KingbaseMergeLoader.buildUpsertSql("t_order", SOURCE, COLUMNS, KEYS, "op_flag");
+
+        assertThat(sql).contains(" s WHERE s.\"op_flag\"::text IS DISTINCT FROM ? ON CONFLICT");
+    }
+
+    @Test
+    void buildDeleteSql_deletesByKeyWhereFlagMatches() {
+        String sql = KingbaseMergeLoader.buildDeleteSql("t_order", SOURCE, KEYS, "op_flag");
+
+        assertThat(sql).isEqualTo("DELETE FROM t_order t USING " + SOURCE + " s "
+            + "WHERE t.\"id\" = s.\"id\" AND s.\"op_flag\"::text = ?");
+    }
+
+    @Test
+    void buildUpdateAndInsert_forVersionsWithoutOnConflict() {
+        List<String> keys = Arrays.asList("id", "name");
+
+        String update = KingbaseMergeLoader.buildUpdateSql("t_order", SOURCE, COLUMNS, keys, null);
+        String insert = KingbaseMergeLoader.buildInsertMissingSql("t_order", SOURCE, COLUMNS, keys, null);
+
+        assertThat(update).isEqualTo("UPDATE t_order t SET \"op_flag\" = s.\"op_flag\" FROM " + SOURCE
+            + " s WHERE t.\"id\" = s.\"id\" AND t.\"name\" = s.\"name\"");
+        assertThat(insert).isEqualTo("INSERT INTO t_order (\"id\", \"name\", \"op_flag\") "
+            + "SELECT s.\"id\", s.\"name\", s.\"op_flag\" FROM " + SOURCE + " s "
+            + "WHERE NOT EXISTS (SELECT 1 FROM t_order t WHERE t.\"id\" = s.\"id\" AND t.\"name\" = s.\"name\")");
+    }
+
+    @Test
+    void buildUpdateSql_keyOnlyTableReturnsNull() {
+        assertThat(KingbaseMergeLoader.buildUpdateSql("t_order", SOURCE, KEYS, KEYS, null)).isNull();
+    }
+
+    @Test
+    void resolveColumns_matchesCaseInsensitively() {
+        assertThat(KingbaseMergeLoader.resolveColumns(COLUMNS, Collections.singletonList("ID"), "t_order"))
+            .containsExactly("id");
+        assertThatThrownBy(() -> KingbaseMergeLoader.resolveColumns(COLUMNS,
+            Collections.singletonList("missing"), "t_order"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("missing");
+    }
+
+    @Test
+    void supportsOnConflict_byKingbaseVersion() {
+        assertThat(KingbaseMergeLoader.supportsOnConflict("V8R3")).isFalse();
+        assertThat(KingbaseMergeLoader.supportsOnConflict("V8R6")).isTrue();
+        assertThat(KingbaseMergeLoader.supportsOnConflict("v9r1")).isTrue();
+        assertThat(KingbaseMergeLoader.supportsOnConflict("unknown")).isNull();
+    }
+}
@@ -0,0 +1,224 @@
+package org.csits.kel.server.plugin.kingbase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sql.DataSource;
+import org.csits.kel.server.constants.LoadMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * 并发加载测试：记录边界切分与事务加载的全部成功/全部回滚
+ */
+class KingbaseParallelLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService executor;
+    private DataSource dataSource;
+    private Connection conn;
+    private Statement stmt;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+        dataSource = mock(DataSource.class);
+        conn = mock(Connection.class);
+        stmt = mock(Statement.class);
+        when(dataSource.getConnection()).thenReturn(conn);
+        when(conn.createStatement()).thenReturn(stmt);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void splitAtRecordBoundaries_rangesEndAtNewlinesAndCoverFile() throws Exception {
+        Path file = writeRows("t_order.txt", 1000);
+        byte[] content = Files.readAllBytes(file);
+
+        List<KingbaseParallelLoader.FileRange> ranges =
+            KingbaseParallelLoader.splitAtRecordBoundaries(file, 4, 1000);
+
+        assertThat(ranges).hasSize(4);
+        long expectedStart = 0L;
+        for (KingbaseParallelLoader.FileRange range : ranges) {
+            assertThat(range.getStart()).isEqualTo(expectedStart);
+            // 每段以换行符结尾，不会把一行拆到两个 COPY 流中
+            assertThat(content[(int) range.getEnd() - 1]).isEqualTo((byte) '\n');
+            expectedStart = range.getEnd();
+        }
+        assertThat(expectedStart).isEqualTo(content.length);
+    }
+
+    @Test
+    void splitAtRecordBoundaries_smallFileIsSingleRange() throws Exception {
+        Path file = writeRows("t_small.txt", 10);
+
+        List<KingbaseParallelLoader.FileRange> ranges =
+            KingbaseParallelLoader.splitAtRecordBoundaries(file, 4, 1024 * 1024);
+
+        assertThat(ranges).containsExactly(new KingbaseParallelLoader.FileRange(file, 0L, Files.size(file)));
+    }
+
+    @Test
+    void splitAtRecordBoundaries_singleLongRowIsNotSplit() throws Exception {
+        Path file = tempDir.resolve("t_long.txt");
+        Files.write(file, (String.join("", Collections.nCopies(5000, "x")) + "\n").getBytes(StandardCharsets.UTF_8));
+
+        assertThat(KingbaseParallelLoader.splitAtRecordBoundaries(file, 4, 100)).hasSize(1);
+    }
+
+    @Test
+    void load_transactional_copiesToStagingThenAppliesInOneTransaction() throws Exception {
+        Path file = writeRows("t_order.txt", 1000);
+        Map<String, List<Path>> filesByTable = new LinkedHashMap<>();
+        filesByTable.put("t_order", Collections.singletonList(file));
+        List<String> copiedTables = Collections.synchronizedList(new ArrayList<>());
+        KingbaseParallelLoader loader = new KingbaseParallelLoader(dataSource, executor, new KingbaseMergeLoader(() -> "1"),
+            (c, range, table) -> {
+                copiedTables.add(table);
+                return 10L;
+            }, f -> true, 4, 1000);
+        Map<String, Long> stats = new HashMap<>();
+
+        loader.load(LoadMode.TRUNCATE_LOAD, filesByTable, null, true, null, stats);
+
+        // 4 段均写入暂存表，而非目标表
+        assertThat(copiedTables).hasSize(4).containsOnly("\"t_order_kel_stg_1\"");
+        assertThat(stats).containsEntry("t_order", 40L);
+        List<String> sqls = executedSql();
+        assertThat(sqls).containsSubsequence(
+            "CREATE UNLOGGED TABLE \"t_order_kel_stg_1\" (LIKE t_order INCLUDING DEFAULTS)",
+            "TRUNCATE TABLE t_order",
+            "INSERT INTO t_order SELECT * FROM \"t_order_kel_stg_1\"",
+            "DROP TABLE IF EXISTS \"t_order_kel_stg_1\"");
+        verify(conn).commit();
+    }
+
+    @Test
+    void load_transactional_copyFailureLeavesTargetUntouched() throws Exception {
+        Map<String, List<Path>> filesByTable = new LinkedHashMap<>();
+        filesByTable.put("t_order", Collections.singletonList(writeRows("t_order.txt", 100)));
+        filesByTable.put("t_trade", Collections.singletonList(writeRows("t_trade.txt", 100)));
+        KingbaseParallelLoader loader = new KingbaseParallelLoader(dataSource, executor, new KingbaseMergeLoader(() -> "1"),
+            (c, range, table) -> {
+                if (table.contains("t_trade")) {
+                    throw new IllegalStateException("copy failed");
+                }
+                return 1L;
+            }, f -> true, 4, 1024 * 1024);
+
+        assertThatThrownBy(() -> loader.load(LoadMode.TRUNCATE_LOAD, filesByTable, null, true, null,
+            new HashMap<>()))
+            .isInstanceOf(IllegalStateException.class);
+
+        List<String> sqls = executedSql();
+        assertThat(sqls).noneMatch(sql -> sql.startsWith("TRUNCATE") || sql.startsWith("INSERT"));
+        assertThat(sqls).contains("DROP TABLE IF EXISTS \"t_order_kel_stg_1\"", "DROP TABLE IF EXISTS \"t_trade_kel_stg_1\"");
+        verify(conn, never()).commit();
+    }
+
+    @Test
+    void load_nonTransactionalAppend_copiesDirectlyToTarget() throws Exception {
+        Map<String, List<Path>> filesByTable = new LinkedHashMap<>();
+        filesByTable.put("t_order", Collections.singletonList(writeRows("t_order.txt", 10)));
+        List<String> copiedTables = Collections.synchronizedList(new ArrayList<>());
+        KingbaseParallelLoader loader = new KingbaseParallelLoader(dataSource, executor, new KingbaseMergeLoader(() -> "1"),
+            (c, range, table) -> {
+                copiedTables.add(table);
+                return 10L;
+            }, f -> true, 4, 1024 * 1024);
+
+        loader.load(LoadMode.APPEND, filesByTable, null, false, null, new HashMap<>());
+
+        assertThat(copiedTables).containsExactly("t_order");
+        verify(stmt, never()).execute(anyString());
+    }
+
+    @Test
+    void load_merge_copiesFilesInOrderWithoutSplitting() throws Exception {
+        // 同一合并键在前后两个段文件中各出现一次，后一段的值应在暂存表中后写入
+        Path first = tempDir.resolve("t_order.txt.001");
+        Path second = tempDir.resolve("t_order.txt.002");
+        Files.write(first, rows(1000, "旧").getBytes(StandardCharsets.UTF_8));
+        Files.write(second, rows(1000, "新").getBytes(StandardCharsets.UTF_8));
+        Map<String, List<Path>> filesByTable = new LinkedHashMap<>();
+        filesByTable.put("t_order", Arrays.asList(first, second));
+        List<KingbaseParallelLoader.FileRange> copied = Collections.synchronizedList(new ArrayList<>());
+        List<String> merged = Collections.synchronizedList(new ArrayList<>());
+        KingbaseMergeLoader mergeLoader = new KingbaseMergeLoader(() -> "1") {
+            @Override
+            MergeResult merge(Connection c, String staging, String targetTable, MergeOptions options) {
+                merged.add(staging);
+                return new MergeResult();
+            }
+        };
+        KingbaseParallelLoader loader = new KingbaseParallelLoader(dataSource, executor, mergeLoader,
+            (c, range, table) -> {
+                // 第一段较慢：并发写入时第二段会先落入暂存表
+                if (range.getFile().equals(first)) {
+                    Thread.sleep(100L);
+                }
+                copied.add(range);
+                return 1000L;
+            }, f -> true, 4, 100);
+        KingbaseMergeLoader.MergeOptions options = new KingbaseMergeLoader.MergeOptions(
+            Collections.singletonList("id"), null, null, true);
+        Map<String, Long> stats = new HashMap<>();
+
+        loader.load(LoadMode.MERGE, filesByTable, options, false, null, stats);
+
+        assertThat(copied).containsExactly(
+            new KingbaseParallelLoader.FileRange(first, 0L, Files.size(first)),
+            new KingbaseParallelLoader.FileRange(second, 0L, Files.size(second)));
+        assertThat(merged).containsExactly("\"t_order_kel_stg_1\"");
+        assertThat(stats).containsEntry("t_order", 2000L);
+    }
+
+    private List<String> executedSql() throws Exception {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(stmt, org.mockito.Mockito.atLeastOnce()).execute(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private Path writeRows(String name, int rows) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.write(file, rows(rows, "值").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String rows(int rows, String value) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append('\u001e').append(value).append(i).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package org.csits.kel.server.plugin.synthetic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.csits.kel.manager.security.SimpleSmCryptoManager;
+import org.csits.kel.server.constants.JobType;
+import org.csits.kel.server.dto.GlobalConfig;
+import org.csits.kel.server.dto.JobConfig;
+import org.csits.kel.server.dto.TaskExecutionContext;
+import org.csits.kel.server.plugin.kingbase.KingbaseExtractPlugin;
+import org.csits.kel.server.service.MetricsCollector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SyntheticExtractPluginTest {
+
+    private final SimpleSmCryptoManager smCryptoManager = new SimpleSmCryptoManager();
+    private SyntheticExtractPlugin extractPlugin;
+    private SyntheticLoadPlugin loadPlugin;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        extractPlugin = new SyntheticExtractPlugin(new MetricsCollector(null), smCryptoManager);
+        loadPlugin = new SyntheticLoadPlugin();
+    }
+
+    @Test
+    void supports_matchesSyntheticJobTypes() {
+        assertThat(extractPlugin.supports(context(JobType.SYNTHETIC_EXTRACT, "syn", null))).isTrue();
+        assertThat(extractPlugin.supports(context(JobType.EXTRACT_KINGBASE, "syn", null))).isFalse();
+        assertThat(loadPlugin.supports(context(JobType.SYNTHETIC_LOAD, "syn_load", null))).isTrue();
+        assertThat(loadPlugin.supports(context(JobType.KINGBASE_LOAD, "syn_load", null))).isFalse();
+        assertThat(extractPlugin.supports("not a context")).isFalse();
+    }
+
+    @Test
+    void rowsPerTable_skewConcentratesRowsInFirstTables() {
+        // 均分：余数补给靠前的表，合计恰为总行数
+        assertThat(settings(4, 10L, 0D).rowsPerTable()).containsExactly(3L, 3L, 2L, 2L);
+
+        long[] skewed = settings(4, 100000L, 1D).rowsPerTable();
+        assertThat(Arrays.stream(skewed).sum()).isEqualTo(100000L);
+        assertThat(skewed[0]).isGreaterThan(skewed[1]).isGreaterThan(skewed[3]);
+        // Zipf(1)：第 4 张表约为第 1 张的 1/4
+        assertThat((double) skewed[3] / skewed[0]).isBetween(0.24, 0.26);
+    }
+
+    @Test
+    void extract_thenLoad_roundTripsRowsAndColumns() throws Exception {
+        JobConfig.SyntheticConfig synthetic = new JobConfig.SyntheticConfig();
+        synthetic.setTables(3);
+        synthetic.setRows(1000L);
+        synthetic.setColumns(Arrays.asList("bigint", "int", "numeric", "text", "date", "timestamp", "bool"));
+        synthetic.setTextLength(8);
+        synthetic.setSkew(1D);
+        TaskExecutionContext extractCtx = context(JobType.SYNTHETIC_EXTRACT, "syn", synthetic);
+        extractCtx.getJobConfig().setRuntime(new JobConfig.RuntimeConfig());
+        extractCtx.getJobConfig().getRuntime().setTableConcurrency(2);
+
+        extractPlugin.extract(extractCtx);
+
+        List<KingbaseExtractPlugin.TableExportResult> results = extractCtx.getAttribute("exportResults");
+        assertThat(results).extracting(KingbaseExtractPlugin.TableExportResult::getTableName)
+            .containsExactly("synthetic_t000", "synthetic_t001", "synthetic_t002");
+        assertThat(results.stream().mapToLong(KingbaseExtractPlugin.TableExportResult::getRowCount).sum())
+            .isEqualTo(1000L);
+        KingbaseExtractPlugin.TableExportResult first = results.get(0);
+        // 写入时计算的大小与SM3和文件一致，首行为 COPY 文本格式的 7 列
+        assertThat(first.getSize()).isEqualTo(Files.size(first.getFilePath()));
+        assertThat(first.getSm3()).isEqualTo(smCryptoManager.calculateSm3(first.getFilePath()));
+        String firstLine = Files.readAllLines(first.getFilePath()).get(0);
+        assertThat(firstLine.split("\t", -1)).hasSize(7);
+        assertThat(firstLine).startsWith("1\t");
+
+        // 相同种子生成相同数据
+        Path copy = tempDir.resolve("copy.txt");
+        Files.copy(first.getFilePath(), copy);
+        extractPlugin.extract(extractCtx);
+        assertThat(Files.readAllBytes(first.getFilePath())).isEqualTo(Files.readAllBytes(copy));
+
+        // 加载侧读取同一工作目录（无 manifest 时扫描 data 目录），行数与卸载一致
+        TaskExecutionContext loadCtx = context(JobType.SYNTHETIC_LOAD, "syn", synthetic);
+        loadPlugin.load(loadCtx);
+        Map<String, Long> stats = loadCtx.getAttribute("loadTableStats");
+        assertThat(stats.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(1000L);
+        assertThat(stats.get("synthetic_t000.txt")).isEqualTo(first.getRowCount());
+    }
+
+    @Test
+    void consume_rejectsRowsWithWrongColumnCount() throws Exception {
+        Path file = tempDir.resolve("bad.txt");
+        Files.write(file, "1\ta\n2\tb\n".getBytes());
+        assertThat(SyntheticLoadPlugin.consume(file, 2)).isEqualTo(2L);
+
+        // 列数不符、末行不完整均视为数据损坏
+        Files.write(file, "1\ta\n2\tb\tc\n".getBytes());
+        assertThatThrownBy(() -> SyntheticLoadPlugin.consume(file, 2)).hasMessageContaining("第 2 行列数为 3");
+        Files.write(file, "1\ta\n2\tb".getBytes());
+        assertThatThrownBy(() -> SyntheticLoadPlugin.consume(file, 2)).hasMessageContaining("末行不完整");
+    }
+
+    private SyntheticSettings settings(int tables, long rows, double skew) {
+        JobConfig.SyntheticConfig synthetic = new JobConfig.SyntheticConfig();
+        synthetic.setTables(tables);
+        synthetic.setRows(rows);
+        synthetic.setSkew(skew);
+        JobConfig jobConfig = new JobConfig();
+        jobConfig.setSynthetic(synthetic);
+        return SyntheticSettings.resolve(jobConfig);
+    }
+
+    private TaskExecutionContext context(JobType type, String jobName, JobConfig.SyntheticConfig synthetic) {
+        JobConfig jobConfig = new JobConfig();
+        JobConfig.JobBasic job = new JobConfig.JobBasic();
+        job.setType(type);
+        job.setName(jobName);
+        jobConfig.setJob(job);
+        jobConfig.setWorkDir(tempDir.resolve("work").toString());
+        jobConfig.setSynthetic(synthetic);
+        return new TaskExecutionContext(1L, "batch1", jobName, new GlobalConfig(), jobConfig);
+    }
+}
@@ -0,0 +1,170 @@
+package org.csits.kel.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.csits.kel.manager.security.SimpleSmCryptoManager;
+import org.csits.kel.manager.security.Sm3ChunkTree;
+import org.csits.kel.server.dto.GlobalConfig;
+import org.csits.kel.server.dto.ManifestMetadata;
+import org.csits.kel.server.dto.TaskExecutionContext;
+import org.csits.kel.server.plugin.kingbase.KingbaseExtractPlugin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Manifest服务测试
+ */
+class ManifestServiceTest {
+
+    private final SimpleSmCryptoManager smCryptoManager = new SimpleSmCryptoManager();
+    private ManifestService manifestService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        manifestService = new ManifestService(smCryptoManager, new ObjectMapper());
+    }
+
+    @Test
+    void generateManifest_parallelHashing_keepsExportOrder() throws IOException {
+        Path dataDir = Files.createDirectories(tempDir.resolve("data"));
+        List<KingbaseExtractPlugin.TableExportResult> exportResults = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Path file = dataDir.resolve("t" + i + ".txt");
+            Files.write(file, ("row-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            exportResults.add(new KingbaseExtractPlugin.TableExportResult("t" + i, file, i));
+        }
+
+        ManifestMetadata single = manifestService.generateManifest(newContext(1, exportResults), tempDir);
+        ManifestMetadata parallel = manifestService.generateManifest(newContext(4, exportResults), tempDir);
+
+        // 并行计算的结果与单线程一致，且按导出结果顺序记录
+        assertThat(parallel.getFiles()).isEqualTo(single.getFiles());
+        for (int i = 0; i < 12; i++) {
+            ManifestMetadata.FileInfo fileInfo = parallel.getFiles().get(i);
+            Path file = dataDir.resolve("t" + i + ".txt");
+            assertThat(fileInfo.getName()).isEqualTo("data/t" + i + ".txt");
+            assertThat(fileInfo.getSize()).isEqualTo(Files.size(file));
+            assertThat(fileInfo.getSm3()).isEqualTo(smCryptoManager.calculateSm3(file));
+        }
+        assertThat(manifestService.validateManifest(parallel, tempDir, 4)).isTrue();
+    }
+
+    @Test
+    void validateManifest_parallel_detectsCorruptedAndMissingFiles() throws IOException {
+        Path dataDir = Files.createDirectories(tempDir.resolve("data"));
+        List<KingbaseExtractPlugin.TableExportResult> exportResults = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Path file = dataDir.resolve("t" + i + ".txt");
+            Files.write(file, ("row-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            exportResults.add(new KingbaseExtractPlugin.TableExportResult("t" + i, file, 1));
+        }
+        ManifestMetadata manifest = manifestService.generateManifest(newContext(4, exportResults), tempDir);
+
+        // 同长度内容被改写：大小一致、SM3 不一致
+        Files.write(dataDir.resolve("t2.txt"), "ROW-2\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(manifestService.validateManifest(manifest, tempDir, 4)).isFalse();
+
+        Files.write(dataDir.resolve("t2.txt"), "row-2\n".getBytes(StandardCharsets.UTF_8));
+        Files.delete(dataDir.resolve("t5.txt"));
+        assertThat(manifestService.validateManifest(manifest, tempDir, 4)).isFalse();
+    }
+
+    @Test
+    void generateManifest_usesDigestsComputedDuringExport() throws IOException {
+        Files.createDirectories(tempDir.resolve("data"));
+        // 导出时已计算大小与SM3的文件不再回读（文件不存在也不影响）
+        KingbaseExtractPlugin.TableExportResult hashed =
+            new KingbaseExtractPlugin.TableExportResult("t_hashed", tempDir.resolve("data").resolve("gone.txt"), 3);
+        hashed.setSize(42L);
+        hashed.setSm3("abc123");
+        Path fallbackFile = tempDir.resolve("data").resolve("fallback.txt");
+        Files.write(fallbackFile, "x\n".getBytes(StandardCharsets.UTF_8));
+        KingbaseExtractPlugin.TableExportResult fallback =
+            new KingbaseExtractPlugin.TableExportResult("t_fallback", fallbackFile, 1);
+        List<KingbaseExtractPlugin.TableExportResult> exportResults = new ArrayList<>();
+        exportResults.add(hashed);
+        exportResults.add(fallback);
+
+        ManifestMetadata manifest = manifestService.generateManifest(newContext(2, exportResults), tempDir);
+
+        assertThat(manifest.getFiles().get(0).getSize()).isEqualTo(42L);
+        assertThat(manifest.getFiles().get(0).getSm3()).isEqualTo("abc123");
+        assertThat(manifest.getFiles().get(1).getSize()).isEqualTo(2L);
+        assertThat(manifest.getFiles().get(1).getSm3()).isEqualTo(smCryptoManager.calculateSm3(fallbackFile));
+    }
+
+    @Test
+    void validateManifest_comparesDigestsRecordedWhileUnpacking() throws IOException {
+        Path dataDir = Files.createDirectories(tempDir.resolve("data"));
+        Path file = dataDir.resolve("t1.txt");
+        Files.write(file, "row\n".getBytes(StandardCharsets.UTF_8));
+        List<KingbaseExtractPlugin.TableExportResult> exportResults = new ArrayList<>();
+        exportResults.add(new KingbaseExtractPlugin.TableExportResult("t1", file, 1));
+        ManifestMetadata manifest = manifestService.generateManifest(newContext(1, exportResults), tempDir);
+
+        Map<String, ManifestMetadata.FileInfo> unpacked = new HashMap<>();
+        ManifestMetadata.FileInfo recorded = new ManifestMetadata.FileInfo();
+        recorded.setName("data/t1.txt");
+        recorded.setSize(Files.size(file));
+        recorded.setSm3(smCryptoManager.calculateSm3(file));
+        unpacked.put(recorded.getName(), recorded);
+        assertThat(manifestService.validateManifest(manifest, tempDir, unpacked, 1)).isTrue();
+
+        // 以解包时记录的值为准：记录值不一致即校验失败
+        recorded.setSm3("0000");
+        assertThat(manifestService.validateManifest(manifest, tempDir, unpacked, 1)).isFalse();
+    }
+
+    @Test
+    void validateManifest_chunkTree_reportsDamagedRange() throws IOException {
+        Path dataDir = Files.createDirectories(tempDir.resolve("data"));
+        Path file = dataDir.resolve("big.txt");
+        byte[] data = new byte[3 * 1024 * 1024 + 100];
+        new Random(7).nextBytes(data);
+        Files.write(file, data);
+        List<KingbaseExtractPlugin.TableExportResult> exportResults = new ArrayList<>();
+        exportResults.add(new KingbaseExtractPlugin.TableExportResult("big", file, 1));
+        TaskExecutionContext context = newContext(2, exportResults);
+        GlobalConfig.SecurityConfig security = new GlobalConfig.SecurityConfig();
+        security.setSm3ChunkMb(1);
+        context.getGlobalConfig().setSecurity(security);
+
+        ManifestMetadata manifest = manifestService.generateManifest(context, tempDir);
+        ManifestMetadata.FileInfo fileInfo = manifest.getFiles().get(0);
+        assertThat(fileInfo.getChunkTree().getLeaves()).hasSize(4);
+        assertThat(manifestService.validateManifest(manifest, tempDir, 2)).isTrue();
+
+        // 只有第 2 块（从 0 开始）损坏，定位到该块的字节区间
+        data[2 * 1024 * 1024 + 10] ^= 1;
+        Files.write(file, data);
+        assertThat(manifestService.validateManifest(manifest, tempDir, 2)).isFalse();
+        List<Sm3ChunkTree.ChunkRange> damaged = manifestService.findDamagedRanges(file, fileInfo.getSize(),
+            fileInfo.getSm3(), fileInfo.getChunkTree(), 2);
+        assertThat(damaged).containsExactly(new Sm3ChunkTree.ChunkRange(2, 2L * 1024 * 1024, 1024 * 1024));
+    }
+
+    private TaskExecutionContext newContext(int hashThreads,
+                                            List<KingbaseExtractPlugin.TableExportResult> exportResults) {
+        GlobalConfig globalConfig = new GlobalConfig();
+        GlobalConfig.ConcurrencyConfig concurrency = new GlobalConfig.ConcurrencyConfig();
+        concurrency.setHashThreads(hashThreads);
+        globalConfig.setConcurrency(concurrency);
+        TaskExecutionContext context = new TaskExecutionContext(1L, "20260101_001", "job", globalConfig, null);
+        context.setAttribute("exportResults", exportResults);
+        return context;
+    }
+}
@@ -0,0 +1,118 @@
+package org.csits.kel.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.csits.kel.manager.compression.ArchiveWriter;
+import org.csits.kel.manager.security.SimpleSmCryptoManager;
+import org.csits.kel.server.plugin.kingbase.KingbaseExtractPlugin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 阶段重叠归档测试
+ */
+class OverlappedExportArchiverTest {
+
+    private final SimpleSmCryptoManager smCryptoManager = new SimpleSmCryptoManager();
+    private final List<String> archived = Collections.synchronizedList(new ArrayList<>());
+    private final ProgressTracker progressTracker = mock(ProgressTracker.class);
+    private volatile boolean failWrites;
+
+    @TempDir
+    Path workDir;
+
+    private Path dataDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dataDir = Files.createDirectories(workDir.resolve("data"));
+    }
+
+    @Test
+    void exportedFiles_areArchivedBeforeFinish_andRemainingFilesAfter() throws Exception {
+        OverlappedExportArchiver archiver = newArchiver(2);
+        archiver.start();
+        archiver.onExportPlanned(2);
+
+        // 第一个文件导出时已计算SM3，第二个（COPY TO 文件回退）由归档线程回读计算
+        KingbaseExtractPlugin.TableExportResult hashed = result("t_a", "a\n");
+        hashed.setSize(2L);
+        hashed.setSm3(smCryptoManager.calculateSm3(hashed.getFilePath()));
+        KingbaseExtractPlugin.TableExportResult unhashed = result("t_b", "bb\n");
+        archiver.onFileExported(hashed);
+        archiver.onFileExported(unhashed);
+        // 插件未通知的文件、已存在的 manifest.json
+        write(dataDir.resolve("t_c.txt"), "c\n");
+        write(workDir.resolve("manifest.json"), "{}");
+
+        archiver.finish();
+
+        assertThat(archived).containsExactly("data/t_a.txt", "data/t_b.txt", "data/t_c.txt");
+        assertThat(unhashed.getSize()).isEqualTo(3L);
+        assertThat(unhashed.getSm3()).isEqualTo(smCryptoManager.calculateSm3(unhashed.getFilePath()));
+        // 导出与压缩打包的进度一并上报
+        verify(progressTracker, atLeastOnce()).updateExtractProgress(eq(1L), anyMap());
+    }
+
+    @Test
+    void archiveFailure_isRaisedToExportThread() throws Exception {
+        failWrites = true;
+        OverlappedExportArchiver archiver = newArchiver(1);
+        archiver.start();
+
+        // 归档线程失败后，后续导出通知与结束等待都抛出该异常，不会永久阻塞
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < 4; i++) {
+                archiver.onFileExported(result("t_more" + i, "x\n"));
+            }
+            archiver.finish();
+        }).isInstanceOf(IOException.class).hasRootCauseMessage("磁盘已满");
+    }
+
+    private OverlappedExportArchiver newArchiver(int queueCapacity) {
+        ArchiveWriter writer = new ArchiveWriter() {
+            @Override
+            public void putEntry(String name, byte[] data, int offset, int length) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void putFile(String name, Path file) throws IOException {
+                if (failWrites) {
+                    throw new IOException("磁盘已满");
+                }
+                archived.add(name.replace('\\', '/'));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        return new OverlappedExportArchiver(writer, workDir, smCryptoManager, smCryptoManager::newSm3Digest,
+            progressTracker, 1L, queueCapacity);
+    }
+
+    private KingbaseExtractPlugin.TableExportResult result(String table, String content) throws IOException {
+        Path file = dataDir.resolve(table + ".txt");
+        write(file, content);
+        return new KingbaseExtractPlugin.TableExportResult(table, file, 1L);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
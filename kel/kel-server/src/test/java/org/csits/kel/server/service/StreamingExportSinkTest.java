@@ -0,0 +1,92 @@
+package org.csits.kel.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.csits.kel.manager.compression.ArchiveWriter;
+import org.csits.kel.manager.security.SimpleSmCryptoManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 流式导出通道测试
+ */
+class StreamingExportSinkTest {
+
+    private final Map<String, byte[]> archived = new LinkedHashMap<>();
+    private StreamingExportSink sink;
+
+    @BeforeEach
+    void setUp() {
+        ArchiveWriter writer = new ArchiveWriter() {
+            @Override
+            public void putEntry(String name, byte[] data, int offset, int length) {
+                archived.put(name, Arrays.copyOfRange(data, offset, offset + length));
+            }
+
+            @Override
+            public void putFile(String name, Path file) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        sink = new StreamingExportSink(writer, new SimpleSmCryptoManager(), 16);
+    }
+
+    @Test
+    void smallFile_isWrittenAsSingleEntryWithOriginalName() throws IOException {
+        try (OutputStream out = sink.openDataFile("t_small.txt")) {
+            out.write("a\u001Eb\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(archived).containsOnlyKeys("data/t_small.txt");
+        List<StreamingExportSink.EntryRecord> entries = sink.getEntries();
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getSegmentIndex()).isZero();
+        assertThat(entries.get(0).getSize()).isEqualTo(4);
+        assertThat(entries.get(0).getSm3()).isNotEmpty();
+    }
+
+    @Test
+    void largeFile_isSplitAtLineBoundaries() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (OutputStream out = sink.openDataFile("t_big.txt")) {
+            for (int i = 0; i < 10; i++) {
+                byte[] row = ("row-" + i + "\n").getBytes(StandardCharsets.UTF_8);
+                out.write(row);
+                expected.write(row);
+            }
+        }
+
+        assertThat(archived.keySet()).allMatch(name -> name.matches("data/t_big\\.p\\d{3}\\.txt"));
+        assertThat(archived).hasSizeGreaterThan(1);
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (byte[] segment : archived.values()) {
+            assertThat(segment[segment.length - 1]).isEqualTo((byte) '\n');
+            joined.write(segment);
+        }
+        assertThat(joined.toByteArray()).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    void rowLongerThanSegment_isKeptInOneEntry() throws IOException {
+        byte[] longRow = "0123456789012345678901234567890123456789\n".getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = sink.openDataFile("t_wide.txt")) {
+            out.write(longRow);
+        }
+
+        assertThat(archived).containsOnlyKeys("data/t_wide.txt");
+        assertThat(archived.get("data/t_wide.txt")).isEqualTo(longRow);
+    }
+}
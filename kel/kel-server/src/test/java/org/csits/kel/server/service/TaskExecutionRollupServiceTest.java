@@ -0,0 +1,116 @@
+package org.csits.kel.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.csits.kel.dao.TaskExecutionDailyEntity;
+import org.csits.kel.dao.TaskExecutionDailyRepository;
+import org.csits.kel.dao.TaskExecutionEntity;
+import org.csits.kel.dao.TaskExecutionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * 任务执行按日汇总服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class TaskExecutionRollupServiceTest {
+
+    @Mock
+    private TaskExecutionRepository taskExecutionRepository;
+
+    @Mock
+    private TaskExecutionDailyRepository taskExecutionDailyRepository;
+
+    private TaskExecutionRollupService rollupService;
+    private TaskExecutionEntity entity;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new TaskExecutionRollupService(taskExecutionRepository, taskExecutionDailyRepository,
+            new ObjectMapper());
+        entity = new TaskExecutionEntity();
+        entity.setId(1L);
+        entity.setJobName("job1");
+        entity.setStatus("SUCCESS");
+        // start_time 为空时按 created_at 计日期与耗时
+        entity.setCreatedAt(LocalDateTime.of(2026, 3, 1, 23, 59, 0));
+        entity.setEndTime(LocalDateTime.of(2026, 3, 2, 0, 1, 30));
+        entity.setStatistics("{\"totalRows\":1200,\"originalSize\":4096,\"totalDurationMs\":150000}");
+    }
+
+    @Test
+    void recordTerminal_addsTaskTotalsToItsDay() {
+        when(taskExecutionRepository.findById(1L)).thenReturn(Optional.of(entity));
+
+        rollupService.recordTerminal(1L);
+
+        ArgumentCaptor<TaskExecutionDailyEntity> captor = ArgumentCaptor.forClass(TaskExecutionDailyEntity.class);
+        verify(taskExecutionDailyRepository).add(captor.capture());
+        TaskExecutionDailyEntity delta = captor.getValue();
+        assertThat(delta.getStatDate()).isEqualTo(LocalDate.of(2026, 3, 1));
+        assertThat(delta.getJobName()).isEqualTo("job1");
+        assertThat(delta.getStatus()).isEqualTo("SUCCESS");
+        assertThat(delta.getTaskCount()).isEqualTo(1L);
+        assertThat(delta.getTotalRows()).isEqualTo(1200L);
+        assertThat(delta.getTotalBytes()).isEqualTo(4096L);
+        assertThat(delta.getTotalDurationMs()).isEqualTo(150000L);
+    }
+
+    @Test
+    void retractTerminal_subtractsTaskTotals() {
+        when(taskExecutionRepository.findById(1L)).thenReturn(Optional.of(entity));
+
+        rollupService.retractTerminal(1L);
+
+        ArgumentCaptor<TaskExecutionDailyEntity> captor = ArgumentCaptor.forClass(TaskExecutionDailyEntity.class);
+        verify(taskExecutionDailyRepository).add(captor.capture());
+        assertThat(captor.getValue().getTaskCount()).isEqualTo(-1L);
+        assertThat(captor.getValue().getTotalRows()).isEqualTo(-1200L);
+        assertThat(captor.getValue().getTotalDurationMs()).isEqualTo(-150000L);
+    }
+
+    @Test
+    void recordTerminal_skipsRunningTask() {
+        entity.setStatus("RUNNING");
+        when(taskExecutionRepository.findById(1L)).thenReturn(Optional.of(entity));
+
+        rollupService.recordTerminal(1L);
+
+        verify(taskExecutionDailyRepository, never()).add(any());
+    }
+
+    @Test
+    void countByStatus_mergesRollupWithPartialDays() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime since = today.minusDays(7).atTime(10, 0);
+        Map<String, Long> rolledUp = new HashMap<>();
+        rolledUp.put("SUCCESS", 40L);
+        rolledUp.put("FAILED", 2L);
+        Map<String, Long> unrolled = new HashMap<>();
+        unrolled.put("SUCCESS", 3L);
+        unrolled.put("RUNNING", 1L);
+        when(taskExecutionDailyRepository.sumTaskCountByStatus(since.toLocalDate(), today, "job1"))
+            .thenReturn(rolledUp);
+        when(taskExecutionRepository.countUnrolledByStatus(since, today.atStartOfDay(), "job1"))
+            .thenReturn(unrolled);
+
+        Map<String, Long> counts = rollupService.countByStatus(since, "job1");
+
+        assertThat(counts).containsOnly(entry("SUCCESS", 43L), entry("FAILED", 2L), entry("RUNNING", 1L));
+    }
+}
@@ -58,7 +58,6 @@ class TaskExecutionServiceTest {
             null,
             null,
             null,
-            null,
             null
         );
     }
@@ -0,0 +1,106 @@
+package org.csits.kel.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.csits.kel.dao.TaskExecutionLogEntity;
+import org.csits.kel.dao.TaskExecutionLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 任务执行日志批量异步写入测试
+ */
+class TaskLogWriterTest {
+
+    private final RecordingRepository repository = new RecordingRepository();
+    private TaskLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new TaskLogWriter(repository);
+        writer.setBatchSize(3);
+        // 刷新间隔足够长，测试中的写出只能来自凑满一批或 flush
+        writer.setFlushIntervalMs(60000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+    }
+
+    @Test
+    void flush_writesQueuedEntriesInOrderAndInBatches() {
+        for (int i = 1; i <= 7; i++) {
+            writer.append(1L, "INFO", "EXPORT", "msg-" + i);
+        }
+
+        writer.flush();
+
+        assertThat(repository.messages()).containsExactly("msg-1", "msg-2", "msg-3", "msg-4", "msg-5", "msg-6", "msg-7");
+        assertThat(repository.batchSizes).allMatch(size -> size <= 3);
+        assertThat(repository.entries.get(0).getTaskId()).isEqualTo(1L);
+        assertThat(repository.entries.get(0).getCreatedAt()).isNotNull();
+    }
+
+    @Test
+    void close_writesRemainingEntries() {
+        writer.append(1L, "INFO", "INIT", "first");
+        writer.append(2L, "ERROR", "FAILED", "second");
+
+        writer.close();
+
+        assertThat(repository.messages()).containsExactly("first", "second");
+        assertThat(repository.entries.get(1).getLogLevel()).isEqualTo("ERROR");
+    }
+
+    @Test
+    void writeFailure_isSwallowed() {
+        repository.fail = true;
+        writer.append(1L, "INFO", "EXPORT", "lost");
+
+        // 写入失败不影响调用方，后续日志照常写入
+        writer.flush();
+        repository.fail = false;
+        writer.append(1L, "INFO", "EXPORT", "kept");
+        writer.flush();
+
+        assertThat(repository.messages()).containsExactly("kept");
+    }
+
+    /**
+     * 记录写入批次的仓储
+     */
+    private static class RecordingRepository implements TaskExecutionLogRepository {
+
+        private final List<TaskExecutionLogEntity> entries = new ArrayList<>();
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private volatile boolean fail;
+
+        @Override
+        public synchronized void appendAll(List<TaskExecutionLogEntity> batch) {
+            if (fail) {
+                throw new IllegalStateException("数据库不可用");
+            }
+            entries.addAll(batch);
+            batchSizes.add(batch.size());
+        }
+
+        @Override
+        public List<TaskExecutionLogEntity> findByTaskId(Long taskId, long afterId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long countByTaskId(Long taskId) {
+            return entries.size();
+        }
+
+        synchronized List<String> messages() {
+            return entries.stream().map(TaskExecutionLogEntity::getMessage).collect(Collectors.toList());
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package org.csits.kel.server.service;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
 import java.util.Optional;
 import org.csits.kel.dao.TaskExecutionEntity;
 import org.csits.kel.dao.TaskExecutionRepository;
@@ -12,6 +15,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -23,12 +27,21 @@ class TaskLoggerTest {
     @Mock
     private TaskExecutionRepository taskExecutionRepository;
 
+    @Mock
+    private TaskLogWriter taskLogWriter;
+
+    @Mock
+    private TaskExecutionRollupService taskExecutionRollupService;
+
+    private TaskStateRegistry taskStateRegistry;
     private TaskLogger taskLogger;
     private TaskExecutionEntity entity;
 
     @BeforeEach
     void setUp() {
-        taskLogger = new TaskLogger(taskExecutionRepository, new ObjectMapper());
+        taskStateRegistry = new TaskStateRegistry(taskExecutionRepository, taskExecutionRollupService);
+        taskLogger = new TaskLogger(taskExecutionRepository, taskLogWriter, taskStateRegistry,
+            taskExecutionRollupService);
         entity = new TaskExecutionEntity();
         entity.setTaskId(1L);
         entity.setJobName("job1");
@@ -37,44 +50,101 @@ class TaskLoggerTest {
 
     @Test
     void logProgress_updatesEntityProgressAndMessage() {
-        when(taskExecutionRepository.findById(1L)).thenReturn(Optional.of(entity));
+        when(taskExecutionRepository.findStateById(1L)).thenReturn(Optional.of(entity));
 
         taskLogger.logProgress(1L, "EXPORT", 50, "导出完成");
 
         ArgumentCaptor<TaskExecutionEntity> captor = ArgumentCaptor.forClass(TaskExecutionEntity.class);
-        verify(taskExecutionRepository).save(captor.capture());
+        verify(taskExecutionRepository).updateState(captor.capture());
         TaskExecutionEntity updated = captor.getValue();
         assertThat(updated.getProgress()).isEqualTo(50);
         assertThat(updated.getCurrentStage()).isEqualTo("EXPORT");
+        verify(taskLogWriter).append(1L, "INFO", "EXPORT", "导出完成");
+    }
+
+    @Test
+    void log_appendsWithoutUpdatingEntity() {
+        taskLogger.log(1L, "EXPORT", "卸载表 t_order 10 行");
+
+        verify(taskLogWriter).append(1L, "INFO", "EXPORT", "卸载表 t_order 10 行");
+        verify(taskExecutionRepository, never()).findById(any());
+        verify(taskExecutionRepository, never()).save(any());
+    }
+
+    @Test
+    void registeredTask_progressStaysInMemoryUntilTerminal() {
+        taskStateRegistry.register(entity);
+
+        taskLogger.logProgress(1L, "EXPORT", 50, "导出完成");
+        taskLogger.logProgress(1L, "MANIFEST", 60, "生成清单完成");
+
+        // 执行中的进度只写内存
+        verify(taskExecutionRepository, never()).findStateById(any());
+        verify(taskExecutionRepository, never()).updateStateAll(any());
+        assertThat(taskStateRegistry.find(1L)).get()
+            .extracting(TaskExecutionEntity::getProgress, TaskExecutionEntity::getCurrentStage)
+            .containsExactly(60, "MANIFEST");
+
+        taskLogger.markSuccess(1L, "任务完成");
+
+        // 终态立即写库（一次部分列更新）并移出内存
+        ArgumentCaptor<List<TaskExecutionEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(taskExecutionRepository).updateStateAll(captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+        TaskExecutionEntity written = captor.getValue().get(0);
+        assertThat(written.getStatus()).isEqualTo("SUCCESS");
+        assertThat(written.getProgress()).isEqualTo(100);
+        assertThat(written.getEndTime()).isNotNull();
+        assertThat(taskStateRegistry.contains(1L)).isFalse();
+        verify(taskExecutionRollupService).recordTerminal(1L);
+        taskStateRegistry.close();
     }
 
     @Test
     void markSuccess_setsStatusSuccessAndProgress100() {
-        when(taskExecutionRepository.findById(1L)).thenReturn(Optional.of(entity));
+        when(taskExecutionRepository.findStateById(1L)).thenReturn(Optional.of(entity));
 
         taskLogger.markSuccess(1L, "任务完成");
 
         ArgumentCaptor<TaskExecutionEntity> captor = ArgumentCaptor.forClass(TaskExecutionEntity.class);
-        verify(taskExecutionRepository).save(captor.capture());
+        verify(taskExecutionRepository).updateState(captor.capture());
         TaskExecutionEntity updated = captor.getValue();
         assertThat(updated.getStatus()).isEqualTo("SUCCESS");
         assertThat(updated.getProgress()).isEqualTo(100);
         assertThat(updated.getCurrentStage()).isEqualTo("任务完成");
         assertThat(updated.getErrorMessage()).isNull();
+        // 结束状态写入前日志已写出
+        InOrder order = inOrder(taskLogWriter, taskExecutionRepository);
+        order.verify(taskLogWriter).flush();
+        order.verify(taskExecutionRepository).updateState(any());
+        verify(taskExecutionRollupService).recordTerminal(1L);
+    }
+
+    @Test
+    void markFailed_afterStateMachineFailed_isNotCountedTwice() {
+        entity.setStatus(TaskExecutionStatus.FAILED.name());
+        when(taskExecutionRepository.findStateById(1L)).thenReturn(Optional.of(entity));
+
+        taskLogger.markFailed(1L, "失败", "连接超时");
+
+        verify(taskExecutionRepository).updateState(any());
+        verify(taskExecutionRollupService, never()).recordTerminal(any());
+        verify(taskExecutionRollupService, never()).retractTerminal(any());
     }
 
     @Test
     void markFailed_setsStatusFailedAndErrorMessage() {
-        when(taskExecutionRepository.findById(1L)).thenReturn(Optional.of(entity));
+        when(taskExecutionRepository.findStateById(1L)).thenReturn(Optional.of(entity));
 
         taskLogger.markFailed(1L, "失败", "连接超时");
 
         ArgumentCaptor<TaskExecutionEntity> captor = ArgumentCaptor.forClass(TaskExecutionEntity.class);
-        verify(taskExecutionRepository).save(captor.capture());
+        verify(taskExecutionRepository).updateState(captor.capture());
         TaskExecutionEntity updated = captor.getValue();
         assertThat(updated.getStatus()).isEqualTo("FAILED");
         assertThat(updated.getProgress()).isEqualTo(0);
         assertThat(updated.getCurrentStage()).isEqualTo("失败");
         assertThat(updated.getErrorMessage()).isEqualTo("连接超时");
+        verify(taskLogWriter).append(1L, "ERROR", "FAILED", "失败: 连接超时");
     }
 }
@@ -0,0 +1,170 @@
+package org.csits.kel.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.csits.kel.dao.TaskExecutionEntity;
+import org.csits.kel.dao.TaskExecutionRepository;
+import org.csits.kel.dao.TaskExecutionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * 任务状态登记表测试
+ */
+@ExtendWith(MockitoExtension.class)
+class TaskStateRegistryTest {
+
+    @Mock
+    private TaskExecutionRepository taskExecutionRepository;
+
+    @Mock
+    private TaskExecutionRollupService taskExecutionRollupService;
+
+    private final List<TaskExecutionEntity> written = Collections.synchronizedList(new ArrayList<>());
+    private TaskStateRegistry registry;
+    private TaskStateMachine stateMachine;
+    private TaskExecutionEntity entity;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TaskStateRegistry(taskExecutionRepository, taskExecutionRollupService);
+        // 刷新间隔足够长，测试中的写库只来自显式刷新或终态
+        registry.setFlushIntervalMs(60000L);
+        stateMachine = new TaskStateMachine(taskExecutionRepository, registry, taskExecutionRollupService);
+        entity = new TaskExecutionEntity();
+        entity.setId(1L);
+        entity.setStatus(TaskExecutionStatus.RUNNING.name());
+        entity.setProgress(0);
+        entity.setCurrentStage("INIT");
+        lenient().doAnswer(inv -> {
+            written.addAll(inv.getArgument(0));
+            return null;
+        }).when(taskExecutionRepository).updateStateAll(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    void updates_areCoalescedIntoOneWritePerFlush() {
+        registry.register(entity);
+        for (int i = 1; i <= 10; i++) {
+            int progress = i * 10;
+            registry.update(1L, state -> state.setProgress(progress));
+        }
+
+        registry.flushAll();
+        // 无新修改时不重复写库
+        registry.flushAll();
+
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0).getProgress()).isEqualTo(100);
+        assertThat(registry.contains(1L)).isTrue();
+    }
+
+    @Test
+    void flushAll_writesAllChangedTasksInOneBatch() {
+        registry.register(entity);
+        TaskExecutionEntity other = new TaskExecutionEntity();
+        other.setId(2L);
+        other.setStatus(TaskExecutionStatus.RUNNING.name());
+        registry.register(other);
+        registry.update(1L, state -> state.setProgress(30));
+        registry.update(2L, state -> state.setProgress(70));
+
+        registry.flushAll();
+
+        verify(taskExecutionRepository, times(1)).updateStateAll(any());
+        assertThat(written).extracting(TaskExecutionEntity::getId, TaskExecutionEntity::getProgress)
+            .containsExactlyInAnyOrder(tuple(1L, 30), tuple(2L, 70));
+    }
+
+    @Test
+    void markRunning_registersTask_andTerminalTransitionWritesAndRemoves() {
+        when(taskExecutionRepository.findStateById(1L)).thenReturn(Optional.of(entity));
+
+        // 已是 RUNNING（创建时写入）：不写库，只登记
+        assertThat(stateMachine.markRunning(1L, "开始执行")).isTrue();
+        assertThat(written).isEmpty();
+        assertThat(registry.contains(1L)).isTrue();
+        assertThat(stateMachine.getCurrentStatus(1L)).isEqualTo(TaskExecutionStatus.RUNNING);
+
+        assertThat(stateMachine.markFailed(1L, "任务失败", "连接超时")).isTrue();
+
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0).getStatus()).isEqualTo("FAILED");
+        assertThat(written.get(0).getErrorMessage()).isEqualTo("连接超时");
+        assertThat(written.get(0).getEndTime()).isNotNull();
+        assertThat(registry.contains(1L)).isFalse();
+        verify(taskExecutionRollupService).recordTerminal(1L);
+    }
+
+    @Test
+    void retryFromFailed_retractsRollupBeforeRunning() {
+        entity.setStatus(TaskExecutionStatus.FAILED.name());
+        when(taskExecutionRepository.findStateById(1L)).thenReturn(Optional.of(entity));
+
+        assertThat(stateMachine.markRunning(1L, "重试")).isTrue();
+
+        InOrder order = inOrder(taskExecutionRollupService, taskExecutionRepository);
+        order.verify(taskExecutionRollupService).retractTerminal(1L);
+        order.verify(taskExecutionRepository).updateState(any());
+        verify(taskExecutionRollupService, never()).recordTerminal(any());
+        assertThat(registry.contains(1L)).isTrue();
+    }
+
+    @Test
+    void illegalTransition_isRejectedInMemory() {
+        registry.register(entity);
+        registry.update(1L, state -> state.setStatus(TaskExecutionStatus.SUCCESS.name()));
+
+        assertThat(stateMachine.markCancelled(1L, "取消")).isFalse();
+    }
+
+    @Test
+    void failedTerminalWrite_keepsTaskUntilWritten() {
+        registry.register(entity);
+        doThrow(new IllegalStateException("数据库不可用")).doAnswer(inv -> {
+            written.addAll(inv.getArgument(0));
+            return null;
+        }).when(taskExecutionRepository).updateStateAll(any());
+
+        registry.update(1L, state -> state.setStatus(TaskExecutionStatus.SUCCESS.name()));
+        registry.complete(1L);
+        assertThat(registry.contains(1L)).isTrue();
+        // 终态未写库时不计入日汇总
+        verify(taskExecutionRollupService, never()).recordTerminal(any());
+
+        registry.flushAll();
+
+        assertThat(written).extracting(TaskExecutionEntity::getStatus).containsExactly("SUCCESS");
+        assertThat(registry.contains(1L)).isFalse();
+        // 重试写入成功后计入一次
+        InOrder order = inOrder(taskExecutionRepository, taskExecutionRollupService);
+        order.verify(taskExecutionRepository, times(2)).updateStateAll(any());
+        order.verify(taskExecutionRollupService).recordTerminal(1L);
+        registry.flushAll();
+        verify(taskExecutionRollupService, times(1)).recordTerminal(1L);
+    }
+}
@@ -51,10 +51,12 @@ public class KelApplication implements CommandLineRunner {
         switch (mergedConfig.getJobConfig().getJob().getType()) {
             case EXTRACT_KINGBASE:
             case FILE_EXTRACT:
+            case SYNTHETIC_EXTRACT:
                 taskExecutionService.executeExtract(context);
                 break;
             case KINGBASE_LOAD:
             case FILE_LOAD:
+            case SYNTHETIC_LOAD:
                 taskExecutionService.executeLoad(context);
                 break;
             default:
@@ -55,10 +55,12 @@ public class KelXxlJobHandler {
             switch (merged.getJobConfig().getJob().getType()) {
                 case EXTRACT_KINGBASE:
                 case FILE_EXTRACT:
+                case SYNTHETIC_EXTRACT:
                     taskExecutionService.executeExtract(context);
                     break;
                 case KINGBASE_LOAD:
                 case FILE_LOAD:
+                case SYNTHETIC_LOAD:
                     taskExecutionService.executeLoad(context);
                     break;
                 default:
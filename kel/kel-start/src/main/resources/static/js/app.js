@@ -22,11 +22,16 @@ createApp({
             taskPagination: {
                 page: 0,
                 size: 20,
-                total: 0
+                hasMore: false,
+                // cursors[i] 为第 i 页的起始游标（上一页最后一条的 createdAt、id），第 0 页为 null
+                cursors: [null]
             },
             selectedTask: null,
             taskProgress: null,
             taskStatistics: null,
+            taskLogs: [],
+            taskLogsNextAfterId: 0,
+            taskLogsHasMore: false,
             taskManifest: null,
             selectedJobConfigKey: '',
             loadSourceBatch: '',
@@ -112,7 +117,7 @@ createApp({
         async loadRecentTasks() {
             try {
                 const days = this.currentView === 'monitor' && this.monitorSub === 'overview' ? this.overviewDays : 0;
-                const params = { page: 0, size: 10 };
+                const params = { size: 10 };
                 if (days > 0) params.days = days;
                 const response = await axios.get('/api/tasks', { params });
                 this.recentTasks = response.data.data || [];
@@ -123,16 +128,26 @@ createApp({
 
         async loadTasks() {
             try {
-                const params = {
-                    page: this.taskPagination.page,
-                    size: this.taskPagination.size
-                };
+                const pagination = this.taskPagination;
+                const params = { size: pagination.size };
                 if (this.taskFilter.jobName) params.jobName = this.taskFilter.jobName;
                 if (this.taskFilter.status) params.status = this.taskFilter.status;
+                const cursor = pagination.page > 0 ? pagination.cursors[pagination.page] : null;
+                if (cursor) {
+                    params.afterCreatedAt = cursor.afterCreatedAt;
+                    params.afterId = cursor.afterId;
+                }
 
                 const response = await axios.get('/api/tasks', { params });
                 this.tasks = response.data.data || [];
-                this.taskPagination.total = response.data.total || 0;
+                pagination.hasMore = !!response.data.hasMore;
+                pagination.cursors = pagination.cursors.slice(0, pagination.page + 1);
+                if (pagination.hasMore) {
+                    pagination.cursors.push({
+                        afterCreatedAt: response.data.nextAfterCreatedAt,
+                        afterId: response.data.nextAfterId
+                    });
+                }
             } catch (error) {
                 console.error('加载任务列表失败:', error);
                 alert('加载任务列表失败: ' + (error.response?.data?.error || error.message));
@@ -186,7 +201,7 @@ createApp({
         },
 
         changePage(page) {
-            if (page < 0) return;
+            if (page < 0 || page >= this.taskPagination.cursors.length) return;
             this.taskPagination.page = page;
             this.loadTasks();
         },
@@ -205,6 +220,12 @@ createApp({
                     this.taskProgress = null;
                 }
 
+                // 加载执行日志（首页）
+                this.taskLogs = [];
+                this.taskLogsNextAfterId = 0;
+                this.taskLogsHasMore = false;
+                await this.loadTaskLogs(taskId);
+
                 // 加载统计信息
                 try {
                     const statsResponse = await axios.get(`/api/tasks/${taskId}/statistics`);
@@ -554,6 +575,31 @@ createApp({
             }
         },
 
+        async loadTaskLogs(taskId) {
+            try {
+                const response = await axios.get(`/api/tasks/${taskId}/logs`, {
+                    params: { afterId: this.taskLogsNextAfterId, limit: 200 }
+                });
+                const page = response.data;
+                const entries = (page.data || []).map(e => ({
+                    log_level: e.logLevel,
+                    stage: e.stage,
+                    message: e.message,
+                    created_at: e.createdAt
+                }));
+                this.taskLogs = this.taskLogs.concat(entries);
+                this.taskLogsNextAfterId = page.nextAfterId;
+                this.taskLogsHasMore = page.hasMore;
+            } catch (e) {
+                this.taskLogsHasMore = false;
+            }
+        },
+
+        executionLogEntries(task) {
+            // 旧版本任务的日志保存在 execution_log 字段中
+            return this.taskLogs.length > 0 ? this.taskLogs : this.parseExecutionLog(task);
+        },
+
         parseExecutionLog(task) {
             if (!task || !task.executionLog) return [];
             try {
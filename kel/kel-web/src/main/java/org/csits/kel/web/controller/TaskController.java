@@ -4,15 +4,19 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.csits.kel.dao.TaskExecutionEntity;
+import org.csits.kel.dao.TaskExecutionLogEntity;
+import org.csits.kel.dao.TaskExecutionLogRepository;
+import org.csits.kel.dao.TaskExecutionQuery;
 import org.csits.kel.dao.TaskExecutionRepository;
+import org.csits.kel.dao.TaskExecutionSummary;
 import org.csits.kel.server.dto.GlobalConfig;
 import org.csits.kel.server.dto.ManifestMetadata;
 import org.csits.kel.server.dto.TaskStatistics;
@@ -20,6 +24,8 @@ import org.csits.kel.server.service.JobConfigService;
 import org.csits.kel.server.service.MetricsCollector;
 import org.csits.kel.server.service.ManifestService;
 import org.csits.kel.server.service.ProgressTracker;
+import org.csits.kel.server.service.TaskExecutionRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -32,45 +38,55 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class TaskController {
 
+    private static final int MAX_LOG_PAGE_SIZE = 1000;
+    private static final int MAX_TASK_PAGE_SIZE = 500;
+
     private final TaskExecutionRepository taskExecutionRepository;
+    private final TaskExecutionLogRepository taskExecutionLogRepository;
     private final MetricsCollector metricsCollector;
     private final ProgressTracker progressTracker;
     private final JobConfigService jobConfigService;
     private final ManifestService manifestService;
+    private final TaskExecutionRollupService taskExecutionRollupService;
 
     /**
-     * 查询所有任务
+     * 分页查询任务摘要（按创建时间倒序）。过滤与分页在数据库中完成：
+     * 返回 (createdAt, id) 在 (afterCreatedAt, afterId) 之后的前 size 条，
+     * 下一页以返回的 nextAfterCreatedAt、nextAfterId 作为游标
      */
     @GetMapping
     public ResponseEntity<Map<String, Object>> listTasks(
         @RequestParam(required = false) String jobName,
         @RequestParam(required = false) String status,
         @RequestParam(defaultValue = "0") int days,
-        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(required = false)
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+        @RequestParam(required = false) Long afterId,
         @RequestParam(defaultValue = "20") int size) {
-
-        List<TaskExecutionEntity> allTasks = taskExecutionRepository.findAll();
-
-        LocalDateTime since = (days > 0) ? LocalDateTime.now().minusDays(days) : null;
-
-        // 过滤
-        List<TaskExecutionEntity> filtered = allTasks.stream()
-            .filter(t -> jobName == null || jobName.equals(t.getJobName()))
-            .filter(t -> status == null || status.equals(t.getStatus()))
-            .filter(t -> since == null || (t.getStartTime() != null && !t.getStartTime().isBefore(since)))
-            .collect(Collectors.toList());
-
-        // 分页
-        int total = filtered.size();
-        int start = page * size;
-        int end = Math.min(start + size, total);
-        List<TaskExecutionEntity> paged = filtered.subList(start, end);
+        int pageSize = Math.max(1, Math.min(size, MAX_TASK_PAGE_SIZE));
+
+        TaskExecutionQuery query = new TaskExecutionQuery();
+        query.setJobName(emptyToNull(jobName));
+        query.setStatus(emptyToNull(status));
+        query.setStartTimeFrom(days > 0 ? LocalDateTime.now().minusDays(days) : null);
+        query.setAfterCreatedAt(afterCreatedAt);
+        query.setAfterId(afterId);
+        // 多取一条判断是否还有下一页
+        List<TaskExecutionSummary> tasks = taskExecutionRepository.findSummaries(query, pageSize + 1);
+        boolean hasMore = tasks.size() > pageSize;
+        if (hasMore) {
+            tasks = tasks.subList(0, pageSize);
+        }
 
         Map<String, Object> result = new HashMap<>();
-        result.put("total", total);
-        result.put("page", page);
-        result.put("size", size);
-        result.put("data", paged);
+        result.put("size", pageSize);
+        result.put("data", tasks);
+        result.put("hasMore", hasMore);
+        if (hasMore) {
+            TaskExecutionSummary last = tasks.get(tasks.size() - 1);
+            result.put("nextAfterCreatedAt", last.getCreatedAt());
+            result.put("nextAfterId", last.getId());
+        }
 
         return ResponseEntity.ok(result);
     }
@@ -85,12 +101,36 @@ public class TaskController {
             .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * 分页查询任务执行日志（按写入顺序）：返回 id 大于 afterId 的前 limit 条，
+     * 下一页以返回的 nextAfterId 作为 afterId
+     */
+    @GetMapping("/{id}/logs")
+    public ResponseEntity<Map<String, Object>> getTaskLogs(
+        @PathVariable Long id,
+        @RequestParam(defaultValue = "0") long afterId,
+        @RequestParam(defaultValue = "200") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LOG_PAGE_SIZE));
+        // 多取一条判断是否还有下一页
+        List<TaskExecutionLogEntity> logs = taskExecutionLogRepository.findByTaskId(id, afterId, pageSize + 1);
+        boolean hasMore = logs.size() > pageSize;
+        if (hasMore) {
+            logs = logs.subList(0, pageSize);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("data", logs);
+        result.put("hasMore", hasMore);
+        result.put("nextAfterId", logs.isEmpty() ? afterId : logs.get(logs.size() - 1).getId());
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 根据作业名查询任务列表
      */
     @GetMapping("/by-job/{jobName}")
     public ResponseEntity<List<TaskExecutionEntity>> getTasksByJobName(@PathVariable String jobName) {
-        List<TaskExecutionEntity> tasks = taskExecutionRepository.findByJobName(jobName);
+        List<TaskExecutionEntity> tasks = taskExecutionRepository.findSummariesByJobName(jobName);
         return ResponseEntity.ok(tasks);
     }
 
@@ -109,40 +149,51 @@ public class TaskController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTask(@PathVariable Long id) {
+        taskExecutionRollupService.retractTerminal(id);
         taskExecutionRepository.deleteById(id);
         return ResponseEntity.noContent().build();
     }
 
     /**
-     * 获取任务统计信息
+     * 获取任务统计信息（完整的日读取按日汇总，当天等不完整的部分查询原始记录）
      */
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats(
-        @RequestParam(defaultValue = "0") int days) {
-        List<TaskExecutionEntity> allTasks = taskExecutionRepository.findAll();
-
+        @RequestParam(defaultValue = "0") int days,
+        @RequestParam(required = false) String jobName) {
         LocalDateTime since = (days > 0) ? LocalDateTime.now().minusDays(days) : null;
-        List<TaskExecutionEntity> filtered = allTasks;
-        if (since != null) {
-            filtered = allTasks.stream()
-                .filter(t -> t.getStartTime() != null && !t.getStartTime().isBefore(since))
-                .collect(Collectors.toList());
-        }
-
-        long total = filtered.size();
-        long running = filtered.stream().filter(t -> "RUNNING".equals(t.getStatus())).count();
-        long success = filtered.stream().filter(t -> "SUCCESS".equals(t.getStatus())).count();
-        long failed = filtered.stream().filter(t -> "FAILED".equals(t.getStatus())).count();
+        Map<String, Long> counts = taskExecutionRollupService.countByStatus(since, emptyToNull(jobName));
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("total", total);
-        stats.put("running", running);
-        stats.put("success", success);
-        stats.put("failed", failed);
+        stats.put("total", counts.values().stream().mapToLong(Long::longValue).sum());
+        stats.put("running", counts.getOrDefault("RUNNING", 0L));
+        stats.put("success", counts.getOrDefault("SUCCESS", 0L));
+        stats.put("failed", counts.getOrDefault("FAILED", 0L));
 
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * 从任务记录重建 [from, to] 的按日汇总（用于首次启用汇总或修复累加失败）
+     */
+    @PostMapping("/stats/rollup")
+    public ResponseEntity<Map<String, Object>> rebuildRollup(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        Map<String, Object> result = new HashMap<>();
+        if (end.isBefore(from)) {
+            result.put("error", "结束日期早于开始日期");
+            return ResponseEntity.badRequest().body(result);
+        }
+        int rows = taskExecutionRollupService.backfill(from, end);
+
+        result.put("from", from);
+        result.put("to", end);
+        result.put("rows", rows);
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 获取任务详细统计信息
      */
@@ -174,7 +225,7 @@ public class TaskController {
      */
     @GetMapping("/{id}/manifest")
     public ResponseEntity<ManifestMetadata> getTaskManifest(@PathVariable Long id) {
-        return taskExecutionRepository.findById(id)
+        return taskExecutionRepository.findStateById(id)
             .flatMap(task -> {
                 try {
                     GlobalConfig global = jobConfigService.loadGlobalConfig();
@@ -194,4 +245,8 @@ public class TaskController {
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
 }